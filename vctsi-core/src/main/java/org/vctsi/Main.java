@@ -22,6 +22,7 @@ package org.vctsi;
  * #L%
  */
 
+import org.vctsi.internal.SqlConnectionPool;
 import org.vctsi.internal.its.ITSModule;
 import org.vctsi.internal.tasks.Task;
 import org.vctsi.internal.vcs.VCSModule;
@@ -41,8 +42,13 @@ public class Main {
         long start = System.currentTimeMillis();
         ArgumentParser ap = new ArgumentParser();
         if (ap.parse(args)) {
-            startProcessing(ap);
+            if (ap.isServer()) {
+                new Server(args, ap.getServerPort()).run();
+            } else {
+                startProcessing(ap);
+            }
         }
+        SqlConnectionPool.closeAll();
         OutputUtil.debug("Runtime in millis: " + (System.currentTimeMillis() - start));
     }
 
@@ -53,31 +59,57 @@ public class Main {
     private static void startProcessing(ArgumentParser ap) {
         Task task = ap.getTask();
         if (task.getTaskTarget() == Task.TaskTarget.COMMIT) {
-            if (task.getVcsModule() == null) {
-                OutputUtil.printError(ERROR_MISSING_VCS_MODULE);
-                return;
-            }
-            try {
-                VCSModule vcsModule = task.getVcsModule().newInstance();
-                vcsModule.setSettings(ap.getVcsSettings());
-                vcsModule.setDBSettings(ap.getDbSettings());
+            VCSModule vcsModule = createVcsModule(ap);
+            if (vcsModule != null) {
                 vcsModule.executeTask(task);
-            } catch (InstantiationException | IllegalAccessException e) {
-                OutputUtil.printError("could not instantiate the vcs module");
             }
         } else if (task.getTaskTarget() == Task.TaskTarget.ISSUE) {
-            if (task.getItsModule() == null) {
-                OutputUtil.printError(ERROR_MISSING_ITS_MODULE);
-                return;
-            }
-            try {
-                ITSModule itsModule = task.getItsModule().newInstance();
-                itsModule.setSettings(ap.getItsSettings());
-                itsModule.setDBSettings(ap.getDbSettings());
+            ITSModule itsModule = createItsModule(ap);
+            if (itsModule != null) {
                 itsModule.executeTask(task);
-            } catch (InstantiationException | IllegalAccessException e) {
-                OutputUtil.printError("could not instantiate the its module");
             }
         }
     }
+
+    /**
+     * creates the vcs module of the task and passes the settings to it
+     * @param ap the argumentparser that contains the task and settings
+     * @return the vcs module or null if no module is given or it could not be instantiated
+     */
+    static VCSModule createVcsModule(ArgumentParser ap) {
+        if (ap.getTask().getVcsModule() == null) {
+            OutputUtil.printError(ERROR_MISSING_VCS_MODULE);
+            return null;
+        }
+        try {
+            VCSModule vcsModule = ap.getTask().getVcsModule().newInstance();
+            vcsModule.setSettings(ap.getVcsSettings());
+            vcsModule.setDBSettings(ap.getDbSettings());
+            return vcsModule;
+        } catch (InstantiationException | IllegalAccessException e) {
+            OutputUtil.printError("could not instantiate the vcs module");
+            return null;
+        }
+    }
+
+    /**
+     * creates the its module of the task and passes the settings to it
+     * @param ap the argumentparser that contains the task and settings
+     * @return the its module or null if no module is given or it could not be instantiated
+     */
+    static ITSModule createItsModule(ArgumentParser ap) {
+        if (ap.getTask().getItsModule() == null) {
+            OutputUtil.printError(ERROR_MISSING_ITS_MODULE);
+            return null;
+        }
+        try {
+            ITSModule itsModule = ap.getTask().getItsModule().newInstance();
+            itsModule.setSettings(ap.getItsSettings());
+            itsModule.setDBSettings(ap.getDbSettings());
+            return itsModule;
+        } catch (InstantiationException | IllegalAccessException e) {
+            OutputUtil.printError("could not instantiate the its module");
+            return null;
+        }
+    }
 }
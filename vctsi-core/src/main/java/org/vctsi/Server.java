@@ -0,0 +1,324 @@
+package org.vctsi;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.its.ITSModule;
+import org.vctsi.internal.tasks.Task;
+import org.vctsi.internal.vcs.VCSModule;
+import org.vctsi.utils.ArgumentParser;
+import org.vctsi.utils.OutputUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * the server mode of vctsi: it keeps running and executes the tasks of the requests it reads from stdin or from
+ * connections to a local port. Every line of the input is a request that contains the arguments of one task. The
+ * modules used by search, get and diff tasks are kept with their connections (eg. opened repositories or api clients)
+ * for the following requests with the same settings.
+ */
+public class Server {
+
+    static final String EXIT = "exit";
+    static final String ERROR_SERVER_IN_REQUEST = "the server mode can't be started by a request";
+    static final String ERROR_PARSE_REQUEST = "the request is not a valid json array of arguments";
+    //maximal number of modules that are kept for the following requests
+    private static final int MAX_CACHED_MODULES = 16;
+
+    private final String[] defaultArgs;
+    private final int port;
+    private final List<CachedModule<VCSModule>> vcsModules = new ArrayList<>();
+    private final List<CachedModule<ITSModule>> itsModules = new ArrayList<>();
+    private int requestCount = 0;
+
+    /**
+     * creates the server
+     *
+     * @param args the arguments passed at start; except the server settings they are used as defaults for every request
+     * @param port the port on localhost on which the requests are received; if 0 the requests are read from stdin
+     */
+    public Server(String[] args, int port) {
+        List<String> defaults = new ArrayList<>();
+        for (String arg : args) {
+            if (!arg.startsWith("-server")) {
+                defaults.add(arg);
+            }
+        }
+        this.defaultArgs = defaults.toArray(new String[defaults.size()]);
+        this.port = port;
+    }
+
+    /**
+     * handles requests until the input ends or the exit request is received
+     */
+    public void run() {
+        if (port == 0) {
+            try {
+                serve(new BufferedReader(new InputStreamReader(System.in, StandardCharsets.UTF_8)));
+            } catch (IOException e) {
+                OutputUtil.printError("error reading the requests: " + e.getMessage());
+            }
+        } else {
+            serveSocket();
+        }
+    }
+
+    /**
+     * accepts connections on the port and handles their requests one after another. While a connection is handled the
+     * whole output (stdout and stderr) is sent to it.
+     */
+    private void serveSocket() {
+        PrintStream out = System.out;
+        PrintStream err = System.err;
+        try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+            OutputUtil.printInfo("listening on port " + port);
+            boolean running = true;
+            while (running) {
+                try (Socket socket = serverSocket.accept()) {
+                    PrintStream socketOut = new PrintStream(socket.getOutputStream(), true, "UTF-8");
+                    System.setOut(socketOut);
+                    System.setErr(socketOut);
+                    running = serve(new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.UTF_8)));
+                } catch (IOException e) {
+                    OutputUtil.printError("error handling a connection: " + e.getMessage());
+                } finally {
+                    System.setOut(out);
+                    System.setErr(err);
+                }
+            }
+        } catch (IOException e) {
+            OutputUtil.printError("could not listen on port " + port + ": " + e.getMessage());
+        }
+    }
+
+    /**
+     * handles the requests read from the reader
+     *
+     * @param reader the reader that contains a request in every line
+     * @return false if the exit request was received; true if the input ended
+     * @throws IOException if the requests could not be read
+     */
+    boolean serve(BufferedReader reader) throws IOException {
+        String line;
+        while ((line = reader.readLine()) != null) {
+            line = line.trim();
+            if (line.isEmpty()) {
+                continue;
+            }
+            if (line.equals(EXIT)) {
+                return false;
+            }
+            handleRequest(line);
+        }
+        return true;
+    }
+
+    /**
+     * executes the task of a request and prints the duration of the request after its output
+     *
+     * @param request the arguments of the request
+     */
+    private void handleRequest(String request) {
+        long start = System.currentTimeMillis();
+        int requestId = ++requestCount;
+        try {
+            String[] requestArgs = splitArguments(request);
+            String[] args = Arrays.copyOf(defaultArgs, defaultArgs.length + requestArgs.length);
+            System.arraycopy(requestArgs, 0, args, defaultArgs.length, requestArgs.length);
+            OutputUtil.resetSettings();
+            ArgumentParser ap = new ArgumentParser();
+            if (ap.parse(args)) {
+                if (ap.isServer()) {
+                    OutputUtil.printError(ERROR_SERVER_IN_REQUEST);
+                } else {
+                    execute(ap);
+                }
+            }
+        } catch (IOException e) {
+            OutputUtil.printError(ERROR_PARSE_REQUEST);
+        } catch (RuntimeException e) {
+            OutputUtil.printError("an error occured: " + e.getMessage());
+        }
+        System.err.flush();
+        OutputUtil.printRequestSummary(requestId, System.currentTimeMillis() - start);
+    }
+
+    /**
+     * executes the task with the module of the task
+     *
+     * @param ap the argumentparser that contains the task and settings
+     */
+    private void execute(ArgumentParser ap) {
+        Task task = ap.getTask();
+        if (task.getTaskTarget() == Task.TaskTarget.COMMIT) {
+            VCSModule vcsModule = getVcsModule(ap);
+            if (vcsModule != null) {
+                vcsModule.executeTask(task);
+            }
+        } else if (task.getTaskTarget() == Task.TaskTarget.ISSUE) {
+            ITSModule itsModule = getItsModule(ap);
+            if (itsModule != null) {
+                itsModule.executeTask(task);
+            }
+        }
+    }
+
+    /**
+     * returns a kept vcs module with the same settings or creates a new one. Modules of imports are never kept.
+     *
+     * @param ap the argumentparser that contains the task and settings
+     * @return the vcs module or null if no module is given or it could not be instantiated
+     */
+    private VCSModule getVcsModule(ArgumentParser ap) {
+        Task task = ap.getTask();
+        boolean keep = task.getTaskType() != Task.TaskType.IMPORT;
+        if (keep) {
+            for (CachedModule<VCSModule> cached : vcsModules) {
+                if (cached.matches(task.getVcsModule(), ap.getVcsSettings(), ap.getDbSettings())) {
+                    return cached.module;
+                }
+            }
+        }
+        VCSModule module = Main.createVcsModule(ap);
+        if (module != null && keep) {
+            addToCache(vcsModules, new CachedModule<>(module, ap.getVcsSettings(), ap.getDbSettings()));
+        }
+        return module;
+    }
+
+    /**
+     * returns a kept its module with the same settings or creates a new one. Modules of imports are never kept.
+     *
+     * @param ap the argumentparser that contains the task and settings
+     * @return the its module or null if no module is given or it could not be instantiated
+     */
+    private ITSModule getItsModule(ArgumentParser ap) {
+        Task task = ap.getTask();
+        boolean keep = task.getTaskType() != Task.TaskType.IMPORT;
+        if (keep) {
+            for (CachedModule<ITSModule> cached : itsModules) {
+                if (cached.matches(task.getItsModule(), ap.getItsSettings(), ap.getDbSettings())) {
+                    return cached.module;
+                }
+            }
+        }
+        ITSModule module = Main.createItsModule(ap);
+        if (module != null && keep) {
+            addToCache(itsModules, new CachedModule<>(module, ap.getItsSettings(), ap.getDbSettings()));
+        }
+        return module;
+    }
+
+    /**
+     * adds a module to the cache and removes the oldest one if the cache is full
+     *
+     * @param cache  the cache of modules
+     * @param module the module to add
+     * @param <T>    the module type
+     */
+    private <T> void addToCache(List<CachedModule<T>> cache, CachedModule<T> module) {
+        if (cache.size() >= MAX_CACHED_MODULES) {
+            cache.remove(0);
+        }
+        cache.add(module);
+    }
+
+    /**
+     * splits a request into its arguments. A request is either a json array of arguments or a line of arguments
+     * separated by spaces in which arguments containing spaces can be enclosed in double quotes
+     *
+     * @param request the request
+     * @return the arguments of the request
+     * @throws IOException if the request starts with '[' but is no valid json array of strings
+     */
+    static String[] splitArguments(String request) throws IOException {
+        if (request.startsWith("[")) {
+            return new ObjectMapper().readValue(request, String[].class);
+        }
+        List<String> args = new ArrayList<>();
+        StringBuilder current = new StringBuilder();
+        boolean quoted = false;
+        boolean inArg = false;
+        for (char c : request.toCharArray()) {
+            if (c == '"') {
+                quoted = !quoted;
+                inArg = true;
+            } else if (Character.isWhitespace(c) && !quoted) {
+                if (inArg) {
+                    args.add(current.toString());
+                    current.setLength(0);
+                    inArg = false;
+                }
+            } else {
+                current.append(c);
+                inArg = true;
+            }
+        }
+        if (inArg) {
+            args.add(current.toString());
+        }
+        return args.toArray(new String[args.size()]);
+    }
+
+    /**
+     * a module that is kept for following requests together with the settings it was created with
+     *
+     * @param <T> the module type
+     */
+    private static class CachedModule<T> {
+        private final T module;
+        private final Object settings;
+        private final DBSettings dbSettings;
+
+        private CachedModule(T module, Object settings, DBSettings dbSettings) {
+            this.module = module;
+            this.settings = settings;
+            this.dbSettings = dbSettings;
+        }
+
+        /**
+         * checks if the module can be used for a request
+         *
+         * @param moduleClass the module class of the request
+         * @param settings    the module settings of the request
+         * @param dbSettings  the db settings of the request
+         * @return true if the module has the class and was created with the same settings
+         */
+        private boolean matches(Class<?> moduleClass, Object settings, DBSettings dbSettings) {
+            return module.getClass().equals(moduleClass)
+                    && this.settings.equals(settings)
+                    && this.dbSettings.equals(dbSettings);
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package org.vctsi.bugzilla;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugzillaMethod;
+import com.j2bugzilla.base.Comment;
+
+import java.util.*;
+
+/**
+ * requests the comments of many bugs with a single Bug.comments call. the BugComments method of j2bugzilla only
+ * accepts a single bug
+ */
+public class BugzillaBulkComments implements BugzillaMethod {
+
+    private static final String methodName = "Bug.comments";
+
+    private final Map<Object, Object> parameters = new HashMap<>();
+    private Map<Object, Object> results = Collections.emptyMap();
+
+    /**
+     * @param bugs the bugs of which the comments shall be requested
+     */
+    public BugzillaBulkComments(List<Bug> bugs) {
+        Object[] ids = new Object[bugs.size()];
+        for (int i = 0; i < ids.length; i++) {
+            ids[i] = bugs.get(i).getID();
+        }
+        parameters.put("ids", ids);
+    }
+
+    /**
+     * returns the comments of a bug that was requested
+     *
+     * @param bug the bug of which the comments shall be returned
+     * @return the comments of the bug; an empty list if the server returned no comments for the bug
+     */
+    @SuppressWarnings("unchecked")
+    public List<Comment> getComments(Bug bug) {
+        Object bugs = results.get("bugs");
+        if (!(bugs instanceof Map)) {
+            return Collections.emptyList();
+        }
+        Object bugComments = ((Map<Object, Object>) bugs).get(String.valueOf(bug.getID()));
+        if (!(bugComments instanceof Map)) {
+            return Collections.emptyList();
+        }
+        Object[] comments = (Object[]) ((Map<Object, Object>) bugComments).get("comments");
+        if (comments == null) {
+            return Collections.emptyList();
+        }
+        List<Comment> commentList = new ArrayList<>(comments.length);
+        for (Object o : comments) {
+            Map<Object, Object> comment = (Map<Object, Object>) o;
+            //older versions of bugzilla return author and time instead of creator and creation_time
+            Object creator = comment.containsKey("creator") ? comment.get("creator") : comment.get("author");
+            Object creationTime = comment.containsKey("creation_time") ? comment.get("creation_time") : comment.get("time");
+            commentList.add(new Comment(
+                    (Integer) comment.get("id"),
+                    (String) comment.get("text"),
+                    (String) creator,
+                    (Date) creationTime
+            ));
+        }
+        return commentList;
+    }
+
+    @Override
+    public void setResultMap(Map<Object, Object> hash) {
+        results = hash;
+    }
+
+    @Override
+    public Map<Object, Object> getParameterMap() {
+        return Collections.unmodifiableMap(parameters);
+    }
+
+    @Override
+    public String getMethodName() {
+        return methodName;
+    }
+}
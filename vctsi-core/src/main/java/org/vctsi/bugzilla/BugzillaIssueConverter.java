@@ -120,6 +120,18 @@ public class BugzillaIssueConverter implements IssueConverter<Bug> {
         return bug.getCreationTime();
     }
 
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param bug the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    @Override
+    public Date getUpdateDate(Bug bug) {
+        Object lastChangeTime = bug.getParameterMap().get("last_change_time");
+        return lastChangeTime instanceof Date ? (Date) lastChangeTime : null;
+    }
+
     /**
      * get the state of the issue
      *
@@ -32,9 +32,10 @@ import org.vctsi.utils.OutputUtil;
 import java.sql.SQLException;
 import java.time.format.DateTimeFormatter;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
-public class BugzillaModule extends ITSModule implements CommentRetriever<Comment, Bug> {
+public class BugzillaModule extends ITSModule implements BulkCommentRetriever<Comment, Bug> {
 
     private final int threadPoolSize = 5;
     static final private int batchSize = 100;
@@ -51,8 +52,9 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
             OutputUtil.printError("Bugzilla requires a path to be set in -itsPath");
             return false;
         }
+        Date since;
         try {
-            setupSqlTables();
+            since = setupSqlTables();
         } catch (SQLException e) {
             OutputUtil.printError("Error preparing sql tables.");
             return false;
@@ -69,18 +71,23 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 true
         );
         try {
             //fill issue queue
             int i = 0;
             do {
-                BugSearch bs = new BugSearch(
-                        new BugSearch.SearchQuery(BugSearch.SearchLimiter.PRODUCT, itsSettings.getProject()),
-                        new BugSearch.SearchQuery(BugSearch.SearchLimiter.LIMIT, "" + batchSize),
-                        new BugSearch.SearchQuery(BugSearch.SearchLimiter.OFFSET, "" + batchSize * i)
-                );
-                connector.get().executeMethod(bs);
+                List<BugSearch.SearchQuery> queries = new ArrayList<>(4);
+                queries.add(new BugSearch.SearchQuery(BugSearch.SearchLimiter.PRODUCT, itsSettings.getProject()));
+                queries.add(new BugSearch.SearchQuery(BugSearch.SearchLimiter.LIMIT, "" + batchSize));
+                queries.add(new BugSearch.SearchQuery(BugSearch.SearchLimiter.OFFSET, "" + batchSize * i));
+                if (since != null) {
+                    //only bugs with a last_change_time after the last import
+                    queries.add(new BugSearch.SearchQuery(BugSearch.SearchLimiter.SINCE, DateTimeFormatter.ISO_INSTANT.format(since.toInstant())));
+                }
+                BugSearch bs = new BugSearch(queries.toArray(new BugSearch.SearchQuery[queries.size()]));
+                executeMethod(bs);
                 List<Bug> bugList = bs.getSearchResults();
                 threadSpawner.put(bugList, i);
                 if (bugList.size() != batchSize) {
@@ -92,6 +99,7 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
             threadSpawner.finish();
 
             if (threadSpawner.getErrors().isEmpty()) {
+                saveLastUpdate();
                 return true;
             } else {
                 OutputUtil.printError(threadSpawner.getErrors());
@@ -100,6 +108,9 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
         } catch (BugzillaException e) {
             OutputUtil.printError("Error retrieving the bugzilla bugs. " + e.getMessage());
             return false;
+        } catch (SQLException e) {
+            OutputUtil.printError("Error saving the import state. " + e.getMessage());
+            return false;
         } catch (InterruptedException e) {
             OutputUtil.debug("Thread " + Thread.currentThread().getName() + " was interrupted");
             return false;
@@ -122,12 +133,13 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
     @Override
     public List<Comment> getComments(Bug bug) {
         BugComments bugComments = new BugComments(bug);
-        BugzillaConnector bc = connector.get();
         try {
-            bc.executeMethod(bugComments);
+            executeMethod(bugComments);
+        } catch (InterruptedException e) {
+            error += e.getMessage();
+            return null;
         } catch (BugzillaException e) {
-            //some older comments may contain invalid characters like 0x12 (eg. https://bugzilla.mozilla.org/show_bug.cgi?id=185382)
-            if (e.getMessage().contains("An unknown error was encountered") && e.getMessage().contains("(Unicode: 0x")) {
+            if (isInvalidCharacterError(e)) {
                 OutputUtil.debug("Invalid character in comment of bug. the comments will be dropped" + bug.getID());
                 List<Comment> commentList = new ArrayList<>(1);
                 commentList.add(new Comment(-1, null, null, null));
@@ -140,6 +152,79 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
         return bugComments.getComments();
     }
 
+    /**
+     * gets the comments of many bugs with one request for every -itsCommentBatchSize bugs. if a comment of a batch
+     * contains an invalid character the comments of that batch are requested bug by bug, so only the comments of the
+     * affected bug are dropped
+     *
+     * @param bugs the bugs of which the comments shall be returned
+     * @return the comments of each bug in the order of the bugs; null if an error occured
+     */
+    @Override
+    public List<List<Comment>> getBulkComments(List<Bug> bugs) {
+        List<List<Comment>> result = new ArrayList<>(bugs.size());
+        int commentBatchSize = itsSettings.getCommentBatchSize();
+        for (int start = 0; start < bugs.size(); start += commentBatchSize) {
+            List<Bug> batch = bugs.subList(start, Math.min(start + commentBatchSize, bugs.size()));
+            if (batch.size() > 1 && getBatchComments(batch, result)) {
+                continue;
+            }
+            if (!error.isEmpty()) {
+                return null;
+            }
+            for (Bug bug : batch) {
+                List<Comment> comments = getComments(bug);
+                if (comments == null) {
+                    return null;
+                }
+                result.add(comments);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * requests the comments of a batch of bugs with a single request
+     *
+     * @param batch  the bugs of which the comments shall be requested
+     * @param result the list to which the comments of each bug are added
+     * @return true if the comments were added; false if the request failed. error is set if the comments can't be
+     * requested bug by bug either
+     */
+    private boolean getBatchComments(List<Bug> batch, List<List<Comment>> result) {
+        BugzillaBulkComments bulkComments = new BugzillaBulkComments(batch);
+        try {
+            executeMethod(bulkComments);
+        } catch (InterruptedException e) {
+            error += e.getMessage();
+            return false;
+        } catch (BugzillaException e) {
+            if (isInvalidCharacterError(e)) {
+                OutputUtil.debug("Invalid character in comments of bugs " + batch.get(0).getID() + " to "
+                        + batch.get(batch.size() - 1).getID() + ". requesting them one by one");
+            } else {
+                error += e.getMessage();
+            }
+            return false;
+        }
+        for (Bug bug : batch) {
+            result.add(bulkComments.getComments(bug));
+        }
+        return true;
+    }
+
+    /**
+     * some older comments may contain invalid characters like 0x12 (eg. https://bugzilla.mozilla.org/show_bug.cgi?id=185382)
+     * which can't be returned by the server
+     *
+     * @param e the exception of a comment request
+     * @return true if the request failed because of an invalid character; else false
+     */
+    private static boolean isInvalidCharacterError(BugzillaException e) {
+        return e.getMessage() != null && e.getMessage().contains("An unknown error was encountered")
+                && e.getMessage().contains("(Unicode: 0x");
+    }
+
     /**
      * searches online for tickets
      *
@@ -211,6 +296,7 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 false
         );
 
@@ -219,7 +305,7 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
             do {
                 onlineSearchParams[0] = new BugSearch.SearchQuery(BugSearch.SearchLimiter.OFFSET, "" + (idx * batchSize));
                 BugSearch bs = new BugSearch(onlineSearchParams);
-                connector.get().executeMethod(bs);
+                executeMethod(bs);
 
                 List<Bug> tmpList = bs.getSearchResults();
                 threadSpawner.put(tmpList, idx++);
@@ -245,12 +331,31 @@ public class BugzillaModule extends ITSModule implements CommentRetriever<Commen
         }
     }
 
+    /**
+     * executes a method with the connector of the current thread within the rate limit of the bugzilla server
+     *
+     * @param method the method that shall be executed
+     * @throws BugzillaException    thrown if error occured while communicating with the server
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    private void executeMethod(BugzillaMethod method) throws BugzillaException, InterruptedException {
+        //the xml-rpc client does not pass the status code or headers of rejected requests, so they are not retried
+        getRateLimiter().execute(() -> {
+            connector.get().executeMethod(method);
+            return method;
+        }, null);
+    }
+
     /**
      * creates the connection to bugzilla
      *
      * @return a connector representing the connection
      */
     private BugzillaConnector createConnector() {
+        if (connector != null && connector.get() != null) {
+            //already connected by a previous task of the server mode
+            return connector.get();
+        }
         connector = new ThreadLocal<BugzillaConnector>() {
             @Override
             protected BugzillaConnector initialValue() {
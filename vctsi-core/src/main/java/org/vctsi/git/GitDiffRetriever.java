@@ -22,7 +22,11 @@ package org.vctsi.git;
  * #L%
  */
 
+import org.eclipse.jgit.diff.RenameDetector;
+import org.eclipse.jgit.lib.ObjectReader;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevWalk;
+import org.eclipse.jgit.treewalk.TreeWalk;
 import org.vctsi.internal.vcs.VCSRunnable;
 
 import java.util.Collection;
@@ -32,14 +36,35 @@ public class GitDiffRetriever extends VCSRunnable<GitModule, RevCommit> {
     public GitDiffRetriever() {
     }
 
+    /**
+     * creates the file changes for a batch of commits. The object reader and the walks are only created once per batch
+     * and reused for every commit of it.
+     *
+     * @param commits the commits of which the file changes shall be imported
+     */
     @Override
     public void execute(Collection<RevCommit> commits) {
-        for (RevCommit commit : commits) {
-            try {
-                module.importDiffs(commit);
-            } catch (Exception e) {
-                module.failedDiffImports.add(commit.getName());
+        try (ObjectReader reader = module.newObjectReader();
+             RevWalk revWalk = new RevWalk(reader);
+             TreeWalk treeWalk = module.createDiffTreeWalk(reader)) {
+            RenameDetector renameDetector = module.createRenameDetector(reader);
+            for (RevCommit commit : commits) {
+                try {
+                    module.importDiffs(commit, revWalk, treeWalk, renameDetector);
+                } catch (Exception e) {
+                    module.failedDiffImports.add(commit.getName());
+                }
             }
         }
     }
+
+    /**
+     * the file changes are passed to the diff writers of the module, which write them with their own connections
+     *
+     * @return false
+     */
+    @Override
+    public boolean usesSql() {
+        return false;
+    }
 }
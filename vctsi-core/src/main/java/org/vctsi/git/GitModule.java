@@ -25,15 +25,22 @@ package org.vctsi.git;
 import org.eclipse.jgit.api.*;
 import org.eclipse.jgit.api.errors.GitAPIException;
 import org.eclipse.jgit.api.errors.TransportException;
+import org.eclipse.jgit.diff.DiffConfig;
 import org.eclipse.jgit.diff.DiffEntry;
 import org.eclipse.jgit.diff.DiffFormatter;
+import org.eclipse.jgit.diff.RenameDetector;
 import org.eclipse.jgit.errors.MissingObjectException;
 import org.eclipse.jgit.errors.RevWalkException;
 import org.eclipse.jgit.lib.*;
 import org.eclipse.jgit.revwalk.RevCommit;
+import org.eclipse.jgit.revwalk.RevFlag;
+import org.eclipse.jgit.revwalk.RevSort;
 import org.eclipse.jgit.revwalk.RevWalk;
 import org.eclipse.jgit.transport.UsernamePasswordCredentialsProvider;
 import org.eclipse.jgit.treewalk.CanonicalTreeParser;
+import org.eclipse.jgit.treewalk.TreeWalk;
+import org.eclipse.jgit.treewalk.filter.TreeFilter;
+import org.vctsi.internal.SqlConnectionPool;
 import org.vctsi.internal.vcs.*;
 import org.vctsi.utils.OutputUtil;
 
@@ -44,18 +51,99 @@ import java.sql.SQLException;
 import java.util.*;
 import java.util.concurrent.ConcurrentLinkedDeque;
 import java.util.concurrent.ConcurrentLinkedQueue;
-import java.util.concurrent.LinkedBlockingQueue;
 
 public class GitModule extends VCSModule {
     private static final int threadPoolSize = 10;
     private Git git;
     private Repository repo;
     private VCSThreadSpawner<GitModule, RevCommit> threadSpawner;
-    private LinkedBlockingQueue<FileChange> fileChanges = new LinkedBlockingQueue<>();
-    private Thread sqlDiffImporterThread;
-    private boolean isFinished = false;
+    private VCSDiffWriter diffWriter;
     List<String> failedDiffImports = Collections.synchronizedList(new ArrayList<>());
 
+    /**
+     * @return the sha-1 hashes of the commits are stored in their binary form by the compact schema
+     */
+    @Override
+    protected VCSCommitIdType getCommitIdType() {
+        return VCSCommitIdType.SHA1;
+    }
+
+    /**
+     * @return a hash of the heads of all local branches, so the commit graph is created again after a branch changed.
+     * Without a local path the heads stored by the last import are used, so the graph is read from the database.
+     * @throws IOException if the repository could not be opened or the branches could not be listed
+     */
+    @Override
+    protected String getCommitGraphKey() throws IOException {
+        Collection<String> heads = new ArrayList<>();
+        if (vcsSettings.getLocalPath() == null) {
+            VCSSqlModule stateModule = null;
+            try {
+                stateModule = new VCSSqlModule(dbSettings);
+                heads.addAll(stateModule.getImportedHeads(vcsSettings.getProject()).values());
+            } catch (SQLException e) {
+                throw new IOException("could not read the imported heads: " + e.getMessage(), e);
+            } finally {
+                if (stateModule != null) {
+                    stateModule.abort();
+                }
+            }
+            if (heads.isEmpty()) {
+                return null;
+            }
+        } else if (!openRepository(vcsSettings.getLocalPath())) {
+            return null;
+        } else {
+            try {
+                for (ObjectId head : getBranchHeads().values()) {
+                    heads.add(head.getName());
+                }
+            } catch (GitAPIException e) {
+                throw new IOException("could not list the branches: " + e.getMessage(), e);
+            }
+        }
+        byte[] joinedHeads = String.join(",", new TreeSet<>(heads)).getBytes(Constants.CHARSET);
+        return new ObjectInserter.Formatter().idFor(Constants.OBJ_BLOB, joinedHeads).getName();
+    }
+
+    /**
+     * creates the commit graph of all commits that are reachable from the local branches. Without a local path the
+     * graph is created from the parents stored by the import.
+     *
+     * @param key the key of the current state of the repository
+     * @return the commit graph
+     * @throws IOException if the commits could not be walked or read from the database
+     */
+    @Override
+    protected VCSCommitGraph createCommitGraph(String key) throws IOException {
+        if (vcsSettings.getLocalPath() == null) {
+            try {
+                return new VCSCommitGraph(key, new VCSSqlModule(dbSettings).getCommitParents(vcsSettings.getProject()));
+            } catch (SQLException e) {
+                throw new IOException("could not read the parents of the commits: " + e.getMessage(), e);
+            }
+        }
+        Map<String, List<String>> parentsOfCommits = new LinkedHashMap<>();
+        try (RevWalk walk = new RevWalk(repo)) {
+            walk.setRetainBody(false);
+            for (ObjectId head : getBranchHeads().values()) {
+                RevCommit commit = parseCommit(walk, head);
+                if (commit != null) {
+                    walk.markStart(commit);
+                }
+            }
+            for (RevCommit commit : walk) {
+                List<String> parents = new ArrayList<>(commit.getParentCount());
+                for (RevCommit parent : commit.getParents()) {
+                    parents.add(parent.getName());
+                }
+                parentsOfCommits.put(commit.getName(), parents);
+            }
+        } catch (GitAPIException | RevWalkException e) {
+            throw new IOException("could not walk the commits: " + e.getMessage(), e);
+        }
+        return new VCSCommitGraph(key, parentsOfCommits);
+    }
 
     /**
      * imports commits of a git repository
@@ -71,15 +159,11 @@ public class GitModule extends VCSModule {
         }
         try {
             if (noUpdate || updateLocalRepo() != null) {
-                List<Ref> branches = git.branchList().call();
-                for (Ref branch : branches) {
-                    if (!branch.isSymbolic()) { //symbolic eg. HEAD cannot be parsed later but should be part of other branch
-                        importCommitsFromBranch(branch, null, sqlModule.get());
-                    }
-                }
+                Map<String, ObjectId> heads = getBranchHeads();
+                importCommitsFromBranches(heads, Collections.emptyMap(), sqlModule.get());
                 finish();
                 if (failedDiffImports.isEmpty()) {
-                    return isSuccess();
+                    return isSuccess() && saveImportedHeads(heads);
                 } else {
                     OutputUtil.printError("some filechanges could not be generated");
                     return false;
@@ -101,7 +185,9 @@ public class GitModule extends VCSModule {
 
     /**
      * imports new commits. this will update the local repository and synchronizes it with the remote.
-     * it will only import the new synchronized commits.
+     * it will only import the commits that are not reachable from the heads stored by the last successful import.
+     * If no heads were stored yet (eg. the last full import crashed) every commit will be imported again without
+     * removing the existing data.
      *
      * @return true if import is successful, else false
      */
@@ -112,29 +198,23 @@ public class GitModule extends VCSModule {
                 return false;
             }
 
-            HashMap<String, Ref> oldBranches = new HashMap<>();
-            for (Ref branch : git.branchList().call()) {
-                oldBranches.put(BranchTrackingStatus.of(repo, branch.getName()).getRemoteTrackingBranch(), branch);
+            Map<String, ObjectId> importedHeads = new HashMap<>();
+            for (Map.Entry<String, String> importedHead : sqlModule.get().getImportedHeads(vcsSettings.getProject()).entrySet()) {
+                importedHeads.put(importedHead.getKey(), ObjectId.fromString(importedHead.getValue()));
             }
-
             PullResult result = updateLocalRepo();
             if (result != null) {
-                Collection<Ref> remotes = result.getFetchResult().getAdvertisedRefs();
-                for (Ref remoteBranch : remotes) {
-                    //the HEAD and refs/tags branches are ignored
-                    if (!remoteBranch.getName().equals("HEAD") && !remoteBranch.getName().startsWith("refs/tags/")) {
-                        if (!oldBranches.containsKey(remoteBranch.getName())) {
-                            //branch didn't exist yet, so do a full import
-                            importCommitsFromBranch(remoteBranch, null, sqlModule.get());
-                        } else if (!oldBranches.get(remoteBranch.getName()).getObjectId().equals(remoteBranch.getObjectId())) {
-                            //branch was already imported before so only import new commits
-                            importCommitsFromBranch(remoteBranch, oldBranches.get(remoteBranch.getName()), sqlModule.get());
-                        }
+                Map<String, ObjectId> heads = getBranchHeads();
+                Map<String, ObjectId> changedBranches = new LinkedHashMap<>();
+                for (Map.Entry<String, ObjectId> head : heads.entrySet()) {
+                    if (!head.getValue().equals(importedHeads.get(head.getKey()))) {
+                        changedBranches.put(head.getKey(), head.getValue());
                     }
                 }
+                importCommitsFromBranches(changedBranches, importedHeads, sqlModule.get());
                 finish();
                 if (failedDiffImports.isEmpty()) {
-                    return isSuccess();
+                    return isSuccess() && saveImportedHeads(heads);
                 } else {
                     OutputUtil.printError("some filechanges could not be generated");
                     return false;
@@ -161,17 +241,17 @@ public class GitModule extends VCSModule {
      */
     @Override
     protected Diff getFileDiffs(VCSDiffSettings diffSettings) {
-        initialize(vcsSettings.getLocalPath());
+        if (!openRepository(vcsSettings.getLocalPath())) {
+            return null;
+        }
         if (diffSettings.getCommit1() == null) {
             OutputUtil.printError("You have to set a commit id");
             return null;
         }
-        try {
-            RevWalk revWalk = new RevWalk(repo);
+        try (RevWalk revWalk = new RevWalk(repo); ObjectReader reader = repo.newObjectReader()) {
             RevCommit commit = revWalk.parseCommit(repo.resolve(diffSettings.getCommit1()));
             CanonicalTreeParser newTree = new CanonicalTreeParser();
             CanonicalTreeParser oldTree = new CanonicalTreeParser();
-            ObjectReader reader = repo.newObjectReader();
             newTree.reset(reader, commit.getTree().getId());
             if (diffSettings.getCommit2() == null) {
                 List<DiffEntry> diffs = new ArrayList<>();
@@ -201,21 +281,43 @@ public class GitModule extends VCSModule {
      * @return true on success, else false
      */
     private boolean initialize(String localPath) {
+        if (!openRepository(localPath)) {
+            return false;
+        }
+        try {
+            //every writer keeps its own connection besides the one of the main thread; the diff retrievers pass their
+            //file changes to the writers and don't need connections
+            SqlConnectionPool.get(dbSettings).ensureCapacity(vcsSettings.getDiffWriters() + SqlConnectionPool.RESERVED_CONNECTIONS);
+            diffWriter = new VCSDiffWriter(() -> sqlModule.get(), vcsSettings.getDiffWriters());
+            threadSpawner = new VCSThreadSpawner<>(this, GitDiffRetriever.class, threadPoolSize);
+            threadSpawner.start();
+            return true;
+        } catch (ReflectiveOperationException e) {
+            OutputUtil.printError("Error connecting to git:" + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * opens the git repository if it is not already open. An opened repository is kept until an import finishes so
+     * following tasks (eg. diffs in the server mode) can use it.
+     *
+     * @param localPath the local path of the git repository
+     * @return true on success, else false
+     */
+    private boolean openRepository(String localPath) {
         if (localPath == null) {
             OutputUtil.printError("Git requires a localPath set in the -vcsLocalPath");
             return false;
         }
+        if (git != null) {
+            return true;
+        }
         try {
             git = Git.open(new File(localPath));
             repo = git.getRepository();
-
-
-            sqlDiffImporterThread = new SqlDiffImporter();
-            sqlDiffImporterThread.start();
-            threadSpawner = new VCSThreadSpawner<>(this, GitDiffRetriever.class, threadPoolSize);
-            threadSpawner.start();
             return true;
-        } catch (IOException | ReflectiveOperationException e) {
+        } catch (IOException e) {
             OutputUtil.printError("Error connecting to git:" + e.getMessage());
             return false;
         }
@@ -231,15 +333,18 @@ public class GitModule extends VCSModule {
      *                              the last import queries contain errors
      */
     private void finish() throws InterruptedException, SQLException {
-        isFinished = true;
         threadSpawner.finish();
-        sqlDiffImporterThread.interrupt();
-        sqlDiffImporterThread.join();
+        for (String writeError : diffWriter.finish()) {
+            addError(writeError);
+        }
         if (sqlModule != null) {
             sqlModule.get().finishImport();
         }
+        finishBulkImport();
         repo.close();
         git.close();
+        repo = null;
+        git = null;
     }
 
     /**
@@ -310,99 +415,308 @@ public class GitModule extends VCSModule {
     }
 
     /**
-     * imports commits from a branch
+     * receives the commits of a walk over the branches of the repository
+     */
+    interface BranchWalkHandler {
+        /**
+         * handles a commit that was not imported before. Every commit is passed before its parents
+         *
+         * @param commit   the commit
+         * @param branches the names of the walked branches the commit is part of
+         * @throws SQLException         if errors occures while executing sql queries
+         * @throws InterruptedException occurs if the commit could not be queued
+         */
+        void newCommit(RevCommit commit, List<String> branches) throws SQLException, InterruptedException;
+
+        /**
+         * handles a commit that was imported before and became part of a branch since then (eg. by a fast forward merge)
+         *
+         * @param commit the commit
+         * @param branch the name of the branch the commit became part of
+         * @throws SQLException if errors occures while executing sql queries
+         */
+        void oldCommit(RevCommit commit, String branch) throws SQLException;
+    }
+
+    /**
+     * imports the commits of several branches with a single walk over all branch heads. Each commit is imported and
+     * diffed only once even if it is part of many branches.
      *
-     * @param branch    the branch where commits shall be imported for
-     * @param oldBranch old local revision of the branch from which on the
-     *                  commits shall be imported; if null every commit of the branch is getting
-     *                  imported
-     * @param sqlModule the sqlmodule to use for importing the commits
-     * @throws SQLException         if errors occures while executing sql queries (will
-     *                              be retried once before)
-     * @throws GitAPIException      error with git while getting the commits
-     * @throws IOException          error with git while getting the commits
-     * @throws InterruptedException occurs if commit could not be queued
+     * @param branches      the branches which commits shall be imported (name of the branch to its head)
+     * @param importedHeads the heads of the branches that were imported before (name of the branch to its old head).
+     *                      Commits reachable from one of these heads are not imported again. If empty every commit
+     *                      of the branches is getting imported
+     * @param sqlModule     the sqlmodule to use for importing the commits
+     * @throws SQLException         if errors occures while executing sql queries
+     * @throws IOException          error with git while walking the commits
+     * @throws InterruptedException occurs if commits could not be queued
      */
-    private void importCommitsFromBranch(Ref branch, Ref oldBranch, VCSSqlModule sqlModule) throws SQLException, GitAPIException, IOException, InterruptedException {
-        Repository r = git.getRepository();
-        ObjectId repoId = r.resolve(branch.getName());
-        LogCommand logCommand = git.log();
-        try {
-            if (oldBranch == null) {
-                logCommand.add(repoId);
-            } else {
-                logCommand.addRange(repo.resolve(oldBranch.getName()), repo.resolve(branch.getName()));
+    private void importCommitsFromBranches(Map<String, ObjectId> branches, Map<String, ObjectId> importedHeads, VCSSqlModule sqlModule) throws SQLException, IOException, InterruptedException {
+        int diffBatchSize = vcsSettings.getDiffBatchSize();
+        List<RevCommit> batch = new ArrayList<>(diffBatchSize);
+        walkBranches(repo, branches, importedHeads, new BranchWalkHandler() {
+            @Override
+            public void newCommit(RevCommit commit, List<String> commitBranches) throws SQLException, InterruptedException {
+                sqlModule.importCommit(
+                        commit.getName(),
+                        null,
+                        commit.getFullMessage(),
+                        commit.getAuthorIdent().getName(),
+                        commit.getAuthorIdent().getEmailAddress(),
+                        commit.getCommitterIdent().getName(),
+                        commit.getAuthorIdent().getWhen(),
+                        commit.getCommitterIdent().getWhen()
+                );
+                List<String> parentIds = new ArrayList<>(commit.getParentCount());
+                for (RevCommit parent : commit.getParents()) {
+                    parentIds.add(parent.getName());
+                }
+                sqlModule.importCommitParents(commit.getName(), parentIds);
+                for (String branch : commitBranches) {
+                    sqlModule.importCommitBranch(commit.getName(), branch);
+                }
+                batch.add(commit);
+                if (batch.size() >= diffBatchSize) {
+                    threadSpawner.putElem(new ArrayList<>(batch));
+                    batch.clear();
+                }
             }
-        } catch (RevWalkException | MissingObjectException e) {
-            //branch is not checked out yet so we can't process it.
-            return;
-        }
 
-        Iterable<RevCommit> commitIterator;
-        try {
-            //Due to a bug in jgit it occures that after a reboot of the computer the first time this command is run it
-            // produces a RevWalkException. On second run this should work fine.
-            commitIterator = logCommand.call();
-        } catch (RevWalkException e) {
-            commitIterator = logCommand.call();
+            @Override
+            public void oldCommit(RevCommit commit, String branch) throws SQLException {
+                sqlModule.importCommitBranch(commit.getName(), branch);
+            }
+        });
+        //an empty list would signal the workers to stop so only queue the rest if there is one
+        if (!batch.isEmpty()) {
+            threadSpawner.putElem(batch);
         }
+    }
+
+    /**
+     * walks the commits of several branches with a single walk over all branch heads. The branches of a commit are
+     * collected in a bitset (one bit per branch) which is passed on to the parents of the commit. This works because
+     * the walk is sorted topological so every commit is returned before its parents. If heads of a previous import
+     * are given, the commits reachable from them are skipped and afterwards the old commits that became part of a
+     * branch are passed to the handler.
+     *
+     * @param repo          the repository which branches are walked
+     * @param branches      the branches which commits shall be walked (name of the branch to its head)
+     * @param importedHeads the heads of the branches that were imported before (name of the branch to its old head)
+     * @param handler       the handler that receives the commits
+     * @throws SQLException         if the handler could not import a commit
+     * @throws IOException          error with git while walking the commits
+     * @throws InterruptedException if the handler could not queue a commit
+     */
+    static void walkBranches(Repository repo, Map<String, ObjectId> branches, Map<String, ObjectId> importedHeads, BranchWalkHandler handler) throws SQLException, IOException, InterruptedException {
+        List<String> branchNames = new ArrayList<>(branches.keySet());
+        HashMap<RevCommit, BitSet> commitBranches = new HashMap<>();
+        try (RevWalk walk = new RevWalk(repo)) {
+            RevFlag imported = walk.newFlag("imported");
+            walk.retainOnReset(imported);
+            walk.sort(RevSort.TOPO);
+            for (int i = 0; i < branchNames.size(); i++) {
+                RevCommit head = parseCommit(walk, branches.get(branchNames.get(i)));
+                if (head == null) {
+                    continue; //branch is not checked out yet so we can't process it.
+                }
+                walk.markStart(head);
+                commitBranches.computeIfAbsent(head, k -> new BitSet()).set(i);
+            }
+            for (ObjectId importedHead : importedHeads.values()) {
+                RevCommit head = parseCommit(walk, importedHead);
+                if (head != null) {
+                    walk.markUninteresting(head);
+                }
+            }
 
-        Iterator<RevCommit> iterator = commitIterator.iterator();
-        while (true) {
-            RevCommit commit;
             try {
-                if (!iterator.hasNext()) {
-                    break;
+                for (RevCommit commit : walk) {
+                    commit.add(imported);
+                    //all children were already returned so the bitset is complete and can be removed
+                    BitSet branchesOfCommit = commitBranches.remove(commit);
+                    for (RevCommit parent : commit.getParents()) {
+                        if (!parent.has(RevFlag.UNINTERESTING)) {
+                            BitSet branchesOfParent = commitBranches.get(parent);
+                            if (branchesOfParent == null) {
+                                commitBranches.put(parent, (BitSet) branchesOfCommit.clone());
+                            } else {
+                                branchesOfParent.or(branchesOfCommit);
+                            }
+                        }
+                    }
+                    List<String> branchesOfCommitNames = new ArrayList<>(branchesOfCommit.cardinality());
+                    for (int i = branchesOfCommit.nextSetBit(0); i >= 0; i = branchesOfCommit.nextSetBit(i + 1)) {
+                        branchesOfCommitNames.add(branchNames.get(i));
+                    }
+                    handler.newCommit(commit, branchesOfCommitNames);
                 }
-                commit = iterator.next();
             } catch (RevWalkException e) {
+                throw new IOException("could not walk the commits: " + e.getMessage(), e);
+            }
+
+            if (!importedHeads.isEmpty()) {
+                walkBranchesOfOldCommits(walk, branches, importedHeads, imported, handler);
+            }
+        }
+    }
+
+    /**
+     * passes the commits that were imported in a previous run to the handler for every branch they became part of
+     * since then (eg. by a fast forward merge).
+     *
+     * @param walk          the walk used for walking the new commits
+     * @param branches      the branches which commits were walked (name of the branch to its head)
+     * @param importedHeads the heads of the branches that were imported before (name of the branch to its old head)
+     * @param imported      flag of the commits that were passed to the handler as new commits
+     * @param handler       the handler that receives the old commits
+     * @throws SQLException if the handler could not import a commit
+     * @throws IOException  error with git while walking the commits
+     */
+    private static void walkBranchesOfOldCommits(RevWalk walk, Map<String, ObjectId> branches, Map<String, ObjectId> importedHeads, RevFlag imported, BranchWalkHandler handler) throws SQLException, IOException {
+        walk.setRetainBody(false);
+        for (Map.Entry<String, ObjectId> branch : branches.entrySet()) {
+            walk.reset();
+            walk.sort(RevSort.NONE);
+            RevCommit head = parseCommit(walk, branch.getValue());
+            if (head == null) {
                 continue;
             }
+            walk.markStart(head);
+            RevCommit oldHead = parseCommit(walk, importedHeads.get(branch.getKey()));
+            if (oldHead != null) {
+                walk.markUninteresting(oldHead);
+            }
+            try {
+                for (RevCommit commit : walk) {
+                    if (!commit.has(imported)) {
+                        handler.oldCommit(commit, branch.getKey());
+                    }
+                }
+            } catch (RevWalkException e) {
+                throw new IOException("could not walk the commits: " + e.getMessage(), e);
+            }
+        }
+    }
 
-            sqlModule.importCommit(
-                    commit.getName(),
-                    branch.getName(),
-                    commit.getFullMessage(),
-                    commit.getAuthorIdent().getName(),
-                    commit.getAuthorIdent().getWhen()
-            );
-            List<RevCommit> l = new LinkedList<>();
-            l.add(commit);
-            threadSpawner.putElem(l);
+    /**
+     * parses the commit with the given id
+     *
+     * @param walk the walk that should parse the commit
+     * @param id   the id of the commit; may be null
+     * @return the parsed commit or null if the id is null or the commit doesn't exist in the local repository
+     * @throws IOException if the commit could not be read
+     */
+    private static RevCommit parseCommit(RevWalk walk, ObjectId id) throws IOException {
+        if (id == null) {
+            return null;
         }
+        try {
+            return walk.parseCommit(id);
+        } catch (MissingObjectException e) {
+            return null;
+        }
+    }
 
+    /**
+     * stores the heads of the imported branches so the next import of new commits can continue from them. This must
+     * only be called after a successful import; else the next import would skip the failed part.
+     *
+     * @param heads the imported branches (name of the branch to its head)
+     * @return true if the heads were stored; else false
+     */
+    private boolean saveImportedHeads(Map<String, ObjectId> heads) {
+        Map<String, String> headIds = new LinkedHashMap<>();
+        for (Map.Entry<String, ObjectId> head : heads.entrySet()) {
+            headIds.put(head.getKey(), head.getValue().getName());
+        }
+        return saveImportedHeadIds(headIds);
     }
 
     /**
-     * imports the changed files of a commit
+     * gets the heads of all local branches
      *
-     * @param newCommit the commit where the diff entry should be imported for
+     * @return the name of each branch mapped to the commit it points to
+     * @throws GitAPIException if the branches could not be listed
      */
+    private Map<String, ObjectId> getBranchHeads() throws GitAPIException {
+        Map<String, ObjectId> heads = new LinkedHashMap<>();
+        for (Ref branch : git.branchList().call()) {
+            if (!branch.isSymbolic()) { //symbolic eg. HEAD cannot be parsed later but should be part of other branch
+                heads.put(branch.getName(), branch.getObjectId());
+            }
+        }
+        return heads;
+    }
 
-    void importDiffs(RevCommit newCommit) throws SQLException, GitAPIException, IOException, InterruptedException {
-        CanonicalTreeParser newTree = new CanonicalTreeParser();
-        CanonicalTreeParser oldTree = new CanonicalTreeParser();
-        //only use ObjectReader as local variable, else this will break the log command
-        ObjectReader reader = repo.newObjectReader();
+    /**
+     * imports the changed files of a commit. The walks and the rename detector are owned by the calling worker and
+     * will be reused for all commits of its batch, so they must not be shared between threads.
+     *
+     * @param newCommit      the commit where the diff entry should be imported for
+     * @param revWalk        walk used to parse the parents of the commit
+     * @param treeWalk       tree walk created by createDiffTreeWalk(ObjectReader)
+     * @param renameDetector detector for renamed files; if null no renames will be detected
+     * @throws IOException          if the trees of the commits could not be read
+     * @throws InterruptedException if the file changes could not be queued
+     */
+    void importDiffs(RevCommit newCommit, RevWalk revWalk, TreeWalk treeWalk, RenameDetector renameDetector) throws IOException, InterruptedException {
         int parentCount = newCommit.getParentCount();
-        if (parentCount != 0) { //the commit has a predecessor
-            for (int i = 0; i < parentCount; i++) {
-                RevCommit oldCommit = newCommit.getParent(i);
-                newTree.reset(reader, newCommit.getTree().getId());
-                oldTree.reset(reader, oldCommit.getTree().getId());
-                List<DiffEntry> diffs = git.diff().setNewTree(newTree).setOldTree(oldTree).setShowNameAndStatusOnly(true).call();
-
-                for (int j = 0; j < diffs.size(); j++) {
-                    DiffEntry entry = diffs.get(j);
-                    String oldRevision = (entry.getChangeType() == DiffEntry.ChangeType.ADD ? null : oldCommit.getName());
-                    String oldPath = (entry.getChangeType() == DiffEntry.ChangeType.ADD ? null : entry.getOldPath());
-                    String newPath = (entry.getChangeType() == DiffEntry.ChangeType.DELETE ? null : entry.getNewPath());
-                    fileChanges.put(new FileChange(newCommit.getName(), oldRevision, newPath, oldPath, j));
-                }
+        for (int i = 0; i < parentCount; i++) { //only commits with a predecessor have changes
+            RevCommit oldCommit = revWalk.parseCommit(newCommit.getParent(i));
+            treeWalk.reset(oldCommit.getTree(), newCommit.getTree());
+            List<DiffEntry> diffs = DiffEntry.scan(treeWalk);
+            if (renameDetector != null) {
+                renameDetector.reset();
+                renameDetector.addAll(diffs);
+                diffs = renameDetector.compute();
+            }
+
+            for (int j = 0; j < diffs.size(); j++) {
+                DiffEntry entry = diffs.get(j);
+                String oldRevision = (entry.getChangeType() == DiffEntry.ChangeType.ADD ? null : oldCommit.getName());
+                String oldPath = (entry.getChangeType() == DiffEntry.ChangeType.ADD ? null : entry.getOldPath());
+                String newPath = (entry.getChangeType() == DiffEntry.ChangeType.DELETE ? null : entry.getNewPath());
+                diffWriter.put(new FileChange(newCommit.getName(), oldRevision, newPath, oldPath, j));
             }
         }
     }
 
+    /**
+     * creates an object reader for the repository. Every diff worker needs its own one because readers are not thread safe
+     *
+     * @return a new object reader that has to be closed by the caller
+     */
+    ObjectReader newObjectReader() {
+        return repo.newObjectReader();
+    }
+
+    /**
+     * creates a tree walk that compares two trees and only stops at files that differ between them
+     *
+     * @param reader the reader the tree walk will use to load the trees
+     * @return a tree walk that can be reset for every pair of trees
+     */
+    TreeWalk createDiffTreeWalk(ObjectReader reader) {
+        TreeWalk treeWalk = new TreeWalk(reader);
+        treeWalk.setRecursive(true);
+        treeWalk.setFilter(TreeFilter.ANY_DIFF);
+        return treeWalk;
+    }
+
+    /**
+     * creates a rename detector if renames shall be detected (-vcsDetectRenames)
+     *
+     * @param reader the reader the detector will use to compare the file contents
+     * @return a rename detector or null if renames shall not be detected
+     */
+    RenameDetector createRenameDetector(ObjectReader reader) {
+        if (!vcsSettings.shouldDetectRenames()) {
+            return null;
+        }
+        return new RenameDetector(reader, repo.getConfig().get(DiffConfig.KEY));
+    }
+
     /**
      * creates a full diff from diffentries
      *
@@ -428,39 +742,4 @@ public class GitModule extends VCSModule {
             return null;
         }
     }
-
-    /**
-     * imports the filechanges in a single thread. this prevents timeouts which may occure if they are done in multiple threads.
-     */
-    private class SqlDiffImporter extends Thread {
-        @Override
-        public void run() {
-            VCSSqlModule module = sqlModule.get();
-            while (!isFinished || !fileChanges.isEmpty()) {
-                try {
-                    FileChange fileChange = fileChanges.take();
-                    module.importDiff(
-                            fileChange.getNewCommit(),
-                            fileChange.getOldCommit(),
-                            fileChange.getNum(),
-                            fileChange.getNewName(),
-                            fileChange.getOldName()
-                    );
-                } catch (SQLException e) {
-                    error += e.getMessage();
-                } catch (InterruptedException e) {
-                    //this will be reached if the module is finished and this thread shall stop but is still waiting at
-                    //fileChanges.take(); So it will continue to the next round.
-                    OutputUtil.debug("interrupted" + e.getMessage());
-                } catch (Exception e) {
-                    error += e.getMessage();
-                }
-            }
-            try {
-                module.finishImport();
-            } catch (SQLException e) {
-                error += e.getMessage();
-            }
-        }
-    }
 }
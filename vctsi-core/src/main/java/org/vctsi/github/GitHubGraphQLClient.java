@@ -0,0 +1,365 @@
+package org.vctsi.github;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.vctsi.internal.its.RateLimiter;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.time.Instant;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a client for the graphql api (v4) of github. an issue is requested together with the first page of its comments,
+ * so a page of issues costs a single request instead of one request per issue for the comments
+ */
+public class GitHubGraphQLClient {
+
+    private static final String defaultEndpoint = "https://api.github.com/graphql";
+    private static final int issuesPerPage = 50;
+    private static final int commentsPerIssue = 50;
+    private static final int commentsPerPage = 100;
+    private static final String userFields = "login ... on User { name }";
+    private static final String commentFields = "pageInfo { hasNextPage endCursor }"
+            + " nodes { databaseId body createdAt author { " + userFields + " } }";
+    private static final String rateLimitFields = "rateLimit { cost remaining resetAt }";
+    //issues are ordered by their last change so issues that are changed during the import are returned again at the end
+    private static final String issuesQuery = "query($owner: String!, $name: String!, $first: Int!, $comments: Int!, $after: String, $since: DateTime) {"
+            + " repository(owner: $owner, name: $name) {"
+            + " issues(first: $first, after: $after, orderBy: {field: UPDATED_AT, direction: ASC}, filterBy: {since: $since}) {"
+            + " pageInfo { hasNextPage endCursor }"
+            + " nodes { id number title body state createdAt updatedAt closedAt"
+            + " author { " + userFields + " }"
+            + " assignees(first: 1) { nodes { login name } }"
+            + " milestone { title }"
+            + " labels(first: 100) { nodes { name } }"
+            + " comments(first: $comments) { " + commentFields + " } } } }"
+            + " " + rateLimitFields + " }";
+    private static final String commentsQuery = "query($id: ID!, $first: Int!, $after: String) {"
+            + " node(id: $id) { ... on Issue { comments(first: $first, after: $after) { " + commentFields + " } } }"
+            + " " + rateLimitFields + " }";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final String endpoint;
+    private final String authorization;
+    private final RateLimiter rateLimiter;
+
+    /**
+     * @param endpoint      the url of the graphql api
+     * @param authorization the value of the authorization header; null for anonymous requests
+     * @param rateLimiter   the limiter of the requests to the api
+     */
+    public GitHubGraphQLClient(String endpoint, String authorization, RateLimiter rateLimiter) {
+        this.endpoint = endpoint;
+        this.authorization = authorization;
+        this.rateLimiter = rateLimiter;
+    }
+
+    /**
+     * returns the url of the graphql api for the url of the rest api
+     *
+     * @param path the url of the rest api (eg. https://github.example.com/api/v3); null for github.com
+     * @return the url of the graphql api
+     */
+    public static String getEndpoint(String path) {
+        if (path == null) {
+            return defaultEndpoint;
+        }
+        String base = path.endsWith("/") ? path.substring(0, path.length() - 1) : path;
+        if (base.endsWith("/api/v3")) {
+            //github enterprise serves the graphql api next to the rest api
+            return base.substring(0, base.length() - "v3".length()) + "graphql";
+        }
+        return base + "/graphql";
+    }
+
+    /**
+     * requests a page of the issues of a repository with the first comments of each issue
+     *
+     * @param owner the owner of the repository
+     * @param name  the name of the repository
+     * @param since if not null only issues that were changed at or after this time are returned
+     * @param after the cursor of the previous page; null for the first page
+     * @return the page of issues
+     * @throws IOException          if the request failed or github returned errors
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    public IssuePage getIssues(String owner, String name, Date since, String after) throws IOException, InterruptedException {
+        ObjectNode variables = mapper.createObjectNode();
+        variables.put("owner", owner);
+        variables.put("name", name);
+        variables.put("first", issuesPerPage);
+        variables.put("comments", commentsPerIssue);
+        variables.put("after", after);
+        variables.put("since", since == null ? null : DateTimeFormatter.ISO_INSTANT.format(since.toInstant()));
+        JsonNode repository = execute(issuesQuery, variables).path("repository");
+        if (repository.isMissingNode() || repository.isNull()) {
+            throw new IOException("repository " + owner + "/" + name + " not found");
+        }
+        JsonNode connection = repository.path("issues");
+        List<GitHubGraphQLIssue> issues = new ArrayList<>();
+        for (JsonNode node : connection.path("nodes")) {
+            issues.add(parseIssue(node));
+        }
+        return new IssuePage(issues, getNextCursor(connection));
+    }
+
+    /**
+     * returns all comments of an issue. the comments that were not returned with the issue are requested page by
+     * page from the cursor of the issue
+     *
+     * @param issue the issue of which the comments shall be returned
+     * @return the comments of the issue
+     * @throws IOException          if a request failed or github returned errors
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    public List<GitHubGraphQLComment> getComments(GitHubGraphQLIssue issue) throws IOException, InterruptedException {
+        List<GitHubGraphQLComment> comments = new ArrayList<>(issue.getComments());
+        String cursor = issue.getCommentsCursor();
+        while (cursor != null) {
+            ObjectNode variables = mapper.createObjectNode();
+            variables.put("id", issue.getNodeId());
+            variables.put("first", commentsPerPage);
+            variables.put("after", cursor);
+            JsonNode connection = execute(commentsQuery, variables).path("node").path("comments");
+            comments.addAll(parseComments(connection));
+            cursor = getNextCursor(connection);
+        }
+        return comments;
+    }
+
+    /**
+     * sends a query within the rate limit. queries that are rejected because of too many requests are retried
+     *
+     * @param query     the graphql query
+     * @param variables the variables of the query
+     * @return the data of the response
+     * @throws IOException          if the request failed or github returned errors
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    private JsonNode execute(String query, ObjectNode variables) throws IOException, InterruptedException {
+        ObjectNode request = mapper.createObjectNode();
+        request.put("query", query);
+        request.set("variables", variables);
+        byte[] body = mapper.writeValueAsBytes(request);
+        return rateLimiter.execute(() -> post(body), GitHubGraphQLClient::getThrottling);
+    }
+
+    /**
+     * sends a request to the api
+     *
+     * @param body the request as json
+     * @return the data of the response
+     * @throws IOException if the request failed or github returned errors
+     */
+    private JsonNode post(byte[] body) throws IOException {
+        HttpURLConnection connection = (HttpURLConnection) new URL(endpoint).openConnection();
+        try {
+            connection.setRequestMethod("POST");
+            connection.setDoOutput(true);
+            connection.setRequestProperty("Content-Type", "application/json");
+            connection.setRequestProperty("Accept", "application/json");
+            if (authorization != null) {
+                connection.setRequestProperty("Authorization", authorization);
+            }
+            try (OutputStream out = connection.getOutputStream()) {
+                out.write(body);
+            }
+            int statusCode = connection.getResponseCode();
+            if (statusCode == HttpURLConnection.HTTP_UNAUTHORIZED) {
+                throw new GraphQLException(statusCode, false, "Invalid GitHub credentials");
+            } else if (statusCode != HttpURLConnection.HTTP_OK) {
+                boolean paused = rateLimiter.updateFromHeaders(connection.getHeaderFields());
+                throw new GraphQLException(statusCode, paused, "github returned status " + statusCode);
+            }
+            JsonNode response;
+            try (InputStream in = connection.getInputStream()) {
+                response = mapper.readTree(in);
+            }
+            JsonNode errors = response.path("errors");
+            if (errors.size() > 0) {
+                List<String> messages = new ArrayList<>();
+                boolean rateLimited = false;
+                for (JsonNode error : errors) {
+                    messages.add(error.path("message").asText());
+                    rateLimited |= "RATE_LIMITED".equals(error.path("type").asText());
+                }
+                throw new GraphQLException(rateLimited ? 429 : statusCode, false, String.join("; ", messages));
+            }
+            JsonNode data = response.path("data");
+            updateRateLimit(data.path("rateLimit"));
+            return data;
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * spreads the remaining points of the current rate limit window of github over the time till it is reset.
+     * a query costs several points, so the points are converted to the number of queries of the same cost
+     *
+     * @param rateLimit the rate limit information of the response
+     */
+    private void updateRateLimit(JsonNode rateLimit) {
+        if (rateLimit.hasNonNull("remaining") && rateLimit.hasNonNull("resetAt")) {
+            long cost = Math.max(1, rateLimit.path("cost").asLong(1));
+            rateLimiter.updateRemaining(
+                    rateLimit.get("remaining").asLong() / cost,
+                    Instant.parse(rateLimit.get("resetAt").asText()).toEpochMilli()
+            );
+        }
+    }
+
+    /**
+     * tests if a request was rejected because too many requests were sent
+     *
+     * @param e the exception of the request
+     * @return the throttling that the server requested; null if the request failed for another reason
+     */
+    private static RateLimiter.Throttling getThrottling(Exception e) {
+        if (e instanceof GraphQLException) {
+            GraphQLException graphQLException = (GraphQLException) e;
+            //github answers with 403 if the secondary rate limit is exceeded
+            if (graphQLException.statusCode == 429 || (graphQLException.statusCode == 403 && graphQLException.paused)) {
+                return RateLimiter.Throttling.rateLimited(0);
+            } else if (graphQLException.statusCode == 502 || graphQLException.statusCode == 503) {
+                return RateLimiter.Throttling.overloaded();
+            }
+        }
+        return null;
+    }
+
+    private GitHubGraphQLIssue parseIssue(JsonNode node) {
+        GitHubGraphQLIssue issue = new GitHubGraphQLIssue();
+        issue.setNodeId(node.path("id").asText());
+        issue.setNumber(node.path("number").asInt());
+        issue.setTitle(node.path("title").asText(null));
+        issue.setBody(node.path("body").asText(null));
+        issue.setAuthor(getUserName(node.path("author")));
+        issue.setCreatedAt(parseDate(node.path("createdAt")));
+        issue.setUpdatedAt(parseDate(node.path("updatedAt")));
+        issue.setClosedAt(parseDate(node.path("closedAt")));
+        issue.setClosed("CLOSED".equals(node.path("state").asText()));
+        JsonNode assignees = node.path("assignees").path("nodes");
+        if (assignees.size() > 0) {
+            issue.setAssignee(getUserName(assignees.get(0)));
+        }
+        issue.setMilestone(node.path("milestone").path("title").asText(null));
+        for (JsonNode label : node.path("labels").path("nodes")) {
+            issue.getLabels().add(label.path("name").asText());
+        }
+        JsonNode comments = node.path("comments");
+        issue.setComments(parseComments(comments));
+        issue.setCommentsCursor(getNextCursor(comments));
+        return issue;
+    }
+
+    private List<GitHubGraphQLComment> parseComments(JsonNode connection) {
+        List<GitHubGraphQLComment> comments = new ArrayList<>();
+        for (JsonNode node : connection.path("nodes")) {
+            GitHubGraphQLComment comment = new GitHubGraphQLComment();
+            comment.setId(node.path("databaseId").asInt());
+            comment.setBody(node.path("body").asText(null));
+            comment.setAuthor(getUserName(node.path("author")));
+            comment.setCreatedAt(parseDate(node.path("createdAt")));
+            comments.add(comment);
+        }
+        return comments;
+    }
+
+    /**
+     * @param connection a paginated list of the api
+     * @return the cursor of the next page; null if there is no next page
+     */
+    private static String getNextCursor(JsonNode connection) {
+        JsonNode pageInfo = connection.path("pageInfo");
+        return pageInfo.path("hasNextPage").asBoolean(false) ? pageInfo.path("endCursor").asText(null) : null;
+    }
+
+    /**
+     * @param user an user of the api; the node is null for deleted users
+     * @return the name of the user or its login if it has no name; null if the user is unknown
+     */
+    private static String getUserName(JsonNode user) {
+        if (user.hasNonNull("name") && !user.get("name").asText().isEmpty()) {
+            return user.get("name").asText();
+        }
+        return user.path("login").asText(null);
+    }
+
+    private static Date parseDate(JsonNode date) {
+        return date.isTextual() ? Date.from(Instant.parse(date.asText())) : null;
+    }
+
+    /**
+     * a page of issues and the cursor of the next page
+     */
+    public static class IssuePage {
+        private final List<GitHubGraphQLIssue> issues;
+        private final String nextCursor;
+
+        IssuePage(List<GitHubGraphQLIssue> issues, String nextCursor) {
+            this.issues = issues;
+            this.nextCursor = nextCursor;
+        }
+
+        public List<GitHubGraphQLIssue> getIssues() {
+            return issues;
+        }
+
+        /**
+         * @return the cursor of the next page; null if this is the last page
+         */
+        public String getNextCursor() {
+            return nextCursor;
+        }
+    }
+
+    /**
+     * a request that was rejected by github
+     */
+    static class GraphQLException extends IOException {
+        private final int statusCode;
+        private final boolean paused;
+
+        GraphQLException(int statusCode, boolean paused, String message) {
+            super(message);
+            this.statusCode = statusCode;
+            this.paused = paused;
+        }
+
+        int getStatusCode() {
+            return statusCode;
+        }
+    }
+}
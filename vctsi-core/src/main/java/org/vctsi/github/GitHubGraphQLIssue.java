@@ -0,0 +1,169 @@
+package org.vctsi.github;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * an issue as returned by the graphql api of github. it contains the first page of its comments, the remaining
+ * comments can be requested from the cursor of the comments
+ */
+public class GitHubGraphQLIssue {
+    private String nodeId;
+    private int number;
+    private String title;
+    private String body;
+    private String author;
+    private Date createdAt;
+    private Date updatedAt;
+    private Date closedAt;
+    private boolean closed;
+    private String assignee;
+    private String milestone;
+    private List<String> labels = new ArrayList<>();
+    private List<GitHubGraphQLComment> comments = new ArrayList<>();
+    private String commentsCursor;
+
+    /**
+     * @return the global id of the issue that is used to request the remaining comments
+     */
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    public void setNodeId(String nodeId) {
+        this.nodeId = nodeId;
+    }
+
+    public int getNumber() {
+        return number;
+    }
+
+    public void setNumber(int number) {
+        this.number = number;
+    }
+
+    public String getTitle() {
+        return title;
+    }
+
+    public void setTitle(String title) {
+        this.title = title;
+    }
+
+    public String getBody() {
+        return body;
+    }
+
+    public void setBody(String body) {
+        this.body = body;
+    }
+
+    public String getAuthor() {
+        return author;
+    }
+
+    public void setAuthor(String author) {
+        this.author = author;
+    }
+
+    public Date getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(Date createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public Date getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Date updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+
+    public Date getClosedAt() {
+        return closedAt;
+    }
+
+    public void setClosedAt(Date closedAt) {
+        this.closedAt = closedAt;
+    }
+
+    public boolean isClosed() {
+        return closed;
+    }
+
+    public void setClosed(boolean closed) {
+        this.closed = closed;
+    }
+
+    public String getAssignee() {
+        return assignee;
+    }
+
+    public void setAssignee(String assignee) {
+        this.assignee = assignee;
+    }
+
+    public String getMilestone() {
+        return milestone;
+    }
+
+    public void setMilestone(String milestone) {
+        this.milestone = milestone;
+    }
+
+    public List<String> getLabels() {
+        return labels;
+    }
+
+    public void setLabels(List<String> labels) {
+        this.labels = labels;
+    }
+
+    /**
+     * @return the comments that were returned with the issue
+     */
+    public List<GitHubGraphQLComment> getComments() {
+        return comments;
+    }
+
+    public void setComments(List<GitHubGraphQLComment> comments) {
+        this.comments = comments;
+    }
+
+    /**
+     * @return the cursor after the comments returned with the issue; null if the issue has no further comments
+     */
+    public String getCommentsCursor() {
+        return commentsCursor;
+    }
+
+    public void setCommentsCursor(String commentsCursor) {
+        this.commentsCursor = commentsCursor;
+    }
+}
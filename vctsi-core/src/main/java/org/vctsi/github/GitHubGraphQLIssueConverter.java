@@ -0,0 +1,174 @@
+package org.vctsi.github;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.internal.its.Issue;
+import org.vctsi.internal.its.IssueConverter;
+import org.vctsi.internal.its.IssueState;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+import java.util.HashMap;
+
+public class GitHubGraphQLIssueConverter implements IssueConverter<GitHubGraphQLIssue> {
+    /**
+     * converts an issue of the graphql api to an internal Issue object
+     *
+     * @param issue an issue that shall be converted
+     * @return an internal Issue representation of the parameter
+     */
+    @Override
+    public Issue convertToIssue(GitHubGraphQLIssue issue) {
+        HashMap<String, Object> additionalData = new HashMap<>();
+        if (!issue.getLabels().isEmpty()) additionalData.put("labels", issue.getLabels());
+        if (issue.getClosedAt() != null) additionalData.put("closedAt", issue.getClosedAt());
+        return new Issue(
+                getTicketId(issue),
+                getName(issue),
+                getTitle(issue),
+                getDescription(issue),
+                getAuthor(issue),
+                LocalDateTime.ofInstant(getCreationDate(issue).toInstant(), ZoneOffset.ofHours(2)),
+                getState(issue),
+                getAssignee(issue),
+                getTargetVersion(issue),
+                additionalData
+        );
+    }
+
+    /**
+     * get the id of the issue
+     *
+     * @param issue the issue object
+     * @return the number of the issue, like the rest import uses it
+     */
+    @Override
+    public int getTicketId(GitHubGraphQLIssue issue) {
+        return issue.getNumber();
+    }
+
+    /**
+     * get the name of the issue
+     *
+     * @param issue the issue object
+     * @return the name of the issue
+     */
+    @Override
+    public String getName(GitHubGraphQLIssue issue) {
+        return "" + issue.getNumber();
+    }
+
+    /**
+     * get the title of the issue
+     *
+     * @param issue the issue object
+     * @return the title of the issue
+     */
+    @Override
+    public String getTitle(GitHubGraphQLIssue issue) {
+        return issue.getTitle();
+    }
+
+    /**
+     * get the description of the issue
+     *
+     * @param issue the issue object
+     * @return the description of the issue
+     */
+    @Override
+    public String getDescription(GitHubGraphQLIssue issue) {
+        return issue.getBody();
+    }
+
+    /**
+     * get the author of the issue
+     *
+     * @param issue the issue object
+     * @return the author of the issue
+     */
+    @Override
+    public String getAuthor(GitHubGraphQLIssue issue) {
+        return issue.getAuthor() == null ? "" : issue.getAuthor();
+    }
+
+    /**
+     * get the date when the issue was created
+     *
+     * @param issue the issue object
+     * @return date when the issue was created
+     */
+    @Override
+    public Date getCreationDate(GitHubGraphQLIssue issue) {
+        return issue.getCreatedAt();
+    }
+
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param issue the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    @Override
+    public Date getUpdateDate(GitHubGraphQLIssue issue) {
+        return issue.getUpdatedAt();
+    }
+
+    /**
+     * get the state of the issue
+     *
+     * @param issue the issue object
+     * @return the state of the issue
+     */
+    @Override
+    public String getState(GitHubGraphQLIssue issue) {
+        if (issue.isClosed()) {
+            return IssueState.SOLVED.toString();
+        } else if (issue.getAssignee() != null) {
+            return IssueState.ASSIGNED.toString();
+        }
+        return IssueState.NEW.toString();
+    }
+
+    /**
+     * get the assignee of the issue
+     *
+     * @param issue the issue object
+     * @return the assignee of the issue; empty if no assignee exists
+     */
+    @Override
+    public String getAssignee(GitHubGraphQLIssue issue) {
+        return issue.getAssignee() == null ? "" : issue.getAssignee();
+    }
+
+    /**
+     * get the target version / milestone of the issue
+     *
+     * @param issue the issue object
+     * @return the target version of the issue;  null if no target version exists
+     */
+    @Override
+    public String getTargetVersion(GitHubGraphQLIssue issue) {
+        return issue.getMilestone();
+    }
+}
@@ -0,0 +1,157 @@
+package org.vctsi.github;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.internal.its.IssueThreadSpawner;
+import org.vctsi.utils.OutputUtil;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.sql.SQLException;
+import java.util.Base64;
+import java.util.Date;
+import java.util.List;
+
+/**
+ * imports the issues of github with the graphql api. every page of issues contains the first comments of the issues,
+ * so only issues with many comments need further requests. searches are executed with the rest api of GitHubModule
+ */
+public class GitHubGraphQLModule extends GitHubModule {
+
+    private static final int threadPoolSize = 2;
+
+    private GitHubGraphQLClient client;
+
+    /**
+     * this will import issues into the local database
+     *
+     * @return true if import is successful; else false
+     */
+    @Override
+    protected boolean importIssues() {
+        String[] repository = itsSettings.getProject() == null ? new String[0] : itsSettings.getProject().split("/");
+        if (repository.length != 2) {
+            OutputUtil.printError("GitHub requires the project in the form owner/repository in -itsProject");
+            return false;
+        }
+        if (!prepareClient()) {
+            return false;
+        }
+        Date since;
+        try {
+            since = setupSqlTables();
+        } catch (SQLException e) {
+            OutputUtil.printError("Error preparing sql tables.");
+            return false;
+        }
+        IssueThreadSpawner<GitHubGraphQLIssue, GitHubGraphQLComment> threadSpawner = new IssueThreadSpawner<>(
+                new GitHubGraphQLIssueConverter(),
+                this::getGraphQLComments,
+                new GitHubGraphQLCommentConverter(),
+                dbSettings,
+                itsSettings.getProject(),
+                threadPoolSize,
+                getFetchLimiter(),
+                true
+        );
+        try {
+            //the next page can only be requested with the cursor of the previous one
+            int index = 0;
+            String cursor = null;
+            do {
+                GitHubGraphQLClient.IssuePage page = client.getIssues(repository[0], repository[1], since, cursor);
+                threadSpawner.put(page.getIssues(), index++);
+                cursor = page.getNextCursor();
+            } while (cursor != null && !threadSpawner.isShutdown());
+            threadSpawner.finish();
+
+            if (threadSpawner.getErrors().isEmpty() && error.isEmpty()) {
+                saveLastUpdate();
+                return true;
+            } else {
+                OutputUtil.printError(threadSpawner.getErrors() + ";" + error);
+                return false;
+            }
+        } catch (IOException e) {
+            OutputUtil.printError("Error retrieving the github issues. " + e.getMessage());
+            return false;
+        } catch (SQLException e) {
+            OutputUtil.printError("Error saving the import state. " + e.getMessage());
+            return false;
+        } catch (InterruptedException e) {
+            OutputUtil.debug("Thread " + Thread.currentThread().getName() + " was interrupted");
+            return false;
+        } finally {
+            try {
+                threadSpawner.stopNow();
+                threadSpawner.finish();
+            } catch (InterruptedException e) {
+                //ignore
+            }
+        }
+    }
+
+    /**
+     * gets all comments of an issue. only the comments that were not returned with the issue are requested
+     *
+     * @param issue the issue of which the comments shall be returned
+     * @return the comments of the issue; null if an error occured
+     */
+    private List<GitHubGraphQLComment> getGraphQLComments(GitHubGraphQLIssue issue) {
+        try {
+            return client.getComments(issue);
+        } catch (IOException e) {
+            error += e.getMessage();
+            return null;
+        } catch (InterruptedException e) {
+            error += e.getMessage();
+            return null;
+        }
+    }
+
+    /**
+     * creates the client of the graphql api. the api does not support anonymous access
+     *
+     * @return true if the client was created; false if the credentials are missing
+     */
+    private boolean prepareClient() {
+        if (client != null) {
+            //already prepared by a previous task of the server mode
+            return true;
+        }
+        String user = itsSettings.getUsername();
+        String pass = itsSettings.getPassword();
+        String authorization;
+        if (user == null || pass == null) {
+            OutputUtil.printError("The GitHub graphql api requires authentication. Use 'token' as itsUsername and the "
+                    + "actual access token as itsPassword");
+            return false;
+        } else if (user.equals("token")) {
+            authorization = "bearer " + pass;
+        } else {
+            authorization = "Basic " + Base64.getEncoder().encodeToString((user + ":" + pass).getBytes(StandardCharsets.UTF_8));
+        }
+        client = new GitHubGraphQLClient(GitHubGraphQLClient.getEndpoint(itsSettings.getPath()), authorization, getRateLimiter());
+        return true;
+    }
+}
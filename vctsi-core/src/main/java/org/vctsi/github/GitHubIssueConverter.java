@@ -156,6 +156,21 @@ public class GitHubIssueConverter implements IssueConverter<GHIssue> {
         }
     }
 
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param ghIssue the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    @Override
+    public Date getUpdateDate(GHIssue ghIssue) {
+        try {
+            return ghIssue.getUpdatedAt();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
     /**
      * get the state of the issue
      *
@@ -29,19 +29,25 @@ import org.vctsi.internal.vcs.VCSSearchParameters;
 import org.vctsi.utils.OutputUtil;
 
 import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.net.HttpURLConnection;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Date;
 import java.util.Iterator;
 import java.util.List;
-import java.util.concurrent.LinkedBlockingQueue;
 
 public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueComment, GHIssue>, IssueFilter<GHIssue> {
 
     private static final int threadPoolSize = 2;
     private static final int batchSize = 50;
+    private static final int searchRequestsPerMinute = 30;
+    private static final int searchResultLimit = 1000;
 
     private boolean checkId;
     private boolean checkDescription;
@@ -54,10 +60,6 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
     private IssueConverter<GHIssue> issueConverter;
     private GitHub api;
     private GHRepository repo;
-    private boolean stop = false;
-
-    private LinkedBlockingQueue<Byte> availableSearchApiCallPool = new LinkedBlockingQueue<>(30);
-    private Thread schedular;
 
     /**
      * this will import issues into the local database
@@ -66,8 +68,9 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
      */
     @Override
     protected boolean importIssues() {
+        Date since;
         try {
-            setupSqlTables();
+            since = setupSqlTables();
         } catch (SQLException e) {
             OutputUtil.printError("Error preparing sql tables.");
             return false;
@@ -87,33 +90,68 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 true
         );
         try {
             //fill issue queue for import
             int j = 0;
-            Iterator<GHIssue> iterator = repo.listIssues(GHIssueState.ALL)._iterator(batchSize);
-            while (iterator.hasNext() && !threadSpawner.isShutdown()) {
-                List<GHIssue> issueList = new ArrayList<>();
-                for (int i = 0; i < batchSize; i++) {
-                    if (iterator.hasNext()) {
-                        GHIssue issue = iterator.next();
-                        if (!issue.isPullRequest()) {
-                            issueList.add(issue);
+            int found;
+            Date searchedSince;
+            do {
+                searchedSince = since;
+                RateLimiter rateLimiter;
+                Iterator<GHIssue> iterator;
+                if (since == null) {
+                    rateLimiter = getRateLimiter();
+                    iterator = repo.listIssues(GHIssueState.ALL)._iterator(batchSize);
+                } else {
+                    //the issue list of the api does not support the since parameter so the changed issues are searched
+                    rateLimiter = getSearchRateLimiter();
+                    iterator = api.searchIssues()
+                            .q("repo:" + itsSettings.getProject())
+                            .q("type:issue")
+                            .q("updated:>=" + DateTimeFormatter.ISO_INSTANT.format(since.toInstant().truncatedTo(ChronoUnit.SECONDS)))
+                            .sort(GHIssueSearchBuilder.Sort.UPDATED)
+                            .order(GHDirection.ASC)
+                            .list()._iterator(batchSize);
+                }
+                found = 0;
+                //the next page is requested by hasNext() when the current one is processed
+                while (!threadSpawner.isShutdown() && rateLimiter.execute(iterator::hasNext, null)) {
+                    List<GHIssue> issueList = new ArrayList<>();
+                    for (int i = 0; i < batchSize; i++) {
+                        if (iterator.hasNext()) {
+                            GHIssue issue = iterator.next();
+                            found++;
+                            if (since != null && issue.getUpdatedAt().after(since)) {
+                                since = issue.getUpdatedAt();
+                            }
+                            if (!issue.isPullRequest()) {
+                                issueList.add(issue);
+                            }
                         }
                     }
+                    threadSpawner.put(issueList, j++);
                 }
-                threadSpawner.put(issueList, j++);
-            }
+                //the search returns at most 1000 results, so the search is repeated from the last change it returned
+            } while (since != null && found >= searchResultLimit && since.after(searchedSince) && !threadSpawner.isShutdown());
             threadSpawner.finish();
 
 
             if (threadSpawner.getErrors().isEmpty() && error.isEmpty()) {
+                saveLastUpdate();
                 return true;
             } else {
                 OutputUtil.printError(threadSpawner.getErrors() + ";" + error);
                 return false;
             }
+        } catch (IOException e) {
+            OutputUtil.printError("Error retrieving the github issues. " + e.getMessage());
+            return false;
+        } catch (SQLException e) {
+            OutputUtil.printError("Error saving the import state. " + e.getMessage());
+            return false;
         } catch (InterruptedException e) {
             OutputUtil.debug("Thread " + Thread.currentThread().getName() + " was interrupted");
             return false;
@@ -156,31 +194,9 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 false
         );
-        //GitHub only allows 30 search requests per minute so we have to limit the requests
-        schedular = new Thread(new Runnable() {
-            @Override
-            public void run() {
-                Byte b = 0;
-                while (!stop) {
-                    int freeSpace = 30 - availableSearchApiCallPool.size();
-                    for (int i = 0; i < freeSpace; i++) {
-                        try {
-                            availableSearchApiCallPool.put(b);
-                        } catch (InterruptedException e) {
-                            OutputUtil.debug(e.getMessage());
-                        }
-                    }
-                    try {
-                        Thread.sleep(60000);
-                    } catch (InterruptedException e) {
-                        OutputUtil.debug(e.getMessage());
-                    }
-                }
-            }
-        });
-        schedular.start();
 
         //prepare the filtering
         checkId = searchParameters.getIds() != null && searchParameters.getIds().length != 0;
@@ -239,17 +255,16 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
             if (inTitle) {
                 searchBuilder.q("in:title");
             }
+            RateLimiter searchRateLimiter = getSearchRateLimiter();
             Iterator<GHIssue> iterator = searchBuilder.list()._iterator(batchSize);
             int taskIdx = 0;
-            availableSearchApiCallPool.take();
-            while (iterator.hasNext() && !threadSpawner.isShutdown()) {
+            while (!threadSpawner.isShutdown() && searchRateLimiter.execute(iterator::hasNext, null)) {
                 List<GHIssue> tmp = new ArrayList<>(batchSize);
                 for (int i = 0; i < batchSize && iterator.hasNext(); i++) {
                     GHIssue issue = iterator.next();
                     tmp.add(issue);
                 }
                 threadSpawner.put(tmp, taskIdx++);
-                availableSearchApiCallPool.take();
             }
             threadSpawner.finish();
 
@@ -264,7 +279,6 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
             OutputUtil.printError("main thread interrupted" + e.getMessage());
             return null;
         } finally {
-            stopSchedular();
             try {
                 threadSpawner.stopNow();
                 threadSpawner.finish();
@@ -313,18 +327,19 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
     public List<GHIssueComment> getComments(GHIssue ghIssue) {
         try {
             if (ghIssue.getCommentsCount() > 0) {
+                RateLimiter rateLimiter = getRateLimiter();
                 PagedIterator<GHIssueComment> iterator;
                 if (ghIssue.getRepository() == null) {
                     //This requires two api calls because gitlab-api does not pass the repository to issues from the searchresult
                     //to the issue and so a NullPointerException would be thrown.
-                    GHIssue issueWithRepo = repo.getIssue(ghIssue.getNumber());
+                    GHIssue issueWithRepo = rateLimiter.execute(() -> repo.getIssue(ghIssue.getNumber()), null);
                     iterator = issueWithRepo.listComments()._iterator(50);
                 } else {
                     iterator = ghIssue.listComments()._iterator(50);
                 }
                 ArrayList<GHIssueComment> comments = new ArrayList<>(ghIssue.getCommentsCount());
                 for (int i = 0; i < ghIssue.getCommentsCount(); i += 50) {
-                    comments.addAll(iterator.nextPage());
+                    comments.addAll(rateLimiter.execute(iterator::nextPage, null));
                 }
                 return comments;
             }
@@ -332,6 +347,9 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
         } catch (IOException e) {
             error += e.getMessage();
             return null;
+        } catch (InterruptedException e) {
+            error += e.getMessage();
+            return null;
         }
     }
 
@@ -378,6 +396,10 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
      * @throws IOException connection to github is not available
      */
     private boolean prepareRepo() throws IOException {
+        if (repo != null) {
+            //already prepared by a previous task of the server mode
+            return true;
+        }
         String user = itsSettings.getUsername();
         String pass = itsSettings.getPassword();
         GitHubBuilder gitHubBuilder;
@@ -396,16 +418,62 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
         if (itsSettings.getPath() != null) {
             gitHubBuilder = gitHubBuilder.withEndpoint(itsSettings.getPath());
         }
-        api = gitHubBuilder.build();
+        HttpResponseCache responseCache = getResponseCache();
+        if (responseCache != null) {
+            //unchanged pages are revalidated with conditional requests which do not count against the rate limit
+            gitHubBuilder = gitHubBuilder.withConnector(url -> new CachingHttpURLConnection(url, responseCache));
+        }
+        RateLimiter rateLimiter = getRateLimiter();
+        //called by the api if a request was rejected because the rate limit is exceeded. the request is retried after
+        //this method returns
+        api = gitHubBuilder.withRateLimitHandler(new RateLimitHandler() {
+            @Override
+            public void onError(IOException e, HttpURLConnection uc) throws IOException {
+                if (!rateLimiter.updateFromHeaders(uc.getHeaderFields())) {
+                    rateLimiter.onRateLimited(0);
+                }
+                try {
+                    rateLimiter.awaitResume();
+                } catch (InterruptedException ie) {
+                    throw (IOException) new InterruptedIOException(ie.getMessage()).initCause(ie);
+                }
+            }
+        }).build();
 
         if (!api.isCredentialValid()) {
             OutputUtil.printError("Invalid GitHub credentials");
             return false;
         }
+        //spread the remaining requests of the current rate limit window
+        GHRateLimit rateLimit = api.getRateLimit();
+        rateLimiter.updateRemaining(rateLimit.remaining, rateLimit.reset.getTime());
         repo = api.getRepository(itsSettings.getProject());
         return true;
     }
 
+    /**
+     * GitHub only allows 30 search requests per minute so the search has its own limit. It has no burst, because the
+     * requests of a burst would be sent in addition to the ones of the rate within the first minute
+     *
+     * @return the limiter for search requests to the github api
+     */
+    private RateLimiter getSearchRateLimiter() {
+        return RateLimiter.forTracker(
+                getClass().getName() + "|" + itsSettings.getPath() + "|search",
+                searchRequestsPerMinute / 60.0,
+                1,
+                1
+        );
+    }
+
+    /**
+     * @return the requests per minute an authenticated user can send to the github api (5000 per hour)
+     */
+    @Override
+    protected int getDefaultRequestsPerMinute() {
+        return 83;
+    }
+
     /**
      * gets the correct github issue state for a given vctsi state
      *
@@ -421,12 +489,4 @@ public class GitHubModule extends ITSModule implements CommentRetriever<GHIssueC
             return GHIssueState.ALL;
         }
     }
-
-    /**
-     * this will cause the schedular to stop
-     */
-    private void stopSchedular() {
-        stop = true;
-        schedular.interrupt();
-    }
 }
@@ -132,6 +132,17 @@ public class GitLabIssueConverter implements IssueConverter<GitlabIssue> {
         return gitlabIssue.getCreatedAt();
     }
 
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param gitlabIssue the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    @Override
+    public Date getUpdateDate(GitlabIssue gitlabIssue) {
+        return gitlabIssue.getUpdatedAt();
+    }
+
     /**
      * get the state of the issue
      *
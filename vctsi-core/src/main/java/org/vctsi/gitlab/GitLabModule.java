@@ -22,9 +22,10 @@ package org.vctsi.gitlab;
  * #L%
  */
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.gitlab.api.GitlabAPI;
 import org.gitlab.api.GitlabAPIException;
-import org.gitlab.api.http.GitlabHTTPRequestor;
 import org.gitlab.api.models.GitlabIssue;
 import org.gitlab.api.models.GitlabNote;
 import org.gitlab.api.models.GitlabProject;
@@ -35,18 +36,31 @@ import org.vctsi.utils.OutputUtil;
 
 import java.io.FileNotFoundException;
 import java.io.IOException;
+import java.io.InputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
 
 public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNote, GitlabIssue>, IssueFilter<GitlabIssue> {
-    private static int threadWait = 700;
-    private static int taskWait = 25;
     private final static int threadPoolSize = 2; //TODO
+    private final static int issuesPerPage = 100;
+    private final static int notesPerPage = 100;
+    private final static int defaultPagesInFlight = 4;
+    private final static ObjectMapper mapper = new ObjectMapper().configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
     private GitLabIssueConverter issueConverter = new GitLabIssueConverter();
     private GitlabAPI api;
 
@@ -70,17 +84,16 @@ public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNo
      */
     @Override
     protected boolean importIssues() {
+        Date since;
         try {
             if (itsSettings.getPassword() == null || itsSettings.getUsername() == null || !itsSettings.getUsername().equals("token")) {
                 OutputUtil.printError("You have to authenticate to GitLab by using an apitoken as password and 'token' as username");
                 return false;
             }
-            ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
-            String sqlProject = itsSettings.getProject();
-            sqlModule.clearTables(sqlProject);
-            sqlModule.close();
+            since = setupSqlTables();
         } catch (SQLException e) {
             OutputUtil.printError("An error occured: " + e.toString());
+            return false;
         }
         IssueThreadSpawner<GitlabIssue, GitlabNote> threadSpawner = new IssueThreadSpawner<>(
                 new GitLabIssueConverter(),
@@ -89,24 +102,29 @@ public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNo
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 true
         );
 
         api = GitlabAPI.connect(itsSettings.getPath(), itsSettings.getPassword());
         try {
             //start the actual import
-            if (!walkPages(threadSpawner)) {
+            if (!walkPages(threadSpawner, since)) {
                 return false;
             }
             //wait till all thread finished their work
             threadSpawner.finish();
 
             if (threadSpawner.getErrors().isEmpty() && error.isEmpty()) {
+                saveLastUpdate();
                 return true;
             } else {
                 OutputUtil.printError(threadSpawner.getErrors() + ";" + error);
                 return false;
             }
+        } catch (SQLException e) {
+            OutputUtil.printError("Error saving the import state. " + e.getMessage());
+            return false;
         } catch (InterruptedException e) {
             OutputUtil.printError("An error occured: " + e.toString());
             try {
@@ -159,11 +177,12 @@ public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNo
                 dbSettings,
                 itsSettings.getProject(),
                 threadPoolSize,
+                getFetchLimiter(),
                 false
         );
         api = GitlabAPI.connect(itsSettings.getPath(), itsSettings.getPassword());
         try {
-            if (!walkPages(threadSpawner)) {
+            if (!walkPages(threadSpawner, null)) {
                 return null;
             }
             //wait till all threads finished their work
@@ -238,25 +257,7 @@ public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNo
     @Override
     public List<GitlabNote> getComments(GitlabIssue issue) {
         try {
-            try { //sleep to prevent lockout because of too many requests
-                Thread.sleep(taskWait * threadPoolSize);
-                return api.getNotes(issue);
-            } catch (GitlabAPIException e) {
-                if (e.getResponseCode() == 429) { //we made too many requsts. so we wait and then try again
-                    Thread.sleep(threadWait);
-                    OutputUtil.debug("too many requests! waiting" + threadWait);
-                    return getComments(issue);
-                } else if (e.getResponseCode() == 502) {
-                    //seems like the server can't handle that many requests so wo will slow down
-                    threadWait += 10;
-                    taskWait += 2;
-                    OutputUtil.debug("throttling speed");
-                    Thread.sleep(threadWait);
-                    return getComments(issue);
-                }
-                error += e;
-                return null;
-            }
+            return getNotes(issue);
         } catch (IOException e) {
             error += e;
             return null;
@@ -283,55 +284,190 @@ public class GitLabModule extends ITSModule implements CommentRetriever<GitlabNo
     }
 
     /**
-     * We can't use the asIterator method from GitlabHTTPRequestor because in case our request gets blocked due to
-     * too many request we loose a page (10 issue) from the result. So we have to request the pages manually.
+     * requests the pages of the issues of the project and puts them to the thread spawner. the first page returns the
+     * number of pages (X-Total-Pages), so the following pages are requested concurrently and put to the thread spawner
+     * in their order. if gitlab does not return the number of pages (eg. for very large projects) the pages are
+     * requested one after the other till an empty page is returned.
+     * the pages are offset pages because gitlab does not support keyset pagination for issues and keyset pages could
+     * not be requested concurrently
      *
      * @param threadSpawner the threadspawner which will retrieve the comments for the issues
+     * @param updatedAfter  if not null only issues that were changed after this time are received
      * @return true if the issues were successfully received,  false on error
-     * @throws InterruptedException
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for a page
      */
-    private boolean walkPages(IssueThreadSpawner<GitlabIssue, GitlabNote> threadSpawner) throws InterruptedException {
-        //
-        GitlabHTTPRequestor requestor = api.retrieve();
+    private boolean walkPages(IssueThreadSpawner<GitlabIssue, GitlabNote> threadSpawner, Date updatedAfter) throws InterruptedException {
         String tailUrl;
         try {
-            tailUrl = GitlabProject.URL + "/" + api.getProject(itsSettings.getProject()).getId() + GitlabIssue.URL;
+            tailUrl = GitlabProject.URL + "/" + api.getProject(itsSettings.getProject()).getId() + GitlabIssue.URL + "?per_page=" + issuesPerPage;
+            if (updatedAfter != null) {
+                tailUrl += "&updated_after=" + DateTimeFormatter.ISO_INSTANT.format(updatedAfter.toInstant());
+            }
         } catch (IOException e) {
             OutputUtil.printError("Could not find the project " + itsSettings.getProject() + ". Check connection and project name");
             return false;
         }
 
-        int page = 1; //page 0 and 1 are the same (see GitlabHTTPRequestor.asIterator(..,..).findNextUrl()
-        do {
-            try {
-                Thread.sleep(taskWait * 3 * threadPoolSize);
-                GitlabIssue[] issues = requestor.to(tailUrl + "?per_page=20&page=" + page, GitlabIssue[].class, null);
-                if (issues.length == 0) {
-                    break;
+        int pagesInFlight = itsSettings.getFetchConcurrency() > 0 ? itsSettings.getFetchConcurrency() : defaultPagesInFlight;
+        FetchLimiter pageLimiter = FetchLimiter.forTracker(getClass().getName() + "|" + itsSettings.getPath() + "|pages", pagesInFlight);
+        ArrayDeque<CompletableFuture<GitlabIssue[]>> requests = new ArrayDeque<>();
+        try {
+            Map<String, List<String>> headers = new HashMap<>();
+            GitlabIssue[] issues = getPage(tailUrl, 1, headers);
+            //the index of the results of the thread spawner starts with 0
+            threadSpawner.put(Arrays.asList(issues), 0);
+            int totalPages = getTotalPages(headers);
+            int page = 2;
+            if (totalPages < 0) {
+                while (issues.length > 0 && !threadSpawner.isShutdown()) {
+                    issues = getPage(tailUrl, page, null);
+                    threadSpawner.put(Arrays.asList(issues), page - 1);
+                    page++;
                 }
-                threadSpawner.put(Arrays.asList(issues), page);
-                page++;
-            } catch (IOException e) {
-                if (e instanceof GitlabAPIException) {
-                    if (((GitlabAPIException) e).getResponseCode() == 429) {
-                        //we did too many request, so we wait and retry later
-                        Thread.sleep(threadWait);
-                        OutputUtil.debug("too many requests! waiting" + threadWait);
-                        continue;
-                    } else if (((GitlabAPIException) e).getResponseCode() == 502) {
-                        //seems like the server can't handle that many requests so wo will slow down
-                        threadWait += 10;
-                        taskWait += 2;
-                        OutputUtil.debug("throttling speed");
-                        Thread.sleep(threadWait);
-                        continue;
-                    }
+                return true;
+            }
+            int index = 1;
+            while ((page <= totalPages || !requests.isEmpty()) && !threadSpawner.isShutdown()) {
+                while (page <= totalPages && requests.size() < pagesInFlight) {
+                    String url = tailUrl;
+                    int requestedPage = page++;
+                    requests.add(pageLimiter.submit(() -> {
+                        try {
+                            return getPage(url, requestedPage, null);
+                        } catch (IOException | InterruptedException e) {
+                            throw new CompletionException(e);
+                        }
+                    }));
+                }
+                threadSpawner.put(Arrays.asList(requests.poll().get()), index++);
+            }
+            return true;
+        } catch (IOException | ExecutionException e) {
+            OutputUtil.printError("Error retrieving the gitlab issues. " + (e instanceof ExecutionException ? e.getCause() : e));
+            threadSpawner.stopNow();
+            return false;
+        } finally {
+            for (CompletableFuture<GitlabIssue[]> request : requests) {
+                request.cancel(true);
+            }
+        }
+    }
+
+    /**
+     * requests a page of issues within the rate limit
+     *
+     * @param tailUrl the url of the issues relative to the api url
+     * @param page    the number of the page; the first page is 1
+     * @param headers if not null the headers of the response are put into it
+     * @return the issues of the page
+     * @throws IOException          if the request failed
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    private GitlabIssue[] getPage(String tailUrl, int page, Map<String, List<String>> headers) throws IOException, InterruptedException {
+        return getRateLimiter().execute(
+                () -> get(tailUrl + "&page=" + page, GitlabIssue[].class, headers),
+                GitLabModule::getThrottling
+        );
+    }
+
+    /**
+     * @param headers the headers of a response
+     * @return the number of pages of the requested list; -1 if unknown
+     */
+    private static int getTotalPages(Map<String, List<String>> headers) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if ("X-Total-Pages".equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                try {
+                    return Integer.parseInt(header.getValue().get(0).trim());
+                } catch (NumberFormatException e) {
+                    return -1;
                 }
-                threadSpawner.stopNow();
-                return false;
             }
-        } while (!threadSpawner.isShutdown());
-        return true;
+        }
+        return -1;
+    }
+
+    /**
+     * returns all comments of an issue. every page of comments is requested within the rate limit
+     *
+     * @param issue the issue from which the comments shall be returned
+     * @return list of comments (GitlabNote) from the issue
+     * @throws IOException          if a request failed
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    private List<GitlabNote> getNotes(GitlabIssue issue) throws IOException, InterruptedException {
+        String tailUrl = GitlabProject.URL + "/" + issue.getProjectId() + GitlabIssue.URL + "/" + issue.getId()
+                + GitlabNote.URL + "?per_page=" + notesPerPage;
+        List<GitlabNote> notes = new ArrayList<>();
+        for (int page = 1; ; page++) {
+            String pageUrl = tailUrl + "&page=" + page;
+            GitlabNote[] notesOfPage = getRateLimiter().execute(
+                    () -> get(pageUrl, GitlabNote[].class, null),
+                    GitLabModule::getThrottling
+            );
+            notes.addAll(Arrays.asList(notesOfPage));
+            if (notesOfPage.length < notesPerPage) {
+                return notes;
+            }
+        }
+    }
+
+    /**
+     * sends a GET request to the api of gitlab. the requestor of the gitlab api does not return the headers of the
+     * response and always opens its own connection, so the requests are sent here. if a response cache is set, the
+     * request is sent as conditional request and an unchanged response is read from the cache. the rate limiter is
+     * adjusted to the rate limit headers of every response, also of rejected ones
+     *
+     * @param tailUrl the url of the request relative to the api url
+     * @param type    the type of the response
+     * @param headers if not null the headers of the response are put into it
+     * @param <T>     the type of the response
+     * @return the response
+     * @throws IOException if the request failed
+     */
+    private <T> T get(String tailUrl, Class<T> type, Map<String, List<String>> headers) throws IOException {
+        URL url = api.getAPIUrl(tailUrl);
+        HttpResponseCache responseCache = getResponseCache();
+        HttpURLConnection connection = responseCache == null
+                ? (HttpURLConnection) url.openConnection()
+                : new CachingHttpURLConnection(url, responseCache);
+        connection.setRequestProperty("PRIVATE-TOKEN", itsSettings.getPassword());
+        try {
+            int responseCode = connection.getResponseCode();
+            //gitlab reports its limit with RateLimit-* headers and the pause after a rejected request with Retry-After
+            getRateLimiter().updateFromHeaders(connection.getHeaderFields());
+            if (responseCode != HttpURLConnection.HTTP_OK) {
+                throw new GitlabAPIException(connection.getResponseMessage(), responseCode, null);
+            }
+            if (headers != null) {
+                headers.putAll(connection.getHeaderFields());
+            }
+            try (InputStream in = connection.getInputStream()) {
+                return mapper.readValue(in, type);
+            }
+        } finally {
+            connection.disconnect();
+        }
+    }
+
+    /**
+     * tests if a request was rejected because too many requests were sent
+     *
+     * @param e the exception of the request
+     * @return the throttling that the server requested; null if the request failed for another reason
+     */
+    private static RateLimiter.Throttling getThrottling(Exception e) {
+        if (e instanceof GitlabAPIException) {
+            int responseCode = ((GitlabAPIException) e).getResponseCode();
+            if (responseCode == 429) {
+                //we made too many requests. the pause of the Retry-After header was already set by get
+                return RateLimiter.Throttling.rateLimited(0);
+            } else if (responseCode == 502 || responseCode == 503) {
+                //seems like the server can't handle that many requests so we will slow down
+                return RateLimiter.Throttling.overloaded();
+            }
+        }
+        return null;
     }
 
     /**
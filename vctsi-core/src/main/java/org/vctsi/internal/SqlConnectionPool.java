@@ -0,0 +1,438 @@
+package org.vctsi.internal;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import javax.sql.DataSource;
+import java.io.PrintWriter;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.logging.Logger;
+
+/**
+ * a pool of database connections that is shared by all sql modules using the same database settings. Connections are
+ * returned to the pool when they are closed and reused by the next module instead of connecting again. Prepared
+ * statements are cached by the jdbc drivers for each connection so they also survive the modules that created them.
+ * Connections that were idle for a while are validated before they are handed out. The pool has a maximal size which
+ * is raised by the thread spawners to the number of their workers; if all connections are in use a module waits for a
+ * free one.
+ */
+public class SqlConnectionPool implements DataSource {
+    //connections used besides the workers of a thread spawner (eg. by the main thread or a single importer thread)
+    public static final int RESERVED_CONNECTIONS = 2;
+    private static final int DEFAULT_MAX_SIZE = 10;
+    private static final long VALIDATION_INTERVAL_MILLIS = 30000;
+    private static final int VALIDATION_TIMEOUT_SECONDS = 5;
+    private static final long BORROW_TIMEOUT_MILLIS = 60000;
+
+    private static final Map<String, SqlConnectionPool> pools = new LinkedHashMap<>();
+
+    private final String url;
+    private final String username;
+    private final String password;
+    private final SqlType sqlType;
+    private final Deque<IdleConnection> idleConnections = new ArrayDeque<>();
+    private int maxSize = DEFAULT_MAX_SIZE;
+    private int openConnections = 0;
+    private int activeConnections = 0;
+    //set by closeAll; returned connections are closed afterwards
+    private boolean shutDown = false;
+
+    //metrics
+    private int createdConnections = 0;
+    private int borrowedConnections = 0;
+    private int peakActiveConnections = 0;
+    private int waits = 0;
+    private long waitMillis = 0;
+    private int failedValidations = 0;
+
+    private SqlConnectionPool(String url, String username, String password, SqlType sqlType) {
+        this.url = url;
+        this.username = username;
+        this.password = password;
+        this.sqlType = sqlType;
+    }
+
+    /**
+     * returns the pool for the database settings
+     *
+     * @param dbSettings the settings for the database connections
+     * @return the pool that is shared by all modules with the same database settings
+     */
+    public static SqlConnectionPool get(DBSettings dbSettings) {
+        return get(dbSettings, false);
+    }
+
+    /**
+     * returns the pool for the database settings whose connections are allowed to load local files (LOAD DATA LOCAL
+     * INFILE for mysql). It is separated from the normal pool so only the bulk import uses such connections.
+     *
+     * @param dbSettings the settings for the database connections
+     * @return the pool that is shared by all bulk loaders with the same database settings
+     */
+    public static SqlConnectionPool getWithLocalInfile(DBSettings dbSettings) {
+        return get(dbSettings, true);
+    }
+
+    private static synchronized SqlConnectionPool get(DBSettings dbSettings, boolean localInfile) {
+        SqlType sqlType = getSqlType(dbSettings);
+        String url = getUrl(dbSettings, sqlType, localInfile);
+        return pools.computeIfAbsent(
+                url + "|" + localInfile + "|" + dbSettings.getUsername() + "|" + dbSettings.getPassword(),
+                k -> new SqlConnectionPool(url, dbSettings.getUsername(), dbSettings.getPassword(), sqlType)
+        );
+    }
+
+    /**
+     * closes the idle connections of all pools and prints their metrics if debugging is enabled. Connections that are
+     * still in use are closed when they are returned.
+     */
+    public static synchronized void closeAll() {
+        for (SqlConnectionPool pool : pools.values()) {
+            OutputUtil.debug(pool.getMetrics());
+            pool.closeIdleConnections();
+        }
+        pools.clear();
+    }
+
+    /**
+     * determines the database backend from the jdbc driver of the server
+     *
+     * @param dbSettings the settings for the database connections
+     * @return the type of the database
+     */
+    private static SqlType getSqlType(DBSettings dbSettings) {
+        if (dbSettings.getServer().contains("mysql")) {
+            return SqlType.MYSQL;
+        } else if (dbSettings.getServer().contains("postgresql")) {
+            return SqlType.POSTGRESQL;
+        }
+        return SqlType.OTHER;
+    }
+
+    /**
+     * creates the jdbc url including the options for caching prepared statements
+     *
+     * @param dbSettings  the settings for the database connections
+     * @param sqlType     the type of the database
+     * @param localInfile true if the connections shall be allowed to load local files
+     * @return the jdbc url
+     */
+    private static String getUrl(DBSettings dbSettings, SqlType sqlType, boolean localInfile) {
+        String url = "jdbc:" + dbSettings.getServer() + ":" + dbSettings.getPort() + "/" + dbSettings.getDb()
+                + "?useUnicode=true&characterEncoding=utf8mb4&rewriteBatchedStatements=true";
+        if (sqlType == SqlType.MYSQL) {
+            url += "&cachePrepStmts=true&prepStmtCacheSize=250&prepStmtCacheSqlLimit=2048";
+            if (localInfile) {
+                url += "&allowLocalInfile=true";
+            }
+        } else if (sqlType == SqlType.POSTGRESQL) {
+            url += "&preparedStatementCacheQueries=256&prepareThreshold=3";
+        }
+        return url;
+    }
+
+    public SqlType getSqlType() {
+        return sqlType;
+    }
+
+    /**
+     * raises the maximal number of connections so that the passed number of connections can be used at the same time.
+     * The size is never reduced.
+     *
+     * @param connections the number of connections that will be used in parallel
+     */
+    public synchronized void ensureCapacity(int connections) {
+        if (connections > maxSize) {
+            maxSize = connections;
+            notifyAll();
+        }
+    }
+
+    /**
+     * borrows a connection from the pool. If no idle connection exists a new one is opened unless the maximal size is
+     * reached; then it waits until a connection is returned. The connection has autocommit disabled and is returned to
+     * the pool by closing it. Uncommitted changes are rolled back on return.
+     *
+     * @return a connection of the pool
+     * @throws SQLException if no connection could be established or no connection was returned in time
+     */
+    @Override
+    public Connection getConnection() throws SQLException {
+        IdleConnection idle;
+        synchronized (this) {
+            if (idleConnections.isEmpty() && openConnections >= maxSize) {
+                long start = System.currentTimeMillis();
+                long deadline = start + BORROW_TIMEOUT_MILLIS;
+                waits++;
+                while (idleConnections.isEmpty() && openConnections >= maxSize) {
+                    long remaining = deadline - System.currentTimeMillis();
+                    if (remaining <= 0) {
+                        throw new SQLException("no database connection available after " + BORROW_TIMEOUT_MILLIS
+                                + " ms (" + maxSize + " connections in use)");
+                    }
+                    try {
+                        wait(remaining);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                        throw new SQLException("interrupted while waiting for a database connection");
+                    }
+                }
+                waitMillis += System.currentTimeMillis() - start;
+            }
+            idle = idleConnections.pollFirst();
+            if (idle == null) {
+                openConnections++;
+            }
+            borrowedConnections++;
+            activeConnections++;
+            peakActiveConnections = Math.max(peakActiveConnections, activeConnections);
+        }
+        Connection connection;
+        try {
+            if (idle == null) {
+                connection = connect();
+            } else if (System.currentTimeMillis() - idle.lastUsed > VALIDATION_INTERVAL_MILLIS
+                    && !idle.connection.isValid(VALIDATION_TIMEOUT_SECONDS)) {
+                synchronized (this) {
+                    failedValidations++;
+                }
+                closeQuietly(idle.connection);
+                connection = connect();
+            } else {
+                connection = idle.connection;
+            }
+            connection.setAutoCommit(false);
+        } catch (SQLException e) {
+            synchronized (this) {
+                openConnections--;
+                activeConnections--;
+                notifyAll();
+            }
+            throw e;
+        }
+        return (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(),
+                new Class<?>[]{Connection.class},
+                new PooledConnection(connection)
+        );
+    }
+
+    /**
+     * opens a new physical connection
+     *
+     * @return the connection
+     * @throws SQLException if no connection could be established
+     */
+    private Connection connect() throws SQLException {
+        Connection connection = DriverManager.getConnection(url, username, password);
+        synchronized (this) {
+            createdConnections++;
+        }
+        return connection;
+    }
+
+    /**
+     * takes a physical connection back. Open statements are closed and uncommitted changes are rolled back; if that
+     * fails or enough connections are idle the connection is closed.
+     *
+     * @param connection the physical connection
+     * @param statements the statements created with the connection while it was borrowed
+     */
+    private void release(Connection connection, List<Statement> statements) {
+        boolean reusable;
+        try {
+            for (Statement statement : statements) {
+                if (!statement.isClosed()) {
+                    statement.close();
+                }
+            }
+            if (!connection.isClosed() && !connection.getAutoCommit()) {
+                connection.rollback();
+            }
+            reusable = !connection.isClosed();
+        } catch (SQLException e) {
+            reusable = false;
+        }
+        synchronized (this) {
+            activeConnections--;
+            if (reusable && !shutDown && idleConnections.size() < maxSize) {
+                idleConnections.addFirst(new IdleConnection(connection));
+            } else {
+                openConnections--;
+                closeQuietly(connection);
+            }
+            notifyAll();
+        }
+    }
+
+    /**
+     * closes all connections that are currently not in use and the ones that are returned later
+     */
+    private synchronized void closeIdleConnections() {
+        shutDown = true;
+        for (IdleConnection idle : idleConnections) {
+            closeQuietly(idle.connection);
+            openConnections--;
+        }
+        idleConnections.clear();
+    }
+
+    private static void closeQuietly(Connection connection) {
+        try {
+            connection.close();
+        } catch (SQLException e) {
+            OutputUtil.debug("could not close database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return a description of the usage of the pool
+     */
+    public synchronized String getMetrics() {
+        return "connection pool " + url.substring(0, url.indexOf('?')) + ": "
+                + createdConnections + " connections created, "
+                + borrowedConnections + " borrowed, "
+                + peakActiveConnections + " used at most in parallel (max size " + maxSize + "), "
+                + waits + " waits (" + waitMillis + " ms), "
+                + failedValidations + " failed validations";
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        throw new SQLFeatureNotSupportedException("the credentials are defined by the db settings of the pool");
+    }
+
+    @Override
+    public PrintWriter getLogWriter() throws SQLException {
+        return null;
+    }
+
+    @Override
+    public void setLogWriter(PrintWriter out) throws SQLException {
+        //logging is done by OutputUtil
+    }
+
+    @Override
+    public void setLoginTimeout(int seconds) throws SQLException {
+        DriverManager.setLoginTimeout(seconds);
+    }
+
+    @Override
+    public int getLoginTimeout() throws SQLException {
+        return DriverManager.getLoginTimeout();
+    }
+
+    @Override
+    public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+        throw new SQLFeatureNotSupportedException();
+    }
+
+    @Override
+    public <T> T unwrap(Class<T> iface) throws SQLException {
+        if (iface.isInstance(this)) {
+            return iface.cast(this);
+        }
+        throw new SQLException("not a wrapper for " + iface.getName());
+    }
+
+    @Override
+    public boolean isWrapperFor(Class<?> iface) throws SQLException {
+        return iface.isInstance(this);
+    }
+
+    /**
+     * a physical connection that is not in use
+     */
+    private static class IdleConnection {
+        private final Connection connection;
+        private final long lastUsed;
+
+        private IdleConnection(Connection connection) {
+            this.connection = connection;
+            this.lastUsed = System.currentTimeMillis();
+        }
+    }
+
+    /**
+     * the connection handed out by the pool. Calls are passed to the physical connection except close which returns
+     * it to the pool. The created statements are remembered so they can be closed on return.
+     */
+    private class PooledConnection implements InvocationHandler {
+        private final Connection connection;
+        private final List<Statement> statements = new ArrayList<>();
+        private boolean closed = false;
+
+        private PooledConnection(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                case "close":
+                    if (!closed) {
+                        closed = true;
+                        release(connection, statements);
+                        statements.clear();
+                    }
+                    return null;
+                case "isClosed":
+                    return closed || connection.isClosed();
+                case "equals":
+                    return proxy == args[0];
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "toString":
+                    return "pooled " + connection.toString();
+            }
+            if (closed) {
+                throw new SQLException("the connection was already returned to the pool");
+            }
+            Object result;
+            try {
+                result = method.invoke(connection, args);
+            } catch (InvocationTargetException e) {
+                throw e.getCause();
+            }
+            if (result instanceof Statement) {
+                statements.add((Statement) result);
+            }
+            return result;
+        }
+    }
+}
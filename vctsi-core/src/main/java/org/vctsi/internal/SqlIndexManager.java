@@ -0,0 +1,259 @@
+package org.vctsi.internal;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * creates and verifies the indexes of the tables that are used by searches. Besides normal (b-tree) indexes it creates
+ * fulltext indexes which are FULLTEXT indexes for mysql and GIN indexes over a tsvector for postgresql.
+ */
+public class SqlIndexManager {
+    //words that are not indexed by the default fulltext parser of mysql (innodb) so they can't be searched for
+    private static final Set<String> MYSQL_STOPWORDS = new HashSet<>(Arrays.asList(
+            "a", "about", "an", "are", "as", "at", "be", "by", "com", "de", "en", "for", "from", "how", "i", "in", "is",
+            "it", "la", "of", "on", "or", "that", "the", "this", "to", "was", "what", "when", "where", "who", "will",
+            "with", "und", "www"
+    ));
+    //default of innodb_ft_min_token_size
+    private static final int MYSQL_MIN_WORD_LENGTH = 3;
+    private static final Pattern WORD = Pattern.compile("[\\p{L}\\p{N}]+");
+
+    private final Connection connection;
+    private final SqlType sqlType;
+
+    /**
+     * creates the index manager for a database connection
+     *
+     * @param connection the connection used to create and verify the indexes
+     * @param sqlType    the type of the database
+     */
+    public SqlIndexManager(Connection connection, SqlType sqlType) {
+        this.connection = connection;
+        this.sqlType = sqlType;
+    }
+
+    /**
+     * creates an index over the columns of a table if it doesn't exist yet
+     *
+     * @param table   the table for which the index shall be created
+     * @param name    the name of the index; will be prefixed by the table name
+     * @param columns the indexed columns. For mysql a column can contain the length of the indexed prefix
+     *                (eg. "author(191)") which is needed for long varchar columns
+     * @throws SQLException if the index could not be created
+     */
+    public void ensureIndex(String table, String name, String... columns) throws SQLException {
+        String indexName = getIndexName(table, name);
+        if (hasIndex(table, indexName)) {
+            return;
+        }
+        List<String> columnList = new ArrayList<>();
+        for (String column : columns) {
+            int prefixStart = column.indexOf('(');
+            if (prefixStart < 0) {
+                columnList.add("`" + column + "`");
+            } else if (sqlType == SqlType.MYSQL) {
+                columnList.add("`" + column.substring(0, prefixStart) + "`" + column.substring(prefixStart));
+            } else {
+                columnList.add("`" + column.substring(0, prefixStart) + "`");
+            }
+        }
+        connection.prepareStatement("CREATE INDEX `" + indexName + "` ON `" + table + "` ("
+                + String.join(", ", columnList) + ")").executeUpdate();
+        OutputUtil.debug("Index " + indexName + " created");
+    }
+
+    /**
+     * creates a fulltext index over a column of a table if it doesn't exist yet. Does nothing if the database has no
+     * supported fulltext index.
+     *
+     * @param table  the table for which the index shall be created
+     * @param column the column that shall be indexed
+     * @throws SQLException if the index could not be created
+     */
+    public void ensureFullTextIndex(String table, String column) throws SQLException {
+        if (sqlType != SqlType.MYSQL && sqlType != SqlType.POSTGRESQL) {
+            return;
+        }
+        String indexName = getIndexName(table, column + "_fulltext");
+        if (hasIndex(table, indexName)) {
+            return;
+        }
+        if (sqlType == SqlType.MYSQL) {
+            connection.prepareStatement("CREATE FULLTEXT INDEX `" + indexName + "` ON `" + table + "` (`" + column + "`)").executeUpdate();
+        } else {
+            connection.prepareStatement("CREATE INDEX `" + indexName + "` ON `" + table + "` USING GIN ("
+                    + getTsVector(column) + ")").executeUpdate();
+        }
+        OutputUtil.debug("Index " + indexName + " created");
+    }
+
+    /**
+     * tests if a fulltext index exists for a column so getFullTextCondition can be used for it
+     *
+     * @param table  the table of the column
+     * @param column the column that shall be searched
+     * @return true if a fulltext index exists; else false
+     * @throws SQLException if the indexes of the table could not be retrieved
+     */
+    public boolean hasFullTextIndex(String table, String column) throws SQLException {
+        return (sqlType == SqlType.MYSQL || sqlType == SqlType.POSTGRESQL)
+                && hasIndex(table, getIndexName(table, column + "_fulltext"));
+    }
+
+    /**
+     * tests if an index exists
+     *
+     * @param table     the table of the index
+     * @param indexName the full name of the index
+     * @return true if the index exists; else false
+     * @throws SQLException if the indexes of the table could not be retrieved
+     */
+    private boolean hasIndex(String table, String indexName) throws SQLException {
+        ResultSet indexes = connection.getMetaData().getIndexInfo(connection.getCatalog(), null, table, false, true);
+        while (indexes.next()) {
+            if (indexName.equalsIgnoreCase(indexes.getString("INDEX_NAME"))) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * gets a query condition that searches a column with its fulltext index. The condition contains one placeholder
+     * that has to be set to the result of toFullTextQuery
+     *
+     * @param column the column that shall be searched
+     * @return the condition for a where clause
+     */
+    public String getFullTextCondition(String column) {
+        if (sqlType == SqlType.MYSQL) {
+            return "MATCH (`" + column + "`) AGAINST (? IN BOOLEAN MODE)";
+        }
+        return getTsVector(column) + " @@ to_tsquery('simple', ?)";
+    }
+
+    /**
+     * converts a search text into a fulltext query which matches texts that contain every word of the search text
+     * (or a word starting with it)
+     *
+     * @param text the search text; characters that are neither letters nor digits separate the words
+     * @return the fulltext query or null if the search text contains no word that can be searched with the index
+     */
+    public String toFullTextQuery(String text) {
+        return toFullTextQuery(Arrays.asList(text.split("[^\\p{L}\\p{N}]+")));
+    }
+
+    /**
+     * converts the pattern of a LIKE condition into a fulltext query that matches at least every text matching the
+     * pattern, so it can only be used to prefilter the rows for the LIKE condition. A word of the pattern could be the
+     * end of a longer word in the text, so only words at the start of the pattern or after a whitespace are used.
+     *
+     * @param pattern the pattern of the LIKE condition including its wildcards
+     * @return the fulltext query or null if the pattern contains no word that can be searched with the index
+     */
+    public String toLikePrefilterQuery(String pattern) {
+        List<String> words = new ArrayList<>();
+        Matcher matcher = WORD.matcher(pattern);
+        while (matcher.find()) {
+            if (matcher.start() == 0 || Character.isWhitespace(pattern.charAt(matcher.start() - 1))) {
+                words.add(matcher.group());
+            }
+        }
+        return toFullTextQuery(words);
+    }
+
+    /**
+     * creates a fulltext query which matches texts that contain a word starting with each of the passed words. Words
+     * that are not indexed (or could be the start of a word that isn't indexed) are left out.
+     *
+     * @param words the words to search
+     * @return the fulltext query or null if no word can be searched with the index
+     */
+    private String toFullTextQuery(List<String> words) {
+        List<String> terms = new ArrayList<>();
+        for (String word : words) {
+            if (word.isEmpty()) {
+                continue;
+            }
+            if (sqlType == SqlType.MYSQL) {
+                if (word.length() >= MYSQL_MIN_WORD_LENGTH && !isMysqlStopwordPrefix(word.toLowerCase())) {
+                    terms.add("+" + word + "*");
+                }
+            } else {
+                terms.add(word + ":*");
+            }
+        }
+        if (terms.isEmpty()) {
+            return null;
+        }
+        return String.join(sqlType == SqlType.MYSQL ? " " : " & ", terms);
+    }
+
+    /**
+     * checks if a word is the start of a stopword of mysql. A prefix search for it would not find the stopword.
+     *
+     * @param word the word in lower case
+     * @return true if a stopword starts with the word; else false
+     */
+    private boolean isMysqlStopwordPrefix(String word) {
+        for (String stopword : MYSQL_STOPWORDS) {
+            if (stopword.startsWith(word)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * gets the tsvector expression that is indexed by the GIN index of postgresql
+     *
+     * @param column the indexed column
+     * @return the expression; it has to be the same for the index and the queries
+     */
+    private String getTsVector(String column) {
+        return "to_tsvector('simple', coalesce(`" + column + "`, ''))";
+    }
+
+    /**
+     * gets the name of an index. Index names of postgresql are unique for the whole schema so they contain the table
+     *
+     * @param table the table of the index
+     * @param name  the name of the index within the table
+     * @return the name of the index
+     */
+    private String getIndexName(String table, String name) {
+        return table + "_" + name;
+    }
+}
@@ -0,0 +1,35 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.util.List;
+
+public interface BulkCommentRetriever<COMMENT, ISSUE> extends CommentRetriever<COMMENT, ISSUE> {
+    /**
+     * get the comments for a batch of issues with as few requests as possible
+     *
+     * @param issues the issues of which the comments shall be retrieved
+     * @return the comments of each issue in the order of the issues; null if error occured
+     */
+    List<List<COMMENT>> getBulkComments(List<ISSUE> issues);
+}
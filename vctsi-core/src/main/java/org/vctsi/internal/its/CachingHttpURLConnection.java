@@ -0,0 +1,285 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.URL;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * a http connection that revalidates responses of GET requests stored in a HttpResponseCache. the request is sent
+ * with If-None-Match and If-Modified-Since and if the server answers with 304 Not Modified, the stored response is
+ * returned to the caller as if the server had sent it. the request settings are collected by this connection and
+ * copied to the actual connection when it is opened, so it can be used by clients that expect a HttpURLConnection
+ */
+public class CachingHttpURLConnection extends HttpURLConnection {
+
+    private static final List<String> validatorHeaders = Arrays.asList("ETag", "Last-Modified");
+    //headers of a 304 response that describe the stored body and must not replace the stored ones
+    private static final List<String> bodyHeaders = Arrays.asList("Content-Length", "Content-Encoding", "Content-Type", "Transfer-Encoding");
+
+    private final HttpResponseCache cache;
+    private HttpURLConnection connection;
+    private HttpResponseCache.Response response;
+
+    /**
+     * @param url   the url of the request
+     * @param cache the cache of the responses
+     */
+    public CachingHttpURLConnection(URL url, HttpResponseCache cache) {
+        super(url);
+        this.cache = cache;
+    }
+
+    @Override
+    public void connect() throws IOException {
+        if (connected) {
+            return;
+        }
+        HttpURLConnection connection = open();
+        if (!"GET".equals(method)) {
+            connection.connect();
+            connected = true;
+            return;
+        }
+        String key = getKey();
+        HttpResponseCache.Response cached = cache.get(key);
+        if (cached != null) {
+            if (cached.getHeader("ETag") != null) {
+                connection.setRequestProperty("If-None-Match", cached.getHeader("ETag"));
+            }
+            if (cached.getHeader("Last-Modified") != null) {
+                connection.setRequestProperty("If-Modified-Since", cached.getHeader("Last-Modified"));
+            }
+        }
+        int statusCode = connection.getResponseCode();
+        if (statusCode == HTTP_NOT_MODIFIED && cached != null) {
+            response = merge(cached, connection.getHeaderFields());
+        } else if (statusCode == HTTP_OK && hasValidator(connection.getHeaderFields())) {
+            ByteArrayOutputStream body = new ByteArrayOutputStream();
+            try (InputStream in = connection.getInputStream()) {
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = in.read(buffer)) != -1) {
+                    body.write(buffer, 0, read);
+                }
+            }
+            response = new HttpResponseCache.Response(statusCode, connection.getResponseMessage(),
+                    getHeaders(connection.getHeaderFields()), body.toByteArray());
+            cache.put(key, response);
+        }
+        connected = true;
+    }
+
+    /**
+     * opens the actual connection with the settings of this connection
+     *
+     * @return the actual connection
+     * @throws IOException if the connection can not be opened
+     */
+    private HttpURLConnection open() throws IOException {
+        if (connection == null) {
+            connection = (HttpURLConnection) url.openConnection();
+            connection.setRequestMethod(method);
+            for (Map.Entry<String, List<String>> property : getRequestProperties().entrySet()) {
+                for (String value : property.getValue()) {
+                    connection.addRequestProperty(property.getKey(), value);
+                }
+            }
+            connection.setConnectTimeout(getConnectTimeout());
+            connection.setReadTimeout(getReadTimeout());
+            connection.setDoOutput(getDoOutput());
+            connection.setInstanceFollowRedirects(getInstanceFollowRedirects());
+            connection.setUseCaches(getUseCaches());
+        }
+        return connection;
+    }
+
+    /**
+     * the credentials are part of the key, so users with different permissions do not share responses. They are only
+     * part of it as hash, because the key is stored with the response
+     *
+     * @return the key of the request in the cache
+     */
+    private String getKey() {
+        String authorization = getRequestProperty("Authorization");
+        if (authorization == null) {
+            authorization = getRequestProperty("PRIVATE-TOKEN");
+        }
+        return url.toString() + "|" + (authorization == null ? "" : HttpResponseCache.hash(authorization));
+    }
+
+    /**
+     * the stored body is returned with the headers of the 304 response (eg. the current rate limit of the server)
+     *
+     * @param cached  the stored response
+     * @param headers the headers of the 304 response
+     * @return the response that is returned to the caller
+     */
+    private static HttpResponseCache.Response merge(HttpResponseCache.Response cached, Map<String, List<String>> headers) {
+        LinkedHashMap<String, List<String>> merged = new LinkedHashMap<>(cached.getHeaders());
+        for (Map.Entry<String, List<String>> header : getHeaders(headers).entrySet()) {
+            if (!containsIgnoreCase(bodyHeaders, header.getKey())) {
+                merged.keySet().removeIf(name -> name.equalsIgnoreCase(header.getKey()));
+                merged.put(header.getKey(), header.getValue());
+            }
+        }
+        return new HttpResponseCache.Response(cached.getStatusCode(), cached.getMessage(), merged, cached.getBody());
+    }
+
+    private static boolean hasValidator(Map<String, List<String>> headers) {
+        for (String name : headers.keySet()) {
+            if (name != null && containsIgnoreCase(validatorHeaders, name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param headers the headers of a connection
+     * @return the headers without the status line
+     */
+    private static LinkedHashMap<String, List<String>> getHeaders(Map<String, List<String>> headers) {
+        LinkedHashMap<String, List<String>> result = new LinkedHashMap<>();
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (header.getKey() != null) {
+                result.put(header.getKey(), new ArrayList<>(header.getValue()));
+            }
+        }
+        return result;
+    }
+
+    private static boolean containsIgnoreCase(List<String> names, String name) {
+        for (String candidate : names) {
+            if (candidate.equalsIgnoreCase(name)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    @Override
+    public int getResponseCode() throws IOException {
+        connect();
+        return response != null ? response.getStatusCode() : connection.getResponseCode();
+    }
+
+    @Override
+    public String getResponseMessage() throws IOException {
+        connect();
+        return response != null ? response.getMessage() : connection.getResponseMessage();
+    }
+
+    @Override
+    public InputStream getInputStream() throws IOException {
+        connect();
+        return response != null ? new ByteArrayInputStream(response.getBody()) : connection.getInputStream();
+    }
+
+    @Override
+    public InputStream getErrorStream() {
+        return response != null || connection == null ? null : connection.getErrorStream();
+    }
+
+    @Override
+    public OutputStream getOutputStream() throws IOException {
+        return open().getOutputStream();
+    }
+
+    @Override
+    public String getHeaderField(String name) {
+        if (!ensureConnected()) {
+            return null;
+        }
+        return response != null ? response.getHeader(name) : connection.getHeaderField(name);
+    }
+
+    @Override
+    public Map<String, List<String>> getHeaderFields() {
+        if (!ensureConnected()) {
+            return Collections.emptyMap();
+        }
+        return response != null ? response.getHeaders() : connection.getHeaderFields();
+    }
+
+    @Override
+    public String getHeaderFieldKey(int n) {
+        if (!ensureConnected()) {
+            return null;
+        }
+        if (response == null) {
+            return connection.getHeaderFieldKey(n);
+        }
+        List<String> names = new ArrayList<>(response.getHeaders().keySet());
+        return n >= 0 && n < names.size() ? names.get(n) : null;
+    }
+
+    @Override
+    public String getHeaderField(int n) {
+        if (!ensureConnected()) {
+            return null;
+        }
+        if (response == null) {
+            return connection.getHeaderField(n);
+        }
+        String name = getHeaderFieldKey(n);
+        return name == null ? null : response.getHeader(name);
+    }
+
+    /**
+     * the header methods can not throw an IOException, so a failed request is reported as missing headers
+     *
+     * @return true if the request was sent; false if it failed
+     */
+    private boolean ensureConnected() {
+        try {
+            connect();
+            return true;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    @Override
+    public void disconnect() {
+        if (connection != null) {
+            connection.disconnect();
+        }
+    }
+
+    @Override
+    public boolean usingProxy() {
+        return connection != null && connection.usingProxy();
+    }
+}
@@ -0,0 +1,120 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import java.util.HashMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * bounds the number of requests that are sent concurrently to one ticket system. The requests are executed as tasks
+ * on a shared executor that creates threads on demand and removes them when they are idle, so the number of requests
+ * in flight depends on the permits of the tracker and not on the number of worker threads.
+ * All modules that access the same tracker share one limiter.
+ */
+public class FetchLimiter {
+
+    private static final HashMap<String, FetchLimiter> limiters = new HashMap<>();
+    private static final AtomicInteger threadCount = new AtomicInteger();
+    private static final ExecutorService executor = Executors.newCachedThreadPool(runnable -> {
+        Thread thread = new Thread(runnable, "vctsi-fetch-" + threadCount.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final Semaphore permits;
+    private final int maxInFlight;
+
+    FetchLimiter(int maxInFlight) {
+        this.maxInFlight = maxInFlight;
+        this.permits = new Semaphore(maxInFlight, true);
+    }
+
+    /**
+     * returns the limiter of a tracker. if there is no limiter for the tracker yet, a new one will be created with
+     * the given number of permits; else the existing limiter keeps its number of permits
+     *
+     * @param tracker     an identifier of the ticket system (eg. module and uri)
+     * @param maxInFlight the maximum number of requests that are executed concurrently
+     * @return the limiter of the tracker; null if maxInFlight is &lt;=0
+     */
+    public static synchronized FetchLimiter forTracker(String tracker, int maxInFlight) {
+        if (maxInFlight <= 0) {
+            return null;
+        }
+        FetchLimiter limiter = limiters.get(tracker);
+        if (limiter == null) {
+            limiter = new FetchLimiter(maxInFlight);
+            limiters.put(tracker, limiter);
+        } else if (limiter.maxInFlight != maxInFlight) {
+            OutputUtil.debug("The fetch concurrency of " + tracker + " is already set to " + limiter.maxInFlight
+                    + ", " + maxInFlight + " is ignored");
+        }
+        return limiter;
+    }
+
+    /**
+     * executes the request as soon as a permit is available. this method blocks till the permit is acquired, so a
+     * producer can not create more tasks than the tracker allows to be in flight
+     *
+     * @param request   the request that shall be executed
+     * @param <RESULT> the type of the result of the request
+     * @return a future that is completed with the result of the request
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for a permit
+     */
+    public <RESULT> CompletableFuture<RESULT> submit(Supplier<RESULT> request) throws InterruptedException {
+        permits.acquire();
+        try {
+            return CompletableFuture.supplyAsync(() -> {
+                try {
+                    return request.get();
+                } finally {
+                    permits.release();
+                }
+            }, executor);
+        } catch (RuntimeException e) {
+            permits.release();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the maximum number of requests that are executed concurrently
+     */
+    public int getMaxInFlight() {
+        return maxInFlight;
+    }
+
+    /**
+     * @return the number of requests that are currently executed
+     */
+    public int getInFlight() {
+        return maxInFlight - permits.availablePermits();
+    }
+}
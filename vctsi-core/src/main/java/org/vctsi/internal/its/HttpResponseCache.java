@@ -0,0 +1,319 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * an on disk cache for responses of the ticket systems. a response is stored with its validators (ETag and
+ * Last-Modified), so later requests of the same url can be sent as conditional requests and the stored response is
+ * used if the server answers that it is not modified. if the cache is larger than its maximum size the least
+ * recently used responses are removed
+ */
+public class HttpResponseCache {
+
+    private static final int formatVersion = 2;
+    private static final HashMap<String, HttpResponseCache> caches = new HashMap<>();
+
+    private final File directory;
+    private final long maxSize;
+    //the size of each entry in access order
+    private final LinkedHashMap<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size = 0;
+
+    HttpResponseCache(File directory, long maxSize) throws IOException {
+        if (!directory.isDirectory() && !directory.mkdirs()) {
+            throw new IOException("could not create the cache directory " + directory);
+        }
+        this.directory = directory;
+        this.maxSize = maxSize;
+        File[] files = directory.listFiles((dir, name) -> name.endsWith(".entry"));
+        if (files != null) {
+            //the access time of an entry is stored as modification time of its file
+            Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+            for (File file : files) {
+                if (!hasFormatVersion(file)) {
+                    //entries of older versions may contain the credentials of their request
+                    if (!file.delete()) {
+                        OutputUtil.debug("could not delete cached response " + file.getName());
+                    }
+                    continue;
+                }
+                entries.put(file.getName(), file.length());
+                size += file.length();
+            }
+        }
+        evict();
+    }
+
+    /**
+     * returns the cache of a directory. if there is no cache for the directory yet, a new one will be created with
+     * the given maximum size
+     *
+     * @param directory the directory of the cache
+     * @param maxSize   the maximum size of the cache in bytes
+     * @return the cache of the directory
+     * @throws IOException if the directory can not be created
+     */
+    public static synchronized HttpResponseCache forDirectory(File directory, long maxSize) throws IOException {
+        String key = directory.getAbsolutePath() + "|" + maxSize;
+        HttpResponseCache cache = caches.get(key);
+        if (cache == null) {
+            cache = new HttpResponseCache(directory, maxSize);
+            caches.put(key, cache);
+        }
+        return cache;
+    }
+
+    /**
+     * returns the stored response of a request and marks it as recently used
+     *
+     * @param key the key of the request (url and hashed credentials)
+     * @return the stored response; null if no response is stored for the key or it can not be read
+     */
+    public synchronized Response get(String key) {
+        String fileName = getFileName(key);
+        if (entries.get(fileName) == null) {
+            return null;
+        }
+        File file = new File(directory, fileName);
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != formatVersion || !key.equals(in.readUTF())) {
+                remove(fileName);
+                return null;
+            }
+            int statusCode = in.readInt();
+            String message = in.readUTF();
+            int headerCount = in.readInt();
+            LinkedHashMap<String, List<String>> headers = new LinkedHashMap<>();
+            for (int i = 0; i < headerCount; i++) {
+                String name = in.readUTF();
+                int valueCount = in.readInt();
+                List<String> values = new ArrayList<>(valueCount);
+                for (int j = 0; j < valueCount; j++) {
+                    values.add(in.readUTF());
+                }
+                headers.put(name, values);
+            }
+            byte[] body = new byte[in.readInt()];
+            in.readFully(body);
+            if (!file.setLastModified(System.currentTimeMillis())) {
+                OutputUtil.debug("could not update the access time of " + file);
+            }
+            return new Response(statusCode, message, headers, body);
+        } catch (IOException e) {
+            OutputUtil.debug("could not read cached response: " + e.getMessage());
+            remove(fileName);
+            return null;
+        }
+    }
+
+    /**
+     * stores the response of a request and removes the least recently used responses if the cache gets too large
+     *
+     * @param key      the key of the request; it is written to the entry, so it must not contain plain credentials
+     * @param response the response of the request
+     */
+    public synchronized void put(String key, Response response) {
+        String fileName = getFileName(key);
+        File file = new File(directory, fileName);
+        try {
+            //the response is written to a temporary file first, so a failed write does not leave a broken entry
+            File tmpFile = File.createTempFile("response", ".tmp", directory);
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmpFile)))) {
+                out.writeInt(formatVersion);
+                out.writeUTF(key);
+                out.writeInt(response.getStatusCode());
+                out.writeUTF(response.getMessage() == null ? "" : response.getMessage());
+                out.writeInt(response.getHeaders().size());
+                for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+                    out.writeUTF(header.getKey());
+                    out.writeInt(header.getValue().size());
+                    for (String value : header.getValue()) {
+                        out.writeUTF(value);
+                    }
+                }
+                out.writeInt(response.getBody().length);
+                out.write(response.getBody());
+            }
+            Files.move(tmpFile.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+            Long oldSize = entries.put(fileName, file.length());
+            size += file.length() - (oldSize == null ? 0 : oldSize);
+            evict();
+        } catch (IOException e) {
+            OutputUtil.debug("could not cache response: " + e.getMessage());
+        }
+    }
+
+    /**
+     * @return the size of all stored responses in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * removes the least recently used responses till the size of the cache is within its maximum size
+     */
+    private void evict() {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext()) {
+            Map.Entry<String, Long> eldest = iterator.next();
+            size -= eldest.getValue();
+            iterator.remove();
+            if (!new File(directory, eldest.getKey()).delete()) {
+                OutputUtil.debug("could not delete cached response " + eldest.getKey());
+            }
+        }
+    }
+
+    private void remove(String fileName) {
+        Long entrySize = entries.remove(fileName);
+        if (entrySize != null) {
+            size -= entrySize;
+        }
+        if (!new File(directory, fileName).delete()) {
+            OutputUtil.debug("could not delete cached response " + fileName);
+        }
+    }
+
+    /**
+     * checks if an entry was written with the current format
+     *
+     * @param file the file of the entry
+     * @return true if the entry has the current format; false if it has another format or can not be read
+     */
+    private static boolean hasFormatVersion(File file) {
+        try (DataInputStream in = new DataInputStream(new FileInputStream(file))) {
+            return in.readInt() == formatVersion;
+        } catch (IOException e) {
+            return false;
+        }
+    }
+
+    /**
+     * the name of the file of an entry is the hash of its key, so the key may contain characters that are not allowed
+     * in file names
+     *
+     * @param key the key of the request
+     * @return the name of the file of the entry
+     */
+    private static String getFileName(String key) {
+        return hash(key) + ".entry";
+    }
+
+    /**
+     * @param text the text to hash
+     * @return the SHA-256 hash of the text as hex string
+     */
+    static String hash(String text) {
+        try {
+            byte[] hash = MessageDigest.getInstance("SHA-256").digest(text.getBytes(StandardCharsets.UTF_8));
+            StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            //every java platform has to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+
+    /**
+     * a stored response
+     */
+    public static class Response {
+        private final int statusCode;
+        private final String message;
+        private final Map<String, List<String>> headers;
+        private final byte[] body;
+
+        /**
+         * @param statusCode the status code of the response
+         * @param message    the status message of the response
+         * @param headers    the headers of the response without the status line
+         * @param body       the body of the response as received (eg. still compressed)
+         */
+        public Response(int statusCode, String message, Map<String, List<String>> headers, byte[] body) {
+            this.statusCode = statusCode;
+            this.message = message;
+            this.headers = Collections.unmodifiableMap(headers);
+            this.body = body;
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public Map<String, List<String>> getHeaders() {
+            return headers;
+        }
+
+        /**
+         * returns the first value of a header
+         *
+         * @param name the name of the header; case insensitive
+         * @return the first value of the header; null if the header does not exist
+         */
+        public String getHeader(String name) {
+            for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+                if (name.equalsIgnoreCase(header.getKey()) && !header.getValue().isEmpty()) {
+                    return header.getValue().get(0);
+                }
+            }
+            return null;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
@@ -24,6 +24,7 @@ package org.vctsi.internal.its;
 
 import org.vctsi.bugzilla.BugzillaModule;
 import org.vctsi.debug.its.ITSTestModule;
+import org.vctsi.github.GitHubGraphQLModule;
 import org.vctsi.github.GitHubModule;
 import org.vctsi.gitlab.GitLabModule;
 import org.vctsi.internal.DBSettings;
@@ -35,25 +36,33 @@ import org.vctsi.internal.vcs.VCSSearchParameters;
 import org.vctsi.jira.JiraModule;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.TimeUnit;
 
 public abstract class ITSModule {
 
     final static String IMPORT_SUCCESS = "Import success";
+    //the clock of the ticket system can differ from the local one, so the next import starts earlier
+    private final static long IMPORT_OVERLAP = TimeUnit.DAYS.toMillis(1);
 
     protected ITSSettings itsSettings;
     protected DBSettings dbSettings;
     public final static HashMap<String, Class<? extends ITSModule>> availableITSModules;
     protected String error = "";
+    private Date importStart;
 
     static {
         availableITSModules = new HashMap<>();
         availableITSModules.put("ITSTestModule", ITSTestModule.class);
         availableITSModules.put("bugzilla", BugzillaModule.class);
         availableITSModules.put("github", GitHubModule.class);
+        availableITSModules.put("githubgraphql", GitHubGraphQLModule.class);
         availableITSModules.put("gitlab", GitLabModule.class);
         availableITSModules.put("jira", JiraModule.class);
 
@@ -105,6 +114,8 @@ public abstract class ITSModule {
             OutputUtil.printError("its modules can't handle vcs tasks");
             return false;
         }
+        //errors of previous tasks (eg. in the server mode) don't belong to this task
+        error = "";
         if (itsSettings == null) {
             OutputUtil.printError("error itsModule contains no ITSSettings");
         }
@@ -120,7 +131,9 @@ public abstract class ITSModule {
                 return false;
             }
             List<Issue> result;
-            if (!itsSettings.isOnline()) {
+            if (!itsSettings.isOnline() && OutputUtil.STREAM) {
+                return streamSearch(searchParameters);
+            } else if (!itsSettings.isOnline()) {
                 result = search(((SearchIssueTask) task).getSearchParameters());
             } else {
                 result = onlineSearch((SearchIssueTask) task);
@@ -167,16 +180,51 @@ public abstract class ITSModule {
     protected List<Issue> search(ITSSearchParameters searchParameters) {
         try {
             ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
-            return sqlModule.getIssues(
-                    getWithCommitPrefixSuffix(searchParameters),
-                    itsSettings.getProject()
-            );
+            try {
+                return sqlModule.getIssues(
+                        getWithCommitPrefixSuffix(searchParameters),
+                        itsSettings.getProject()
+                );
+            } finally {
+                sqlModule.abort();
+            }
         } catch (SQLException e) {
             OutputUtil.printError(e.getMessage());
             return null;
         }
     }
 
+    /**
+     * searches for issues in the local database and prints them while they are read from the database
+     *
+     * @param searchParameters parameters for the search
+     * @return true if the search was successful; else false
+     */
+    protected boolean streamSearch(ITSSearchParameters searchParameters) {
+        try {
+            ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
+            try {
+                ITSSqlModule lookupModule = new ITSSqlModule(dbSettings);
+                try (OutputUtil.ObjectListWriter writer = OutputUtil.startObjectList()) {
+                    sqlModule.streamIssues(
+                            getWithCommitPrefixSuffix(searchParameters),
+                            itsSettings.getProject(),
+                            lookupModule,
+                            writer
+                    );
+                } finally {
+                    lookupModule.abort();
+                }
+            } finally {
+                sqlModule.abort();
+            }
+            return true;
+        } catch (SQLException | IOException e) {
+            OutputUtil.printError(e.getMessage());
+            return false;
+        }
+    }
+
     /**
      * this method can add prefix and suffix for the commitid that may are
      * referenced inside the title of an issue default no prefix and suffix are
@@ -190,16 +238,102 @@ public abstract class ITSModule {
     }
 
     /**
-     * initializes the sql module by creating necessary tables and prepared statements for import
+     * creates the necessary tables for an import. If only new issues shall be imported the existing tables are kept,
+     * else they are recreated. It has to be called before the first request to the ticket system, because the import
+     * is considered to start then
      *
-     * @return the sql modules with prepared statements and working tables
+     * @return the time from which the issues have to be imported, because the last successful import could have
+     * missed changes after it; null if all issues shall be imported
      * @throws SQLException if sql queries could not be executed or no connection could be established
      */
-    protected ITSSqlModule setupSqlTables() throws SQLException {
+    protected Date setupSqlTables() throws SQLException {
+        importStart = new Date();
+        ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
+        try {
+            Date lastUpdate = null;
+            if (itsSettings.shouldOnlyUpdateNew()) {
+                sqlModule.prepareTicketImport(itsSettings.getProject());
+                lastUpdate = sqlModule.getLastUpdate(itsSettings.getProject());
+                OutputUtil.debug("importing issues changed since " + lastUpdate);
+            } else {
+                sqlModule.clearTables(itsSettings.getProject());
+            }
+            sqlModule.close();
+            return lastUpdate;
+        } finally {
+            sqlModule.abort();
+        }
+    }
+
+    /**
+     * stores the start of this import, so the next import with -itsOnlyNew only imports issues that were changed after
+     * it. Issues that change while the pages are fetched may be missed by this import, so the time of their changes
+     * can't be used. Issues that are imported again are replaced
+     *
+     * @throws SQLException if sql queries could not be executed or no connection could be established
+     */
+    protected void saveLastUpdate() throws SQLException {
+        if (importStart == null) {
+            return;
+        }
         ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
-        sqlModule.prepareTicketImport(itsSettings.getProject());
-        sqlModule.clearTables(itsSettings.getProject());
-        return sqlModule;
+        try {
+            sqlModule.saveLastUpdate(itsSettings.getProject(), new Date(importStart.getTime() - IMPORT_OVERLAP));
+        } finally {
+            sqlModule.abort();
+        }
+    }
+
+    /**
+     * returns the limiter for concurrent comment requests to the ticket system of this module
+     *
+     * @return the limiter shared by all modules that access the same ticket system; null if the comments shall be
+     * retrieved by the worker threads (no fetch concurrency is set)
+     */
+    protected FetchLimiter getFetchLimiter() {
+        return FetchLimiter.forTracker(getClass().getName() + "|" + itsSettings.getPath(), itsSettings.getFetchConcurrency());
+    }
+
+    /**
+     * returns the on disk cache for the responses of the ticket system
+     *
+     * @return the cache shared by all modules that use the same cache directory; null if no cache directory is set or
+     * the cache can not be created
+     */
+    protected HttpResponseCache getResponseCache() {
+        if (itsSettings.getCachePath() == null) {
+            return null;
+        }
+        try {
+            return HttpResponseCache.forDirectory(new File(itsSettings.getCachePath()), itsSettings.getCacheSize() * 1024L * 1024L);
+        } catch (IOException e) {
+            OutputUtil.printError("Could not create the response cache. " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * returns the limiter for requests to the ticket system of this module
+     *
+     * @return the limiter shared by all modules that access the same ticket system
+     */
+    protected RateLimiter getRateLimiter() {
+        int requestsPerMinute = itsSettings.getRequestsPerMinute() > 0
+                ? itsSettings.getRequestsPerMinute()
+                : getDefaultRequestsPerMinute();
+        return RateLimiter.forTracker(
+                getClass().getName() + "|" + itsSettings.getPath(),
+                requestsPerMinute / 60.0,
+                (int) Math.ceil(requestsPerMinute / 60.0),
+                itsSettings.getFetchConcurrency() > 0 ? itsSettings.getFetchConcurrency() : RateLimiter.DEFAULT_MAX_CONCURRENCY
+        );
+    }
+
+    /**
+     * @return the number of requests per minute that are sent to the ticket system if not set in the settings
+     */
+    protected int getDefaultRequestsPerMinute() {
+        return 600;
     }
 
     /**
@@ -41,6 +41,8 @@ public class ITSSearchParameters {
     private String commitSuffix = "";
     private String state;
     private String targetVersion;
+    //if true the comments of the found issues will not be loaded
+    private boolean skipComments = false;
 
     public String getAuthor() {
         return author;
@@ -168,6 +170,14 @@ public class ITSSearchParameters {
                 + "targetVersion " + targetVersion;
     }
 
+    public boolean isSkipComments() {
+        return skipComments;
+    }
+
+    public void setSkipComments(boolean skipComments) {
+        this.skipComments = skipComments;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ITSSearchParameters) {
@@ -181,7 +191,8 @@ public class ITSSearchParameters {
                     && (title == null ? other.getTitle() == null : title.equals(other.getTitle()))
                     && (description == null ? other.getDescription() == null : description.equals(other.getDescription()))
                     && (commit == null ? other.getCommit() == null : commit.equals(other.getCommit()))
-                    && (targetVersion == null ? other.getTargetVersion() == null : targetVersion.equals(other.getTargetVersion()));
+                    && (targetVersion == null ? other.getTargetVersion() == null : targetVersion.equals(other.getTargetVersion()))
+                    && (skipComments == other.isSkipComments());
 
         }
         return false;
@@ -29,6 +29,12 @@ public class ITSSettings {
     private String path;
     private String project;
     private boolean online;
+    private boolean onlyNew = false;
+    private int fetchConcurrency = 0;
+    private int requestsPerMinute = 0;
+    private String cachePath;
+    private int cacheSize = 100;
+    private int commentBatchSize = 100;
 
     public ITSSettings() {
     }
@@ -73,6 +79,75 @@ public class ITSSettings {
         this.online = online;
     }
 
+    /**
+     * @return true if only issues that were changed since the last import shall be imported
+     */
+    public boolean shouldOnlyUpdateNew() {
+        return onlyNew;
+    }
+
+    public void setOnlyNew(boolean onlyNew) {
+        this.onlyNew = onlyNew;
+    }
+
+    /**
+     * @return the maximum number of comment requests that are sent concurrently to the ticket system; if &lt;=0 the
+     * comments are retrieved by the worker threads themselves
+     */
+    public int getFetchConcurrency() {
+        return fetchConcurrency;
+    }
+
+    public void setFetchConcurrency(int fetchConcurrency) {
+        this.fetchConcurrency = fetchConcurrency;
+    }
+
+    /**
+     * @return the number of requests per minute that are sent to the ticket system till it reports its actual limit;
+     * if &lt;=0 the default of the module is used
+     */
+    public int getRequestsPerMinute() {
+        return requestsPerMinute;
+    }
+
+    public void setRequestsPerMinute(int requestsPerMinute) {
+        this.requestsPerMinute = requestsPerMinute;
+    }
+
+    /**
+     * @return the directory of the cache for the responses of the ticket system; null if responses shall not be cached
+     */
+    public String getCachePath() {
+        return cachePath;
+    }
+
+    public void setCachePath(String cachePath) {
+        this.cachePath = cachePath;
+    }
+
+    /**
+     * @return the maximum size of the response cache in megabytes
+     */
+    public int getCacheSize() {
+        return cacheSize;
+    }
+
+    public void setCacheSize(int cacheSize) {
+        this.cacheSize = cacheSize;
+    }
+
+    /**
+     * @return the number of issues whose comments are requested with a single request; 1 if the comments of every
+     * issue shall be requested on their own
+     */
+    public int getCommentBatchSize() {
+        return commentBatchSize;
+    }
+
+    public void setCommentBatchSize(int commentBatchSize) {
+        this.commentBatchSize = commentBatchSize;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof ITSSettings) {
@@ -81,7 +156,13 @@ public class ITSSettings {
                     (password == null ? other.getPassword() == null : password.equals(other.getPassword())) &&
                     (project == null ? other.getProject() == null : project.equals(other.getProject())) &&
                     (path == null ? other.getPath() == null : path.equals(other.getPath())) &&
-                    (online == other.isOnline());
+                    (online == other.isOnline()) &&
+                    (onlyNew == other.shouldOnlyUpdateNew()) &&
+                    (fetchConcurrency == other.getFetchConcurrency()) &&
+                    (requestsPerMinute == other.getRequestsPerMinute()) &&
+                    (cachePath == null ? other.getCachePath() == null : cachePath.equals(other.getCachePath())) &&
+                    (cacheSize == other.getCacheSize()) &&
+                    (commentBatchSize == other.getCommentBatchSize());
         } else {
             return false;
         }
@@ -23,44 +23,45 @@ package org.vctsi.internal.its;
  */
 
 import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.SqlConnectionPool;
+import org.vctsi.internal.SqlIndexManager;
 import org.vctsi.internal.SqlType;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
 import java.util.List;
 
 public class ITSSqlModule {
+    //maximal number of ids that are passed to a single IN clause
+    private static final int IN_CHUNK_SIZE = 1000;
 
     private Connection connection;
     private PreparedStatement preparedInsertTicketStmt;
     private PreparedStatement preparedInsertCommentsStmt;
     private int addedStmts = 0;
     private final SqlType sqlType;
+    private SqlIndexManager indexManager;
 
     /**
-     * this will create the sql module for its and the passed db settings and connect to the database
+     * this will create the sql module for its and the passed db settings and borrow a connection from the pool of the
+     * settings. Closing the connection returns it to the pool.
      *
      * @param dbSettings the settings for the database connection
      * @throws SQLException if no connection to the database could be established
      */
     public ITSSqlModule(DBSettings dbSettings) throws SQLException {
         try {
-            this.connection = DriverManager.getConnection(
-                    "jdbc:" + dbSettings.getServer() + ":" + dbSettings.getPort() + "/" + dbSettings.getDb() + "?useUnicode=true&rewriteBatchedStatements=true",
-                    dbSettings.getUsername(), dbSettings.getPassword()
-            );
-            if (dbSettings.getServer().contains("mysql")) {
-                sqlType = SqlType.MYSQL;
-            } else if (dbSettings.getServer().contains("postgresql")) {
-                sqlType = SqlType.POSTGRESQL;
-            } else {
-                sqlType = SqlType.OTHER;
-            }
-            this.connection.setAutoCommit(false);
+            SqlConnectionPool pool = SqlConnectionPool.get(dbSettings);
+            this.connection = pool.getConnection();
+            this.sqlType = pool.getSqlType();
+            this.indexManager = new SqlIndexManager(connection, sqlType);
         } catch (SQLException e) {
             OutputUtil.printError("Could not connect to database");
             throw e;
@@ -76,6 +77,8 @@ public class ITSSqlModule {
     public void prepareTicketImport(String project) throws SQLException {
         checkAndPrepareTicketTable(project);
         checkAndPrepareCommentTable(project);
+        checkAndPrepareStateTable(project);
+        ensureIndexes(project);
         prepareStmts(project);
     }
 
@@ -179,6 +182,77 @@ public class ITSSqlModule {
         }
     }
 
+    /**
+     * tests if the state table has the correct format and if it does not exist it will be created
+     *
+     * @param project the project of which the table shall be checked
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void checkAndPrepareStateTable(String project) throws SQLException {
+        try {
+            ResultSet structure = connection.prepareStatement("select * from `its_" + project + "_state` limit 0").executeQuery();
+            ResultSetMetaData metaData = structure.getMetaData();
+            if (metaData.getColumnCount() != 1
+                    || !metaData.getColumnLabel(1).equals("last_update") || metaData.getColumnType(1) != 93) {
+                throw new SQLException("State table for project has wrong format");
+            } else {
+                OutputUtil.debug("its_" + project + "_state table has correct format.");
+            }
+        } catch (SQLSyntaxErrorException e) {
+            createStateTable(project);
+        }
+    }
+
+    /**
+     * creates the state table for a project. It contains the time from which the next import has to import the
+     * changed issues, which is set by the last successful import.
+     *
+     * @param project the project for which the table shall be created
+     * @throws SQLException if the table cannot be created, the database connection failed or an error exist in a sql query
+     */
+    private void createStateTable(String project) throws SQLException {
+        if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `its_" + project + "_state` ("
+                + "`last_update` TIMESTAMP NULL"
+                + ")").executeUpdate() != 0) {
+            throw new SQLException("Can't create sql table for project");
+        } else {
+            OutputUtil.debug("its_" + project + "_state table created");
+        }
+    }
+
+    /**
+     * gets the time from which the changed issues have to be imported, as stored by the last successful import
+     *
+     * @param project the project of which the time shall be retrieved
+     * @return the time from which issues have to be imported; null if nothing was imported successfully yet
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public Date getLastUpdate(String project) throws SQLException {
+        ResultSet resultSet = connection.prepareStatement("SELECT MAX(`last_update`) FROM `its_" + project + "_state`").executeQuery();
+        if (resultSet.next() && resultSet.getTimestamp(1) != null) {
+            return new Date(resultSet.getTimestamp(1).getTime());
+        }
+        return null;
+    }
+
+    /**
+     * replaces the stored time from which the next import has to import the changed issues and closes the database
+     * connection after it
+     *
+     * @param project    the project of which the time shall be stored
+     * @param lastUpdate the time from which the next import has to import the changed issues
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public void saveLastUpdate(String project, Date lastUpdate) throws SQLException {
+        connection.prepareStatement("DELETE FROM `its_" + project + "_state`").executeUpdate();
+        PreparedStatement insertStmt = connection.prepareStatement(
+                "INSERT INTO `its_" + project + "_state` (`last_update`) VALUES (?)"
+        );
+        insertStmt.setTimestamp(1, new Timestamp(lastUpdate.getTime()));
+        insertStmt.executeUpdate();
+        close();
+    }
+
     /**
      * this will delete all tables of a project and recreates them
      *
@@ -188,24 +262,47 @@ public class ITSSqlModule {
     public void clearTables(String project) throws SQLException {
         connection.prepareStatement("DROP TABLE IF EXISTS `its_" + project + "`").executeUpdate();
         connection.prepareStatement("DROP TABLE IF EXISTS `its_" + project + "_comments`").executeUpdate();
+        connection.prepareStatement("DROP TABLE IF EXISTS `its_" + project + "_state`").executeUpdate();
         createCommentTable(project);
         createIssueTable(project);
+        createStateTable(project);
+        ensureIndexes(project);
+    }
+
+    /**
+     * creates the indexes that are used by the searches if they don't exist yet
+     *
+     * @param project the project for which the indexes shall be created
+     * @throws SQLException if an index could not be created
+     */
+    private void ensureIndexes(String project) throws SQLException {
+        indexManager.ensureIndex("its_" + project, "author", "author(191)");
+        indexManager.ensureIndex("its_" + project, "state", "state(191)");
+        indexManager.ensureIndex("its_" + project, "assignee", "assignee(191)");
+        indexManager.ensureIndex("its_" + project, "creation_date", "creation_date");
+        indexManager.ensureFullTextIndex("its_" + project, "title");
+        indexManager.ensureFullTextIndex("its_" + project, "description");
+        indexManager.ensureIndex("its_" + project + "_comments", "ticketId", "ticketId");
     }
 
     /**
-     * creates the prepared statements that will be used to import data
+     * creates the prepared statements that will be used to import data. Existing issues and comments will be updated
+     * so changed issues can be imported again
      *
      * @param project the project for which the data will be imported
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void prepareStmts(String project) throws SQLException {
-        String insertTicketStmt = "INSERT " + getIgnore() + " INTO `its_" + project + "` "
+        String insertTicketStmt = "INSERT INTO `its_" + project + "` "
                 + "(`id`, `name`, `title`, `description`, `author`, `creation_date`, `state`, `assignee`, `target_version`)"
-                + " VALUES (?, ?, ?, ?, ? , ?, ?, ?, ?)" + getOnConflict("`id`");
+                + " VALUES (?, ?, ?, ?, ? , ?, ?, ?, ?)"
+                + getUpsert(new String[]{"`id`"},
+                "`name`", "`title`", "`description`", "`author`", "`creation_date`", "`state`", "`assignee`", "`target_version`");
         preparedInsertTicketStmt = connection.prepareStatement(insertTicketStmt);
-        String insertCommentsStmt = "INSERT " + getIgnore() + " INTO `its_" + project + "_comments` "
+        String insertCommentsStmt = "INSERT INTO `its_" + project + "_comments` "
                 + "(`commentId`, `ticketId`, `description`, `author`, `creation_date`) "
-                + "VALUES (?, ?, ?, ?, ?)" + getOnConflict("`commentId`", "`ticketId`");
+                + "VALUES (?, ?, ?, ?, ?)"
+                + getUpsert(new String[]{"`commentId`", "`ticketId`"}, "`description`", "`author`", "`creation_date`");
         preparedInsertCommentsStmt = connection.prepareStatement(insertCommentsStmt);
     }
 
@@ -363,6 +460,20 @@ public class ITSSqlModule {
         connection.close();
     }
 
+    /**
+     * returns the connection to the pool without committing pending changes. Does nothing if the connection is
+     * already closed
+     */
+    public void abort() {
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            OutputUtil.debug("could not close the database connection: " + e.getMessage());
+        }
+    }
+
     /**
      * searches issues from a project that matches the search parameters
      *
@@ -372,75 +483,217 @@ public class ITSSqlModule {
      */
     public List<Issue> getIssues(ITSSearchParameters params, String project) {
         try {
-            String query = getSearchQuery(params, project);
-            PreparedStatement searchTicketStmt = connection.prepareStatement(query);
-            int i = 1;
-            if (params.getAuthor() != null) {
-                searchTicketStmt.setString(i++, params.getAuthor());
-            }
-            if (params.getTitle() != null) {
-                searchTicketStmt.setString(i++, "%" + params.getTitle() + "%");
-            }
-            if (params.getDescription() != null) {
-                searchTicketStmt.setString(i++, "%" + params.getDescription() + "%");
+            List<Issue> issues = getIssuesFromResult(prepareSearchStatement(params, project).executeQuery());
+            if (!params.isSkipComments()) {
+                addComments(project, issues);
             }
-            if (params.getCommit() != null) {
-                searchTicketStmt.setString(i++, "[^[:alnum:]]" + escapeRegExp(params.getCommitPrefix() + params.getCommit() + params.getCommitSuffix()) + "[^[:alnum:]]");
-                searchTicketStmt.setString(i++, "[^[:alnum:]]" + escapeRegExp(params.getCommitPrefix() + params.getCommit() + params.getCommitSuffix()) + "[^[:alnum:]]");
-            }
-            if (params.getAssignee() != null) {
-                searchTicketStmt.setString(i++, params.getAssignee());
-            }
-            if (params.getIds() != null) {
-                searchTicketStmt.setArray(i++, connection.createArrayOf("integer", params.getIds()));
+            return issues;
+        } catch (SQLException e) {
+            OutputUtil.printError("An error occured: " + e.getMessage());
+            return null;
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * searches issues from a project that matches the search parameters and writes them to the passed writer while
+     * they are read from the database. The result is read with a cursor and the comments are loaded for IN_CHUNK_SIZE
+     * issues at once so only a single chunk of issues is held in memory. As the connection of this module is busy
+     * with the result the comments are loaded with the connection of the lookup module. The connections of both
+     * modules are closed afterwards.
+     *
+     * @param params       the parameters of the search
+     * @param project      the project from which the issues shall be retrieved
+     * @param lookupModule the sql module used to load the comments of the found issues
+     * @param writer       the writer to which the found issues are written
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     * @throws IOException  if an issue could not be written
+     */
+    public void streamIssues(ITSSearchParameters params, String project, ITSSqlModule lookupModule,
+                             OutputUtil.ObjectListWriter writer) throws SQLException, IOException {
+        try {
+            PreparedStatement searchTicketStmt = prepareSearchStatement(params, project);
+            searchTicketStmt.setFetchSize(getStreamingFetchSize());
+            ResultSet resultSet = searchTicketStmt.executeQuery();
+            List<Issue> chunk = new ArrayList<>(IN_CHUNK_SIZE);
+            while (resultSet.next()) {
+                chunk.add(getIssue(resultSet));
+                if (chunk.size() == IN_CHUNK_SIZE) {
+                    lookupModule.writeIssues(project, chunk, !params.isSkipComments(), writer);
+                    chunk.clear();
+                }
             }
-            if (params.getNames() != null) {
-                searchTicketStmt.setArray(i++, connection.createArrayOf("text", params.getNames()));
+            lookupModule.writeIssues(project, chunk, !params.isSkipComments(), writer);
+        } finally {
+            abort();
+            lookupModule.abort();
+        }
+    }
+
+    /**
+     * loads the comments of the issues if requested and writes the issues to the writer so they are printed before the
+     * next chunk is read
+     *
+     * @param project      the project of the issues
+     * @param issues       the issues that shall be written
+     * @param withComments true if the comments of the issues shall be loaded
+     * @param writer       the writer to which the issues are written
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     * @throws IOException  if an issue could not be written
+     */
+    private void writeIssues(String project, List<Issue> issues, boolean withComments, OutputUtil.ObjectListWriter writer) throws SQLException, IOException {
+        if (withComments) {
+            addComments(project, issues);
+        }
+        for (Issue issue : issues) {
+            writer.write(issue);
+        }
+        writer.flush();
+    }
+
+    /**
+     * returns the fetch size that makes the jdbc driver read a result with a cursor instead of loading it completely.
+     * MySQL only streams results row by row; postgresql uses a cursor if the fetch size is positive and autocommit is
+     * disabled
+     *
+     * @return the fetch size for streamed results
+     */
+    private int getStreamingFetchSize() {
+        if (sqlType == SqlType.MYSQL) {
+            return Integer.MIN_VALUE;
+        }
+        return IN_CHUNK_SIZE;
+    }
+
+    /**
+     * creates the statement for the search and sets the values of the search parameters
+     *
+     * @param params  the parameters of the search
+     * @param project the project from which the issues shall be retrieved
+     * @return the statement for the search that can be executed
+     * @throws SQLException if the database connection failed or the statement could not be created
+     */
+    private PreparedStatement prepareSearchStatement(ITSSearchParameters params, String project) throws SQLException {
+        String title = params.getTitle() == null ? null : "%" + params.getTitle() + "%";
+        String description = params.getDescription() == null ? null : "%" + params.getDescription() + "%";
+        String titleQuery = title == null ? null : getPrefilterQuery(project, title, "title");
+        String descriptionQuery = description == null ? null : getPrefilterQuery(project, description, "description");
+        String commit = params.getCommit() == null ? null : params.getCommitPrefix() + params.getCommit() + params.getCommitSuffix();
+        String commitQuery = commit == null ? null : getFullTextQuery(project, commit, "title", "description");
+        String query = getSearchQuery(params, project, titleQuery, descriptionQuery, commitQuery);
+        PreparedStatement searchTicketStmt = connection.prepareStatement(query);
+        int i = 1;
+        if (params.getAuthor() != null) {
+            searchTicketStmt.setString(i++, params.getAuthor());
+        }
+        if (title != null) {
+            if (titleQuery != null) {
+                searchTicketStmt.setString(i++, titleQuery);
             }
-            if (params.getState() != null) {
-                searchTicketStmt.setString(i++, params.getState());
+            searchTicketStmt.setString(i++, title);
+        }
+        if (description != null) {
+            if (descriptionQuery != null) {
+                searchTicketStmt.setString(i++, descriptionQuery);
             }
-            if (params.getStartDate() != null) {
-                searchTicketStmt.setTimestamp(i++, Timestamp.from(params.getStartDate().toInstant(ZoneOffset.ofHours(2))));
-                searchTicketStmt.setTimestamp(i++, Timestamp.from(params.getEndDate().toInstant(ZoneOffset.ofHours(2))));
+            searchTicketStmt.setString(i++, description);
+        }
+        if (params.getCommit() != null) {
+            if (commitQuery != null) {
+                searchTicketStmt.setString(i++, commitQuery);
+                searchTicketStmt.setString(i++, commitQuery);
             }
+            searchTicketStmt.setString(i++, "[^[:alnum:]]" + escapeRegExp(params.getCommitPrefix() + params.getCommit() + params.getCommitSuffix()) + "[^[:alnum:]]");
+            searchTicketStmt.setString(i++, "[^[:alnum:]]" + escapeRegExp(params.getCommitPrefix() + params.getCommit() + params.getCommitSuffix()) + "[^[:alnum:]]");
+        }
+        if (params.getAssignee() != null) {
+            searchTicketStmt.setString(i++, params.getAssignee());
+        }
+        if (params.getIds() != null) {
+            searchTicketStmt.setArray(i++, connection.createArrayOf("integer", params.getIds()));
+        }
+        if (params.getNames() != null) {
+            searchTicketStmt.setArray(i++, connection.createArrayOf("text", params.getNames()));
+        }
+        if (params.getState() != null) {
+            searchTicketStmt.setString(i++, params.getState());
+        }
+        if (params.getStartDate() != null) {
+            searchTicketStmt.setTimestamp(i++, Timestamp.from(params.getStartDate().toInstant(ZoneOffset.ofHours(2))));
+            searchTicketStmt.setTimestamp(i++, Timestamp.from(params.getEndDate().toInstant(ZoneOffset.ofHours(2))));
+        }
+        return searchTicketStmt;
+    }
 
-            List<Issue> issues = getIssuesFromResult(searchTicketStmt.executeQuery());
-            PreparedStatement getCommentsStmt = connection.prepareStatement(
-                    "SELECT * FROM `its_" + project + "_comments` WHERE `ticketId` LIKE ?"
-            );
-            for (Issue issue : issues) {
-                getCommentsStmt.setInt(1, issue.getId());
-                List<IssueComment> comments = getCommentsFromResult(getCommentsStmt.executeQuery());
-                issue.setComments(comments);
+    /**
+     * converts a text that shall be searched in some columns of the issues into a query for their fulltext indexes
+     *
+     * @param project the project from which the issues shall be retrieved
+     * @param text    the text to search
+     * @param columns the columns that will be searched
+     * @return the query for the fulltext indexes or null if an index doesn't exist or can't be used for the text
+     * @throws SQLException if the indexes could not be retrieved
+     */
+    private String getFullTextQuery(String project, String text, String... columns) throws SQLException {
+        for (String column : columns) {
+            if (!indexManager.hasFullTextIndex("its_" + project, column)) {
+                return null;
             }
-            connection.close();
-            return issues;
-        } catch (SQLException e) {
-            OutputUtil.printError("An error occured: " + e.getMessage());
+        }
+        return indexManager.toFullTextQuery(text);
+    }
+
+    /**
+     * converts the LIKE pattern that shall be searched in a column of the issues into a query for its fulltext index
+     * which prefilters the issues for the LIKE condition
+     *
+     * @param project the project from which the issues shall be retrieved
+     * @param pattern the LIKE pattern
+     * @param column  the column that will be searched
+     * @return the query for the fulltext index or null if the index doesn't exist or can't be used for the pattern
+     * @throws SQLException if the indexes could not be retrieved
+     */
+    private String getPrefilterQuery(String project, String pattern, String column) throws SQLException {
+        if (!indexManager.hasFullTextIndex("its_" + project, column)) {
             return null;
         }
+        return indexManager.toLikePrefilterQuery(pattern);
     }
 
     /**
      * creates the sql query for the passed search parameters that will contain placeholders for the actual search values
      *
-     * @param project the project from which the issues shall be retrieved
-     * @param params  the parameters of the search
+     * @param project          the project from which the issues shall be retrieved
+     * @param params           the parameters of the search
+     * @param titleQuery       the fulltext query that prefilters the title; if null only LIKE searches the title
+     * @param descriptionQuery the fulltext query that prefilters the description; if null only LIKE searches the description
+     * @param commitQuery      the fulltext query for the commit; if null every issue is checked by the regular expression
      * @return an sql query representing the search parameters and containing placeholders for the actual search values
      */
-    private String getSearchQuery(ITSSearchParameters params, String project) {
+    private String getSearchQuery(ITSSearchParameters params, String project, String titleQuery, String descriptionQuery, String commitQuery) {
         String query = "SELECT * FROM `its_" + project + "` WHERE 1 ";
         if (params.getAuthor() != null) {
             query += " AND `author` LIKE ? ";
         }
         if (params.getTitle() != null) {
+            if (titleQuery != null) {
+                query += " AND " + indexManager.getFullTextCondition("title") + " ";
+            }
             query += " AND `title` LIKE ? ";
         }
         if (params.getDescription() != null) {
+            if (descriptionQuery != null) {
+                query += " AND " + indexManager.getFullTextCondition("description") + " ";
+            }
             query += " AND `description` LIKE ? ";
         }
         if (params.getCommit() != null) {
+            if (commitQuery != null) {
+                //the indexes find the candidates and the regular expression checks that the commit is not part of a word
+                query += " AND (" + indexManager.getFullTextCondition("title") + " OR "
+                        + indexManager.getFullTextCondition("description") + ")";
+            }
             query += " AND (`title` " + getRegExpIdentifier() + " ? OR `description` " + getRegExpIdentifier() + " ? )";
         }
         if (params.getAssignee() != null) {
@@ -471,63 +724,90 @@ public class ITSSqlModule {
     private List<Issue> getIssuesFromResult(ResultSet resultSet) throws SQLException {
         List<Issue> issues = new ArrayList<>();
         while (resultSet.next()) {
-            issues.add(new Issue(
-                    resultSet.getInt("id"),
-                    resultSet.getString("name"),
-                    resultSet.getString("title"),
-                    resultSet.getString("description"),
-                    resultSet.getString("author"),
-                    resultSet.getTimestamp("creation_date").toLocalDateTime(),
-                    resultSet.getString("state"),
-                    resultSet.getString("assignee"),
-                    resultSet.getString("target_version")
-            ));
+            issues.add(getIssue(resultSet));
         }
         return issues;
     }
 
     /**
-     * gets the comments from the resultset and returns them as a list
+     * creates an issue from the current row of the resultset
      *
-     * @param resultSet a sql resultset from the comment table that contains a list of comments
-     * @return a list of IssueComment from the resultSet
-     * @throws SQLException if the resultset does not contain comment data, the resultset is closed or the database connection failed
+     * @param resultSet a sql resultset from the issues table that points to an issue
+     * @return the issue of the current row
+     * @throws SQLException if the resultset does not contain issue data, the resultset is closed or the database connection failed
      */
-
-    private List<IssueComment> getCommentsFromResult(ResultSet resultSet) throws SQLException {
-        List<IssueComment> comments = new ArrayList<>();
-        while (resultSet.next()) {
-            comments.add(new IssueComment(
-                    resultSet.getInt("commentId"),
-                    resultSet.getString("description"),
-                    resultSet.getString("author"),
-                    resultSet.getTimestamp("creation_date").toLocalDateTime()
-            ));
-        }
-        return comments;
+    private Issue getIssue(ResultSet resultSet) throws SQLException {
+        return new Issue(
+                resultSet.getInt("id"),
+                resultSet.getString("name"),
+                resultSet.getString("title"),
+                resultSet.getString("description"),
+                resultSet.getString("author"),
+                resultSet.getTimestamp("creation_date").toLocalDateTime(),
+                resultSet.getString("state"),
+                resultSet.getString("assignee"),
+                resultSet.getString("target_version")
+        );
     }
 
     /**
-     * this will return a query part for mysql so that existing entries will be ignored on insert
+     * loads the comments of the issues. Instead of querying them for every issue on its own the ids of up to
+     * IN_CHUNK_SIZE issues are passed to a single query and the comments are assigned to the issues by their id.
+     * Every issue gets a list of comments which is empty if the issue has no comments.
      *
-     * @return string containing the keyword for mysql to ignore existing entries
+     * @param project the project of the issues
+     * @param issues  the issues for which the comments shall be loaded
+     * @throws SQLException if the database connection failed or an error exist in a sql query
      */
-    private String getIgnore() {
-        if (sqlType == SqlType.MYSQL) {
-            return " IGNORE ";
+    private void addComments(String project, List<Issue> issues) throws SQLException {
+        HashMap<Integer, List<IssueComment>> commentsById = new HashMap<>();
+        for (Issue issue : issues) {
+            List<IssueComment> comments = new ArrayList<>();
+            issue.setComments(comments);
+            commentsById.put(issue.getId(), comments);
+        }
+        for (int start = 0; start < issues.size(); start += IN_CHUNK_SIZE) {
+            List<Issue> chunk = issues.subList(start, Math.min(start + IN_CHUNK_SIZE, issues.size()));
+            PreparedStatement getCommentsStmt = connection.prepareStatement(
+                    "SELECT * FROM `its_" + project + "_comments` WHERE `ticketId` IN ("
+                            + String.join(", ", Collections.nCopies(chunk.size(), "?")) + ") ORDER BY `commentId`"
+            );
+            for (int i = 0; i < chunk.size(); i++) {
+                getCommentsStmt.setInt(i + 1, chunk.get(i).getId());
+            }
+            ResultSet resultSet = getCommentsStmt.executeQuery();
+            while (resultSet.next()) {
+                commentsById.get(resultSet.getInt("ticketId")).add(new IssueComment(
+                        resultSet.getInt("commentId"),
+                        resultSet.getString("description"),
+                        resultSet.getString("author"),
+                        resultSet.getTimestamp("creation_date").toLocalDateTime()
+                ));
+            }
+            getCommentsStmt.close();
         }
-        return "";
     }
 
     /**
-     * this will return a query part for postgresql so that existing entries will be ignored on insert
+     * this will return a query part so that existing entries will be updated on insert
      *
-     * @param keys the columns that define the primary key columns
-     * @return string containing the keywords for postgresql to ignore existing entries
+     * @param keys    the columns that define the primary key columns
+     * @param columns the columns that shall be updated
+     * @return string containing the keywords for the current sql type to update existing entries
      */
-    private String getOnConflict(String... keys) {
+    private String getUpsert(String[] keys, String... columns) {
+        List<String> updates = new ArrayList<>(columns.length);
         if (sqlType == SqlType.POSTGRESQL) {
-            return " ON CONFLICT (" + String.join(", ", (CharSequence[]) keys) + " ) DO NOTHING";
+            for (String column : columns) {
+                updates.add(column + " = EXCLUDED." + column);
+            }
+            return " ON CONFLICT (" + String.join(", ", (CharSequence[]) keys) + ") DO UPDATE SET " + String.join(", ", updates);
+        }
+        if (sqlType == SqlType.MYSQL) {
+            for (String column : columns) {
+                updates.add(column + " = VALUES(" + column + ")");
+            }
+            return " ON DUPLICATE KEY UPDATE " + String.join(", ", updates);
         }
         return "";
     }
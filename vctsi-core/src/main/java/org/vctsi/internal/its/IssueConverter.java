@@ -86,6 +86,14 @@ public interface IssueConverter<ISSUE> {
      */
     Date getCreationDate(ISSUE issue);
 
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param issue the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    Date getUpdateDate(ISSUE issue);
+
     /**
      * get the state of the issue
      *
@@ -23,6 +23,7 @@ package org.vctsi.internal.its;
  */
 
 import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.SqlConnectionPool;
 import org.vctsi.utils.OutputUtil;
 
 import java.sql.SQLException;
@@ -30,7 +31,9 @@ import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
 import java.util.concurrent.ExecutorService;
 import java.util.concurrent.LinkedBlockingQueue;
 import java.util.concurrent.TimeUnit;
@@ -47,6 +50,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
     private CommentRetriever<COMMENT, ISSUE> commentRetriever;
     private CommentConverter<COMMENT, ISSUE> commentConverter;
     private IssueFilter<ISSUE> issueFilter = null;
+    private FetchLimiter fetchLimiter;
     private DBSettings dbSettings;
     private String errors = "";
     private String project;
@@ -63,6 +67,8 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
      * @param dbSettings       database settings
      * @param project          the project of which data is processed
      * @param threadPoolSize   the number of worker threads that shall be created
+     * @param fetchLimiter     if not null the comments of a batch are retrieved concurrently as tasks that are bounded
+     *                         by this limiter; if null every worker retrieves the comments one after the other
      * @param doImport         if true the issues will be imported, if false they will stored and can be accessed by getResults()
      */
     public IssueThreadSpawner(
@@ -72,6 +78,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
             DBSettings dbSettings,
             String project,
             int threadPoolSize,
+            FetchLimiter fetchLimiter,
             boolean doImport) {
         this.queue = new LinkedBlockingQueue<>();
         this.issueConverter = issueConverter;
@@ -80,6 +87,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
         this.dbSettings = dbSettings;
         this.project = project;
         this.threadPoolSize = threadPoolSize;
+        this.fetchLimiter = fetchLimiter;
         this.executor = newFixedThreadPool(threadPoolSize);
         if (!doImport) {
             results = new HashMap<>();
@@ -97,6 +105,8 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
      * @param dbSettings       database settings
      * @param project          the project of which data is processed
      * @param threadPoolSize   the number of worker threads that shall be created
+     * @param fetchLimiter     if not null the comments of a batch are retrieved concurrently as tasks that are bounded
+     *                         by this limiter; if null every worker retrieves the comments one after the other
      * @param doImport         if true the issues will be imported, if false they will stored and can be accessed by getResults()
      */
     public IssueThreadSpawner(IssueConverter<ISSUE> issueConverter,
@@ -106,6 +116,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
                               DBSettings dbSettings,
                               String project,
                               int threadPoolSize,
+                              FetchLimiter fetchLimiter,
                               boolean doImport) {
         this.issueFilter = issueFilter;
         this.queue = new LinkedBlockingQueue<>();
@@ -115,6 +126,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
         this.dbSettings = dbSettings;
         this.project = project;
         this.threadPoolSize = threadPoolSize;
+        this.fetchLimiter = fetchLimiter;
         this.executor = newFixedThreadPool(threadPoolSize);
         if (!doImport) {
             results = new HashMap<>();
@@ -130,6 +142,10 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
      *                 results HashMap
      */
     private void start(boolean doImport) {
+        if (doImport) {
+            //every importer keeps its own connection
+            SqlConnectionPool.get(dbSettings).ensureCapacity(threadPoolSize + SqlConnectionPool.RESERVED_CONNECTIONS);
+        }
         for (int i = 0; i < threadPoolSize; i++) {
             if (doImport) {
                 executor.execute(new IssueImporter());
@@ -204,6 +220,73 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
         return result;
     }
 
+    /**
+     * retrieves the comments of a batch of issues. if a fetch limiter is set, a request for every issue is submitted
+     * to it and the results are collected afterwards, so the requests of the batch are executed concurrently.
+     * else the comments are retrieved one after the other by the calling thread. a retriever that can request the
+     * comments of many issues at once retrieves the comments of the whole batch itself, as one task of the fetch
+     * limiter if it is set
+     *
+     * @param issues the issues of which the comments shall be retrieved
+     * @return the comments of each issue in the order of the issues; null if an error occured or the workers shall stop
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the comments
+     */
+    private List<List<COMMENT>> getComments(List<ISSUE> issues) throws InterruptedException {
+        if (commentRetriever instanceof BulkCommentRetriever) {
+            BulkCommentRetriever<COMMENT, ISSUE> bulkRetriever = (BulkCommentRetriever<COMMENT, ISSUE>) commentRetriever;
+            List<List<COMMENT>> comments;
+            if (fetchLimiter == null) {
+                comments = bulkRetriever.getBulkComments(issues);
+            } else {
+                comments = await(fetchLimiter.submit(() -> bulkRetriever.getBulkComments(issues)));
+            }
+            return stop ? null : comments;
+        }
+        List<List<COMMENT>> result = new ArrayList<>(issues.size());
+        if (fetchLimiter == null) {
+            for (ISSUE issue : issues) {
+                List<COMMENT> comments = commentRetriever.getComments(issue);
+                if (stop || comments == null) {
+                    return null;
+                }
+                result.add(comments);
+            }
+            return result;
+        }
+        List<CompletableFuture<List<COMMENT>>> fetches = new ArrayList<>(issues.size());
+        for (ISSUE issue : issues) {
+            if (stop) {
+                return null;
+            }
+            fetches.add(fetchLimiter.submit(() -> commentRetriever.getComments(issue)));
+        }
+        for (CompletableFuture<List<COMMENT>> fetch : fetches) {
+            List<COMMENT> comments = await(fetch);
+            if (stop || comments == null) {
+                return null;
+            }
+            result.add(comments);
+        }
+        return result;
+    }
+
+    /**
+     * waits for the result of a fetch of the fetch limiter
+     *
+     * @param fetch the fetch of which the result shall be returned
+     * @param <RESULT> the type of the result
+     * @return the result of the fetch; null if the fetch failed
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the result
+     */
+    private <RESULT> RESULT await(CompletableFuture<RESULT> fetch) throws InterruptedException {
+        try {
+            return fetch.get();
+        } catch (ExecutionException e) {
+            errors += e.getCause().getMessage();
+            return null;
+        }
+    }
+
     /**
      * @return errors that occured while executing the workers
      */
@@ -233,7 +316,14 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
                             break;
                         }
                         List<ISSUE> issues = elem.getWork();
-                        for (ISSUE issue : issues) {
+                        List<List<COMMENT>> issueComments = getComments(issues);
+                        if (issueComments == null) {
+                            //an error occured so stop this and other running threads
+                            stopNow();
+                            break;
+                        }
+                        for (int i = 0; i < issues.size(); i++) {
+                            ISSUE issue = issues.get(i);
                             sqlModule.importIssue(
                                     issueConverter.getTicketId(issue),
                                     issueConverter.getName(issue),
@@ -245,14 +335,7 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
                                     issueConverter.getAssignee(issue),
                                     issueConverter.getTargetVersion(issue)
                             );
-
-                            List<COMMENT> comments = commentRetriever.getComments(issue);
-                            if (stop || comments == null) {
-                                //an error occured so stop this and other running threads
-                                stopNow();
-                                break;
-                            }
-                            for (COMMENT comment : comments) {
+                            for (COMMENT comment : issueComments.get(i)) {
                                 sqlModule.importComment(
                                         commentConverter.getCommentId(comment, issue),
                                         commentConverter.getTicketId(comment, issue),
@@ -270,6 +353,11 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
                 }
             } catch (InterruptedException e) {
                 OutputUtil.debug("Thread " + Thread.currentThread().getName() + " was interrupted");
+            } finally {
+                //returns the connection to the pool if the import was not finished
+                if (sqlModule != null) {
+                    sqlModule.abort();
+                }
             }
         }
     }
@@ -290,23 +378,25 @@ public class IssueThreadSpawner<ISSUE, COMMENT> {
                         break;
                     }
 
-                    List<ISSUE> issues = elem.getWork();
-                    List<Issue> tmpList = new ArrayList<>();
-                    for (ISSUE issue : issues) {
+                    List<ISSUE> issues = new ArrayList<>();
+                    for (ISSUE issue : elem.getWork()) {
                         //if a filter is provisioned test if the issue shall be added to results
-                        if (issueFilter != null && !issueFilter.evaluateIssue(issue)) {
-                            continue;
+                        if (issueFilter == null || issueFilter.evaluateIssue(issue)) {
+                            issues.add(issue);
                         }
-
-                        Issue vctsiIssue = issueConverter.convertToIssue(issue);
-                        List<COMMENT> comments = commentRetriever.getComments(issue);
-                        if (stop || comments == null) {
-                            //an error occured so stop this and other running threads
-                            stopNow();
-                            break;
-                        }
-                        List<IssueComment> issueComments = new ArrayList<>(comments.size());
-                        for (COMMENT comment : comments) {
+                    }
+                    List<List<COMMENT>> comments = getComments(issues);
+                    if (comments == null) {
+                        //an error occured so stop this and other running threads
+                        results.put(elem.getIndex(), Collections.emptyList());
+                        stopNow();
+                        break;
+                    }
+                    List<Issue> tmpList = new ArrayList<>(issues.size());
+                    for (int i = 0; i < issues.size(); i++) {
+                        Issue vctsiIssue = issueConverter.convertToIssue(issues.get(i));
+                        List<IssueComment> issueComments = new ArrayList<>(comments.get(i).size());
+                        for (COMMENT comment : comments.get(i)) {
                             issueComments.add(commentConverter.convertToIssueComment(comment));
                         }
                         vctsiIssue.setComments(issueComments);
@@ -0,0 +1,392 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * limits the requests that are sent to a ticket system. A request needs a token of a token bucket that is refilled
+ * with the allowed request rate and a slot of the concurrency limit. The concurrency limit is increased by one after
+ * a limit of successful requests and is halved when the server reports that it is overloaded. If the server reports
+ * its remaining requests (X-RateLimit-Remaining) the rate is adjusted so that they are spread till the reset of the
+ * limit (after it the initial rate is used again), if it requests a pause (Retry-After or no remaining requests) no request is sent till the pause is over.
+ * All modules that access the same tracker share one limiter.
+ */
+public class RateLimiter {
+
+    static final long DEFAULT_RETRY_AFTER_MILLIS = 1000;
+    static final int MAX_RETRIES = 10;
+    public static final int DEFAULT_MAX_CONCURRENCY = 16;
+
+    private static final HashMap<String, RateLimiter> limiters = new HashMap<>();
+
+    private final int burst;
+    private final int maxConcurrency;
+    private final double baseTokensPerNano;
+    private double tokensPerNano;
+    //the time (System.nanoTime()) when the rate reported by the server ends; only used if rateAdjusted is set
+    private long rateAdjustedUntil;
+    private boolean rateAdjusted = false;
+    private double tokens;
+    private long lastRefill;
+    private long pausedUntil;
+    private int concurrencyLimit;
+    private int inFlight = 0;
+    private int successes = 0;
+
+    /**
+     * creates a limiter
+     *
+     * @param requestsPerSecond the number of requests that can be sent per second till the server reports another rate
+     * @param burst             the maximum number of requests that can be sent at once after a idle time
+     * @param maxConcurrency    the maximum number of requests that are executed concurrently
+     */
+    RateLimiter(double requestsPerSecond, int burst, int maxConcurrency) {
+        this.burst = Math.max(1, burst);
+        this.maxConcurrency = Math.max(1, maxConcurrency);
+        this.concurrencyLimit = this.maxConcurrency;
+        this.baseTokensPerNano = requestsPerSecond / TimeUnit.SECONDS.toNanos(1);
+        this.tokensPerNano = baseTokensPerNano;
+        this.tokens = this.burst;
+        this.lastRefill = System.nanoTime();
+        this.pausedUntil = lastRefill;
+    }
+
+    /**
+     * returns the limiter of a tracker. if there is no limiter for the tracker yet, a new one will be created
+     *
+     * @param tracker           an identifier of the ticket system (eg. module and uri)
+     * @param requestsPerSecond the number of requests that can be sent per second till the server reports another rate
+     * @param burst             the maximum number of requests that can be sent at once after a idle time
+     * @param maxConcurrency    the maximum number of requests that are executed concurrently
+     * @return the limiter of the tracker
+     */
+    public static synchronized RateLimiter forTracker(String tracker, double requestsPerSecond, int burst, int maxConcurrency) {
+        String key = tracker + "|" + requestsPerSecond + "|" + burst + "|" + maxConcurrency;
+        RateLimiter limiter = limiters.get(key);
+        if (limiter == null) {
+            limiter = new RateLimiter(requestsPerSecond, burst, maxConcurrency);
+            limiters.put(key, limiter);
+        }
+        return limiter;
+    }
+
+    /**
+     * waits till a token and a slot of the concurrency limit are available and takes them. the slot has to be
+     * returned with release()
+     *
+     * @throws InterruptedException occurs if the thread is interrupted while waiting
+     */
+    public synchronized void acquire() throws InterruptedException {
+        while (true) {
+            long now = System.nanoTime();
+            refill(now);
+            long waitNanos;
+            if (now - pausedUntil < 0) {
+                waitNanos = pausedUntil - now;
+            } else if (inFlight >= concurrencyLimit) {
+                //a slot is returned by release() which will notify us
+                waitNanos = 0;
+            } else if (tokens >= 1) {
+                tokens -= 1;
+                inFlight++;
+                return;
+            } else {
+                waitNanos = (long) Math.ceil((1 - tokens) / tokensPerNano);
+                if (rateAdjusted) {
+                    //the initial rate may allow the request earlier
+                    waitNanos = Math.max(1, Math.min(waitNanos, rateAdjustedUntil - now));
+                }
+            }
+            if (waitNanos > 0) {
+                TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+            } else {
+                wait();
+            }
+        }
+    }
+
+    /**
+     * returns the slot of the concurrency limit that was taken by acquire()
+     *
+     * @param success true if the request was successful; if enough requests were successful the concurrency limit is
+     *                increased
+     */
+    public synchronized void release(boolean success) {
+        inFlight--;
+        if (success && concurrencyLimit < maxConcurrency && ++successes >= concurrencyLimit) {
+            concurrencyLimit++;
+            successes = 0;
+        }
+        notifyAll();
+    }
+
+    /**
+     * executes a request within the limits. if the request fails and the classifier reports that the server rejected
+     * it because of too many requests, the limiter is adjusted and the request is retried
+     *
+     * @param request    the request that shall be executed
+     * @param classifier returns the throttling the server requested with the exception; null or a classifier returning
+     *                   null if the exception shall be thrown without retrying the request
+     * @param <RESULT>   the type of the result of the request
+     * @param <E>        the exception the request can throw
+     * @return the result of the request
+     * @throws E                    the exception of the request if it can not be retried or it was retried too often
+     * @throws InterruptedException occurs if the thread is interrupted while waiting
+     */
+    public <RESULT, E extends Exception> RESULT execute(Request<RESULT, E> request,
+                                                        Function<Exception, Throttling> classifier) throws E, InterruptedException {
+        for (int attempt = 0; ; attempt++) {
+            acquire();
+            boolean success = false;
+            try {
+                RESULT result = request.execute();
+                success = true;
+                return result;
+            } catch (Exception e) {
+                Throttling throttling = classifier == null ? null : classifier.apply(e);
+                if (throttling == null || attempt >= MAX_RETRIES) {
+                    throw e;
+                }
+                onThrottled(throttling);
+            } finally {
+                release(success);
+            }
+        }
+    }
+
+    /**
+     * adjusts the limiter to the reaction the server requested by rejecting a request
+     *
+     * @param throttling the throttling the server requested
+     */
+    public void onThrottled(Throttling throttling) {
+        if (throttling.overloaded) {
+            onOverloaded();
+        } else {
+            onRateLimited(throttling.retryAfterMillis);
+        }
+    }
+
+    /**
+     * pauses all requests because the server rejected a request because of too many requests
+     *
+     * @param retryAfterMillis the time the server requested to wait; if &lt;=0 a default time is used
+     */
+    public synchronized void onRateLimited(long retryAfterMillis) {
+        long pause = retryAfterMillis > 0 ? retryAfterMillis : DEFAULT_RETRY_AFTER_MILLIS;
+        OutputUtil.debug("too many requests! waiting " + pause + " ms");
+        pauseUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(pause));
+    }
+
+    /**
+     * halves the concurrency limit and pauses all requests for a short time because the server seems to be unable to
+     * handle the number of requests
+     */
+    public synchronized void onOverloaded() {
+        concurrencyLimit = Math.max(1, concurrencyLimit / 2);
+        successes = 0;
+        OutputUtil.debug("throttling speed: " + concurrencyLimit + " concurrent requests");
+        pauseUntil(System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(DEFAULT_RETRY_AFTER_MILLIS));
+    }
+
+    /**
+     * adjusts the rate to the requests the server allows till its limit is reset
+     *
+     * @param remaining        the remaining requests
+     * @param resetEpochMillis the time (milliseconds since epoch) when the limit of the server is reset
+     */
+    public synchronized void updateRemaining(long remaining, long resetEpochMillis) {
+        long untilReset = resetEpochMillis - System.currentTimeMillis();
+        if (untilReset <= 0) {
+            return;
+        }
+        long now = System.nanoTime();
+        refill(now);
+        if (remaining <= 0) {
+            OutputUtil.debug("request limit reached! waiting " + untilReset + " ms");
+            pauseUntil(now + TimeUnit.MILLISECONDS.toNanos(untilReset));
+        } else {
+            tokensPerNano = (double) remaining / TimeUnit.MILLISECONDS.toNanos(untilReset);
+            rateAdjusted = true;
+            rateAdjustedUntil = now + TimeUnit.MILLISECONDS.toNanos(untilReset);
+            tokens = Math.min(tokens, remaining);
+            notifyAll();
+        }
+    }
+
+    /**
+     * reads the rate limit headers (Retry-After, X-RateLimit-Remaining and X-RateLimit-Reset or the same without X-
+     * prefix) of a response and adjusts the limiter to them
+     *
+     * @param headers the headers of the response; the names are case insensitive
+     * @return true if the headers requested a pause; else false
+     */
+    public boolean updateFromHeaders(Map<String, List<String>> headers) {
+        String retryAfter = getHeader(headers, "Retry-After");
+        String remaining = getHeader(headers, "X-RateLimit-Remaining");
+        String reset = getHeader(headers, "X-RateLimit-Reset");
+        if (remaining == null) {
+            remaining = getHeader(headers, "RateLimit-Remaining");
+            reset = getHeader(headers, "RateLimit-Reset");
+        }
+        boolean paused = false;
+        if (retryAfter != null) {
+            onRateLimited(parseRetryAfter(retryAfter, System.currentTimeMillis()));
+            paused = true;
+        }
+        if (remaining != null && reset != null) {
+            try {
+                long remainingRequests = Long.parseLong(remaining.trim());
+                updateRemaining(remainingRequests, TimeUnit.SECONDS.toMillis(Long.parseLong(reset.trim())));
+                paused |= remainingRequests <= 0;
+            } catch (NumberFormatException e) {
+                OutputUtil.debug("invalid rate limit headers: " + remaining + ", " + reset);
+            }
+        }
+        return paused;
+    }
+
+    /**
+     * waits till a pause requested by the server is over
+     *
+     * @throws InterruptedException occurs if the thread is interrupted while waiting
+     */
+    public synchronized void awaitResume() throws InterruptedException {
+        long waitNanos;
+        while ((waitNanos = pausedUntil - System.nanoTime()) > 0) {
+            TimeUnit.NANOSECONDS.timedWait(this, waitNanos);
+        }
+    }
+
+    /**
+     * @return the number of requests that are currently allowed to be executed concurrently
+     */
+    public synchronized int getConcurrencyLimit() {
+        return concurrencyLimit;
+    }
+
+    /**
+     * @return the number of requests that can be sent per second
+     */
+    public synchronized double getRequestsPerSecond() {
+        refill(System.nanoTime());
+        return tokensPerNano * TimeUnit.SECONDS.toNanos(1);
+    }
+
+    /**
+     * parses the value of a Retry-After header
+     *
+     * @param value     the number of seconds or a http date
+     * @param nowMillis the current time in milliseconds since epoch
+     * @return the time to wait in milliseconds; 0 if the value is invalid
+     */
+    static long parseRetryAfter(String value, long nowMillis) {
+        try {
+            return TimeUnit.SECONDS.toMillis(Long.parseLong(value.trim()));
+        } catch (NumberFormatException e) {
+            try {
+                long date = ZonedDateTime.parse(value.trim(), DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+                return Math.max(0, date - nowMillis);
+            } catch (DateTimeParseException e2) {
+                return 0;
+            }
+        }
+    }
+
+    private static String getHeader(Map<String, List<String>> headers, String name) {
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (name.equalsIgnoreCase(header.getKey()) && header.getValue() != null && !header.getValue().isEmpty()) {
+                return header.getValue().get(0);
+            }
+        }
+        return null;
+    }
+
+    private void refill(long now) {
+        if (rateAdjusted && now - rateAdjustedUntil >= 0) {
+            //the limit of the server was reset, so the remaining requests it reported are outdated
+            tokens = Math.min(burst, tokens + (rateAdjustedUntil - lastRefill) * tokensPerNano);
+            lastRefill = rateAdjustedUntil;
+            tokensPerNano = baseTokensPerNano;
+            rateAdjusted = false;
+        }
+        tokens = Math.min(burst, tokens + (now - lastRefill) * tokensPerNano);
+        lastRefill = now;
+    }
+
+    private void pauseUntil(long nanos) {
+        if (nanos - pausedUntil > 0) {
+            pausedUntil = nanos;
+        }
+        tokens = 0;
+        notifyAll();
+    }
+
+    /**
+     * a request to the ticket system
+     *
+     * @param <RESULT> the type of the result of the request
+     * @param <E>      the exception the request can throw
+     */
+    public interface Request<RESULT, E extends Exception> {
+        RESULT execute() throws E;
+    }
+
+    /**
+     * the reaction the server requested by rejecting a request
+     */
+    public static class Throttling {
+        private final boolean overloaded;
+        private final long retryAfterMillis;
+
+        private Throttling(boolean overloaded, long retryAfterMillis) {
+            this.overloaded = overloaded;
+            this.retryAfterMillis = retryAfterMillis;
+        }
+
+        /**
+         * @param retryAfterMillis the time the server requested to wait; if &lt;=0 a default time is used
+         * @return a throttling for a request that was rejected because of too many requests (eg. status 429)
+         */
+        public static Throttling rateLimited(long retryAfterMillis) {
+            return new Throttling(false, retryAfterMillis);
+        }
+
+        /**
+         * @return a throttling for a request that failed because the server is overloaded (eg. status 502 or 503)
+         */
+        public static Throttling overloaded() {
+            return new Throttling(true, 0);
+        }
+    }
+}
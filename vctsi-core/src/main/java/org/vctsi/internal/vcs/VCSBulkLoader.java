@@ -0,0 +1,443 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.mariadb.jdbc.MariaDbStatement;
+import org.postgresql.PGConnection;
+import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.SqlConnectionPool;
+import org.vctsi.internal.SqlType;
+import org.vctsi.utils.OutputUtil;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.LinkedBlockingQueue;
+
+/**
+ * loads rows into the vcs tables with LOAD DATA LOCAL INFILE (mysql) or COPY FROM STDIN (postgresql) instead of insert
+ * statements. The rows are collected per table in chunks which are loaded by several threads each using its own
+ * database connection. Every chunk is committed after it was loaded so there is no single transaction for the whole
+ * import. Existing rows are ignored: mysql skips them while loading, postgresql copies a chunk into a temporary
+ * staging table and inserts its rows from there, skipping existing keys.
+ */
+public class VCSBulkLoader {
+    //number of rows of a table that will be loaded and committed at once
+    static final int ROWS_PER_LOAD = 50000;
+
+    private final SqlType sqlType;
+    private final HashMap<String, TableBuffer> tables = new HashMap<>();
+    private final LinkedBlockingQueue<Chunk> chunks;
+    private final List<Thread> loaderThreads = new ArrayList<>();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+
+    /**
+     * creates the bulk loader and borrows the connections used for loading the data from the pool
+     *
+     * @param dbSettings  the settings for the database connections
+     * @param connections the number of connections (and threads) that will load data in parallel
+     * @throws SQLException if the database is not supported or no connection could be established
+     */
+    public VCSBulkLoader(DBSettings dbSettings, int connections) throws SQLException {
+        SqlConnectionPool pool = SqlConnectionPool.getWithLocalInfile(dbSettings);
+        sqlType = pool.getSqlType();
+        if (sqlType == SqlType.OTHER) {
+            throw new SQLException("bulk import is only supported for mysql and postgresql");
+        }
+        //at most two chunks per connection are waiting so the memory usage is limited if the database is slower
+        chunks = new LinkedBlockingQueue<>(connections * 2);
+        pool.ensureCapacity(connections);
+        List<Connection> openedConnections = new ArrayList<>();
+        try {
+            for (int i = 0; i < connections; i++) {
+                openedConnections.add(pool.getConnection());
+            }
+        } catch (SQLException e) {
+            for (Connection connection : openedConnections) {
+                connection.close();
+            }
+            throw e;
+        }
+        for (Connection connection : openedConnections) {
+            Thread loaderThread = new Thread(new Loader(connection));
+            //an import that failed before finish was called must not keep the application running
+            loaderThread.setDaemon(true);
+            loaderThreads.add(loaderThread);
+            loaderThread.start();
+        }
+    }
+
+    /**
+     * registers a table so rows can be added for it. Registering a table more than once has no effect
+     *
+     * @param table   the name of the table
+     * @param columns the columns in the order the values will be passed to addRow
+     */
+    public void registerTable(String table, String... columns) {
+        registerTable(table, Collections.emptySet(), columns);
+    }
+
+    /**
+     * registers a table with binary columns so rows can be added for it. The values of the binary columns are passed
+     * as hex and decoded by the database. Registering a table more than once has no effect
+     *
+     * @param table      the name of the table
+     * @param hexColumns the binary columns whose values will be passed as hex
+     * @param columns    the columns in the order the values will be passed to addRow
+     */
+    public void registerTable(String table, Set<String> hexColumns, String... columns) {
+        boolean[] isHex = new boolean[columns.length];
+        for (int i = 0; i < columns.length; i++) {
+            isHex[i] = hexColumns.contains(columns[i]);
+        }
+        synchronized (tables) {
+            tables.computeIfAbsent(table, k -> new TableBuffer(
+                    sqlType == SqlType.POSTGRESQL ? getStagingStatement(table) : null,
+                    getLoadStatement(table, hexColumns, columns),
+                    sqlType == SqlType.POSTGRESQL ? getMergeStatement(table, columns) : null,
+                    sqlType == SqlType.POSTGRESQL ? isHex : new boolean[columns.length]
+            ));
+        }
+    }
+
+    /**
+     * creates the statement that loads the rows of a chunk into a table
+     *
+     * @param table      the name of the table
+     * @param hexColumns the binary columns whose values are hex encoded
+     * @param columns    the columns that are contained in the rows
+     * @return the LOAD DATA statement for mysql or the COPY statement into the staging table for postgresql
+     */
+    private String getLoadStatement(String table, Set<String> hexColumns, String... columns) {
+        if (sqlType == SqlType.POSTGRESQL) {
+            //the hex values are prefixed with \x which is the hex input format of bytea
+            String columnList = "(`" + String.join("`, `", (CharSequence[]) columns) + "`)";
+            return "COPY `" + getStagingTable(table) + "` " + columnList + " FROM STDIN";
+        }
+        //mysql reads the hex values into variables and decodes them
+        List<String> columnList = new ArrayList<>();
+        List<String> assignments = new ArrayList<>();
+        for (String column : columns) {
+            if (hexColumns.contains(column)) {
+                columnList.add("@" + column);
+                assignments.add("`" + column + "` = UNHEX(@" + column + ")");
+            } else {
+                columnList.add("`" + column + "`");
+            }
+        }
+        return "LOAD DATA LOCAL INFILE 'vctsi' IGNORE INTO TABLE `" + table + "` CHARACTER SET utf8mb4 "
+                + "(" + String.join(", ", columnList) + ")"
+                + (assignments.isEmpty() ? "" : " SET " + String.join(", ", assignments));
+    }
+
+    /**
+     * creates the statement that creates the staging table of a table for postgresql if the connection doesn't have
+     * it yet. COPY rejects the whole chunk if a row already exists, so the rows are copied into the staging table.
+     * It is emptied when the chunk is committed.
+     *
+     * @param table the name of the table
+     * @return the CREATE TEMPORARY TABLE statement
+     */
+    private static String getStagingStatement(String table) {
+        return "CREATE TEMPORARY TABLE IF NOT EXISTS `" + getStagingTable(table) + "` "
+                + "(LIKE `" + table + "` INCLUDING DEFAULTS) ON COMMIT DELETE ROWS";
+    }
+
+    /**
+     * creates the statement that inserts the rows of the staging table into the table for postgresql. Rows whose key
+     * already exists are skipped like the IGNORE of mysql does
+     *
+     * @param table   the name of the table
+     * @param columns the columns that are contained in the rows
+     * @return the INSERT statement
+     */
+    private static String getMergeStatement(String table, String... columns) {
+        String columnList = "`" + String.join("`, `", (CharSequence[]) columns) + "`";
+        return "INSERT INTO `" + table + "` (" + columnList + ") SELECT " + columnList
+                + " FROM `" + getStagingTable(table) + "` ON CONFLICT DO NOTHING";
+    }
+
+    /**
+     * @param table the name of the table
+     * @return the name of the temporary table the chunks of the table are copied into by postgresql
+     */
+    static String getStagingTable(String table) {
+        return "bulk_" + table;
+    }
+
+    /**
+     * adds a row to a table. The row will be loaded as soon as enough rows for the table were collected
+     *
+     * @param table  the registered table the row belongs to
+     * @param values the values of the row in the order of the registered columns; null is stored as NULL
+     * @throws SQLException if loading previous rows failed or the thread was interrupted while waiting for a free loader
+     */
+    public void addRow(String table, Object... values) throws SQLException {
+        if (!errors.isEmpty()) {
+            throw new SQLException("bulk import failed: " + errors.get(0));
+        }
+        TableBuffer buffer;
+        synchronized (tables) {
+            buffer = tables.get(table);
+        }
+        if (buffer == null) {
+            throw new IllegalArgumentException("table " + table + " is not registered");
+        }
+        Chunk full = buffer.add(values);
+        if (full != null) {
+            queue(full);
+        }
+    }
+
+    /**
+     * loads all remaining rows and waits until the loader threads are finished. This will close the connections.
+     *
+     * @throws SQLException if loading of any chunk failed
+     */
+    public void finish() throws SQLException {
+        List<TableBuffer> buffers;
+        synchronized (tables) {
+            buffers = new ArrayList<>(tables.values());
+        }
+        for (TableBuffer buffer : buffers) {
+            Chunk rest = buffer.take();
+            if (rest != null) {
+                queue(rest);
+            }
+        }
+        for (int i = 0; i < loaderThreads.size(); i++) {
+            queue(new Chunk(null, null, null, null)); //signals one loader to stop
+        }
+        try {
+            for (Thread loaderThread : loaderThreads) {
+                loaderThread.join();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while waiting for the bulk import");
+        }
+        if (!errors.isEmpty()) {
+            throw new SQLException("bulk import failed: " + String.join(", ", errors));
+        }
+    }
+
+    /**
+     * queues a chunk for loading; blocks if all loaders are busy
+     *
+     * @param chunk the chunk to load
+     * @throws SQLException if the thread was interrupted while waiting
+     */
+    private void queue(Chunk chunk) throws SQLException {
+        try {
+            chunks.put(chunk);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new SQLException("interrupted while queueing rows for bulk import");
+        }
+    }
+
+    /**
+     * appends a value in the text format that is used by LOAD DATA and COPY (tab separated columns, backslash as
+     * escape character and \N for NULL)
+     *
+     * @param row   the row to append the value to
+     * @param value the value to append
+     */
+    static void appendValue(StringBuilder row, Object value) {
+        if (value == null) {
+            row.append("\\N");
+            return;
+        }
+        String text = value.toString();
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            switch (c) {
+                case '\\':
+                    row.append("\\\\");
+                    break;
+                case '\t':
+                    row.append("\\t");
+                    break;
+                case '\n':
+                    row.append("\\n");
+                    break;
+                case '\r':
+                    row.append("\\r");
+                    break;
+                case '\0':
+                    //not allowed in text columns of postgresql
+                    break;
+                default:
+                    row.append(c);
+            }
+        }
+    }
+
+    /**
+     * collects the rows of a table until there are enough for a chunk
+     */
+    private static class TableBuffer {
+        private final String before;
+        private final String statement;
+        private final String after;
+        //columns whose hex values have to be prefixed with \x (bytea of postgresql)
+        private final boolean[] hexPrefixed;
+        private StringBuilder rows = new StringBuilder();
+        private int rowCount = 0;
+
+        TableBuffer(String before, String statement, String after, boolean[] hexPrefixed) {
+            this.before = before;
+            this.statement = statement;
+            this.after = after;
+            this.hexPrefixed = hexPrefixed;
+        }
+
+        /**
+         * adds a row to the buffer
+         *
+         * @param values the values of the row
+         * @return a chunk with the collected rows if it is full, else null
+         */
+        synchronized Chunk add(Object... values) {
+            for (int i = 0; i < values.length; i++) {
+                if (i > 0) {
+                    rows.append('\t');
+                }
+                appendValue(rows, hexPrefixed[i] && values[i] != null ? "\\x" + values[i] : values[i]);
+            }
+            rows.append('\n');
+            rowCount++;
+            return rowCount >= ROWS_PER_LOAD ? take() : null;
+        }
+
+        /**
+         * removes the collected rows from the buffer
+         *
+         * @return a chunk containing the rows or null if there are no rows
+         */
+        synchronized Chunk take() {
+            if (rowCount == 0) {
+                return null;
+            }
+            Chunk chunk = new Chunk(before, statement, after, rows.toString());
+            rows = new StringBuilder();
+            rowCount = 0;
+            return chunk;
+        }
+    }
+
+    /**
+     * rows of a table that will be loaded together. A chunk without data signals a loader to stop
+     */
+    private static class Chunk {
+        //executed before and after the rows are loaded by the statement; may be null
+        private final String before;
+        private final String statement;
+        private final String after;
+        private final String data;
+
+        Chunk(String before, String statement, String after, String data) {
+            this.before = before;
+            this.statement = statement;
+            this.after = after;
+            this.data = data;
+        }
+    }
+
+    /**
+     * loads the queued chunks with its own connection
+     */
+    private class Loader implements Runnable {
+        private final Connection connection;
+
+        Loader(Connection connection) {
+            this.connection = connection;
+        }
+
+        @Override
+        public void run() {
+            try {
+                while (true) {
+                    Chunk chunk = chunks.take();
+                    if (chunk.data == null) {
+                        break;
+                    }
+                    try {
+                        load(chunk);
+                        connection.commit();
+                    } catch (SQLException | IOException e) {
+                        errors.add(e.getMessage());
+                        try {
+                            connection.rollback();
+                        } catch (SQLException e1) {
+                            //ignore
+                        }
+                    }
+                }
+            } catch (InterruptedException e) {
+                OutputUtil.debug("bulk loader interrupted");
+            } finally {
+                try {
+                    connection.close();
+                } catch (SQLException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * loads the rows of a chunk into the database
+         *
+         * @param chunk the chunk to load
+         * @throws SQLException if the database rejected the data
+         * @throws IOException  if the data could not be streamed to the database
+         */
+        private void load(Chunk chunk) throws SQLException, IOException {
+            if (sqlType == SqlType.POSTGRESQL) {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate(chunk.before);
+                }
+                connection.unwrap(PGConnection.class).getCopyAPI().copyIn(chunk.statement, new StringReader(chunk.data));
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.executeUpdate(chunk.after);
+                }
+            } else {
+                try (Statement stmt = connection.createStatement()) {
+                    stmt.unwrap(MariaDbStatement.class).setLocalInfileInputStream(
+                            new ByteArrayInputStream(chunk.data.getBytes(StandardCharsets.UTF_8))
+                    );
+                    stmt.execute(chunk.statement);
+                }
+            }
+        }
+    }
+}
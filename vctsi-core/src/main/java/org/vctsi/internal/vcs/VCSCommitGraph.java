@@ -0,0 +1,212 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.io.*;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.*;
+
+/**
+ * the ancestry of the commits of a repository. Every commit is referenced by its index and stores the indexes of its
+ * parents, so a range of commits is found by walking the graph in memory like git log start..end does. The graph can
+ * be written to a file and is valid as long as its key (eg. derived from the heads of the branches) is unchanged.
+ */
+public class VCSCommitGraph {
+    private static final int FORMAT_VERSION = 1;
+    private static final int[] NO_PARENTS = new int[0];
+    private final String key;
+    private final String[] ids;
+    private final int[][] parents;
+    private final HashMap<String, Integer> indexes;
+
+    /**
+     * creates the graph of the passed commits. Parents that are not part of the passed commits are left out.
+     *
+     * @param key              identifies the state of the repository the graph was created from
+     * @param parentsOfCommits the ids of the parents of each commit
+     */
+    public VCSCommitGraph(String key, Map<String, List<String>> parentsOfCommits) {
+        this.key = key;
+        ids = parentsOfCommits.keySet().toArray(new String[0]);
+        parents = new int[ids.length][];
+        indexes = createIndexes(ids);
+        for (int i = 0; i < ids.length; i++) {
+            List<String> parentIds = parentsOfCommits.get(ids[i]);
+            int[] parentIndexes = new int[parentIds.size()];
+            int count = 0;
+            for (String parentId : parentIds) {
+                Integer parent = indexes.get(parentId);
+                if (parent != null) {
+                    parentIndexes[count++] = parent;
+                }
+            }
+            parents[i] = count == 0 ? NO_PARENTS : Arrays.copyOf(parentIndexes, count);
+        }
+    }
+
+    private VCSCommitGraph(String key, String[] ids, int[][] parents) {
+        this.key = key;
+        this.ids = ids;
+        this.parents = parents;
+        this.indexes = createIndexes(ids);
+    }
+
+    private static HashMap<String, Integer> createIndexes(String[] ids) {
+        HashMap<String, Integer> indexes = new HashMap<>(ids.length * 4 / 3 + 1);
+        for (int i = 0; i < ids.length; i++) {
+            indexes.put(ids[i], i);
+        }
+        return indexes;
+    }
+
+    /**
+     * @return the key identifying the state of the repository the graph was created from
+     */
+    public String getKey() {
+        return key;
+    }
+
+    /**
+     * @return the number of commits in the graph
+     */
+    public int size() {
+        return ids.length;
+    }
+
+    /**
+     * @param id the id of a commit
+     * @return true if the commit is part of the graph
+     */
+    public boolean contains(String id) {
+        return indexes.containsKey(id);
+    }
+
+    /**
+     * gets the commits that are reachable from the end commit but not from the start commit. Like git log start..end
+     * the start commit itself is not part of the range but the end commit is, unless it is an ancestor of the start.
+     *
+     * @param startCommit the id of the commit from which on the commits shall be retrieved
+     * @param endCommit   the id of the commit till which the commits shall be retrieved
+     * @return the ids of the commits in the range; null if one of the commits is not part of the graph
+     */
+    public List<String> getRange(String startCommit, String endCommit) {
+        Integer start = indexes.get(startCommit);
+        Integer end = indexes.get(endCommit);
+        if (start == null || end == null) {
+            return null;
+        }
+        BitSet excluded = new BitSet(ids.length);
+        markAncestors(start, excluded);
+        BitSet range = (BitSet) excluded.clone();
+        markAncestors(end, range);
+        range.andNot(excluded);
+        List<String> result = new ArrayList<>(range.cardinality());
+        for (int i = range.nextSetBit(0); i >= 0; i = range.nextSetBit(i + 1)) {
+            result.add(ids[i]);
+        }
+        return result;
+    }
+
+    /**
+     * marks a commit and all its ancestors. The walk stops at commits that are already marked.
+     *
+     * @param commit the index of the commit
+     * @param marked the marked commits
+     */
+    private void markAncestors(int commit, BitSet marked) {
+        if (marked.get(commit)) {
+            return;
+        }
+        int[] stack = new int[64];
+        int size = 0;
+        stack[size++] = commit;
+        marked.set(commit);
+        while (size > 0) {
+            for (int parent : parents[stack[--size]]) {
+                if (!marked.get(parent)) {
+                    marked.set(parent);
+                    if (size == stack.length) {
+                        stack = Arrays.copyOf(stack, size * 2);
+                    }
+                    stack[size++] = parent;
+                }
+            }
+        }
+    }
+
+    /**
+     * writes the graph to a file. It is written to a temporary file first, so a concurrent reader never reads a
+     * partially written graph.
+     *
+     * @param file the file to write
+     * @throws IOException if the file could not be written
+     */
+    public void write(File file) throws IOException {
+        File tmp = new File(file.getPath() + ".tmp");
+        try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(new FileOutputStream(tmp)))) {
+            out.writeInt(FORMAT_VERSION);
+            out.writeUTF(key);
+            out.writeInt(ids.length);
+            for (int i = 0; i < ids.length; i++) {
+                out.writeUTF(ids[i]);
+                out.writeInt(parents[i].length);
+                for (int parent : parents[i]) {
+                    out.writeInt(parent);
+                }
+            }
+        }
+        Files.move(tmp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * reads a graph that was written by write(File)
+     *
+     * @param file the file containing the graph
+     * @return the graph in the file
+     * @throws IOException if the file could not be read or has a wrong format
+     */
+    public static VCSCommitGraph read(File file) throws IOException {
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(new FileInputStream(file)))) {
+            if (in.readInt() != FORMAT_VERSION) {
+                throw new IOException("Commit graph has wrong format");
+            }
+            String key = in.readUTF();
+            int size = in.readInt();
+            String[] ids = new String[size];
+            int[][] parents = new int[size][];
+            for (int i = 0; i < size; i++) {
+                ids[i] = in.readUTF();
+                int parentCount = in.readInt();
+                parents[i] = parentCount == 0 ? NO_PARENTS : new int[parentCount];
+                for (int j = 0; j < parentCount; j++) {
+                    parents[i][j] = in.readInt();
+                    if (parents[i][j] < 0 || parents[i][j] >= size) {
+                        throw new IOException("Commit graph has wrong format");
+                    }
+                }
+            }
+            return new VCSCommitGraph(key, ids, parents);
+        }
+    }
+}
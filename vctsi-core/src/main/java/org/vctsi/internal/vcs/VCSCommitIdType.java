@@ -0,0 +1,207 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.internal.SqlType;
+
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Types;
+
+/**
+ * the way commit ids are stored in the vcs tables. The compact schema stores the ids in their natural binary form
+ * which needs less space than the text in the tables and in their indexes. Ids that are not set (eg. the old commit of
+ * an added file) are stored as zero because they are part of the primary key of the diff table.
+ */
+public enum VCSCommitIdType {
+    //any id as text
+    TEXT {
+        @Override
+        public String getColumnType(SqlType sqlType) {
+            return "VARCHAR(50)";
+        }
+
+        @Override
+        public void set(PreparedStatement stmt, int index, String id) throws SQLException {
+            stmt.setString(index, id);
+        }
+
+        @Override
+        public String get(ResultSet resultSet, String column) throws SQLException {
+            return resultSet.getString(column);
+        }
+
+        @Override
+        public Object toBulkValue(String id) {
+            return id;
+        }
+    },
+    //hex encoded sha-1 hashes of git as 20 bytes
+    SHA1 {
+        @Override
+        public String getColumnType(SqlType sqlType) {
+            return sqlType == SqlType.POSTGRESQL ? "BYTEA" : "BINARY(20)";
+        }
+
+        @Override
+        public void set(PreparedStatement stmt, int index, String id) throws SQLException {
+            try {
+                stmt.setBytes(index, toBytes(id));
+            } catch (IllegalArgumentException e) {
+                throw new SQLException("invalid commit id " + id + ": " + e.getMessage());
+            }
+        }
+
+        @Override
+        public String get(ResultSet resultSet, String column) throws SQLException {
+            return toHex(resultSet.getBytes(column));
+        }
+
+        @Override
+        public Object toBulkValue(String id) {
+            return id == null ? NO_SHA1 : id;
+        }
+    },
+    //revision numbers of svn
+    NUMBER {
+        @Override
+        public String getColumnType(SqlType sqlType) {
+            return "BIGINT";
+        }
+
+        @Override
+        public void set(PreparedStatement stmt, int index, String id) throws SQLException {
+            try {
+                stmt.setLong(index, id == null ? 0 : Long.parseLong(id));
+            } catch (NumberFormatException e) {
+                throw new SQLException("invalid revision " + id);
+            }
+        }
+
+        @Override
+        public String get(ResultSet resultSet, String column) throws SQLException {
+            long revision = resultSet.getLong(column);
+            return revision == 0 ? null : Long.toString(revision);
+        }
+
+        @Override
+        public Object toBulkValue(String id) {
+            return id == null ? 0 : Long.parseLong(id);
+        }
+    };
+
+    private static final int SHA1_LENGTH = 20;
+    private static final String NO_SHA1 = new String(new char[SHA1_LENGTH * 2]).replace('\0', '0');
+
+    /**
+     * @param sqlType the type of the database
+     * @return the type of the columns containing commit ids
+     */
+    public abstract String getColumnType(SqlType sqlType);
+
+    /**
+     * sets a commit id as parameter of a statement
+     *
+     * @param stmt  the statement
+     * @param index the index of the parameter
+     * @param id    the commit id; may be null
+     * @throws SQLException if the parameter could not be set or the id has the wrong format
+     */
+    public abstract void set(PreparedStatement stmt, int index, String id) throws SQLException;
+
+    /**
+     * reads a commit id from the current row of a result
+     *
+     * @param resultSet the result
+     * @param column    the column containing the commit id
+     * @return the commit id; null if no id is stored
+     * @throws SQLException if the column could not be read
+     */
+    public abstract String get(ResultSet resultSet, String column) throws SQLException;
+
+    /**
+     * converts a commit id to the value that is passed to the bulk loader
+     *
+     * @param id the commit id; may be null
+     * @return the value for the bulk loader; hex for sha-1 hashes which the loader decodes
+     */
+    public abstract Object toBulkValue(String id);
+
+    /**
+     * determines how the commit ids of a table are stored
+     *
+     * @param sqlType the jdbc type of the id column
+     * @return the id type of the column
+     */
+    public static VCSCommitIdType fromSqlType(int sqlType) {
+        switch (sqlType) {
+            case Types.BINARY:
+            case Types.VARBINARY:
+                return SHA1;
+            case Types.BIGINT:
+                return NUMBER;
+            default:
+                return TEXT;
+        }
+    }
+
+    /**
+     * converts a hex encoded sha-1 hash to its bytes
+     *
+     * @param id the hash; null for no commit
+     * @return the 20 bytes of the hash; only zeros for null
+     */
+    static byte[] toBytes(String id) {
+        byte[] bytes = new byte[SHA1_LENGTH];
+        if (id == null) {
+            return bytes;
+        }
+        if (id.length() != SHA1_LENGTH * 2) {
+            throw new IllegalArgumentException("a complete sha-1 hash is required");
+        }
+        for (int i = 0; i < SHA1_LENGTH; i++) {
+            bytes[i] = (byte) Integer.parseInt(id.substring(i * 2, i * 2 + 2), 16);
+        }
+        return bytes;
+    }
+
+    /**
+     * converts the bytes of a sha-1 hash to hex
+     *
+     * @param bytes the bytes of the hash
+     * @return the hex encoded hash; null if the bytes are null or only zeros
+     */
+    static String toHex(byte[] bytes) {
+        if (bytes == null) {
+            return null;
+        }
+        StringBuilder hex = new StringBuilder(bytes.length * 2);
+        boolean set = false;
+        for (byte b : bytes) {
+            set |= b != 0;
+            hex.append(Character.forDigit((b >> 4) & 0xF, 16)).append(Character.forDigit(b & 0xF, 16));
+        }
+        return set ? hex.toString() : null;
+    }
+}
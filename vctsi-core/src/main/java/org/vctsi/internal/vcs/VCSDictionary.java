@@ -0,0 +1,94 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * assigns integer ids to names (eg. paths or branches) that are stored only once in a dictionary table of the compact
+ * schema. The ids are assigned in memory so the sql modules of all threads of an import use the same id for a name
+ * without reading the table. It is loaded from the table once before the first new name is added.
+ */
+public class VCSDictionary {
+    private final ConcurrentHashMap<String, Integer> ids = new ConcurrentHashMap<>();
+    private final AtomicInteger lastId = new AtomicInteger();
+    private volatile boolean loaded = false;
+
+    /**
+     * loads the existing entries of the dictionary table if it wasn't loaded yet
+     *
+     * @param entries result containing the id in the first and the name in the second column
+     * @throws SQLException if the result could not be read
+     */
+    public synchronized void load(ResultSet entries) throws SQLException {
+        if (loaded) {
+            return;
+        }
+        while (entries.next()) {
+            int id = entries.getInt(1);
+            ids.put(entries.getString(2), id);
+            if (id > lastId.get()) {
+                lastId.set(id);
+            }
+        }
+        loaded = true;
+    }
+
+    /**
+     * @return true if the entries of the table were loaded
+     */
+    public boolean isLoaded() {
+        return loaded;
+    }
+
+    /**
+     * gets the id of a name
+     *
+     * @param name the name
+     * @return the id of the name; null if it has no id yet
+     */
+    public Integer get(String name) {
+        return ids.get(name);
+    }
+
+    /**
+     * assigns an id to a name that has none yet
+     *
+     * @param name the name
+     * @return the new id that has to be stored in the table; null if another thread assigned an id in the meantime
+     */
+    public Integer add(String name) {
+        int id = lastId.incrementAndGet();
+        return ids.putIfAbsent(name, id) == null ? id : null;
+    }
+
+    /**
+     * @return the number of names in the dictionary
+     */
+    public int size() {
+        return ids.size();
+    }
+}
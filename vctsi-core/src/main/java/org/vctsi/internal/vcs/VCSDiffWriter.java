@@ -0,0 +1,213 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.vctsi.utils.OutputUtil;
+
+import java.sql.SQLException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+/**
+ * writes the file changes that the diff workers create to the database. The changes are partitioned by the hash of
+ * their commit to several writer threads, so all changes of a commit are written by the same connection. Every writer
+ * has a bounded queue; if the database is slower than the diff workers they block while adding changes instead of
+ * filling the heap. The writers take the queued changes in batches.
+ */
+public class VCSDiffWriter {
+    //number of file changes that can wait for each writer
+    static final int QUEUE_CAPACITY = 10000;
+    //number of file changes a writer takes from its queue at once
+    static final int DRAIN_SIZE = 500;
+    //signals a writer to stop
+    private static final FileChange STOP = new FileChange(null, null, null, null, -1);
+
+    private final List<ArrayBlockingQueue<FileChange>> queues = new ArrayList<>();
+    private final List<Thread> writerThreads = new ArrayList<>();
+    private final List<String> errors = Collections.synchronizedList(new ArrayList<>());
+    private final LongAdder writtenChanges = new LongAdder();
+    private final LongAdder blockedPuts = new LongAdder();
+    private final AtomicInteger peakQueueDepth = new AtomicInteger();
+
+    /**
+     * creates the writer threads and starts them
+     *
+     * @param sqlModules supplies the sql module of the calling thread; every writer uses its own one and finishes it
+     *                   when it stops
+     * @param writers    the number of writer threads
+     */
+    public VCSDiffWriter(Supplier<VCSSqlModule> sqlModules, int writers) {
+        for (int i = 0; i < writers; i++) {
+            ArrayBlockingQueue<FileChange> queue = new ArrayBlockingQueue<>(QUEUE_CAPACITY);
+            queues.add(queue);
+            Thread writerThread = new Thread(new Writer(queue, sqlModules), "diff-writer-" + i);
+            //an import that failed before finish was called must not keep the application running
+            writerThread.setDaemon(true);
+            writerThreads.add(writerThread);
+        }
+        for (Thread writerThread : writerThreads) {
+            writerThread.start();
+        }
+    }
+
+    /**
+     * queues a file change for the writer of its commit; blocks if the queue of the writer is full
+     *
+     * @param fileChange the file change to write
+     * @throws InterruptedException if the thread is interrupted while waiting for space in the queue
+     */
+    public void put(FileChange fileChange) throws InterruptedException {
+        ArrayBlockingQueue<FileChange> queue = queues.get(getPartition(fileChange.getNewCommit(), queues.size()));
+        if (!queue.offer(fileChange)) {
+            blockedPuts.increment();
+            queue.put(fileChange);
+        }
+        int depth = queue.size();
+        int peak;
+        while (depth > (peak = peakQueueDepth.get()) && !peakQueueDepth.compareAndSet(peak, depth)) {
+            //another thread updated the peak in the meantime
+        }
+    }
+
+    /**
+     * waits until all queued file changes are written and the writers finished their sql modules
+     *
+     * @return the errors that occurred while writing; empty if all changes were written
+     * @throws InterruptedException if the thread is interrupted while waiting for the writers
+     */
+    public List<String> finish() throws InterruptedException {
+        for (ArrayBlockingQueue<FileChange> queue : queues) {
+            queue.put(STOP);
+        }
+        for (Thread writerThread : writerThreads) {
+            writerThread.join();
+        }
+        OutputUtil.debug(getMetrics());
+        return errors;
+    }
+
+    /**
+     * @return the number of file changes that are currently waiting in the queues of all writers
+     */
+    public int getQueueDepth() {
+        int depth = 0;
+        for (ArrayBlockingQueue<FileChange> queue : queues) {
+            depth += queue.size();
+        }
+        return depth;
+    }
+
+    /**
+     * @return a description of the usage of the queues
+     */
+    public String getMetrics() {
+        return "diff writer: " + writtenChanges.sum() + " file changes written by " + queues.size() + " writers, "
+                + getQueueDepth() + " queued, "
+                + peakQueueDepth.get() + " queued at most for a writer (capacity " + QUEUE_CAPACITY + "), "
+                + blockedPuts.sum() + " blocked puts";
+    }
+
+    /**
+     * gets the writer that is responsible for a commit
+     *
+     * @param commit  the hash of the commit
+     * @param writers the number of writers
+     * @return the index of the writer
+     */
+    static int getPartition(String commit, int writers) {
+        return commit == null ? 0 : (commit.hashCode() & Integer.MAX_VALUE) % writers;
+    }
+
+    /**
+     * writes the file changes of its queue with its own sql module
+     */
+    private class Writer implements Runnable {
+        private final ArrayBlockingQueue<FileChange> queue;
+        private final Supplier<VCSSqlModule> sqlModules;
+
+        Writer(ArrayBlockingQueue<FileChange> queue, Supplier<VCSSqlModule> sqlModules) {
+            this.queue = queue;
+            this.sqlModules = sqlModules;
+        }
+
+        @Override
+        public void run() {
+            VCSSqlModule module = sqlModules.get();
+            if (module == null) {
+                errors.add("could not connect to database");
+            }
+            List<FileChange> batch = new ArrayList<>(DRAIN_SIZE);
+            boolean stop = false;
+            try {
+                while (!stop) {
+                    batch.add(queue.take());
+                    queue.drainTo(batch, DRAIN_SIZE - 1);
+                    for (FileChange fileChange : batch) {
+                        if (fileChange == STOP) {
+                            stop = true;
+                        } else if (module != null && errors.isEmpty()) {
+                            //after an error the changes are still taken so the diff workers are not blocked
+                            write(module, fileChange);
+                        }
+                    }
+                    batch.clear();
+                }
+            } catch (InterruptedException e) {
+                errors.add("diff writer interrupted");
+            }
+            if (module != null) {
+                try {
+                    module.finishImport();
+                } catch (SQLException e) {
+                    errors.add(e.getMessage());
+                }
+            }
+        }
+
+        /**
+         * writes a file change with the sql module of the writer
+         *
+         * @param module     the sql module of the writer
+         * @param fileChange the file change to write
+         */
+        private void write(VCSSqlModule module, FileChange fileChange) {
+            try {
+                module.importDiff(
+                        fileChange.getNewCommit(),
+                        fileChange.getOldCommit(),
+                        fileChange.getNum(),
+                        fileChange.getNewName(),
+                        fileChange.getOldName()
+                );
+                writtenChanges.increment();
+            } catch (SQLException e) {
+                errors.add(e.getMessage());
+            }
+        }
+    }
+}
@@ -34,9 +34,11 @@ import org.vctsi.svn.SVNModule;
 import org.vctsi.svn.SVNRemoteModule;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.File;
+import java.io.IOException;
 import java.sql.SQLException;
-import java.util.HashMap;
-import java.util.List;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public abstract class VCSModule {
     public final static String IMPORT_SUCCESS = "Import success";
@@ -45,6 +47,13 @@ public abstract class VCSModule {
     protected DBSettings dbSettings;
     protected String error = "";
     protected ThreadLocal<VCSSqlModule> sqlModule;
+    //only set if the bulk import mode is used; shared by the sql modules of all threads
+    protected VCSBulkLoader bulkLoader;
+    //only set if the compact schema is used; shared by the sql modules of all threads
+    private VCSDictionary pathDictionary;
+    private VCSDictionary branchDictionary;
+    //the commit graph of each project; kept between the tasks of the server mode
+    private final static Map<String, VCSCommitGraph> commitGraphs = new ConcurrentHashMap<>();
     public final static HashMap<String, Class<? extends VCSModule>> availableVCSModules;
 
     static {
@@ -75,6 +84,8 @@ public abstract class VCSModule {
         if (task.getTaskTarget() != Task.TaskTarget.COMMIT) {
             throw new RuntimeException("its modules can't handle vcs tasks");
         }
+        //errors of previous tasks (eg. in the server mode) don't belong to this task
+        error = "";
         switch (task.getTaskType()) {
             case SEARCH:
                 VCSSearchParameters searchParameters = ((SearchCommitTask) task).getSearchParameters();
@@ -92,6 +103,10 @@ public abstract class VCSModule {
                         throw new RuntimeException("could not instantiate its module");
                     }
                 }
+                if (OutputUtil.STREAM) {
+                    streamSearch((SearchCommitTask) task);
+                    break;
+                }
                 List<Commit> result = search((SearchCommitTask) task);
                 if (result != null) {
                     OutputUtil.printObjectList(result);
@@ -124,17 +139,153 @@ public abstract class VCSModule {
     }
 
     protected List<Commit> search(SearchCommitTask task) {
-        VCSSearchParameters searchParameters = task.getSearchParameters();
+        VCSSearchParameters searchParameters = resolveCommitRange(task.getSearchParameters());
         String project = vcsSettings.getProject();
+        if (searchParameters.getIds() != null && searchParameters.getIds().length == 0) {
+            return new ArrayList<>();
+        }
         try {
             VCSSqlModule sqlModule = new VCSSqlModule(dbSettings);
-            return sqlModule.getCommitsForSearch(project, searchParameters);
+            try {
+                return sqlModule.getCommitsForSearch(project, searchParameters);
+            } finally {
+                sqlModule.abort();
+            }
         } catch (SQLException e) {
             OutputUtil.printError("an error occured: " + e.getMessage());
             return null;
         }
     }
 
+    /**
+     * searches the commits like search but prints them while they are read from the database
+     *
+     * @param task the search task
+     * @return true if the search was successful; else false
+     */
+    protected boolean streamSearch(SearchCommitTask task) {
+        VCSSearchParameters searchParameters = resolveCommitRange(task.getSearchParameters());
+        try {
+            if (searchParameters.getIds() != null && searchParameters.getIds().length == 0) {
+                OutputUtil.startObjectList().close();
+                return true;
+            }
+            VCSSqlModule sqlModule = new VCSSqlModule(dbSettings);
+            try {
+                VCSSqlModule lookupModule = new VCSSqlModule(dbSettings);
+                try (OutputUtil.ObjectListWriter writer = OutputUtil.startObjectList()) {
+                    sqlModule.streamCommitsForSearch(vcsSettings.getProject(), searchParameters, lookupModule, writer);
+                } finally {
+                    lookupModule.abort();
+                }
+            } finally {
+                sqlModule.abort();
+            }
+            return true;
+        } catch (SQLException | IOException e) {
+            OutputUtil.printError("an error occured: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * replaces the start and end commit of a search by the ids of the commits in between if the module provides a
+     * commit graph containing both commits. Otherwise the search falls back to the creation dates of the commits.
+     *
+     * @param searchParameters the parameters of the search
+     * @return the parameters with the ids of the range; the passed parameters if they contain no range or the range
+     * can't be resolved
+     */
+    private VCSSearchParameters resolveCommitRange(VCSSearchParameters searchParameters) {
+        if (searchParameters.getStartCommit() == null || searchParameters.getEndCommit() == null) {
+            return searchParameters;
+        }
+        VCSCommitGraph graph = getCommitGraph();
+        List<String> range = graph == null ? null : graph.getRange(searchParameters.getStartCommit(), searchParameters.getEndCommit());
+        if (range == null) {
+            return searchParameters;
+        }
+        if (searchParameters.getIds() != null) {
+            range.retainAll(new HashSet<>(Arrays.asList(searchParameters.getIds())));
+        }
+        VCSSearchParameters rangeParameters = new VCSSearchParameters();
+        rangeParameters.setAuthor(searchParameters.getAuthor());
+        rangeParameters.setMessage(searchParameters.getMessage());
+        rangeParameters.setTicket(searchParameters.getTicket());
+        rangeParameters.setStartDate(searchParameters.getStartDate());
+        rangeParameters.setEndDate(searchParameters.getEndDate());
+        rangeParameters.setFile(searchParameters.getFile());
+        rangeParameters.setBranch(searchParameters.getBranch());
+        rangeParameters.setIds(range.toArray(new String[0]));
+        return rangeParameters;
+    }
+
+    /**
+     * gets the commit graph of the project. It is kept in memory and, if a cache path is set, in a file for later
+     * runs. A kept graph is only used while its key matches the current state of the repository.
+     *
+     * @return the commit graph; null if the module provides none or it could not be created
+     */
+    protected VCSCommitGraph getCommitGraph() {
+        String project = vcsSettings.getProject();
+        try {
+            String key = getCommitGraphKey();
+            if (key == null) {
+                return null;
+            }
+            VCSCommitGraph graph = commitGraphs.get(project);
+            if (graph != null && graph.getKey().equals(key)) {
+                return graph;
+            }
+            File cacheFile = vcsSettings.getCommitGraphCachePath() == null ? null
+                    : new File(vcsSettings.getCommitGraphCachePath(), "vcs_" + project + ".graph");
+            if (cacheFile != null && cacheFile.isFile()) {
+                try {
+                    graph = VCSCommitGraph.read(cacheFile);
+                } catch (IOException e) {
+                    OutputUtil.debug("Could not read commit graph: " + e.getMessage());
+                    graph = null;
+                }
+            }
+            if (graph == null || !graph.getKey().equals(key)) {
+                long start = System.currentTimeMillis();
+                graph = createCommitGraph(key);
+                OutputUtil.debug("Created commit graph with " + graph.size() + " commits in " + (System.currentTimeMillis() - start) + " ms");
+                if (cacheFile != null) {
+                    cacheFile.getParentFile().mkdirs();
+                    graph.write(cacheFile);
+                }
+            }
+            commitGraphs.put(project, graph);
+            return graph;
+        } catch (IOException e) {
+            OutputUtil.printError("Could not create commit graph, the range is searched by the creation dates: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * returns a key that changes whenever the commit graph of the repository changes (eg. derived from the heads of
+     * the branches). Modules that can create a commit graph have to override this and createCommitGraph.
+     *
+     * @return the key of the current state of the repository; null if the module provides no commit graph
+     * @throws IOException if the repository could not be read
+     */
+    protected String getCommitGraphKey() throws IOException {
+        return null;
+    }
+
+    /**
+     * creates the commit graph of the repository
+     *
+     * @param key the key of the current state of the repository
+     * @return the commit graph
+     * @throws IOException if the repository could not be read
+     */
+    protected VCSCommitGraph createCommitGraph(String key) throws IOException {
+        throw new IOException("The module provides no commit graph");
+    }
+
     protected abstract boolean importCommits(boolean noUpdate);
 
     protected abstract boolean importNewCommits();
@@ -159,15 +310,38 @@ public abstract class VCSModule {
      * @return true if initialization was successful; else false
      */
     protected boolean initializeSql(boolean resetTable) {
+        sqlModule = null;
         try {
-            VCSSqlModule module = createThreadLocalSqlModule();
-            if (module == null) {
-                return false;
+            if (vcsSettings.getImportMode() == VCSSettings.ImportMode.BULK) {
+                bulkLoader = new VCSBulkLoader(dbSettings, vcsSettings.getBulkConnections());
+            }
+            boolean compact = vcsSettings.shouldUseCompactSchema();
+            if (!resetTable) {
+                //the existing tables are kept, so their schema is used regardless of the setting
+                Boolean existingCompact = new VCSSqlModule(dbSettings).usesCompactSchema(vcsSettings.getProject());
+                if (existingCompact != null) {
+                    compact = existingCompact;
+                }
+            }
+            if (compact) {
+                pathDictionary = new VCSDictionary();
+                branchDictionary = new VCSDictionary();
+            } else {
+                pathDictionary = null;
+                branchDictionary = null;
             }
             if (resetTable) {
-                module.recreateVcsTables(vcsSettings.getProject());
+                //recreated before the tables are checked so an import can switch between the schemas
+                VCSSqlModule module = new VCSSqlModule(dbSettings);
+                try {
+                    setSchema(module);
+                    module.recreateVcsTables(vcsSettings.getProject());
+                    module.close();
+                } finally {
+                    module.abort();
+                }
             }
-            return true;
+            return createThreadLocalSqlModule() != null;
         } catch (SQLException e) {
             OutputUtil.printError("Error preparing sql tables for data import " + e.getMessage());
             return false;
@@ -175,19 +349,32 @@ public abstract class VCSModule {
     }
 
     /**
-     * creates thread local sql modules
+     * creates thread local sql modules if they don't exist for the current import and returns the one of the current
+     * thread. Every thread borrows its own connection from the pool that it keeps until finishImport is called.
      *
      * @return returns a sql module for the current thread or null if the creation failed
      * @throws SQLException if an error occurs while creating the sql module
      **/
-    protected VCSSqlModule createThreadLocalSqlModule() throws SQLException {
+    protected synchronized VCSSqlModule createThreadLocalSqlModule() throws SQLException {
+        if (sqlModule != null) {
+            return sqlModule.get();
+        }
         sqlModule = new ThreadLocal<VCSSqlModule>() {
             @Override
             protected VCSSqlModule initialValue() {
                 try {
                     VCSSqlModule module = new VCSSqlModule(dbSettings);
-                    module.prepareCommitImport(vcsSettings.getProject());
-                    return module;
+                    try {
+                        setSchema(module);
+                        module.prepareCommitImport(vcsSettings.getProject());
+                        if (bulkLoader != null) {
+                            module.setBulkLoader(bulkLoader);
+                        }
+                        return module;
+                    } catch (SQLException e) {
+                        module.abort();
+                        throw e;
+                    }
                 } catch (SQLException e) {
                     OutputUtil.printError("could not connect to database");
                     return null;
@@ -197,6 +384,63 @@ public abstract class VCSModule {
         return sqlModule.get();
     }
 
+    /**
+     * lets a sql module use the compact schema if it is enabled in the settings
+     *
+     * @param module the sql module that will import data
+     */
+    private void setSchema(VCSSqlModule module) {
+        if (pathDictionary != null) {
+            module.useCompactSchema(getCommitIdType(), pathDictionary, branchDictionary);
+        }
+    }
+
+    /**
+     * returns the way the commit ids of this version control system are stored by the compact schema. Modules with
+     * ids that have a natural binary form should override this.
+     *
+     * @return the type of the commit ids; TEXT if they are stored as text
+     */
+    protected VCSCommitIdType getCommitIdType() {
+        return VCSCommitIdType.TEXT;
+    }
+
+    /**
+     * stores the heads up to which the branches were imported successfully. Imports of new commits will continue from
+     * these heads.
+     *
+     * @param heads the name of each imported branch mapped to the id of its head
+     * @return true if the heads were stored; else false
+     */
+    protected boolean saveImportedHeadIds(Map<String, String> heads) {
+        try {
+            VCSSqlModule module = new VCSSqlModule(dbSettings);
+            try {
+                module.saveImportedHeads(vcsSettings.getProject(), heads);
+            } finally {
+                module.abort();
+            }
+            return true;
+        } catch (SQLException e) {
+            OutputUtil.printError("could not store the imported heads: " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * waits until the bulk loader has loaded all rows into the database. Does nothing if the bulk import mode is not
+     * used. Has to be called after the sql modules of all threads are finished.
+     *
+     * @throws SQLException if loading of any rows failed
+     */
+    protected void finishBulkImport() throws SQLException {
+        if (bulkLoader != null) {
+            VCSBulkLoader loader = bulkLoader;
+            bulkLoader = null;
+            loader.finish();
+        }
+    }
+
     /**
      * stores an error message this will later be used to check if an error occurred in worker threads
      *
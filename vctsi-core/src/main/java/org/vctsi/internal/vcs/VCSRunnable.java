@@ -51,19 +51,33 @@ public abstract class VCSRunnable<MODULE extends VCSModule, ELEM> implements Run
      */
     public abstract void execute(Collection<ELEM> elements);
 
+    /**
+     * @return true if the runnable imports data with the sql module of its thread, so the thread needs its own
+     * connection; else false
+     */
+    public boolean usesSql() {
+        return true;
+    }
+
 
     /**
      * this will take elements from the queue provided by the threadspawner and executes them
      */
     @Override
     public void run() {
-        try {
-            if (module.dbSettings != null) {
-                module.createThreadLocalSqlModule();
+        //the module of this thread is kept, so it is not created again just to be aborted
+        VCSSqlModule sqlModule = null;
+        if (module.dbSettings != null && usesSql()) {
+            try {
+                sqlModule = module.createThreadLocalSqlModule();
+            } catch (SQLException e) {
+                module.addError(e.getMessage());
+                return;
+            }
+            if (sqlModule == null) {
+                module.addError("could not borrow a database connection for an import thread");
+                return;
             }
-        } catch (SQLException e) {
-            module.addError(e.getMessage());
-            Thread.currentThread().interrupt();
         }
         try {//to prevent the overhead for creating and destroying new threads and sql connection we keep this thread running
             while (true) {
@@ -74,11 +88,18 @@ public abstract class VCSRunnable<MODULE extends VCSModule, ELEM> implements Run
                 }
                 execute(elems);
             }
-            module.sqlModule.get().finishImport();
+            if (sqlModule != null) {
+                sqlModule.finishImport();
+            }
         } catch (InterruptedException e) {
             //do nothing
         } catch (SQLException e) {
             module.addError(e.getMessage());
+        } finally {
+            //returns the connection to the pool if the import was not finished
+            if (sqlModule != null) {
+                sqlModule.abort();
+            }
         }
     }
 
@@ -24,6 +24,16 @@ package org.vctsi.internal.vcs;
 
 public class VCSSettings {
 
+    /**
+     * the way the imported data is written to the database
+     */
+    public enum ImportMode {
+        //batches of insert statements on the connection of each thread
+        BATCH,
+        //streams the rows with LOAD DATA LOCAL INFILE (mysql) or COPY FROM STDIN (postgresql) over several connections
+        BULK
+    }
+
     private String branchRootFolder;
     private String username;
     private String password;
@@ -34,6 +44,18 @@ public class VCSSettings {
     //if true only new revisions will be imported
     private boolean onlyNew = false;
     private boolean noUpdate = false;
+    //number of commits that are handed to a diff worker at once
+    private int diffBatchSize = 100;
+    private boolean detectRenames = false;
+    private ImportMode importMode = ImportMode.BATCH;
+    //number of database connections used by the bulk import
+    private int bulkConnections = 4;
+    //number of threads (each with its own database connection) that write the file changes
+    private int diffWriters = 2;
+    //if true commit ids are stored in their binary form and paths and branches in dictionary tables
+    private boolean compactSchema = false;
+    //directory in which the commit graphs used by the range searches are stored
+    private String commitGraphCachePath;
 
     public VCSSettings() {
     }
@@ -110,6 +132,62 @@ public class VCSSettings {
         this.noUpdate = noUpdate;
     }
 
+    public int getDiffBatchSize() {
+        return diffBatchSize;
+    }
+
+    public void setDiffBatchSize(int diffBatchSize) {
+        this.diffBatchSize = diffBatchSize;
+    }
+
+    public boolean shouldDetectRenames() {
+        return detectRenames;
+    }
+
+    public void setDetectRenames(boolean detectRenames) {
+        this.detectRenames = detectRenames;
+    }
+
+    public ImportMode getImportMode() {
+        return importMode;
+    }
+
+    public void setImportMode(ImportMode importMode) {
+        this.importMode = importMode;
+    }
+
+    public int getBulkConnections() {
+        return bulkConnections;
+    }
+
+    public void setBulkConnections(int bulkConnections) {
+        this.bulkConnections = bulkConnections;
+    }
+
+    public int getDiffWriters() {
+        return diffWriters;
+    }
+
+    public void setDiffWriters(int diffWriters) {
+        this.diffWriters = diffWriters;
+    }
+
+    public boolean shouldUseCompactSchema() {
+        return compactSchema;
+    }
+
+    public void setCompactSchema(boolean compactSchema) {
+        this.compactSchema = compactSchema;
+    }
+
+    public String getCommitGraphCachePath() {
+        return commitGraphCachePath;
+    }
+
+    public void setCommitGraphCachePath(String commitGraphCachePath) {
+        this.commitGraphCachePath = commitGraphCachePath;
+    }
+
     @Override
     public boolean equals(Object obj) {
         if (obj instanceof VCSSettings) {
@@ -121,6 +199,13 @@ public class VCSSettings {
                     && (project == null ? other.getProject() == null : project.equals(other.getProject()))
                     && (onlyNew == other.shouldOnlyUpdateNew())
                     && (noUpdate == other.isNoUpdate())
+                    && (diffBatchSize == other.getDiffBatchSize())
+                    && (detectRenames == other.shouldDetectRenames())
+                    && (importMode == other.getImportMode())
+                    && (bulkConnections == other.getBulkConnections())
+                    && (diffWriters == other.getDiffWriters())
+                    && (compactSchema == other.shouldUseCompactSchema())
+                    && (commitGraphCachePath == null ? other.getCommitGraphCachePath() == null : commitGraphCachePath.equals(other.getCommitGraphCachePath()))
                     && (branchRootFolder == null ? other.getBranchRootFolder() == null : branchRootFolder.equals(other.getBranchRootFolder()))
                     && (sshKey == null ? other.getSshKey() == null: sshKey.equals(other.getSshKey()));
         } else {
@@ -23,45 +23,74 @@ package org.vctsi.internal.vcs;
  */
 
 import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.SqlConnectionPool;
+import org.vctsi.internal.SqlIndexManager;
 import org.vctsi.internal.SqlType;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.IOException;
 import java.sql.*;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
-import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.Date;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public class VCSSqlModule {
+    //maximal number of ids that are passed to a single IN clause
+    private static final int IN_CHUNK_SIZE = 1000;
+    //temporary table of a connection containing the ids a search is restricted to
+    private static final String SEARCH_ID_TABLE = "vcs_search_ids";
+    //row of the state table that marks the parents table as complete; git doesn't allow spaces in branch names
+    private static final String PARENTS_COMPLETE_MARKER = "parents complete";
+    //columns of the commit table that were added later; they are added to existing tables as nullable columns
+    private static final String[] ADDED_COMMIT_COLUMNS = {
+            "`author_email` VARCHAR(500)",
+            "`committer` VARCHAR(500)",
+            "`commit_date` TIMESTAMP NULL"
+    };
 
     private Connection connection;
     private PreparedStatement preparedInsertCommitStmt;
     private PreparedStatement preparedInsertCommitBranchStmt;
     private PreparedStatement preparedInsertDiffStmt;
+    private PreparedStatement preparedInsertParentStmt;
     private int addedStmts = 0;
     private int addedDiffStmts = 0;
     private SqlType sqlType;
+    private String project;
+    private VCSBulkLoader bulkLoader;
+    private SqlIndexManager indexManager;
+    //the compact schema stores the commit ids in their binary form and the paths and branches in dictionary tables
+    private boolean compact = false;
+    private VCSCommitIdType commitIdType = VCSCommitIdType.TEXT;
+    private VCSDictionary pathDictionary;
+    private VCSDictionary branchDictionary;
+    private PreparedStatement preparedInsertPathStmt;
+    private PreparedStatement preparedInsertBranchNameStmt;
+    //project whose schema was read from the tables for a search
+    private String detectedProject;
 
 
     /**
-     * this will create the sql module for vcs and the passed db settings and connect to the database
+     * this will create the sql module for vcs and the passed db settings and borrow a connection from the pool of the
+     * settings. Closing the connection returns it to the pool.
      *
      * @param dbSettings the settings for the database connection
      * @throws SQLException if no connection to the database could be established
      */
     public VCSSqlModule(DBSettings dbSettings) throws SQLException {
-        this.connection = DriverManager.getConnection(
-                "jdbc:" + dbSettings.getServer() + ":" + dbSettings.getPort() + "/" + dbSettings.getDb() + "?useUnicode=true&characterEncoding=utf8mb4&rewriteBatchedStatements=true",
-                dbSettings.getUsername(), dbSettings.getPassword()
-        );
-        if (dbSettings.getServer().contains("mysql")) {
-            sqlType = SqlType.MYSQL;
-        } else if (dbSettings.getServer().contains("postgresql")) {
-            sqlType = SqlType.POSTGRESQL;
-        }
-        this.connection.setAutoCommit(false);
+        SqlConnectionPool pool = SqlConnectionPool.get(dbSettings);
+        this.connection = pool.getConnection();
+        this.sqlType = pool.getSqlType();
+        this.indexManager = new SqlIndexManager(connection, sqlType);
     }
 
     /**
@@ -73,8 +102,40 @@ public class VCSSqlModule {
     public void prepareCommitImport(String project) throws SQLException {
         checkAndPrepareCommitTable(project);
         checkAndPrepareCommitBranchTable(project);
+        boolean parentsCreated = checkAndPrepareParentTable(project);
         checkAndPrepareDiffTable(project);
+        checkAndPrepareStateTable(project);
+        if (parentsCreated) {
+            //the parents of the commits that were imported before are missing
+            connection.prepareStatement("DELETE FROM `vcs_" + project + "_state` WHERE `branch` = '"
+                    + PARENTS_COMPLETE_MARKER + "'").executeUpdate();
+        }
+        if (compact) {
+            checkAndPrepareDictionaryTable(project + "_paths", "path", 2048);
+            checkAndPrepareDictionaryTable(project + "_branch_names", "name", 190);
+        }
+        ensureIndexes(project);
         prepareStmts(project);
+        if (compact) {
+            loadDictionary(pathDictionary, project + "_paths", "path");
+            loadDictionary(branchDictionary, project + "_branch_names", "name");
+        }
+    }
+
+    /**
+     * lets this module create and fill the tables in the compact schema. Commit ids are stored in their binary form,
+     * paths and branch names are stored once in dictionary tables and referenced by their id. Has to be called before
+     * the tables are created or the statements are prepared.
+     *
+     * @param commitIdType     the way commit ids are stored
+     * @param pathDictionary   the ids of the paths; shared by the sql modules of all threads of the import
+     * @param branchDictionary the ids of the branch names; shared by the sql modules of all threads of the import
+     */
+    public void useCompactSchema(VCSCommitIdType commitIdType, VCSDictionary pathDictionary, VCSDictionary branchDictionary) {
+        this.compact = true;
+        this.commitIdType = commitIdType;
+        this.pathDictionary = pathDictionary;
+        this.branchDictionary = branchDictionary;
     }
 
     /**
@@ -84,36 +145,54 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void prepareStmts(String project) throws SQLException {
+        this.project = project;
         String insertDiffStmt = "INSERT " + getIgnore() + " INTO `vcs_" + project + "_diff` "
-                + "(`new_commit`, `old_commit`, `diff_entry`, `new_name`, `old_name`) "
+                + (compact
+                ? "(`new_commit`, `old_commit`, `diff_entry`, `new_path`, `old_path`) "
+                : "(`new_commit`, `old_commit`, `diff_entry`, `new_name`, `old_name`) ")
                 + "VALUES (?, ?, ?, ?, ?)" + getOnConflict("`new_commit`", "`old_commit`", "`diff_entry`");
         preparedInsertDiffStmt = connection.prepareStatement(insertDiffStmt);
         String insertCommitStmt = "INSERT " + getIgnore() + " INTO `vcs_" + project + "` "
-                + "(`id`, `message`, `author`, `creation_date`) "
-                + "VALUES (?, ?, ? , ?)" + getOnConflict("`id`");
+                + "(`id`, `message`, `author`, `creation_date`, `author_email`, `committer`, `commit_date`) "
+                + "VALUES (?, ?, ?, ?, ?, ?, ?)" + getOnConflict("`id`");
         preparedInsertCommitStmt = connection.prepareStatement(insertCommitStmt);
         String insertCommitBranchStmt = "INSERT " + getIgnore() + " INTO `vcs_" + project + "_branches` "
                 + "(`commit`, `branch`) "
                 + "VALUES (?, ?)" + getOnConflict("`commit`", "`branch`");
         preparedInsertCommitBranchStmt = connection.prepareStatement(insertCommitBranchStmt);
-
+        String insertParentStmt = "INSERT " + getIgnore() + " INTO `vcs_" + project + "_parents` "
+                + "(`commit`, `parent`, `parent_number`) "
+                + "VALUES (?, ?, ?)" + getOnConflict("`commit`", "`parent_number`");
+        preparedInsertParentStmt = connection.prepareStatement(insertParentStmt);
+        if (compact) {
+            preparedInsertPathStmt = connection.prepareStatement("INSERT " + getIgnore() + " INTO `vcs_" + project
+                    + "_paths` (`id`, `path`) VALUES (?, ?)" + getOnConflict("`id`"));
+            preparedInsertBranchNameStmt = connection.prepareStatement("INSERT " + getIgnore() + " INTO `vcs_" + project
+                    + "_branch_names` (`id`, `name`) VALUES (?, ?)" + getOnConflict("`id`"));
+        }
     }
 
     /**
-     * tests if the commit table has the correct format and if it does not exist it will be created
+     * tests if the commit table has the correct format and if it does not exist it will be created. A table of an older
+     * version without the columns for the author email and the committer gets these columns
      *
      * @param project the project of which the table shall be checked
      * @throws SQLException if the table has the wrong format, the database connection failed or an error exist in a sql query
      */
     private void checkAndPrepareCommitTable(String project) throws SQLException {
+        int columnCount;
         try {
             ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "` limit 0").executeQuery();
             ResultSetMetaData metaData = structure.getMetaData();
-            if (metaData.getColumnCount() != 4
-                    || !metaData.getColumnLabel(1).equals("id") || metaData.getColumnDisplaySize(1) < 50
+            columnCount = metaData.getColumnCount();
+            if (columnCount < 4 || columnCount > 7
+                    || !isCommitIdColumn(metaData, 1, "id")
                     || !metaData.getColumnLabel(2).equals("message") || metaData.getColumnDisplaySize(2) < 65535
                     || !metaData.getColumnLabel(3).equals("author") || metaData.getColumnDisplaySize(3) < 500
-                    || !metaData.getColumnLabel(4).equals("creation_date") || metaData.getColumnType(4) != 93) {
+                    || !metaData.getColumnLabel(4).equals("creation_date") || metaData.getColumnType(4) != 93
+                    || (columnCount >= 5 && (!metaData.getColumnLabel(5).equals("author_email") || metaData.getColumnDisplaySize(5) < 500))
+                    || (columnCount >= 6 && (!metaData.getColumnLabel(6).equals("committer") || metaData.getColumnDisplaySize(6) < 500))
+                    || (columnCount >= 7 && (!metaData.getColumnLabel(7).equals("commit_date") || metaData.getColumnType(7) != 93))) {
                 throw new SQLException("Sql table for project has wrong format");
             } else {
                 OutputUtil.debug("Sql table has correct format.");
@@ -121,6 +200,11 @@ public class VCSSqlModule {
         } catch (SQLSyntaxErrorException e) {
             OutputUtil.debug("Table vcs_" + project + " does not exist or has wrong format so recreate it");
             recreateCommitTable(project);
+            return;
+        }
+        for (int i = columnCount - 4; i < ADDED_COMMIT_COLUMNS.length; i++) {
+            OutputUtil.debug("adding column " + ADDED_COMMIT_COLUMNS[i] + " to table vcs_" + project);
+            connection.prepareStatement("ALTER TABLE `vcs_" + project + "` ADD COLUMN " + ADDED_COMMIT_COLUMNS[i]).executeUpdate();
         }
     }
 
@@ -143,10 +227,13 @@ public class VCSSqlModule {
      */
     private void createCommitTable(String project) throws SQLException {
         if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + project + "` ("
-                + "`id` VARCHAR(50) NOT NULL, "
+                + "`id` " + commitIdType.getColumnType(sqlType) + " NOT NULL, "
                 + "`message` TEXT, "
                 + "`author` VARCHAR(500), "
                 + "`creation_date` TIMESTAMP, "
+                + ADDED_COMMIT_COLUMNS[0] + ", "
+                + ADDED_COMMIT_COLUMNS[1] + ", "
+                + ADDED_COMMIT_COLUMNS[2] + ", "
                 + "PRIMARY KEY (`id`), "
                 + "UNIQUE KEY `id` (`id`) "
                 + ")").executeUpdate() != 0) {
@@ -167,8 +254,9 @@ public class VCSSqlModule {
             ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "_branches` limit 0").executeQuery();
             ResultSetMetaData metaData = structure.getMetaData();
             if (metaData.getColumnCount() != 2
-                    || !metaData.getColumnLabel(1).equals("commit") || metaData.getColumnDisplaySize(1) < 50
-                    || !metaData.getColumnLabel(2).equals("branch") || metaData.getColumnDisplaySize(2) < 190) {
+                    || !isCommitIdColumn(metaData, 1, "commit")
+                    || !metaData.getColumnLabel(2).equals("branch")
+                    || (compact ? metaData.getColumnType(2) != Types.INTEGER : metaData.getColumnDisplaySize(2) < 190)) {
                 throw new SQLException("Sql table for project has wrong format");
             } else {
                 OutputUtil.debug("Sql table has correct format. ");
@@ -198,8 +286,8 @@ public class VCSSqlModule {
      */
     private void createBranchTable(String project) throws SQLException {
         if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + project + "_branches` ("
-                + "`commit` VARCHAR(50) NOT NULL,"
-                + "`branch` VARCHAR(190),"
+                + "`commit` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
+                + (compact ? "`branch` INT NOT NULL," : "`branch` VARCHAR(190),")
                 + "PRIMARY KEY (`commit`, `branch`), "
                 + "UNIQUE KEY `id` (`commit`, `branch`) "
                 + ")").executeUpdate() != 0) {
@@ -209,6 +297,64 @@ public class VCSSqlModule {
         }
     }
 
+    /**
+     * tests if the parent table has the correct format and if it does not exist it will be created
+     *
+     * @param project the project of which the table shall be checked
+     * @return true if the table was created; else false
+     * @throws SQLException if the table has the wrong format, the database connection failed or an error exist in a sql query
+     */
+    private boolean checkAndPrepareParentTable(String project) throws SQLException {
+        try {
+            ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "_parents` limit 0").executeQuery();
+            ResultSetMetaData metaData = structure.getMetaData();
+            if (metaData.getColumnCount() != 3
+                    || !isCommitIdColumn(metaData, 1, "commit")
+                    || !isCommitIdColumn(metaData, 2, "parent")
+                    || !metaData.getColumnLabel(3).equals("parent_number") || metaData.getColumnType(3) != Types.INTEGER) {
+                throw new SQLException("Sql table for project has wrong format");
+            } else {
+                OutputUtil.debug("Sql table has correct format. ");
+            }
+            return false;
+        } catch (SQLSyntaxErrorException e) {
+            OutputUtil.debug("Table vcs_" + project + "_parents does not exist or has wrong format so recreate it");
+            recreateParentTable(project);
+            return true;
+        }
+    }
+
+    /**
+     * this will delete the parent table of a project and recreates it
+     *
+     * @param project the project of which the table shall be recreated
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void recreateParentTable(String project) throws SQLException {
+        connection.prepareStatement("DROP TABLE IF EXISTS `vcs_" + project + "_parents`").executeUpdate();
+        createParentTable(project);
+    }
+
+    /**
+     * creates the parent table for a project. It contains the parents of each commit in their order, so the history
+     * can be walked without the repository.
+     *
+     * @param project the project for which the table shall be created
+     * @throws SQLException if the table cannot be created, the database connection failed or an error exist in a sql query
+     */
+    private void createParentTable(String project) throws SQLException {
+        if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + project + "_parents` ("
+                + "`commit` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
+                + "`parent` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
+                + "`parent_number` INT NOT NULL,"
+                + "PRIMARY KEY (`commit`, `parent_number`) "
+                + ")").executeUpdate() != 0) {
+            throw new SQLException("Can't create sql table for project");
+        } else {
+            OutputUtil.debug("Sql table created");
+        }
+    }
+
     /**
      * tests if the diff table has the correct format and if it does not exist it will be created
      *
@@ -220,11 +366,11 @@ public class VCSSqlModule {
             ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "_diff` limit 0").executeQuery();
             ResultSetMetaData metaData = structure.getMetaData();
             if (metaData.getColumnCount() != 5
-                    || !metaData.getColumnLabel(1).equals("new_commit") || metaData.getColumnDisplaySize(1) < 50
-                    || !metaData.getColumnLabel(2).equals("old_commit") || metaData.getColumnDisplaySize(2) < 50
+                    || !isCommitIdColumn(metaData, 1, "new_commit")
+                    || !isCommitIdColumn(metaData, 2, "old_commit")
                     || !metaData.getColumnLabel(3).equals("diff_entry") || metaData.getColumnType(3) != 4
-                    || !metaData.getColumnLabel(4).equals("new_name") || metaData.getColumnDisplaySize(4) < 2048
-                    || !metaData.getColumnLabel(5).equals("old_name") || metaData.getColumnDisplaySize(5) < 2048) {
+                    || !isPathColumn(metaData, 4, "new")
+                    || !isPathColumn(metaData, 5, "old")) {
                 throw new SQLException("Diff table for project has wrong format");
             } else {
                 OutputUtil.debug("Sql table has correct format. ");
@@ -255,11 +401,11 @@ public class VCSSqlModule {
      */
     private void createDiffTable(String project) throws SQLException {
         if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + project + "_diff` ("
-                + "`new_commit` varchar(50) NOT NULL,"
-                + "`old_commit` varchar(50) NOT NULL,"
+                + "`new_commit` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
+                + "`old_commit` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
                 + "`diff_entry` INT,"
-                + "`new_name` VARCHAR(2048),"
-                + "`old_name` VARCHAR(2048),"
+                + (compact ? "`new_path` INT," : "`new_name` VARCHAR(2048),")
+                + (compact ? "`old_path` INT," : "`old_name` VARCHAR(2048),")
                 + "PRIMARY KEY (`new_commit`, `old_commit`, `diff_entry`) USING HASH, "
                 + "UNIQUE KEY `id` (`new_commit`, `old_commit`, `diff_entry`) "
                 + ")").executeUpdate() != 0) {
@@ -270,7 +416,339 @@ public class VCSSqlModule {
     }
 
     /**
-     * this will delete all tables of a project and recreates them
+     * creates the indexes that are used by the searches if they don't exist yet
+     *
+     * @param project the project for which the indexes shall be created
+     * @throws SQLException if an index could not be created
+     */
+    private void ensureIndexes(String project) throws SQLException {
+        indexManager.ensureIndex("vcs_" + project, "author", "author(191)");
+        indexManager.ensureIndex("vcs_" + project, "creation_date", "creation_date");
+        indexManager.ensureFullTextIndex("vcs_" + project, "message");
+        indexManager.ensureIndex("vcs_" + project + "_branches", "branch", "branch");
+        //finds the children of a commit
+        indexManager.ensureIndex("vcs_" + project + "_parents", "parent", "parent");
+        if (compact) {
+            //the searches for files only read these indexes to find the commits that changed a path
+            indexManager.ensureIndex("vcs_" + project + "_diff", "new_path_commit", "new_path", "new_commit");
+            indexManager.ensureIndex("vcs_" + project + "_diff", "old_path_commit", "old_path", "new_commit");
+            indexManager.ensureIndex("vcs_" + project + "_paths", "path", "path(191)");
+            indexManager.ensureIndex("vcs_" + project + "_branch_names", "name", "name");
+        } else {
+            indexManager.ensureIndex("vcs_" + project + "_diff", "new_name", "new_name(191)");
+            indexManager.ensureIndex("vcs_" + project + "_diff", "old_name", "old_name(191)");
+        }
+    }
+
+    /**
+     * tests if a column of a table contains commit ids in the format of the schema
+     *
+     * @param metaData the meta data of the table
+     * @param column   the index of the column
+     * @param label    the expected name of the column
+     * @return true if the column has the expected name and type
+     * @throws SQLException if the meta data could not be read
+     */
+    private boolean isCommitIdColumn(ResultSetMetaData metaData, int column, String label) throws SQLException {
+        return metaData.getColumnLabel(column).equals(label) && (compact
+                ? VCSCommitIdType.fromSqlType(metaData.getColumnType(column)) == commitIdType
+                : metaData.getColumnDisplaySize(column) >= 50);
+    }
+
+    /**
+     * tests if a column of the diff table contains a path in the format of the schema
+     *
+     * @param metaData the meta data of the diff table
+     * @param column   the index of the column
+     * @param prefix   the prefix of the column name (new or old)
+     * @return true if the column has the expected name and type
+     * @throws SQLException if the meta data could not be read
+     */
+    private boolean isPathColumn(ResultSetMetaData metaData, int column, String prefix) throws SQLException {
+        return compact
+                ? metaData.getColumnLabel(column).equals(prefix + "_path") && metaData.getColumnType(column) == Types.INTEGER
+                : metaData.getColumnLabel(column).equals(prefix + "_name") && metaData.getColumnDisplaySize(column) >= 2048;
+    }
+
+    /**
+     * tests if a dictionary table of the compact schema has the correct format and if it does not exist it will be
+     * created
+     *
+     * @param table      the name of the table without the vcs_ prefix
+     * @param nameColumn the column containing the names
+     * @param length     the maximal length of the names
+     * @throws SQLException if the table has the wrong format, the database connection failed or an error exist in a sql query
+     */
+    private void checkAndPrepareDictionaryTable(String table, String nameColumn, int length) throws SQLException {
+        boolean hasParent;
+        try {
+            ResultSet structure = connection.prepareStatement("select * from `vcs_" + table + "` limit 0").executeQuery();
+            ResultSetMetaData metaData = structure.getMetaData();
+            hasParent = metaData.getColumnCount() == 3 && metaData.getColumnLabel(3).equals("parent");
+            if (metaData.getColumnCount() != (hasParent ? 3 : 2)
+                    || !metaData.getColumnLabel(1).equals("id") || metaData.getColumnType(1) != Types.INTEGER
+                    || !metaData.getColumnLabel(2).equals(nameColumn) || metaData.getColumnDisplaySize(2) < length) {
+                throw new SQLException("Dictionary table for project has wrong format");
+            } else {
+                OutputUtil.debug("Sql table has correct format. ");
+            }
+        } catch (SQLSyntaxErrorException e) {
+            OutputUtil.debug("Table vcs_" + table + " does not exist or has wrong format so recreate it");
+            recreateDictionaryTable(table, nameColumn, length);
+            return;
+        }
+        if (hasParent) {
+            //the path tables of an older version referenced the parent directories, which no search used
+            OutputUtil.debug("removing column parent from table vcs_" + table);
+            connection.prepareStatement("ALTER TABLE `vcs_" + table + "` DROP COLUMN `parent`").executeUpdate();
+        }
+    }
+
+    /**
+     * this will delete a dictionary table and recreates it if the compact schema is used
+     *
+     * @param table      the name of the table without the vcs_ prefix
+     * @param nameColumn the column containing the names
+     * @param length     the maximal length of the names
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void recreateDictionaryTable(String table, String nameColumn, int length) throws SQLException {
+        connection.prepareStatement("DROP TABLE IF EXISTS `vcs_" + table + "`").executeUpdate();
+        if (!compact) {
+            return;
+        }
+        if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + table + "` ("
+                + "`id` INT NOT NULL,"
+                + "`" + nameColumn + "` VARCHAR(" + length + ") NOT NULL,"
+                + "PRIMARY KEY (`id`) "
+                + ")").executeUpdate() != 0) {
+            throw new SQLException("Can't create sql table for project");
+        } else {
+            OutputUtil.debug("Sql table created");
+        }
+    }
+
+    /**
+     * loads the entries of a dictionary table if they weren't loaded by the sql module of another thread yet
+     *
+     * @param dictionary the dictionary to load
+     * @param table      the name of the table without the vcs_ prefix
+     * @param nameColumn the column containing the names
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void loadDictionary(VCSDictionary dictionary, String table, String nameColumn) throws SQLException {
+        if (dictionary.isLoaded()) {
+            return;
+        }
+        try (Statement stmt = connection.createStatement()) {
+            stmt.setFetchSize(getStreamingFetchSize());
+            dictionary.load(stmt.executeQuery("SELECT `id`, `" + nameColumn + "` FROM `vcs_" + table + "`"));
+        }
+    }
+
+    /**
+     * gets the id of a name of a dictionary. If the name has no id yet, a new one is assigned and the entry is added
+     * to the dictionary table
+     *
+     * @param dictionary the dictionary
+     * @param table      the name of the table without the vcs_ prefix
+     * @param insertStmt the statement for inserting an entry into the table
+     * @param name       the name; may be null
+     * @return the id of the name; null if the name is null
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private Integer getDictionaryId(VCSDictionary dictionary, String table, PreparedStatement insertStmt, String name) throws SQLException {
+        if (name == null) {
+            return null;
+        }
+        Integer id = dictionary.get(name);
+        if (id != null) {
+            return id;
+        }
+        id = dictionary.add(name);
+        if (id == null) {
+            return dictionary.get(name);
+        }
+        if (bulkLoader != null) {
+            bulkLoader.addRow("vcs_" + table, id, name);
+        } else {
+            insertStmt.setInt(1, id);
+            insertStmt.setString(2, name);
+            insertStmt.addBatch();
+        }
+        return id;
+    }
+
+    /**
+     * @param branch the name of a branch
+     * @return the id of the branch in the compact schema
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private Integer getBranchId(String branch) throws SQLException {
+        return getDictionaryId(branchDictionary, project + "_branch_names", preparedInsertBranchNameStmt, branch);
+    }
+
+    /**
+     * @param path a path; may be null
+     * @return the id of the path in the compact schema; null if the path is null
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private Integer getPathId(String path) throws SQLException {
+        return getDictionaryId(pathDictionary, project + "_paths", preparedInsertPathStmt, path);
+    }
+
+    /**
+     * creates the LIKE patterns for the file of a search. A file without wildcards matches the file itself and
+     * everything below it if it is a directory. A file containing % is used as it is.
+     *
+     * @param file the file or directory that shall be searched
+     * @return the two patterns a changed path is compared with
+     */
+    static String[] getFilePatterns(String file) {
+        if (file.contains("%")) {
+            return new String[]{file, file};
+        }
+        String directory = file.endsWith("/") ? file.substring(0, file.length() - 1) : file;
+        return new String[]{directory, directory + "/%"};
+    }
+
+    /**
+     * reads the schema of the tables of a project before they are searched. The commit ids are read in the format of
+     * the id column and the paths and branches are read from the dictionary tables if the diff table references them.
+     *
+     * @param project the project that shall be searched
+     * @throws SQLException if the tables could not be read
+     */
+    private void detectSchema(String project) throws SQLException {
+        if (project.equals(detectedProject)) {
+            return;
+        }
+        try (ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "_diff` limit 0").executeQuery()) {
+            compact = "new_path".equals(structure.getMetaData().getColumnLabel(4));
+        }
+        try (ResultSet structure = connection.prepareStatement("select `id` from `vcs_" + project + "` limit 0").executeQuery()) {
+            commitIdType = compact ? VCSCommitIdType.fromSqlType(structure.getMetaData().getColumnType(1)) : VCSCommitIdType.TEXT;
+        }
+        detectedProject = project;
+    }
+
+    /**
+     * detects the schema of the existing tables of a project, so an import of new commits can continue with it.
+     * Closes the database connection after it
+     *
+     * @param project the project of which the schema shall be detected
+     * @return true if the tables use the compact schema; false if they use the plain one; null if they don't exist
+     * @throws SQLException if the database connection failed
+     */
+    public Boolean usesCompactSchema(String project) throws SQLException {
+        try {
+            detectSchema(project);
+            return compact;
+        } catch (SQLSyntaxErrorException e) {
+            return null;
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * tests if the state table has the correct format and if it does not exist it will be created
+     *
+     * @param project the project of which the table shall be checked
+     * @throws SQLException if the table has the wrong format, the database connection failed or an error exist in a sql query
+     */
+    private void checkAndPrepareStateTable(String project) throws SQLException {
+        try {
+            ResultSet structure = connection.prepareStatement("select * from `vcs_" + project + "_state` limit 0").executeQuery();
+            ResultSetMetaData metaData = structure.getMetaData();
+            if (metaData.getColumnCount() != 2
+                    || !metaData.getColumnLabel(1).equals("branch") || metaData.getColumnDisplaySize(1) < 190
+                    || !metaData.getColumnLabel(2).equals("head") || metaData.getColumnDisplaySize(2) < 50) {
+                throw new SQLException("State table for project has wrong format");
+            } else {
+                OutputUtil.debug("Sql table has correct format. ");
+            }
+        } catch (SQLSyntaxErrorException e) {
+            OutputUtil.debug("Table vcs_" + project + "_state does not exist or has wrong format so recreate it");
+            recreateStateTable(project);
+        }
+    }
+
+    /**
+     * this will delete the state table of a project and recreates it
+     *
+     * @param project the project of which the table shall be recreated
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void recreateStateTable(String project) throws SQLException {
+        connection.prepareStatement("DROP TABLE IF EXISTS `vcs_" + project + "_state`").executeUpdate();
+        createStateTable(project);
+    }
+
+    /**
+     * creates the state table for a project. It contains the head of each branch up to which all commits were
+     * imported successfully and a marker if the parents of all commits were imported.
+     *
+     * @param project the project for which the table shall be created
+     * @throws SQLException if the table cannot be created, the database connection failed or an error exist in a sql query
+     */
+    private void createStateTable(String project) throws SQLException {
+        if (connection.prepareStatement("CREATE TABLE IF NOT EXISTS `vcs_" + project + "_state` ("
+                + "`branch` VARCHAR(190) NOT NULL,"
+                + "`head` VARCHAR(50) NOT NULL,"
+                + "PRIMARY KEY (`branch`) "
+                + ")").executeUpdate() != 0) {
+            throw new SQLException("Can't create sql table for project");
+        } else {
+            OutputUtil.debug("Sql table created");
+        }
+    }
+
+    /**
+     * gets the heads of the branches that were stored by the last successful import
+     *
+     * @param project the project of which the heads shall be retrieved
+     * @return the name of each branch mapped to its imported head; empty if nothing was imported successfully yet
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public Map<String, String> getImportedHeads(String project) throws SQLException {
+        ResultSet resultSet = connection.prepareStatement("SELECT `branch`, `head` FROM `vcs_" + project + "_state`").executeQuery();
+        Map<String, String> heads = new HashMap<>();
+        while (resultSet.next()) {
+            if (!PARENTS_COMPLETE_MARKER.equals(resultSet.getString("branch"))) {
+                heads.put(resultSet.getString("branch"), resultSet.getString("head"));
+            }
+        }
+        return heads;
+    }
+
+    /**
+     * replaces the stored heads of the branches by the passed ones and closes the database connection after it.
+     * Branches that don't exist anymore will be removed.
+     *
+     * @param project the project of which the heads shall be stored
+     * @param heads   the name of each imported branch mapped to its head
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public void saveImportedHeads(String project, Map<String, String> heads) throws SQLException {
+        connection.prepareStatement("DELETE FROM `vcs_" + project + "_state` WHERE `branch` <> '"
+                + PARENTS_COMPLETE_MARKER + "'").executeUpdate();
+        PreparedStatement insertStmt = connection.prepareStatement(
+                "INSERT INTO `vcs_" + project + "_state` (`branch`, `head`) VALUES (?, ?)"
+        );
+        for (Map.Entry<String, String> head : heads.entrySet()) {
+            insertStmt.setString(1, head.getKey());
+            insertStmt.setString(2, head.getValue());
+            insertStmt.addBatch();
+        }
+        insertStmt.executeBatch();
+        connection.commit();
+        connection.close();
+    }
+
+    /**
+     * this will delete all tables of a project and recreates them. The parents table is marked as complete, because
+     * the parents of every commit imported into the new tables are imported too
      *
      * @param project the project of which the tables shall be recreated
      * @throws SQLException if the database connection failed or an error exist in a sql query
@@ -278,7 +756,48 @@ public class VCSSqlModule {
     public void recreateVcsTables(String project) throws SQLException {
         recreateCommitTable(project);
         recreateBranchTable(project);
+        recreateParentTable(project);
         recreateDiffTable(project);
+        recreateStateTable(project);
+        connection.prepareStatement("INSERT INTO `vcs_" + project + "_state` (`branch`, `head`) VALUES ('"
+                + PARENTS_COMPLETE_MARKER + "', '')").executeUpdate();
+        recreateDictionaryTable(project + "_paths", "path", 2048);
+        recreateDictionaryTable(project + "_branch_names", "name", 190);
+        ensureIndexes(project);
+        //makes the tables visible to other connections (eg. of the bulk loader)
+        connection.commit();
+    }
+
+    /**
+     * lets this module add the imported commits, branches and diffs to the bulk loader instead of inserting them with
+     * batches of insert statements. The statements have to be prepared before.
+     *
+     * @param bulkLoader the loader that will load the data into the tables of the project
+     * @throws SQLException if the database connection failed
+     */
+    public void setBulkLoader(VCSBulkLoader bulkLoader) throws SQLException {
+        if (compact) {
+            //the sha-1 hashes are passed as hex
+            Set<String> hexColumns = commitIdType == VCSCommitIdType.SHA1
+                    ? new HashSet<>(Arrays.asList("id", "commit", "parent", "new_commit", "old_commit"))
+                    : Collections.emptySet();
+            bulkLoader.registerTable("vcs_" + project, hexColumns, "id", "message", "author", "creation_date",
+                    "author_email", "committer", "commit_date");
+            bulkLoader.registerTable("vcs_" + project + "_branches", hexColumns, "commit", "branch");
+            bulkLoader.registerTable("vcs_" + project + "_parents", hexColumns, "commit", "parent", "parent_number");
+            bulkLoader.registerTable("vcs_" + project + "_diff", hexColumns, "new_commit", "old_commit", "diff_entry", "new_path", "old_path");
+            bulkLoader.registerTable("vcs_" + project + "_paths", "id", "path");
+            bulkLoader.registerTable("vcs_" + project + "_branch_names", "id", "name");
+        } else {
+            bulkLoader.registerTable("vcs_" + project, "id", "message", "author", "creation_date",
+                    "author_email", "committer", "commit_date");
+            bulkLoader.registerTable("vcs_" + project + "_branches", "commit", "branch");
+            bulkLoader.registerTable("vcs_" + project + "_parents", "commit", "parent", "parent_number");
+            bulkLoader.registerTable("vcs_" + project + "_diff", "new_commit", "old_commit", "diff_entry", "new_name", "old_name");
+        }
+        this.bulkLoader = bulkLoader;
+        //makes created tables visible to the connections of the bulk loader
+        connection.commit();
     }
 
 
@@ -294,18 +813,27 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void importCommit(String commitId, String branch, String message, String author, Date creationDate) throws SQLException {
-        preparedInsertCommitStmt.setString(1, commitId);
-        preparedInsertCommitStmt.setString(2, message);
-        preparedInsertCommitStmt.setString(3, author);
-        preparedInsertCommitStmt.setTimestamp(4, Timestamp.from(creationDate.toInstant()));
-        preparedInsertCommitStmt.addBatch();
-        if (branch != null) {
-            preparedInsertCommitBranchStmt.setString(1, commitId);
-            preparedInsertCommitBranchStmt.setString(2, branch);
-            preparedInsertCommitBranchStmt.addBatch();
-        }
-        addedStmts++;
-        executeBatches();
+        addCommit(commitId, branch, message, author, null, null, Timestamp.from(creationDate.toInstant()), null);
+    }
+
+    /**
+     * adds a statement to the batch queue to import a commit and branch with the given arguments
+     * and executes the batch of sql queries for the commits and branches each 500 statements that were added
+     *
+     * @param commitId     the name of the commitId (eg. hash)
+     * @param branch       the name of the branch; if null no entry for the commit will be created in the branch list
+     * @param message      the commitId message
+     * @param author       the author of the commit
+     * @param authorEmail  the email address of the author; may be null
+     * @param committer    the name of the committer; may be null
+     * @param creationDate the date the commit was created
+     * @param commitDate   the date the commit was committed (eg. after a rebase); may be null
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public void importCommit(String commitId, String branch, String message, String author, String authorEmail,
+                             String committer, Date creationDate, Date commitDate) throws SQLException {
+        addCommit(commitId, branch, message, author, authorEmail, committer, Timestamp.from(creationDate.toInstant()),
+                commitDate == null ? null : Timestamp.from(commitDate.toInstant()));
     }
 
 
@@ -321,20 +849,127 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void importCommit(String commitId, String branch, String message, String author, LocalDateTime creationDate) throws SQLException {
-        preparedInsertCommitStmt.setString(1, commitId);
+        addCommit(commitId, branch, message, author, null, null, Timestamp.from(creationDate.toInstant(ZoneOffset.ofHours(2))), null);
+    }
+
+    /**
+     * adds a commit to the bulk loader or the batch queue and executes the batch of sql queries for the commits and
+     * branches each 500 statements that were added
+     *
+     * @param commitId     the name of the commitId (eg. hash)
+     * @param branch       the name of the branch; if null no entry for the commit will be created in the branch list
+     * @param message      the commitId message
+     * @param author       the author of the commit
+     * @param authorEmail  the email address of the author; may be null
+     * @param committer    the name of the committer; may be null
+     * @param creationDate the date the commit was created
+     * @param commitDate   the date the commit was committed; may be null
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void addCommit(String commitId, String branch, String message, String author, String authorEmail,
+                           String committer, Timestamp creationDate, Timestamp commitDate) throws SQLException {
+        if (bulkLoader != null) {
+            bulkImportCommit(commitId, branch, message, author, authorEmail, committer, creationDate, commitDate);
+            return;
+        }
+        commitIdType.set(preparedInsertCommitStmt, 1, commitId);
         preparedInsertCommitStmt.setString(2, message);
         preparedInsertCommitStmt.setString(3, author);
-        preparedInsertCommitStmt.setTimestamp(4, Timestamp.from(creationDate.toInstant(ZoneOffset.ofHours(2))));
+        preparedInsertCommitStmt.setTimestamp(4, creationDate);
+        preparedInsertCommitStmt.setString(5, authorEmail);
+        preparedInsertCommitStmt.setString(6, committer);
+        preparedInsertCommitStmt.setTimestamp(7, commitDate);
         preparedInsertCommitStmt.addBatch();
         if (branch != null) {
-            preparedInsertCommitBranchStmt.setString(1, commitId);
-            preparedInsertCommitBranchStmt.setString(2, branch);
-            preparedInsertCommitBranchStmt.addBatch();
+            addCommitBranch(commitId, branch);
         }
-        addedStmts += 1;
+        addedStmts++;
         executeBatches();
     }
 
+    /**
+     * adds statements to the batch queue to store the parents of a commit
+     * and executes the batch of sql queries for the commits and branches each 500 statements that were added
+     *
+     * @param commitId  the name of the commit (eg. hash)
+     * @param parentIds the names of the parents in their order; the first one is the previous commit of the branch
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public void importCommitParents(String commitId, List<String> parentIds) throws SQLException {
+        for (int i = 0; i < parentIds.size(); i++) {
+            if (bulkLoader != null) {
+                bulkLoader.addRow("vcs_" + project + "_parents", commitIdType.toBulkValue(commitId),
+                        commitIdType.toBulkValue(parentIds.get(i)), i);
+            } else {
+                commitIdType.set(preparedInsertParentStmt, 1, commitId);
+                commitIdType.set(preparedInsertParentStmt, 2, parentIds.get(i));
+                preparedInsertParentStmt.setInt(3, i);
+                preparedInsertParentStmt.addBatch();
+            }
+        }
+        if (bulkLoader == null) {
+            addedStmts++;
+            executeBatches();
+        }
+    }
+
+    /**
+     * adds a statement to the batch queue to assign an already imported commit to a branch
+     * and executes the batch of sql queries for the commits and branches each 500 statements that were added
+     *
+     * @param commitId the name of the commit (eg. hash)
+     * @param branch   the name of the branch
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    public void importCommitBranch(String commitId, String branch) throws SQLException {
+        if (bulkLoader != null) {
+            bulkLoader.addRow("vcs_" + project + "_branches", commitIdType.toBulkValue(commitId), compact ? getBranchId(branch) : branch);
+            return;
+        }
+        addCommitBranch(commitId, branch);
+        addedStmts++;
+        executeBatches();
+    }
+
+    /**
+     * adds a statement to assign a commit to a branch to the batch queue
+     *
+     * @param commitId the name of the commit (eg. hash)
+     * @param branch   the name of the branch
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void addCommitBranch(String commitId, String branch) throws SQLException {
+        commitIdType.set(preparedInsertCommitBranchStmt, 1, commitId);
+        if (compact) {
+            preparedInsertCommitBranchStmt.setInt(2, getBranchId(branch));
+        } else {
+            preparedInsertCommitBranchStmt.setString(2, branch);
+        }
+        preparedInsertCommitBranchStmt.addBatch();
+    }
+
+
+    /**
+     * adds a commit and its branch to the rows of the bulk loader
+     *
+     * @param commitId     the name of the commitId (eg. hash)
+     * @param branch       the name of the branch; if null no entry for the commit will be created in the branch list
+     * @param message      the commitId message
+     * @param author       the author of the commit
+     * @param authorEmail  the email address of the author; may be null
+     * @param committer    the name of the committer; may be null
+     * @param creationDate the date the commit was created
+     * @param commitDate   the date the commit was committed; may be null
+     * @throws SQLException if the bulk loader failed
+     */
+    private void bulkImportCommit(String commitId, String branch, String message, String author, String authorEmail,
+                                  String committer, Timestamp creationDate, Timestamp commitDate) throws SQLException {
+        bulkLoader.addRow("vcs_" + project, commitIdType.toBulkValue(commitId), message, author, creationDate,
+                authorEmail, committer, commitDate);
+        if (branch != null) {
+            bulkLoader.addRow("vcs_" + project + "_branches", commitIdType.toBulkValue(commitId), compact ? getBranchId(branch) : branch);
+        }
+    }
 
     /**
      * adds a statement for importing the diff represented by the parameters to a batch of such queries
@@ -348,15 +983,28 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void importDiff(String newCommit, String oldCommit, int num, String newName, String oldName) throws SQLException {
-        preparedInsertDiffStmt.setString(1, newCommit);
-        preparedInsertDiffStmt.setString(2, oldCommit);
+        if (bulkLoader != null) {
+            bulkLoader.addRow("vcs_" + project + "_diff", commitIdType.toBulkValue(newCommit), commitIdType.toBulkValue(oldCommit), num,
+                    compact ? getPathId(newName) : newName, compact ? getPathId(oldName) : oldName);
+            return;
+        }
+        commitIdType.set(preparedInsertDiffStmt, 1, newCommit);
+        commitIdType.set(preparedInsertDiffStmt, 2, oldCommit);
         preparedInsertDiffStmt.setInt(3, num);
-        preparedInsertDiffStmt.setString(4, newName);
-        preparedInsertDiffStmt.setString(5, oldName);
+        if (compact) {
+            preparedInsertDiffStmt.setObject(4, getPathId(newName), Types.INTEGER);
+            preparedInsertDiffStmt.setObject(5, getPathId(oldName), Types.INTEGER);
+        } else {
+            preparedInsertDiffStmt.setString(4, newName);
+            preparedInsertDiffStmt.setString(5, oldName);
+        }
         addedDiffStmts++;
         try {
             preparedInsertDiffStmt.addBatch();
             if (addedDiffStmts % 500 == 0) {
+                if (compact) {
+                    preparedInsertPathStmt.executeBatch();
+                }
                 preparedInsertDiffStmt.execute();
             }
         } catch (SQLException e) {
@@ -373,6 +1021,7 @@ public class VCSSqlModule {
         if (addedStmts % 500 == 0) {
             preparedInsertCommitStmt.executeBatch();
             preparedInsertCommitBranchStmt.executeBatch();
+            preparedInsertParentStmt.executeBatch();
         }
     }
 
@@ -382,8 +1031,14 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public void finishImport() throws SQLException {
+        if (compact) {
+            //the dictionary entries are written before the rows that reference them
+            preparedInsertPathStmt.executeBatch();
+            preparedInsertBranchNameStmt.executeBatch();
+        }
         preparedInsertCommitStmt.executeBatch();
         preparedInsertCommitBranchStmt.executeBatch();
+        preparedInsertParentStmt.executeBatch();
         preparedInsertDiffStmt.executeBatch();
         connection.commit();
         connection.close();
@@ -398,21 +1053,148 @@ public class VCSSqlModule {
      * @throws SQLException if the database connection failed or an error exist in a sql query
      */
     public List<Commit> getCommitsForSearch(String project, VCSSearchParameters params) throws SQLException {
-        String query = getQuery(project, params);
+        try {
+            PreparedStatement stmt = prepareSearchStatement(project, params);
+            ResultSet resultSet = stmt.executeQuery();
+            List<Commit> commits = getCommits(resultSet);
+            addChangedFilesAndBranches(project, commits);
+            return commits;
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * searches commits from a project that matches the search parameters and writes them to the passed writer while
+     * they are read from the database. The result is read with a cursor and the changed files and branches are loaded
+     * for IN_CHUNK_SIZE commits at once so only a single chunk of commits is held in memory. As the connection of this
+     * module is busy with the result the changed files and branches are loaded with the connection of the lookup
+     * module. The connections of both modules are closed afterwards.
+     *
+     * @param project      the project from which the commits shall be retrieved
+     * @param params       the parameters of the search
+     * @param lookupModule the sql module used to load the changed files and branches of the found commits
+     * @param writer       the writer to which the found commits are written
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     * @throws IOException  if a commit could not be written
+     */
+    public void streamCommitsForSearch(String project, VCSSearchParameters params, VCSSqlModule lookupModule,
+                                       OutputUtil.ObjectListWriter writer) throws SQLException, IOException {
+        try {
+            PreparedStatement stmt = prepareSearchStatement(project, params);
+            stmt.setFetchSize(getStreamingFetchSize());
+            ResultSet resultSet = stmt.executeQuery();
+            List<Commit> chunk = new ArrayList<>(IN_CHUNK_SIZE);
+            while (resultSet.next()) {
+                chunk.add(getCommit(resultSet));
+                if (chunk.size() == IN_CHUNK_SIZE) {
+                    lookupModule.writeCommits(project, chunk, writer);
+                    chunk.clear();
+                }
+            }
+            lookupModule.writeCommits(project, chunk, writer);
+        } finally {
+            abort();
+            lookupModule.abort();
+        }
+    }
+
+    /**
+     * loads the changed files and branches of the commits and writes the commits to the writer so they are printed
+     * before the next chunk is read
+     *
+     * @param project the project of the commits
+     * @param commits the commits that shall be written
+     * @param writer  the writer to which the commits are written
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     * @throws IOException  if a commit could not be written
+     */
+    private void writeCommits(String project, List<Commit> commits, OutputUtil.ObjectListWriter writer) throws SQLException, IOException {
+        addChangedFilesAndBranches(project, commits);
+        for (Commit commit : commits) {
+            writer.write(commit);
+        }
+        writer.flush();
+    }
+
+    /**
+     * returns the fetch size that makes the jdbc driver read a result with a cursor instead of loading it completely.
+     * MySQL only streams results row by row; postgresql uses a cursor if the fetch size is positive and autocommit is
+     * disabled
+     *
+     * @return the fetch size for streamed results
+     */
+    private int getStreamingFetchSize() {
+        if (sqlType == SqlType.MYSQL) {
+            return Integer.MIN_VALUE;
+        }
+        return IN_CHUNK_SIZE;
+    }
+
+    /**
+     * closes the connection to the database
+     *
+     * @throws SQLException if the connection could not be closed
+     */
+    public void close() throws SQLException {
+        connection.close();
+    }
+
+    /**
+     * returns the connection to the pool without committing pending changes. Does nothing if the connection is
+     * already closed
+     */
+    public void abort() {
+        try {
+            if (!connection.isClosed()) {
+                connection.close();
+            }
+        } catch (SQLException e) {
+            OutputUtil.debug("could not close the database connection: " + e.getMessage());
+        }
+    }
+
+    /**
+     * creates the statement for the search and sets the values of the search parameters
+     *
+     * @param project the project from which the commits shall be retrieved
+     * @param params  the parameters of the search
+     * @return the statement for the search that can be executed
+     * @throws SQLException if the database connection failed or the statement could not be created
+     */
+    private PreparedStatement prepareSearchStatement(String project, VCSSearchParameters params) throws SQLException {
+        detectSchema(project);
+        String messageQuery = params.getMessage() == null ? null : getMessagePrefilterQuery(project, params.getMessage());
+        String ticketQuery = params.getTicket() == null ? null : getMessageFullTextQuery(project, params.getTicket());
+        String query = getQuery(project, params, messageQuery, ticketQuery);
+        if (params.getIds() != null) {
+            fillSearchIdTable(params.getIds());
+        }
         PreparedStatement stmt = connection.prepareStatement(query);
         int i = 1;
+        String[] filePatterns = params.getFile() == null ? null : getFilePatterns(params.getFile());
+        if (filePatterns != null && compact) {
+            //the changed commits are selected in the from clause, so their placeholders are the first ones
+            for (int j = 0; j < 2; j++) {
+                stmt.setString(i++, filePatterns[0]);
+                stmt.setString(i++, filePatterns[1]);
+            }
+        }
         if (params.getAuthor() != null) {
             stmt.setString(i++, params.getAuthor());
         }
         if (params.getMessage() != null) {
+            if (messageQuery != null) {
+                stmt.setString(i++, messageQuery);
+            }
             stmt.setString(i++, params.getMessage());
         }
         if (params.getTicket() != null) {
+            if (ticketQuery != null) {
+                stmt.setString(i++, ticketQuery);
+            }
             stmt.setString(i++,  "[^[:alnum:]]" + params.getTicket() + "[^[:alnum:]]");
         }
-        if (params.getIds() != null) {
-            stmt.setArray(i++, connection.createArrayOf("text", params.getIds()));
-        }
         if (params.getStartDate() != null) {
             LocalDateTime endDate = params.getEndDate();
             if (endDate == null) {
@@ -422,45 +1204,91 @@ public class VCSSqlModule {
             stmt.setTimestamp(i++, Timestamp.from(endDate.toInstant(ZoneOffset.ofHours(2))));
         }
         if (params.getStartCommit() != null && params.getEndCommit() != null) {
-            stmt.setString(i++, params.getStartCommit());
-            stmt.setString(i++, params.getEndCommit());
+            commitIdType.set(stmt, i++, params.getStartCommit());
+            commitIdType.set(stmt, i++, params.getEndCommit());
         }
-        if (params.getFile() != null) {
-            stmt.setString(i++, params.getFile());
-            stmt.setString(i++, params.getFile());
+        if (filePatterns != null && !compact) {
+            for (int j = 0; j < 2; j++) {
+                stmt.setString(i++, filePatterns[0]);
+                stmt.setString(i++, filePatterns[1]);
+            }
         }
         if (params.getBranch() != null) {
             stmt.setString(i++, params.getBranch());
         }
-        ResultSet resultSet = stmt.executeQuery();
-        List<Commit> commits = getCommits(resultSet);
-        PreparedStatement diffsGetStmt = connection.prepareStatement(
-                "SELECT * FROM `vcs_" + project + "_diff` WHERE `new_commit` LIKE ?"
-        );
-        PreparedStatement branchesGetStmt = connection.prepareStatement(
-                "SELECT * FROM `vcs_" + project + "_branches` WHERE `commit` LIKE ?"
-        );
+        return stmt;
+    }
 
-        for (Commit commit : commits) {
-            diffsGetStmt.setString(1, commit.getId());
-            branchesGetStmt.setString(1, commit.getId());
-            ResultSet diffResult = diffsGetStmt.executeQuery();
-            commit.setChangedFiles(getChangedFiles(diffResult));
-            ResultSet branchResult = branchesGetStmt.executeQuery();
-            commit.setBranches(getBranches(branchResult));
+    /**
+     * creates the temporary table of this connection that contains the ids a search is restricted to and fills it
+     * with the passed ids. The table of a previous search on the same connection is dropped first.
+     *
+     * @param ids the ids of the commits
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void fillSearchIdTable(String[] ids) throws SQLException {
+        try (Statement stmt = connection.createStatement()) {
+            stmt.executeUpdate((sqlType == SqlType.MYSQL ? "DROP TEMPORARY TABLE" : "DROP TABLE")
+                    + " IF EXISTS `" + SEARCH_ID_TABLE + "`");
+            stmt.executeUpdate("CREATE TEMPORARY TABLE `" + SEARCH_ID_TABLE + "` ("
+                    + "`id` " + commitIdType.getColumnType(sqlType) + " NOT NULL,"
+                    + "PRIMARY KEY (`id`) "
+                    + ")");
+        }
+        try (PreparedStatement insertStmt = connection.prepareStatement("INSERT " + getIgnore() + " INTO `"
+                + SEARCH_ID_TABLE + "` (`id`) VALUES (?)" + getOnConflict("`id`"))) {
+            for (int i = 0; i < ids.length; i++) {
+                commitIdType.set(insertStmt, 1, ids[i]);
+                insertStmt.addBatch();
+                if ((i + 1) % IN_CHUNK_SIZE == 0) {
+                    insertStmt.executeBatch();
+                }
+            }
+            insertStmt.executeBatch();
         }
-        connection.close();
-        return commits;
     }
 
     /**
-     * creates the sql query for the passed search parameters that will contain placeholders for the actual search values
+     * converts a text that shall be searched in the commit messages into a query for the fulltext index
      *
      * @param project the project from which the commits shall be retrieved
-     * @param params  the parameters of the search
+     * @param text    the text to search
+     * @return the query for the fulltext index or null if the index doesn't exist or can't be used for the text
+     * @throws SQLException if the indexes could not be retrieved
+     */
+    private String getMessageFullTextQuery(String project, String text) throws SQLException {
+        if (!indexManager.hasFullTextIndex("vcs_" + project, "message")) {
+            return null;
+        }
+        return indexManager.toFullTextQuery(text);
+    }
+
+    /**
+     * converts the LIKE pattern that shall be searched in the commit messages into a query for the fulltext index
+     * which prefilters the commits for the LIKE condition
+     *
+     * @param project the project from which the commits shall be retrieved
+     * @param pattern the LIKE pattern of the message
+     * @return the query for the fulltext index or null if the index doesn't exist or can't be used for the pattern
+     * @throws SQLException if the indexes could not be retrieved
+     */
+    private String getMessagePrefilterQuery(String project, String pattern) throws SQLException {
+        if (!indexManager.hasFullTextIndex("vcs_" + project, "message")) {
+            return null;
+        }
+        return indexManager.toLikePrefilterQuery(pattern);
+    }
+
+    /**
+     * creates the sql query for the passed search parameters that will contain placeholders for the actual search values
+     *
+     * @param project      the project from which the commits shall be retrieved
+     * @param params       the parameters of the search
+     * @param messageQuery the fulltext query that prefilters the message; if null only LIKE searches the message
+     * @param ticketQuery  the fulltext query for the ticket; if null every message is checked by the regular expression
      * @return an sql query representing the search parameters and containing placeholders for the actual search values
      */
-    private String getQuery(String project, VCSSearchParameters params) {
+    private String getQuery(String project, VCSSearchParameters params, String messageQuery, String ticketQuery) {
         String query = "";
         boolean usesDiff = false;
         boolean usesBranch = false;
@@ -468,34 +1296,59 @@ public class VCSSqlModule {
             query += " AND `author` LIKE ? ";
         }
         if (params.getMessage() != null) {
+            if (messageQuery != null) {
+                //the index finds the candidates and LIKE checks the actual pattern
+                query += " AND " + indexManager.getFullTextCondition("message") + " ";
+            }
             query += " AND `message` LIKE ? ";
         }
         if (params.getTicket() != null) {
+            if (ticketQuery != null) {
+                //the index finds the candidates and the regular expression checks that the ticket is not part of a word
+                query += " AND " + indexManager.getFullTextCondition("message") + " ";
+            }
             query += " AND `message` REGEXP ? ";
         }
         if (params.getIds() != null) {
-            query += " AND `id` IN ( ? )";
+            //the ids (eg. of a commit range) can be too many for placeholders, so they are read from a temporary table
+            query += " AND `id` IN (SELECT `id` FROM `" + SEARCH_ID_TABLE + "`)";
         }
         if (params.getStartDate() != null) {
             query += " AND `creation_date` BETWEEN ? AND ? ";
         }
         if (params.getStartCommit() != null && params.getEndCommit() != null) {
+            //binary ids can't be compared with LIKE, so the compact schema needs the complete ids
+            String idCondition = compact ? "`id` = ?" : "`id` LIKE ?";
             query += " AND (`creation_date` BETWEEN "
-                    + "(SELECT `creation_date` FROM `vcs_" + project + "` WHERE `id` LIKE ?)"
+                    + "(SELECT `creation_date` FROM `vcs_" + project + "` WHERE " + idCondition + ")"
                     + " AND "
-                    + "(SELECT `creation_date` FROM `vcs_" + project + "` WHERE `id` LIKE ?)"
+                    + "(SELECT `creation_date` FROM `vcs_" + project + "` WHERE " + idCondition + ")"
                     + ")";
         }
+        String changedCommits = null;
         if (params.getFile() != null) {
-            usesDiff = true;
-            query += " AND (`vcs_" + project + "_diff`.`new_commit` = `vcs_" + project + "`.`id` AND "
-                    + "(`vcs_" + project + "_diff`.`new_name` LIKE ? OR `vcs_" + project + "_diff`.`old_name` LIKE ? ))";
+            if (compact) {
+                //the ids of the matching paths are looked up in the path index and the commits that changed them are
+                //read from the (path, commit) indexes of the diff table, so the diff table itself is never scanned
+                String pathIds = "(SELECT `id` FROM `vcs_" + project + "_paths` WHERE `path` LIKE ? OR `path` LIKE ?)";
+                changedCommits = "(SELECT `new_commit` FROM `vcs_" + project + "_diff` WHERE `new_path` IN " + pathIds
+                        + " UNION SELECT `new_commit` FROM `vcs_" + project + "_diff` WHERE `old_path` IN " + pathIds
+                        + ") `changed`, ";
+                query += " AND `changed`.`new_commit` = `vcs_" + project + "`.`id` ";
+            } else {
+                usesDiff = true;
+                query += " AND (`vcs_" + project + "_diff`.`new_commit` = `vcs_" + project + "`.`id` AND "
+                        + "(`vcs_" + project + "_diff`.`new_name` LIKE ? OR `vcs_" + project + "_diff`.`new_name` LIKE ? "
+                        + "OR `vcs_" + project + "_diff`.`old_name` LIKE ? OR `vcs_" + project + "_diff`.`old_name` LIKE ? ))";
+            }
         }
         if (params.getBranch() != null) {
             usesBranch = true;
-            query += " AND (`id` = `vcs_" + project + "_branches`.`commit` AND `vcs_" + project + "_branches`.`branch` LIKE ? )";
+            query += " AND (`id` = `vcs_" + project + "_branches`.`commit` AND `vcs_" + project + "_branches`.`branch` "
+                    + (compact ? "IN (SELECT `id` FROM `vcs_" + project + "_branch_names` WHERE `name` LIKE ?) )" : "LIKE ? )");
         }
         query = "SELECT DISTINCT(`id`), `message`, `author`, `creation_date` FROM "
+                + (changedCommits != null ? changedCommits : "")
                 + (usesDiff ? "`vcs_" + project + "_diff`, " : "")
                 + (usesBranch ? "`vcs_" + project + "_branches`, " : "")
                 + "`vcs_" + project + "`  WHERE 1 " + query + " ORDER BY `creation_date` ";
@@ -511,12 +1364,61 @@ public class VCSSqlModule {
      */
     public List<Commit> getCommitsForIds(String project, String[] ids) {
         try {
-            PreparedStatement stmt = connection.prepareStatement("SELECT * FROM `vcs_" + project + "` WHERE `id` IN ?");
-            stmt.setArray(1, connection.createArrayOf("varchar", ids));
+            detectSchema(project);
+            PreparedStatement stmt = connection.prepareStatement("SELECT * FROM `vcs_" + project + "` WHERE `id` IN ("
+                    + String.join(", ", Collections.nCopies(ids.length, "?")) + ")");
+            for (int i = 0; i < ids.length; i++) {
+                commitIdType.set(stmt, i + 1, ids[i]);
+            }
             return getCommits(stmt.executeQuery());
         } catch (SQLException e) {
             OutputUtil.printError("An error occured while printing the search results" + e.getMessage());
             return null;
+        } finally {
+            abort();
+        }
+    }
+
+    /**
+     * gets the parents of all commits of the project in their order, eg. to create the commit graph without the
+     * repository. Both results are read with a cursor in the order of the primary keys.
+     *
+     * @param project the project of which the parents shall be retrieved
+     * @return the id of each commit mapped to the ids of its parents
+     * @throws SQLException if the database connection failed or the parents of the commits were not imported
+     * completely (eg. the commits of an older version were not imported again)
+     */
+    public Map<String, List<String>> getCommitParents(String project) throws SQLException {
+        try {
+            detectSchema(project);
+            ResultSet marker = connection.prepareStatement("SELECT `branch` FROM `vcs_" + project + "_state` "
+                    + "WHERE `branch` = '" + PARENTS_COMPLETE_MARKER + "'").executeQuery();
+            if (!marker.next()) {
+                throw new SQLException("The parents of the commits of " + project + " were not imported completely;"
+                        + " a full import is needed");
+            }
+            Map<String, List<String>> parentsOfCommits = new LinkedHashMap<>();
+            try (Statement stmt = connection.createStatement()) {
+                stmt.setFetchSize(getStreamingFetchSize());
+                ResultSet resultSet = stmt.executeQuery("SELECT `id` FROM `vcs_" + project + "`");
+                while (resultSet.next()) {
+                    parentsOfCommits.put(commitIdType.get(resultSet, "id"), new ArrayList<>(1));
+                }
+            }
+            try (Statement stmt = connection.createStatement()) {
+                stmt.setFetchSize(getStreamingFetchSize());
+                ResultSet resultSet = stmt.executeQuery("SELECT `commit`, `parent` FROM `vcs_" + project + "_parents` "
+                        + "ORDER BY `commit`, `parent_number`");
+                while (resultSet.next()) {
+                    List<String> parents = parentsOfCommits.get(commitIdType.get(resultSet, "commit"));
+                    if (parents != null) {
+                        parents.add(commitIdType.get(resultSet, "parent"));
+                    }
+                }
+            }
+            return parentsOfCommits;
+        } finally {
+            abort();
         }
     }
 
@@ -530,55 +1432,99 @@ public class VCSSqlModule {
     private List<Commit> getCommits(ResultSet resultSet) throws SQLException {
         List<Commit> commits = new ArrayList<>();
         while (resultSet.next()) {
-            commits.add(new Commit(
-                    resultSet.getString("id"),
-                    resultSet.getString("message"),
-                    resultSet.getString("author"),
-                    resultSet.getTimestamp("creation_date").toLocalDateTime()
-            ));
+            commits.add(getCommit(resultSet));
         }
         return commits;
     }
 
     /**
-     * gets the changed files from the resultset and returns them as a list
+     * creates a commit from the current row of the resultset
      *
-     * @param resultSet a sql resultset from the _diff table that contains a list of changed files for a commit
-     * @return a list of FileChange that represents the changed files contained in the resultset or null if no filechanges exist for in the resultset
-     * @throws SQLException if the resultset does not contain filechange data, the resultset is closed or the database connection failed
+     * @param resultSet a sql resultset from the commits table that points to a commit
+     * @return the commit of the current row
+     * @throws SQLException if the resultset does not contain commit data, the resultset is closed or the database connection failed
      */
-    private AbstractList<FileChange> getChangedFiles(ResultSet resultSet) throws SQLException {
-        AbstractList<FileChange> fileChanges = new ArrayList<>();
-        while (resultSet.next()) {
-            fileChanges.add(new FileChange(
-                    resultSet.getString("old_commit"),
-                    resultSet.getString("new_name"),
-                    resultSet.getString("old_name")
-            ));
+    private Commit getCommit(ResultSet resultSet) throws SQLException {
+        return new Commit(
+                commitIdType.get(resultSet, "id"),
+                resultSet.getString("message"),
+                resultSet.getString("author"),
+                resultSet.getTimestamp("creation_date").toLocalDateTime()
+        );
+    }
+
+    /**
+     * loads the changed files and branches of the commits. Instead of querying them for every commit on its own the
+     * ids of up to IN_CHUNK_SIZE commits are passed to a single query and the results are assigned to the commits by
+     * their id. Commits without changed files or branches keep null for them.
+     *
+     * @param project the project of the commits
+     * @param commits the commits for which the changed files and branches shall be loaded
+     * @throws SQLException if the database connection failed or an error exist in a sql query
+     */
+    private void addChangedFilesAndBranches(String project, List<Commit> commits) throws SQLException {
+        detectSchema(project);
+        HashMap<String, Commit> commitsById = new HashMap<>();
+        for (Commit commit : commits) {
+            commitsById.put(commit.getId(), commit);
         }
-        if (fileChanges.size() == 0) {
-            return null;
-        } else {
-            return fileChanges;
+        for (int start = 0; start < commits.size(); start += IN_CHUNK_SIZE) {
+            List<Commit> chunk = commits.subList(start, Math.min(start + IN_CHUNK_SIZE, commits.size()));
+            String placeholders = String.join(", ", Collections.nCopies(chunk.size(), "?"));
+
+            PreparedStatement diffsGetStmt = connection.prepareStatement(compact
+                    ? "SELECT `d`.`new_commit`, `d`.`old_commit`, `n`.`path` AS `new_name`, `o`.`path` AS `old_name` "
+                    + "FROM `vcs_" + project + "_diff` `d` "
+                    + "LEFT JOIN `vcs_" + project + "_paths` `n` ON `n`.`id` = `d`.`new_path` "
+                    + "LEFT JOIN `vcs_" + project + "_paths` `o` ON `o`.`id` = `d`.`old_path` "
+                    + "WHERE `d`.`new_commit` IN (" + placeholders + ") ORDER BY `d`.`diff_entry`"
+                    : "SELECT `new_commit`, `old_commit`, `new_name`, `old_name` FROM `vcs_" + project + "_diff` "
+                    + "WHERE `new_commit` IN (" + placeholders + ") ORDER BY `diff_entry`"
+            );
+            setIds(diffsGetStmt, chunk);
+            ResultSet diffResult = diffsGetStmt.executeQuery();
+            while (diffResult.next()) {
+                Commit commit = commitsById.get(commitIdType.get(diffResult, "new_commit"));
+                if (commit.getChangedFiles() == null) {
+                    commit.setChangedFiles(new ArrayList<>());
+                }
+                commit.getChangedFiles().add(new FileChange(
+                        commitIdType.get(diffResult, "old_commit"),
+                        diffResult.getString("new_name"),
+                        diffResult.getString("old_name")
+                ));
+            }
+            diffsGetStmt.close();
+
+            PreparedStatement branchesGetStmt = connection.prepareStatement(compact
+                    ? "SELECT `b`.`commit`, `n`.`name` AS `branch` FROM `vcs_" + project + "_branches` `b` "
+                    + "JOIN `vcs_" + project + "_branch_names` `n` ON `n`.`id` = `b`.`branch` "
+                    + "WHERE `b`.`commit` IN (" + placeholders + ")"
+                    : "SELECT `commit`, `branch` FROM `vcs_" + project + "_branches` WHERE `commit` IN (" + placeholders + ")"
+            );
+            setIds(branchesGetStmt, chunk);
+            ResultSet branchResult = branchesGetStmt.executeQuery();
+            while (branchResult.next()) {
+                Commit commit = commitsById.get(commitIdType.get(branchResult, "commit"));
+                if (commit.getBranches() == null) {
+                    commit.setBranches(new ArrayList<>());
+                }
+                commit.getBranches().add(branchResult.getString("branch"));
+            }
+            branchesGetStmt.close();
         }
     }
 
     /**
-     * gets the branches from the resultset and returns them as a list
+     * sets the ids of the commits as the parameters of a statement
      *
-     * @param resultSet a sql resultset from the _branches table that contains a list of branches for a commit
-     * @return a list of branches contained in the resultset or null if no branches exist in the resultset
-     * @throws SQLException if the resultset does not contain branch data, the resultset is closed or the database connection failed
+     * @param stmt    the statement that contains a placeholder for every commit
+     * @param commits the commits which ids shall be set
+     * @throws SQLException if a parameter could not be set
      */
-    private AbstractList<String> getBranches(ResultSet resultSet) throws SQLException {
-        AbstractList<String> branches = new ArrayList<>();
-        while (resultSet.next()) {
-            branches.add(resultSet.getString("branch"));
-        }
-        if (branches.size() == 0) {
-            return null;
-        } else {
-            return branches;
+    private void setIds(PreparedStatement stmt, List<Commit> commits) throws SQLException {
+        for (int i = 0; i < commits.size(); i++) {
+            commitIdType.set(stmt, i + 1, commits.get(i).getId());
         }
     }
 
@@ -22,6 +22,9 @@ package org.vctsi.internal.vcs;
  * #L%
  */
 
+import org.vctsi.internal.SqlConnectionPool;
+
+import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.List;
@@ -52,11 +55,19 @@ public class VCSThreadSpawner<MODULE extends VCSModule, ELEM> {
      * @throws ReflectiveOperationException is thrown if no matching constructor could be found for the given runnable
      */
     public void start() throws ReflectiveOperationException {
-        executor = newFixedThreadPool(threadPoolSize);
+        List<VCSRunnable<MODULE, ELEM>> runnables = new ArrayList<>();
         for (int i = 0; i < threadPoolSize; i++) {
             VCSRunnable<MODULE, ELEM> r = vcsRunnable.newInstance();
             r.setModule(this.param);
             r.setSpawner(this);
+            runnables.add(r);
+        }
+        if (param.dbSettings != null && !runnables.isEmpty() && runnables.get(0).usesSql()) {
+            //every worker keeps its own connection
+            SqlConnectionPool.get(param.dbSettings).ensureCapacity(threadPoolSize + SqlConnectionPool.RESERVED_CONNECTIONS);
+        }
+        executor = newFixedThreadPool(threadPoolSize);
+        for (VCSRunnable<MODULE, ELEM> r : runnables) {
             executor.execute(r);
         }
     }
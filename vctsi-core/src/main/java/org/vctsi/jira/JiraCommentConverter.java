@@ -0,0 +1,111 @@
+package org.vctsi.jira;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.atlassian.jira.rest.client.api.domain.Comment;
+import com.atlassian.jira.rest.client.api.domain.Issue;
+import org.vctsi.internal.its.CommentConverter;
+import org.vctsi.internal.its.IssueComment;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.Date;
+
+public class JiraCommentConverter implements CommentConverter<Comment, Issue> {
+
+    /**
+     * converts a jira comment to an IssueComment
+     *
+     * @param comment a comment that shall be converted
+     * @return a IssueComment representation of the parameter
+     */
+    @Override
+    public IssueComment convertToIssueComment(Comment comment) {
+        return new IssueComment(
+                getCommentId(comment, null),
+                getAuthor(comment, null),
+                comment.getBody(),
+                LocalDateTime.ofInstant(getCreationDate(comment, null).toInstant(), ZoneOffset.ofHours(2))
+        );
+    }
+
+    /**
+     * get the id of the comment
+     *
+     * @param comment the comment object of jira
+     * @param issue   issue containing the object (can be null)
+     * @return the id of the comment
+     */
+    @Override
+    public int getCommentId(Comment comment, Issue issue) {
+        return comment.getId().intValue();
+    }
+
+    /**
+     * get the id of the ticket for the comment
+     *
+     * @param comment the comment object of jira
+     * @param issue   issue containing the comment
+     * @return id of the ticket containing the comment
+     */
+    @Override
+    public int getTicketId(Comment comment, Issue issue) {
+        return issue.getId().intValue();
+    }
+
+    /**
+     * get the description of a comment
+     *
+     * @param comment the comment object of jira
+     * @param issue   issue containing the object (can be null)
+     * @return description/content of the comment
+     */
+    @Override
+    public String getDescription(Comment comment, Issue issue) {
+        return comment.getBody();
+    }
+
+    /**
+     * get the author of a comment
+     *
+     * @param comment the comment object of jira
+     * @param issue   issue containing the object (can be null)
+     * @return name of the author of the comment; null if the author is unknown
+     */
+    @Override
+    public String getAuthor(Comment comment, Issue issue) {
+        return comment.getAuthor() == null ? null : comment.getAuthor().getName();
+    }
+
+    /**
+     * get the date the comment was created
+     *
+     * @param comment the comment object
+     * @param issue   issue containing the object (can be null)
+     * @return date the comment was created
+     */
+    @Override
+    public Date getCreationDate(Comment comment, Issue issue) {
+        return comment.getCreationDate().toDate();
+    }
+}
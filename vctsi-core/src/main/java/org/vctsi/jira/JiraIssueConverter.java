@@ -64,7 +64,7 @@ public class JiraIssueConverter implements IssueConverter<Issue> {
      */
     @Override
     public int getTicketId(Issue issue) {
-        return -1;
+        return issue.getId().intValue();
     }
 
     /**
@@ -122,6 +122,17 @@ public class JiraIssueConverter implements IssueConverter<Issue> {
         return issue.getCreationDate().toDate();
     }
 
+    /**
+     * get the date when the issue or one of its comments was changed the last time
+     *
+     * @param issue the issue object
+     * @return the date of the last change of the issue; null if unknown
+     */
+    @Override
+    public Date getUpdateDate(Issue issue) {
+        return issue.getUpdateDate() == null ? null : issue.getUpdateDate().toDate();
+    }
+
     /**
      * get the state of the issue
      *
@@ -22,20 +22,20 @@ package org.vctsi.jira;
  * #L%
  */
 
-import com.atlassian.jira.rest.client.api.IssueRestClient;
 import com.atlassian.jira.rest.client.api.JiraRestClient;
 import com.atlassian.jira.rest.client.api.RestClientException;
 import com.atlassian.jira.rest.client.api.SearchRestClient;
-import com.atlassian.jira.rest.client.api.domain.BasicIssue;
 import com.atlassian.jira.rest.client.api.domain.Comment;
 import com.atlassian.jira.rest.client.api.domain.Issue;
 import com.atlassian.jira.rest.client.api.domain.SearchResult;
 import com.atlassian.jira.rest.client.internal.async.AsynchronousJiraRestClientFactory;
 import com.atlassian.util.concurrent.Promise;
+import org.vctsi.internal.its.FetchLimiter;
 import org.vctsi.internal.its.ITSModule;
 import org.vctsi.internal.its.ITSSearchParameters;
-import org.vctsi.internal.its.ITSSqlModule;
 import org.vctsi.internal.its.IssueState;
+import org.vctsi.internal.its.IssueThreadSpawner;
+import org.vctsi.internal.its.RateLimiter;
 import org.vctsi.internal.tasks.ImportIssuesTask;
 import org.vctsi.internal.tasks.SearchIssueTask;
 import org.vctsi.internal.vcs.VCSSearchParameters;
@@ -44,16 +44,30 @@ import org.vctsi.utils.OutputUtil;
 import java.net.URI;
 import java.net.URISyntaxException;
 import java.sql.SQLException;
+import java.text.SimpleDateFormat;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Supplier;
 
 public class JiraModule extends ITSModule {
 
-    private final int batchSize = 10;
+    private static final int pageSize = 100;
+    private static final int threadPoolSize = 2;
+    private static final int defaultPagesInFlight = 4;
+    /**
+     * requesting all fields returns the comments with the issues, so they do not have to be requested one by one
+     */
+    private static final Set<String> searchFields = Collections.singleton("*all");
     private SearchRestClient searchClient;
-    private IssueRestClient issueRestClient;
-    private ITSSqlModule sqlModule;
     private JiraIssueConverter issueConverter = new JiraIssueConverter();
 
     /**
@@ -67,32 +81,47 @@ public class JiraModule extends ITSModule {
             OutputUtil.printError("Jira requires a path to be set in -itsPath");
             return false;
         }
+        Date since;
         try {
-            sqlModule = new ITSSqlModule(dbSettings);
-            sqlModule.prepareTicketImport(itsSettings.getProject());
-            String query = "project = \"" + itsSettings.getProject() + "\"";
-
-            if (!createClient()) {
-                return false;
-            }
+            since = setupSqlTables();
+        } catch (SQLException e) {
+            OutputUtil.printError("An error occured: " + e.getMessage());
+            return false;
+        }
+        String query = "project = \"" + itsSettings.getProject() + "\"";
+        if (since != null) {
+            //the stored date already overlaps the last import, jql dates only have minutes so one more is added
+            query += " AND updated >= \"" + new SimpleDateFormat("yyyy/MM/dd HH:mm").format(
+                    new Date(since.getTime() - TimeUnit.MINUTES.toMillis(1))) + "\"";
+        }
+        if (!createClient()) {
+            return false;
+        }
 
-            SearchResult result = searchClient.searchJql(query, batchSize, 0, null).claim();
-            importIssues(result, 0);
-            int total = result.getTotal();
-            for (int i = batchSize; i < total; i += batchSize) {
-                Promise<SearchResult> promise = searchClient.searchJql(query, batchSize, i, null);
-                importIssues(promise.claim(), i);
-            }
+        IssueThreadSpawner<Issue, Comment> threadSpawner = new IssueThreadSpawner<>(
+                issueConverter,
+                issue -> toList(issue.getComments()),
+                new JiraCommentConverter(),
+                dbSettings,
+                itsSettings.getProject(),
+                threadPoolSize,
+                null,
+                true
+        );
+        try {
+            walkPages(query, threadSpawner);
+            //wait till all thread finished their work
+            threadSpawner.finish();
 
-            sqlModule.finishImport();
-            if (error.isEmpty()) {
+            if (threadSpawner.getErrors().isEmpty() && error.isEmpty()) {
+                saveLastUpdate();
                 return true;
             } else {
-                OutputUtil.printError("An error occured: " + error);
+                OutputUtil.printError("An error occured: " + threadSpawner.getErrors() + ";" + error);
                 return false;
             }
         } catch (SQLException e) {
-            OutputUtil.printError("An error occured: " + e.getMessage());
+            OutputUtil.printError("Error saving the import state. " + e.getMessage());
             return false;
         } catch (RestClientException e) {
             if (e.getStatusCode().isPresent() && e.getStatusCode().get() == 401) {
@@ -100,6 +129,11 @@ public class JiraModule extends ITSModule {
             } else {
                 OutputUtil.printError("An error occured while communicating with the jira server" + e.getStatusCode());
             }
+            stopThreadSpawner(threadSpawner);
+            return false;
+        } catch (InterruptedException e) {
+            OutputUtil.printError("main thread interrupted" + e.getMessage());
+            stopThreadSpawner(threadSpawner);
             return false;
         }
     }
@@ -125,6 +159,16 @@ public class JiraModule extends ITSModule {
             return null;
         }
 
+        IssueThreadSpawner<Issue, Comment> threadSpawner = new IssueThreadSpawner<>(
+                issueConverter,
+                issue -> toList(issue.getComments()),
+                new JiraCommentConverter(),
+                dbSettings,
+                itsSettings.getProject(),
+                threadPoolSize,
+                null,
+                false
+        );
         try {
             String query = "project = \"" + itsSettings.getProject() + "\"";
 
@@ -158,13 +202,15 @@ public class JiraModule extends ITSModule {
                 }
             }
 
-            SearchResult result = searchClient.searchJql(query, batchSize, 0, null).claim();
-            List<org.vctsi.internal.its.Issue> issues = getIssues(result);
-            int total = result.getTotal();
-            for (int i = batchSize; i < total; i += batchSize) {
-                issues.addAll(getIssues(searchClient.searchJql(query, batchSize, i, null).claim()));
+            walkPages(query, threadSpawner);
+            //wait till all thread finished their work
+            threadSpawner.finish();
+            if (threadSpawner.getErrors().isEmpty()) {
+                return threadSpawner.getResults(pageSize);
+            } else {
+                OutputUtil.printError("An error occured: " + threadSpawner.getErrors());
+                return null;
             }
-            return issues;
         } catch (RestClientException e) {
             if (e.getStatusCode().isPresent() && e.getStatusCode().get() == 401) {
                 OutputUtil.printError("Access to jira denied. Check the its credentials");
@@ -174,6 +220,11 @@ public class JiraModule extends ITSModule {
                         + e.getMessage()
                 );
             }
+            stopThreadSpawner(threadSpawner);
+            return null;
+        } catch (InterruptedException e) {
+            OutputUtil.printError("main thread interrupted" + e.getMessage());
+            stopThreadSpawner(threadSpawner);
             return null;
         }
     }
@@ -209,6 +260,10 @@ public class JiraModule extends ITSModule {
             OutputUtil.printError("Jira requires a path set in the -itsPath");
             return false;
         }
+        if (searchClient != null) {
+            //already created by a previous task of the server mode
+            return true;
+        }
         try {
             URI uri = new URI(itsSettings.getPath());
             JiraRestClient client = (new AsynchronousJiraRestClientFactory()).createWithBasicHttpAuthentication(
@@ -216,7 +271,6 @@ public class JiraModule extends ITSModule {
                     itsSettings.getUsername(),
                     itsSettings.getPassword());
             searchClient = client.getSearchClient();
-            issueRestClient = client.getIssueClient();
             return true;
         } catch (URISyntaxException e) {
             OutputUtil.printError("itsPath is not a valid URI");
@@ -254,57 +308,129 @@ public class JiraModule extends ITSModule {
     }
 
     /**
-     * gets the internal issue representation of issues in the searchresult
+     * requests all pages of the search result and puts their issues with the index of their page to the thread
+     * spawner, so the results of the spawner keep the order of the search. the first page is
+     * requested alone to get the number of issues and the page size the server accepts. afterwards several pages
+     * are requested by the tasks of a fetch limiter before the oldest of them is awaited, so the server works on the
+     * next pages while the issues of a page are processed. every task takes a slot of the rate limiter only while its
+     * request is sent, so a reduced concurrency limit never waits for a slot that only the main thread could return
      *
-     * @param searchResult a searchresult containing a list of jira issues
-     * @return a list of converted issues
+     * @param jql           the query of the issues
+     * @param threadSpawner the thread spawner which will process the issues
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit or a page
      */
-    private List<org.vctsi.internal.its.Issue> getIssues(SearchResult searchResult) {
-        ArrayList<org.vctsi.internal.its.Issue> issues = new ArrayList<>();
-        for (BasicIssue issue : searchResult.getIssues()) {
-            Promise<Issue> issuePromise = issueRestClient.getIssue(issue.getKey());
-            issues.add(issueConverter.convertToIssue(issuePromise.claim()));
+    private void walkPages(String jql, IssueThreadSpawner<Issue, Comment> threadSpawner) throws InterruptedException {
+        SearchResult first = claim(() -> searchClient.searchJql(jql, pageSize, 0, searchFields));
+        threadSpawner.put(toList(first.getIssues()), 0);
+        //the server can limit the size of a page, so the following pages start after the returned size
+        int step = first.getMaxResults() > 0 ? first.getMaxResults() : pageSize;
+        int pagesInFlight = itsSettings.getFetchConcurrency() > 0 ? itsSettings.getFetchConcurrency() : defaultPagesInFlight;
+        FetchLimiter pageLimiter = FetchLimiter.forTracker(getClass().getName() + "|" + itsSettings.getPath() + "|pages", pagesInFlight);
+        ArrayDeque<CompletableFuture<SearchResult>> requests = new ArrayDeque<>();
+        try {
+            int index = 1;
+            int nextStart = step;
+            while ((nextStart < first.getTotal() || !requests.isEmpty()) && !threadSpawner.isShutdown()) {
+                while (nextStart < first.getTotal() && requests.size() < pagesInFlight) {
+                    int start = nextStart;
+                    requests.add(pageLimiter.submit(() -> {
+                        try {
+                            return claim(() -> searchClient.searchJql(jql, pageSize, start, searchFields));
+                        } catch (InterruptedException e) {
+                            throw new CompletionException(e);
+                        }
+                    }));
+                    nextStart += step;
+                }
+                threadSpawner.put(toList(await(requests.poll()).getIssues()), index++);
+            }
+        } finally {
+            for (CompletableFuture<SearchResult> request : requests) {
+                request.cancel(true);
+            }
         }
-        return issues;
     }
 
     /**
-     * imports the issues of the searchresult
+     * waits for a page that was requested by a task of the fetch limiter
      *
-     * @param searchResult the searchresult containing the issues
-     * @param startId      the internal id of the first issue in this result
+     * @param request the future of the page
+     * @return the page of the search result
+     * @throws InterruptedException occurs if the thread or the task was interrupted
      */
-    private void importIssues(SearchResult searchResult, int startId) {
-        int id = startId;
-        for (BasicIssue basicIssue : searchResult.getIssues()) {
-            Promise<Issue> issuePromise = issueRestClient.getIssue(basicIssue.getKey());
-            Issue issue = issuePromise.claim();
-            id++;
-            try {
-                sqlModule.importIssue(
-                        id,
-                        issueConverter.getName(issue),
-                        issueConverter.getTitle(issue),
-                        issueConverter.getDescription(issue),
-                        issueConverter.getAuthor(issue),
-                        issueConverter.getCreationDate(issue),
-                        issueConverter.getState(issue),
-                        issueConverter.getAssignee(issue),
-                        issueConverter.getTargetVersion(issue)
-                );
-                for (Comment comment : issue.getComments()) {
-                    sqlModule.importComment(
-                            comment.getId(),
-                            id,
-                            comment.getBody(),
-                            (comment.getAuthor() == null ? null : comment.getAuthor().getName()),
-                            comment.getCreationDate().toDate()
-                    );
-                }
-            } catch (SQLException e) {
-                error += e.getMessage();
+    private static SearchResult await(CompletableFuture<SearchResult> request) throws InterruptedException {
+        try {
+            return request.get();
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof InterruptedException) {
+                throw (InterruptedException) e.getCause();
+            } else if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
+    /**
+     * stops the threads of the thread spawner after an error
+     *
+     * @param threadSpawner the thread spawner that shall be stopped
+     */
+    private void stopThreadSpawner(IssueThreadSpawner<Issue, Comment> threadSpawner) {
+        try {
+            threadSpawner.stopNow();
+        } catch (InterruptedException e) {
+            OutputUtil.debug("could not stop thread spawner");
+        }
+    }
+
+    /**
+     * copies jira elements to a list
+     *
+     * @param elements the elements returned by jira; can be null
+     * @param <T>      the type of the elements
+     * @return a list containing the elements
+     */
+    private static <T> List<T> toList(Iterable<T> elements) {
+        List<T> list = new ArrayList<>();
+        if (elements != null) {
+            for (T element : elements) {
+                list.add(element);
+            }
+        }
+        return list;
+    }
+
+    /**
+     * sends a request within the rate limit of the jira server and waits for its result. requests that are rejected
+     * because of too many requests are retried
+     *
+     * @param request  creates the promise of the request
+     * @param <RESULT> the type of the result
+     * @return the result of the request
+     * @throws InterruptedException occurs if the thread is interrupted while waiting for the rate limit
+     */
+    private <RESULT> RESULT claim(Supplier<Promise<RESULT>> request) throws InterruptedException {
+        return getRateLimiter().execute(() -> request.get().claim(), JiraModule::getThrottling);
+    }
+
+    /**
+     * tests if a request was rejected because too many requests were sent
+     *
+     * @param e the exception of the request
+     * @return the throttling that the server requested; null if the request failed for another reason
+     */
+    private static RateLimiter.Throttling getThrottling(Exception e) {
+        if (e instanceof RestClientException && ((RestClientException) e).getStatusCode().isPresent()) {
+            int statusCode = ((RestClientException) e).getStatusCode().get();
+            if (statusCode == 429) {
+                //the client does not pass the Retry-After header, so the default is used
+                return RateLimiter.Throttling.rateLimited(0);
+            } else if (statusCode == 502 || statusCode == 503) {
+                return RateLimiter.Throttling.overloaded();
             }
         }
+        return null;
     }
 
     /**
@@ -35,6 +35,7 @@ import org.tmatesoft.svn.core.wc2.SvnDiff;
 import org.tmatesoft.svn.core.wc2.SvnOperationFactory;
 import org.tmatesoft.svn.core.wc2.SvnTarget;
 import org.vctsi.internal.vcs.Diff;
+import org.vctsi.internal.vcs.VCSCommitIdType;
 import org.vctsi.internal.vcs.VCSDiffSettings;
 import org.vctsi.internal.vcs.VCSModule;
 import org.vctsi.utils.OutputUtil;
@@ -49,6 +50,14 @@ public abstract class ASVNModule extends VCSModule {
     protected String branchRootFolder = "branches";
     protected static final boolean useGitDiffFormat = true;
 
+    /**
+     * @return the revision numbers are stored as numbers by the compact schema
+     */
+    @Override
+    protected VCSCommitIdType getCommitIdType() {
+        return VCSCommitIdType.NUMBER;
+    }
+
     /**
      * Creates a diff between revisions and prints it out. The diff for svn requires two valid revisions else an error
      * message will be printed out
@@ -132,6 +141,7 @@ public abstract class ASVNModule extends VCSModule {
      */
     protected void finish() throws InterruptedException, SQLException {
         sqlModule.get().finishImport();
+        finishBulkImport();
     }
 
     /**
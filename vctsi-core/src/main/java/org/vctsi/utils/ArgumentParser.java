@@ -46,7 +46,10 @@ public class ArgumentParser {
             ERROR_PORT_NOT_A_NUMBER = "ERROR: dbPort is not a number",
             ERROR_ONLY_ONE_TASK = "ERROR: only one task per execution possible",
             ERROR_PARSE_DATETIME = "ERROR: parsing datetime object of ",
-            ERROR_PARSE_INTEGERS = "ERROR: parsing integers of ";
+            ERROR_PARSE_INTEGERS = "ERROR: parsing integers of ",
+            ERROR_NOT_POSITIVE = "ERROR: value has to be greater than 0 for ",
+            ERROR_PARSE_IMPORT_MODE = "ERROR: parsing parameter -vcsImportMode: invalid mode",
+            ERROR_PARSE_OUTPUT_FORMAT = "ERROR: parsing parameter -outputFormat: invalid format";
 
     private Task task;
     private DBSettings dbSettings = new DBSettings();
@@ -60,6 +63,9 @@ public class ArgumentParser {
     private ITSSearchParameters itsSearchParameters = new ITSSearchParameters();
     private Class<? extends ITSModule> itsModule;
 
+    private boolean server = false;
+    private int serverPort = 0;
+
     /**
      * This will parse the given arguments
      *
@@ -82,6 +88,10 @@ public class ArgumentParser {
             }
         }
 
+        if (task == null && server) {
+            //the tasks are passed with the requests to the server
+            return true;
+        }
         if (task == null) {
             OutputUtil.printError(ERROR_NO_TASKS_GIVEN);
             return false;
@@ -119,6 +129,14 @@ public class ArgumentParser {
         return dbSettings;
     }
 
+    public boolean isServer() {
+        return server;
+    }
+
+    public int getServerPort() {
+        return serverPort;
+    }
+
     /**
      * parses an argument and prints an error message if parsing fails
      *
@@ -141,6 +159,12 @@ public class ArgumentParser {
         if (identifier.startsWith("-db")) {
             return parseDB(identifier, value);
         }
+        if (identifier.startsWith("-server")) {
+            return parseServer(identifier, value);
+        }
+        if (identifier.startsWith("-output")) {
+            return parseOutput(identifier, value);
+        }
         if (identifier.startsWith("-searchIssue")) {
             return parseSearchIssue(identifier, value);
         }
@@ -216,6 +240,55 @@ public class ArgumentParser {
             case "-vcsBranchRootFolder":
                 vcsSettings.setBranchRootFolder(value);
                 break;
+            case "-vcsDiffBatchSize":
+                try {
+                    int diffBatchSize = Integer.parseInt(value.trim());
+                    if (diffBatchSize <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    vcsSettings.setDiffBatchSize(diffBatchSize);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            case "-vcsDetectRenames":
+                vcsSettings.setDetectRenames(true);
+                break;
+            case "-vcsCompactSchema":
+                vcsSettings.setCompactSchema(true);
+                break;
+            case "-vcsCommitGraphCachePath":
+                vcsSettings.setCommitGraphCachePath(value);
+                break;
+            case "-vcsImportMode":
+                try {
+                    vcsSettings.setImportMode(VCSSettings.ImportMode.valueOf(value.trim().toUpperCase()));
+                } catch (IllegalArgumentException e) {
+                    return ERROR_PARSE_IMPORT_MODE;
+                }
+                break;
+            case "-vcsBulkConnections":
+                try {
+                    int bulkConnections = Integer.parseInt(value.trim());
+                    if (bulkConnections <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    vcsSettings.setBulkConnections(bulkConnections);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            case "-vcsDiffWriters":
+                try {
+                    int diffWriters = Integer.parseInt(value.trim());
+                    if (diffWriters <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    vcsSettings.setDiffWriters(diffWriters);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
             default:
                 return ERROR_UNKNOWN_IDENTIFIER + key;
         }
@@ -246,6 +319,56 @@ public class ArgumentParser {
             case "-itsOnline":
                 itsSettings.setOnline(true);
                 break;
+            case "-itsOnlyNew":
+                itsSettings.setOnlyNew(true);
+                break;
+            case "-itsFetchConcurrency":
+                try {
+                    int fetchConcurrency = Integer.parseInt(value.trim());
+                    if (fetchConcurrency <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    itsSettings.setFetchConcurrency(fetchConcurrency);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            case "-itsRequestsPerMinute":
+                try {
+                    int requestsPerMinute = Integer.parseInt(value.trim());
+                    if (requestsPerMinute <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    itsSettings.setRequestsPerMinute(requestsPerMinute);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            case "-itsCachePath":
+                itsSettings.setCachePath(value);
+                break;
+            case "-itsCacheSize":
+                try {
+                    int cacheSize = Integer.parseInt(value.trim());
+                    if (cacheSize <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    itsSettings.setCacheSize(cacheSize);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            case "-itsCommentBatchSize":
+                try {
+                    int commentBatchSize = Integer.parseInt(value.trim());
+                    if (commentBatchSize <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    itsSettings.setCommentBatchSize(commentBatchSize);
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
             case "-itsModule":
                 itsModule = ITSModule.availableITSModules.get(value);
                 if (itsModule == null) {
@@ -292,6 +415,63 @@ public class ArgumentParser {
         return null;
     }
 
+    /**
+     * parses the server settings
+     *
+     * @param key   the key of the setting
+     * @param value the value of the setting
+     * @return null if successful; else a error message
+     */
+    private String parseServer(String key, String value) {
+        switch (key) {
+            case "-server":
+                server = true;
+                break;
+            case "-serverPort":
+                try {
+                    serverPort = Integer.parseInt(value.trim());
+                    if (serverPort <= 0) {
+                        return ERROR_NOT_POSITIVE + key;
+                    }
+                    server = true;
+                } catch (NumberFormatException e) {
+                    return ERROR_PARSE_INTEGERS + key;
+                }
+                break;
+            default:
+                return ERROR_UNKNOWN_IDENTIFIER + key;
+        }
+        return null;
+    }
+
+    /**
+     * parses the output settings
+     *
+     * @param key   the key of the setting
+     * @param value the value of the setting
+     * @return null if successful; else a error message
+     */
+    private String parseOutput(String key, String value) {
+        switch (key) {
+            case "-outputFormat":
+                try {
+                    OutputUtil.FORMAT = OutputUtil.OutputFormat.valueOf(value.trim().toUpperCase());
+                } catch (IllegalArgumentException e) {
+                    return ERROR_PARSE_OUTPUT_FORMAT;
+                }
+                break;
+            case "-outputCompact":
+                OutputUtil.PRETTY_PRINT = false;
+                break;
+            case "-outputStream":
+                OutputUtil.STREAM = true;
+                break;
+            default:
+                return ERROR_UNKNOWN_IDENTIFIER + key;
+        }
+        return null;
+    }
+
     /**
      * parses the parameters for an issue search
      *
@@ -355,6 +535,9 @@ public class ArgumentParser {
             case "-searchIssueTitle":
                 itsSearchParameters.setTitle(value);
                 break;
+            case "-searchIssueSkipComments":
+                itsSearchParameters.setSkipComments(true);
+                break;
             default:
                 return ERROR_UNKNOWN_IDENTIFIER + key;
 
@@ -462,6 +645,19 @@ public class ArgumentParser {
             + "   ** -dbUsername (string): sql user" + System.lineSeparator()
             + "   ** -dbPassword (string): sql password" + System.lineSeparator()
             + System.lineSeparator()
+            + "  * settings for server mode: " + System.lineSeparator()
+            + "   ** -server: no value. if set vctsi keeps running and reads requests from stdin; every line contains the" + System.lineSeparator()
+            + "                   arguments of one task (separated by spaces, values containing spaces in double quotes, or as json array)." + System.lineSeparator()
+            + "                   the other arguments passed at start are used as defaults for every request." + System.lineSeparator()
+            + "                   after every request a json object with the requestId and durationMillis is printed. 'exit' stops the server" + System.lineSeparator()
+            + "   ** -serverPort (int): reads the requests from connections to this port on localhost instead of stdin (implies -server)" + System.lineSeparator()
+            + System.lineSeparator()
+            + "  * settings for output: " + System.lineSeparator()
+            + "   ** -outputFormat (string): json (a single json array) or ndjson (one compact json object per line) (default: json)" + System.lineSeparator()
+            + "   ** -outputCompact: no value. if set lists are printed without indentation and line breaks" + System.lineSeparator()
+            + "   ** -outputStream: no value. if set the results of offline searches are printed while they are read from the database" + System.lineSeparator()
+            + "                   instead of being collected first (constant memory usage for large results)" + System.lineSeparator()
+            + System.lineSeparator()
             + "  * settings for vcs module: " + System.lineSeparator()
             + "   ** -vcsProject (string): the project/repo name (will also be used as part of sql table names)" + System.lineSeparator()
             + "   ** -vcsLocalPath (string): local file path at which the files of git, svn, ... are stored (eg. the repository folder)" + System.lineSeparator()
@@ -469,6 +665,15 @@ public class ArgumentParser {
             + "   ** -vcsOnlyNew: no value. if set only new revisions (difference from local and remote) will be imported" + System.lineSeparator()
             + "   ** -vcsNoUpdate: no value. if set the local repo will not be updated. Not combinable with -vcsOnlyNew" + System.lineSeparator()
             + "   ** -vcsBranchRootFolder (string): a folder that contains the roots of the branches" + System.lineSeparator()
+            + "   ** -vcsDiffBatchSize (int): number of commits a worker creates the file changes for at once (git only; default: 100)" + System.lineSeparator()
+            + "   ** -vcsDetectRenames: no value. if set renamed files will be detected while importing file changes (git only; slower)" + System.lineSeparator()
+            + "   ** -vcsImportMode (string): how the data is written to the database: batch (insert statements) or bulk (LOAD DATA / COPY over several connections) (default: batch)" + System.lineSeparator()
+            + "   ** -vcsBulkConnections (int): number of database connections used by the bulk import mode (default: 4)" + System.lineSeparator()
+            + "   ** -vcsCompactSchema: no value. if set a full import stores commit ids in binary form (git) or as numbers (svn)" + System.lineSeparator()
+            + "                   and paths and branch names in dictionary tables (smaller tables and indexes)" + System.lineSeparator()
+            + "   ** -vcsCommitGraphCachePath (string): directory in which the commit graph used by searches with start and end commit" + System.lineSeparator()
+            + "                   is stored, so it is only read from the repository again after a branch changed (git only)" + System.lineSeparator()
+            + "   ** -vcsDiffWriters (int): number of threads with their own database connection that write the file changes (git only; default: 2)" + System.lineSeparator()
             + "   ** -vcsUsername (string): the username to authenticate at the remote repository;" + System.lineSeparator()
             + "                   when using token based authentication (eg. for github) use \"token\" as username" + System.lineSeparator()
             + "   ** -vcsPassword (string): the password or api token to authenticate at the remote repository" + System.lineSeparator()
@@ -482,6 +687,16 @@ public class ArgumentParser {
             + "                   when using token based authentication (eg. for github) use \"token\" as username" + System.lineSeparator()
             + "   ** -itsPassword (string): the password or api token to authenticate at the remote repository" + System.lineSeparator()
             + "   ** -itsOnline: no value. if set the searches will be executed online. if not on the local database" + System.lineSeparator()
+            + "   ** -itsOnlyNew: no value. if set only issues that were changed since the last import will be imported and updated" + System.lineSeparator()
+            + "   ** -itsFetchConcurrency (int): maximum number of comment requests that are sent concurrently to the ticket system." + System.lineSeparator()
+            + "                   if set the comments are retrieved as asynchronous tasks instead of by the worker threads (github, gitlab, bugzilla)" + System.lineSeparator()
+            + "   ** -itsRequestsPerMinute (int): number of requests per minute that are sent to the ticket system till it reports" + System.lineSeparator()
+            + "                   its actual limit (default: github 83, others 600)" + System.lineSeparator()
+            + "   ** -itsCachePath (string): directory of a cache for the responses of the ticket system. unchanged pages are" + System.lineSeparator()
+            + "                   revalidated with conditional requests and read from the cache (github, gitlab)" + System.lineSeparator()
+            + "   ** -itsCacheSize (int): maximum size of the response cache in megabytes (default: 100)" + System.lineSeparator()
+            + "   ** -itsCommentBatchSize (int): number of issues whose comments are requested with a single request." + System.lineSeparator()
+            + "                   1 requests the comments of every issue on its own (bugzilla, default: 100)" + System.lineSeparator()
             + "   ** -itsModule (string): the module that should be used for ticket system" + System.lineSeparator()
             + "                   The following its modules are available:" + System.lineSeparator();
     static final String helpTextPart3 = System.lineSeparator()
@@ -489,8 +704,9 @@ public class ArgumentParser {
             + "The following defines the task to be executed. Only one task can be executed at a time"
             + "  * search a commits: " + System.lineSeparator()
             + "   ** -searchCommitBranch (string): branch from which commits shall be retrieved" + System.lineSeparator()
-            + "   ** -searchCommitFile (string): commits that changes the file " + System.lineSeparator()
-            + "   ** -searchCommitEndCommit (string): till which commit they should be retrieved (startCommit have to be set)" + System.lineSeparator()
+            + "   ** -searchCommitFile (string): commits that changes the file or a file in the directory" + System.lineSeparator()
+            + "   ** -searchCommitEndCommit (string): till which commit they should be retrieved (startCommit have to be set);" + System.lineSeparator()
+            + "                            for git the ancestors of the end commit that are no ancestors of the start commit (like git log start..end)" + System.lineSeparator()
             + "   ** -searchCommitEndDate (date): till which date the commits shall be retrieved (requires startDate);" + System.lineSeparator()
             + "                            if not set the current date will be used" + System.lineSeparator()
             + "   ** -searchCommitStartCommit (string): from which commit on they shall be retrieved" + System.lineSeparator()
@@ -512,6 +728,7 @@ public class ArgumentParser {
             + "   ** -searchIssueState (string): the state of the issue (standardisiert: NEW,ASSIGNED,SOLVED,REOPENED,UNCONFIRMED,VERIFIED,RESOLVED)" + System.lineSeparator()
             + "   ** -searchIssueTargetVersion (string): assinged targetVersion alias milestone" + System.lineSeparator()
             + "   ** -searchIssueTitle (string): title of issue" + System.lineSeparator()
+            + "   ** -searchIssueSkipComments: no value. if set the comments of the found issues are not loaded (only offline search)" + System.lineSeparator()
             + System.lineSeparator()
             + "  * get diff between two revisions" + System.lineSeparator()
             + "   ** -getDiffsCommit1 (string): first revision (id (svn) or hash (git))" + System.lineSeparator()
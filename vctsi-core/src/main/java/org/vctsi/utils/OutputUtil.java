@@ -27,12 +27,18 @@ import com.fasterxml.jackson.core.JsonProcessingException;
 import com.fasterxml.jackson.core.Version;
 import com.fasterxml.jackson.databind.JsonSerializer;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
 import com.fasterxml.jackson.databind.SerializerProvider;
 import com.fasterxml.jackson.databind.module.SimpleModule;
 import org.joda.time.DateTime;
 import org.joda.time.format.ISODateTimeFormat;
 
+import java.io.BufferedOutputStream;
+import java.io.Closeable;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.time.format.DateTimeFormatter;
@@ -41,7 +47,24 @@ import java.util.List;
 
 public class OutputUtil {
 
+    /**
+     * the formats in which lists can be printed
+     */
+    public enum OutputFormat {
+        //a single json array
+        JSON,
+        //one compact json object per line
+        NDJSON
+    }
+
     public static boolean DEBUG = false;
+    //if false lists are printed without indentation and line breaks
+    public static boolean PRETTY_PRINT = true;
+    //if true search results are written while they are read from the database instead of collecting them first
+    public static boolean STREAM = false;
+    public static OutputFormat FORMAT = OutputFormat.JSON;
+
+    private static final int OUTPUT_BUFFER_SIZE = 64 * 1024;
 
     private static ObjectMapper mapper;
 
@@ -96,19 +119,57 @@ public class OutputUtil {
     }
 
     /**
-     * prints a list of objects as json
+     * prints a list of objects as json array or as one json object per line depending on FORMAT
      *
      * @param objectList the list of objects to be printed
      * @param <T>        the object type
      */
     public static <T> void printObjectList(List<T> objectList) {
+        try (ObjectListWriter writer = startObjectList()) {
+            for (T value : objectList) {
+                writer.write(value);
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("unhandled exception while printing output", e);
+        }
+    }
+
+    /**
+     * starts printing a list of objects in the format set in FORMAT. The objects are written to stdout one by one when
+     * they are passed to the returned writer so the list never has to be held in memory. The list is completed by
+     * closing the writer.
+     *
+     * @return a writer for the objects of the list
+     * @throws IOException if the output could not be written
+     */
+    public static ObjectListWriter startObjectList() throws IOException {
+        return new ObjectListWriter(System.out);
+    }
+
+    /**
+     * prints the id and the duration of a request handled by the server mode. It marks the end of the output of the
+     * request.
+     *
+     * @param requestId      the number of the request
+     * @param durationMillis the time in milliseconds the request took
+     */
+    public static void printRequestSummary(int requestId, long durationMillis) {
         try {
-            System.out.println(mapper.writerWithDefaultPrettyPrinter().writeValueAsString(objectList));
+            System.out.println(mapper.writeValueAsString(new JSONRequestSummary(requestId, durationMillis)));
         } catch (JsonProcessingException e) {
             throw new RuntimeException("unhandled exception while printing output", e);
         }
     }
 
+    /**
+     * resets the output settings that can be changed by arguments to their defaults
+     */
+    public static void resetSettings() {
+        PRETTY_PRINT = true;
+        STREAM = false;
+        FORMAT = OutputFormat.JSON;
+    }
+
     /**
      * prints debug messages as plain text if debugging is enabled
      *
@@ -142,6 +203,74 @@ public class OutputUtil {
         return mapper.writeValueAsString(new JSONInfo(infoMessage));
     }
 
+    /**
+     * writes the objects of a json list directly to an output stream. In the NDJSON format every object is written
+     * compact in its own line and no enclosing array is written.
+     */
+    public static class ObjectListWriter implements Closeable {
+        private final OutputStream out;
+        private final JsonGenerator generator;
+        private final ObjectWriter writer;
+        private final boolean lineDelimited;
+
+        private ObjectListWriter(OutputStream target) throws IOException {
+            out = new BufferedOutputStream(target, OUTPUT_BUFFER_SIZE);
+            lineDelimited = FORMAT == OutputFormat.NDJSON;
+            generator = mapper.getFactory().createGenerator(out);
+            //the target stream (usually stdout) must stay open
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            if (lineDelimited) {
+                //the objects are separated by line breaks instead of spaces
+                generator.setRootValueSeparator(null);
+            } else {
+                if (PRETTY_PRINT) {
+                    generator.useDefaultPrettyPrinter();
+                }
+                generator.writeStartArray();
+            }
+        }
+
+        /**
+         * writes the next object of the list
+         *
+         * @param value the object to be written
+         * @throws IOException if the object could not be serialized or written
+         */
+        public void write(Object value) throws IOException {
+            writer.writeValue(generator, value);
+            if (lineDelimited) {
+                generator.writeRaw('\n');
+            }
+        }
+
+        /**
+         * writes all objects written so far to the output so consumers can process them before the list is complete
+         *
+         * @throws IOException if the output could not be written
+         */
+        public void flush() throws IOException {
+            generator.flush();
+        }
+
+        /**
+         * ends the list and flushes the output
+         *
+         * @throws IOException if the output could not be written
+         */
+        @Override
+        public void close() throws IOException {
+            if (!lineDelimited) {
+                generator.writeEndArray();
+            }
+            generator.close();
+            if (!lineDelimited) {
+                out.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+            }
+            out.flush();
+        }
+    }
+
     /**
      * an object representing an error message in json
      */
@@ -163,4 +292,17 @@ public class OutputUtil {
             this.infoMessage = infoMessage;
         }
     }
+
+    /**
+     * an object representing the end of a request of the server mode in json
+     */
+    private static class JSONRequestSummary {
+        public int requestId;
+        public long durationMillis;
+
+        public JSONRequestSummary(int requestId, long durationMillis) {
+            this.requestId = requestId;
+            this.durationMillis = durationMillis;
+        }
+    }
 }
@@ -0,0 +1,91 @@
+package org.vctsi;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import org.junit.Test;
+import org.vctsi.debug.its.ITSTestModule;
+import org.vctsi.utils.OutputUtil;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class ServerTest extends VctsiTest {
+
+    @Test
+    public void testSplitArguments() throws IOException {
+        assertArrayEquals(new String[]{"-searchCommitAuthor=abc", "-searchCommitMessage=fix the bug"},
+                Server.splitArguments("-searchCommitAuthor=abc  \"-searchCommitMessage=fix the bug\""));
+        assertArrayEquals(new String[]{"-searchCommitMessage=fix the bug", "-vcsModule=git"},
+                Server.splitArguments("-searchCommitMessage=\"fix the bug\" -vcsModule=git"));
+        assertArrayEquals(new String[]{"-searchCommitMessage=fix \"the\" bug"},
+                Server.splitArguments("[\"-searchCommitMessage=fix \\\"the\\\" bug\"]"));
+        assertArrayEquals(new String[]{}, Server.splitArguments(""));
+    }
+
+    @Test
+    public void testServeRequests() throws IOException {
+        Server server = new Server(new String[]{"-server", "-itsModule=ITSTestModule", "-itsProject=test"}, 0);
+        boolean result = server.serve(new BufferedReader(new StringReader(
+                "-importIssues" + System.lineSeparator()
+                        + System.lineSeparator()
+                        + "[\"-getIssue=5\", \"-itsOnline\"]" + System.lineSeparator()
+        )));
+        assertTrue(result);
+        assertEquals("", errContent.toString());
+        String[] lines = outContent.toString().split(System.lineSeparator());
+        assertEquals(OutputUtil.getInfoMessageAsJsonString(ITSTestModule.importMessage), lines[0]);
+        assertEquals(OutputUtil.getInfoMessageAsJsonString("Import success"), lines[1]);
+        assertTrue(lines[2].startsWith("{\"requestId\":1,\"durationMillis\":"));
+        assertEquals(OutputUtil.getInfoMessageAsJsonString(ITSTestModule.onlineIssue + 5), lines[3]);
+        assertEquals("[ ]", lines[4]);
+        assertTrue(lines[5].startsWith("{\"requestId\":2,\"durationMillis\":"));
+        assertEquals(6, lines.length);
+    }
+
+    @Test
+    public void testServeExit() throws IOException {
+        Server server = new Server(new String[]{"-server"}, 0);
+        assertFalse(server.serve(new BufferedReader(new StringReader(
+                "-blabla" + System.lineSeparator()
+                        + Server.EXIT + System.lineSeparator()
+                        + "-importIssues" + System.lineSeparator()
+        ))));
+        assertTrue(errContent.toString().contains("-blabla"));
+        assertTrue(outContent.toString().startsWith("{\"requestId\":1,\"durationMillis\":"));
+        assertEquals(1, outContent.toString().split(System.lineSeparator()).length);
+    }
+
+    @Test
+    public void testServerInRequest() throws JsonProcessingException, IOException {
+        Server server = new Server(new String[]{"-server"}, 0);
+        assertTrue(server.serve(new BufferedReader(new StringReader("-server -importIssues"))));
+        assertEquals(OutputUtil.getErrorMessageAsJsonString(Server.ERROR_SERVER_IN_REQUEST) + System.lineSeparator(), errContent.toString());
+    }
+}
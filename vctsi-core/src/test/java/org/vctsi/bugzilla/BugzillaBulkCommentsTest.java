@@ -0,0 +1,116 @@
+package org.vctsi.bugzilla;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.j2bugzilla.base.Bug;
+import com.j2bugzilla.base.BugFactory;
+import com.j2bugzilla.base.Comment;
+import org.junit.Test;
+
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class BugzillaBulkCommentsTest {
+
+    private static Bug createBug(int id) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("id", id);
+        properties.put("product", "product");
+        properties.put("component", "component");
+        properties.put("summary", "bug " + id);
+        properties.put("version", "1.0");
+        return new BugFactory().createBug(properties);
+    }
+
+    private static Map<Object, Object> createComment(int id, String text, String creatorKey, String creator,
+                                                     String timeKey, Date time) {
+        Map<Object, Object> comment = new HashMap<>();
+        comment.put("id", id);
+        comment.put("text", text);
+        comment.put(creatorKey, creator);
+        comment.put(timeKey, time);
+        return comment;
+    }
+
+    /**
+     * bug 1 has comments of a current bugzilla and of an older one that returns author and time, bug 2 is missing
+     * in the response and bug 3 has no comments
+     */
+    private static Map<Object, Object> createResult(Date first, Date second) {
+        Map<Object, Object> bugs = new HashMap<>();
+        Map<Object, Object> bug1 = new HashMap<>();
+        bug1.put("comments", new Object[]{
+                createComment(5, "first", "creator", "alice", "creation_time", first),
+                createComment(3, "second", "author", "bob", "time", second)
+        });
+        bugs.put("1", bug1);
+        Map<Object, Object> bug3 = new HashMap<>();
+        bug3.put("comments", new Object[0]);
+        bugs.put("3", bug3);
+        Map<Object, Object> result = new HashMap<>();
+        result.put("bugs", bugs);
+        return result;
+    }
+
+    @Test
+    public void testParameters() {
+        BugzillaBulkComments method = new BugzillaBulkComments(Arrays.asList(createBug(3), createBug(1), createBug(2)));
+        assertEquals("Bug.comments", method.getMethodName());
+        assertArrayEquals(new Object[]{3, 1, 2}, (Object[]) method.getParameterMap().get("ids"));
+    }
+
+    @Test
+    public void testGetComments() {
+        Date first = new Date(1000);
+        Date second = new Date(2000);
+        List<Bug> bugs = Arrays.asList(createBug(1), createBug(2), createBug(3));
+        BugzillaBulkComments method = new BugzillaBulkComments(bugs);
+        method.setResultMap(createResult(first, second));
+
+        List<Comment> comments = method.getComments(bugs.get(0));
+        //the comments keep the order of the response
+        assertEquals(2, comments.size());
+        assertEquals(5, comments.get(0).getID());
+        assertEquals("first", comments.get(0).getText());
+        assertEquals("alice", comments.get(0).getCreator());
+        assertEquals(first, comments.get(0).getCreationTime());
+        //older versions return author and time
+        assertEquals(3, comments.get(1).getID());
+        assertEquals("second", comments.get(1).getText());
+        assertEquals("bob", comments.get(1).getCreator());
+        assertEquals(second, comments.get(1).getCreationTime());
+
+        assertTrue(method.getComments(bugs.get(1)).isEmpty());
+        assertTrue(method.getComments(bugs.get(2)).isEmpty());
+    }
+
+    @Test
+    public void testGetCommentsWithoutResult() {
+        Bug bug = createBug(1);
+        BugzillaBulkComments method = new BugzillaBulkComments(Collections.singletonList(bug));
+        assertTrue(method.getComments(bug).isEmpty());
+        method.setResultMap(new HashMap<>());
+        assertTrue(method.getComments(bug).isEmpty());
+    }
+}
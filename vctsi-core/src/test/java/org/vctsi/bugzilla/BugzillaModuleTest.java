@@ -113,4 +113,29 @@ public class BugzillaModuleTest extends VctsiTest {
         assertTrue(errContent.size() == 0);
         assertTrue(outContent.size() == 0);
     }
+
+    /**
+     * compares the import time of a bugzilla project when the comments of every bug are requested on their own with
+     * requesting the comments of many bugs at once
+     */
+    //@Test
+    public void benchmarkCommentBatchSize() {
+        String result = "";
+        for (int commentBatchSize : new int[]{1, 100}) {
+            ITSSettings settings = new ITSSettings();
+            settings.setPath("https://bugzilla.mozilla.org/");
+            settings.setProject("Rhino");
+            settings.setCommentBatchSize(commentBatchSize);
+            BugzillaModule module = new BugzillaModule();
+            module.setSettings(settings);
+            module.setDBSettings(dbSettings);
+
+            long start = System.currentTimeMillis();
+            assertTrue(module.importIssues());
+            result += "commentBatchSize " + commentBatchSize + ": " + (System.currentTimeMillis() - start) + " ms" + System.lineSeparator();
+        }
+        assertEquals("", errContent.toString());
+        printOutput = true;
+        System.out.print(result);
+    }
 }
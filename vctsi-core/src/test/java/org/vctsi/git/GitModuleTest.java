@@ -23,7 +23,14 @@ package org.vctsi.git;
  */
 
 import com.fasterxml.jackson.core.JsonProcessingException;
+import org.eclipse.jgit.api.Git;
+import org.eclipse.jgit.api.MergeCommand;
+import org.eclipse.jgit.lib.ObjectId;
+import org.eclipse.jgit.lib.Ref;
+import org.eclipse.jgit.revwalk.RevCommit;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 import org.vctsi.VctsiTest;
 import org.vctsi.internal.DBSettings;
 import org.vctsi.internal.tasks.GetDiffsTask;
@@ -33,6 +40,11 @@ import org.vctsi.internal.vcs.VCSModule;
 import org.vctsi.internal.vcs.VCSSettings;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
 import static org.vctsi.TestParameters.*;
@@ -41,6 +53,108 @@ public class GitModuleTest extends VctsiTest {
 
     private DBSettings dbSettings = new DBSettings(DB_SERVER, DB_PORT, DB_DB, DB_USER, DB_PASSWORD);
 
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * records the branches the commits of a walk are assigned to
+     */
+    private static class BranchRecorder implements GitModule.BranchWalkHandler {
+        private final List<String> newCommits = new ArrayList<>();
+        private final Map<String, Set<String>> branches = new HashMap<>();
+
+        @Override
+        public void newCommit(RevCommit commit, List<String> commitBranches) {
+            newCommits.add(commit.getName());
+            assertTrue(branches.put(commit.getName(), new HashSet<>(commitBranches)) == null);
+        }
+
+        @Override
+        public void oldCommit(RevCommit commit, String branch) {
+            assertTrue(branches.computeIfAbsent(commit.getName(), k -> new HashSet<>()).add(branch));
+        }
+    }
+
+    private static RevCommit commit(Git git, String name) throws Exception {
+        Files.write(new File(git.getRepository().getWorkTree(), name).toPath(), name.getBytes(StandardCharsets.UTF_8));
+        git.add().addFilepattern(name).call();
+        return git.commit().setMessage(name).call();
+    }
+
+    private static Map<String, ObjectId> getBranchHeads(Git git) throws Exception {
+        Map<String, ObjectId> heads = new LinkedHashMap<>();
+        for (Ref branch : git.branchList().call()) {
+            heads.put(branch.getName(), branch.getObjectId());
+        }
+        return heads;
+    }
+
+    private static Set<String> branches(String... names) {
+        Set<String> branches = new HashSet<>();
+        for (String name : names) {
+            branches.add("refs/heads/" + name);
+        }
+        return branches;
+    }
+
+    /**
+     * walks the branches of a full import of
+     * a - b - c (master)
+     *      \
+     *       d (feature)
+     * and of an import of new commits after feature was merged into master with the merge commit m, the new branch
+     * topic was created from c with the commit e and the new branch release was created at b
+     */
+    @Test
+    public void testWalkBranches() throws Exception {
+        try (Git git = Git.init().setDirectory(folder.getRoot()).call()) {
+            RevCommit a = commit(git, "a");
+            RevCommit b = commit(git, "b");
+            RevCommit c = commit(git, "c");
+            git.checkout().setCreateBranch(true).setName("feature").setStartPoint(b).call();
+            RevCommit d = commit(git, "d");
+
+            Map<String, ObjectId> importedHeads = getBranchHeads(git);
+            BranchRecorder full = new BranchRecorder();
+            GitModule.walkBranches(git.getRepository(), importedHeads, Collections.emptyMap(), full);
+            assertEquals(4, full.newCommits.size());
+            assertEquals(branches("master", "feature"), full.branches.get(a.getName()));
+            assertEquals(branches("master", "feature"), full.branches.get(b.getName()));
+            assertEquals(branches("master"), full.branches.get(c.getName()));
+            assertEquals(branches("feature"), full.branches.get(d.getName()));
+            //children are walked before their parents
+            assertTrue(full.newCommits.indexOf(c.getName()) < full.newCommits.indexOf(b.getName()));
+            assertTrue(full.newCommits.indexOf(d.getName()) < full.newCommits.indexOf(b.getName()));
+            assertTrue(full.newCommits.indexOf(b.getName()) < full.newCommits.indexOf(a.getName()));
+
+            git.checkout().setName("master").call();
+            ObjectId m = git.merge().include(d).setFastForward(MergeCommand.FastForwardMode.NO_FF).setMessage("m").call().getNewHead();
+            git.checkout().setCreateBranch(true).setName("topic").setStartPoint(c).call();
+            RevCommit e = commit(git, "e");
+            git.branchCreate().setName("release").setStartPoint(b).call();
+
+            //only the changed branches are walked, like by importNewCommits
+            Map<String, ObjectId> changedBranches = new LinkedHashMap<>();
+            for (Map.Entry<String, ObjectId> head : getBranchHeads(git).entrySet()) {
+                if (!head.getValue().equals(importedHeads.get(head.getKey()))) {
+                    changedBranches.put(head.getKey(), head.getValue());
+                }
+            }
+            assertEquals(branches("master", "topic", "release"), changedBranches.keySet());
+            BranchRecorder incremental = new BranchRecorder();
+            GitModule.walkBranches(git.getRepository(), changedBranches, importedHeads, incremental);
+            assertEquals(new HashSet<>(Arrays.asList(m.getName(), e.getName())), new HashSet<>(incremental.newCommits));
+            assertEquals(branches("master"), incremental.branches.get(m.getName()));
+            assertEquals(branches("topic"), incremental.branches.get(e.getName()));
+            //the old commits are added to the branches they became part of
+            assertEquals(branches("master"), incremental.branches.get(d.getName()));
+            assertEquals(branches("topic"), incremental.branches.get(c.getName()));
+            assertEquals(branches("topic", "release"), incremental.branches.get(b.getName()));
+            assertEquals(branches("topic", "release"), incremental.branches.get(a.getName()));
+            assertEquals(6, incremental.branches.size());
+        }
+    }
+
    // @Test
     public void testImportBootstrap() throws JsonProcessingException {
         GitModule module = new GitModule();
@@ -103,6 +217,64 @@ public class GitModuleTest extends VctsiTest {
         assertEquals(outContent.toString(), OutputUtil.getInfoMessageAsJsonString(VCSModule.IMPORT_SUCCESS) + System.lineSeparator());
     }
 
+    /**
+     * compares the import speed of the bootstrap repository when every commit is diffed on its own with the batched
+     * diff creation. Expects GIT_BOOTSTRAP_PATH to be a clone of https://github.com/twbs/bootstrap
+     */
+    //@Test
+    public void benchmarkDiffBatchSize() throws Exception {
+        int commitCount = 0;
+        try (Git git = Git.open(new File(GIT_BOOTSTRAP_PATH))) {
+            for (RevCommit ignored : git.log().all().call()) {
+                commitCount++;
+            }
+        }
+        String result = "";
+        for (int diffBatchSize : new int[]{1, 10, 100, 500}) {
+            GitModule module = new GitModule();
+            VCSSettings vcsSettings = new VCSSettings();
+            vcsSettings.setProject("bootstrap");
+            vcsSettings.setLocalPath(GIT_BOOTSTRAP_PATH);
+            vcsSettings.setDiffBatchSize(diffBatchSize);
+            module.setSettings(vcsSettings);
+            module.setDBSettings(dbSettings);
+
+            long start = System.currentTimeMillis();
+            assertTrue(module.importCommits(true));
+            long duration = System.currentTimeMillis() - start;
+            result += "diffBatchSize " + diffBatchSize + ": " + duration + " ms, "
+                    + (commitCount * 1000L / Math.max(duration, 1)) + " commits/s" + System.lineSeparator();
+        }
+        assertEquals("", errContent.toString());
+        printOutput = true;
+        System.out.print(result);
+    }
+
+    /**
+     * compares the import time of the bootstrap repository with batched insert statements and with the bulk loader.
+     * Expects GIT_BOOTSTRAP_PATH to be a clone of https://github.com/twbs/bootstrap
+     */
+    //@Test
+    public void benchmarkImportMode() throws Exception {
+        String result = "";
+        for (VCSSettings.ImportMode importMode : VCSSettings.ImportMode.values()) {
+            GitModule module = new GitModule();
+            VCSSettings vcsSettings = new VCSSettings();
+            vcsSettings.setProject("bootstrap");
+            vcsSettings.setLocalPath(GIT_BOOTSTRAP_PATH);
+            vcsSettings.setImportMode(importMode);
+            module.setSettings(vcsSettings);
+            module.setDBSettings(dbSettings);
+
+            long start = System.currentTimeMillis();
+            assertTrue(module.importCommits(true));
+            result += importMode + ": " + (System.currentTimeMillis() - start) + " ms" + System.lineSeparator();
+        }
+        assertEquals("", errContent.toString());
+        printOutput = true;
+        System.out.print(result);
+    }
+
    // @Test
     public void testDiff() {
         GitModule module = new GitModule();
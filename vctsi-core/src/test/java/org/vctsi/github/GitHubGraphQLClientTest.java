@@ -0,0 +1,198 @@
+package org.vctsi.github;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+import org.vctsi.internal.its.IssueState;
+import org.vctsi.internal.its.RateLimiter;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+/**
+ * tests the graphql client against a local http server that answers like the github api
+ */
+public class GitHubGraphQLClientTest {
+
+    private static final String issuesPage1 = "{\"data\": {\"repository\": {\"issues\": {"
+            + "\"pageInfo\": {\"hasNextPage\": true, \"endCursor\": \"p1\"},"
+            + "\"nodes\": [{\"id\": \"I1\", \"number\": 1, \"title\": \"first\", \"body\": \"body1\", \"state\": \"OPEN\","
+            + "\"createdAt\": \"2017-01-01T10:00:00Z\", \"updatedAt\": \"2017-01-02T10:00:00Z\", \"closedAt\": null,"
+            + "\"author\": {\"login\": \"octocat\", \"name\": \"The Octocat\"},"
+            + "\"assignees\": {\"nodes\": [{\"login\": \"hubot\", \"name\": null}]},"
+            + "\"milestone\": {\"title\": \"v1\"}, \"labels\": {\"nodes\": [{\"name\": \"bug\"}]},"
+            + "\"comments\": {\"pageInfo\": {\"hasNextPage\": true, \"endCursor\": \"c1\"}, \"nodes\": ["
+            + "{\"databaseId\": 10, \"body\": \"comment10\", \"createdAt\": \"2017-01-01T11:00:00Z\", \"author\": {\"login\": \"hubot\"}},"
+            + "{\"databaseId\": 11, \"body\": \"comment11\", \"createdAt\": \"2017-01-01T12:00:00Z\", \"author\": null}]}"
+            + "}]}}, \"rateLimit\": {\"cost\": 1, \"remaining\": 4999, \"resetAt\": \"%s\"}}}";
+    private static final String issuesPage2 = "{\"data\": {\"repository\": {\"issues\": {"
+            + "\"pageInfo\": {\"hasNextPage\": false, \"endCursor\": \"p2\"},"
+            + "\"nodes\": [{\"id\": \"I2\", \"number\": 2, \"title\": \"second\", \"body\": \"\", \"state\": \"CLOSED\","
+            + "\"createdAt\": \"2017-02-01T10:00:00Z\", \"updatedAt\": \"2017-02-02T10:00:00Z\", \"closedAt\": \"2017-02-02T10:00:00Z\","
+            + "\"author\": {\"login\": \"octocat\", \"name\": \"\"}, \"assignees\": {\"nodes\": []}, \"milestone\": null,"
+            + "\"labels\": {\"nodes\": []}, \"comments\": {\"pageInfo\": {\"hasNextPage\": false, \"endCursor\": null}, \"nodes\": []}"
+            + "}]}}}}";
+    private static final String comments = "{\"data\": {\"node\": {\"comments\": {"
+            + "\"pageInfo\": {\"hasNextPage\": false, \"endCursor\": \"c2\"}, \"nodes\": ["
+            + "{\"databaseId\": 12, \"body\": \"comment12\", \"createdAt\": \"2017-01-01T13:00:00Z\", \"author\": {\"login\": \"octocat\"}}"
+            + "]}}}}";
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final List<JsonNode> requests = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger rejectedRequests = new AtomicInteger();
+    private HttpServer server;
+    private GitHubGraphQLClient client;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/graphql", this::handle);
+        server.start();
+        client = new GitHubGraphQLClient(
+                GitHubGraphQLClient.getEndpoint("http://localhost:" + server.getAddress().getPort()),
+                "bearer secret",
+                RateLimiter.forTracker("GitHubGraphQLClientTest", 1000, 1000, 4)
+        );
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        JsonNode request = mapper.readTree(exchange.getRequestBody());
+        requests.add(request);
+        String response;
+        int status = 200;
+        if (!"bearer secret".equals(exchange.getRequestHeaders().getFirst("Authorization"))) {
+            status = 401;
+            response = "{}";
+        } else if (rejectedRequests.getAndDecrement() > 0) {
+            status = 429;
+            response = "{}";
+        } else if (request.path("query").asText().contains("repository(")) {
+            response = request.path("variables").path("after").isNull()
+                    ? String.format(issuesPage1, Instant.now().plus(1, ChronoUnit.HOURS))
+                    : issuesPage2;
+        } else {
+            response = comments;
+        }
+        byte[] body = response.getBytes(StandardCharsets.UTF_8);
+        exchange.sendResponseHeaders(status, body.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(body);
+        }
+    }
+
+    @Test
+    public void testGetEndpoint() {
+        assertEquals("https://api.github.com/graphql", GitHubGraphQLClient.getEndpoint(null));
+        assertEquals("https://github.example.com/api/graphql", GitHubGraphQLClient.getEndpoint("https://github.example.com/api/v3/"));
+        assertEquals("http://localhost:8080/graphql", GitHubGraphQLClient.getEndpoint("http://localhost:8080"));
+    }
+
+    @Test
+    public void testGetIssuePages() throws Exception {
+        GitHubGraphQLClient.IssuePage page = client.getIssues("octo", "repo", null, null);
+        assertEquals("p1", page.getNextCursor());
+        assertEquals(1, page.getIssues().size());
+        GitHubGraphQLIssue issue = page.getIssues().get(0);
+        assertEquals("I1", issue.getNodeId());
+        assertEquals(2, issue.getComments().size());
+        assertEquals("c1", issue.getCommentsCursor());
+
+        GitHubGraphQLIssueConverter issueConverter = new GitHubGraphQLIssueConverter();
+        assertEquals(1, issueConverter.getTicketId(issue));
+        assertEquals("The Octocat", issueConverter.getAuthor(issue));
+        assertEquals("hubot", issueConverter.getAssignee(issue));
+        assertEquals("v1", issueConverter.getTargetVersion(issue));
+        assertEquals(IssueState.ASSIGNED.toString(), issueConverter.getState(issue));
+        assertEquals(1483351200000L, issueConverter.getUpdateDate(issue).getTime());
+
+        page = client.getIssues("octo", "repo", null, page.getNextCursor());
+        assertNull(page.getNextCursor());
+        issue = page.getIssues().get(0);
+        assertEquals(IssueState.SOLVED.toString(), issueConverter.getState(issue));
+        assertEquals("octocat", issueConverter.getAuthor(issue));
+        assertNull(issue.getCommentsCursor());
+        assertEquals("p1", requests.get(1).path("variables").path("after").asText());
+    }
+
+    @Test
+    public void testGetCommentsFromCursor() throws Exception {
+        GitHubGraphQLIssue issue = client.getIssues("octo", "repo", null, null).getIssues().get(0);
+        List<GitHubGraphQLComment> issueComments = client.getComments(issue);
+        assertEquals(3, issueComments.size());
+        assertEquals(12, issueComments.get(2).getId());
+        assertNull(issueComments.get(1).getAuthor());
+        //the issue page and one request for the comments that were not returned with the issue
+        assertEquals(2, requests.size());
+        assertEquals("I1", requests.get(1).path("variables").path("id").asText());
+        assertEquals("c1", requests.get(1).path("variables").path("after").asText());
+
+        GitHubGraphQLCommentConverter commentConverter = new GitHubGraphQLCommentConverter();
+        assertEquals(1, commentConverter.getTicketId(issueComments.get(2), issue));
+        assertEquals("comment12", commentConverter.getDescription(issueComments.get(2), issue));
+    }
+
+    @Test
+    public void testRetryRateLimitedRequest() throws Exception {
+        rejectedRequests.set(1);
+        assertEquals(1, client.getIssues("octo", "repo", null, null).getIssues().size());
+        assertEquals(2, requests.size());
+    }
+
+    @Test
+    public void testInvalidCredentials() throws Exception {
+        GitHubGraphQLClient anonymous = new GitHubGraphQLClient(
+                GitHubGraphQLClient.getEndpoint("http://localhost:" + server.getAddress().getPort()),
+                null,
+                RateLimiter.forTracker("GitHubGraphQLClientTest", 1000, 1000, 4)
+        );
+        try {
+            anonymous.getIssues("octo", "repo", null, null);
+            fail();
+        } catch (IOException e) {
+            assertEquals("Invalid GitHub credentials", e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package org.vctsi.internal;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+import org.junit.AfterClass;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import java.lang.reflect.Proxy;
+import java.sql.Connection;
+import java.sql.Driver;
+import java.sql.DriverManager;
+import java.sql.DriverPropertyInfo;
+import java.sql.SQLException;
+import java.sql.SQLFeatureNotSupportedException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Properties;
+import java.util.logging.Logger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class SqlConnectionPoolTest {
+
+    private static final StubDriver driver = new StubDriver();
+
+    @BeforeClass
+    public static void registerDriver() throws SQLException {
+        DriverManager.registerDriver(driver);
+    }
+
+    @AfterClass
+    public static void deregisterDriver() throws SQLException {
+        SqlConnectionPool.closeAll();
+        DriverManager.deregisterDriver(driver);
+    }
+
+    private DBSettings createSettings(String db) {
+        return new DBSettings("vctsistub", 1, db, "user", "password");
+    }
+
+    @Test
+    public void testConnectionIsReused() throws SQLException {
+        SqlConnectionPool pool = SqlConnectionPool.get(createSettings("reuse"));
+        assertSame(pool, SqlConnectionPool.get(createSettings("reuse")));
+        assertNotSame(pool, SqlConnectionPool.getWithLocalInfile(createSettings("reuse")));
+
+        Connection connection = pool.getConnection();
+        Connection physical = connection.unwrap(Connection.class);
+        connection.close();
+        assertTrue(connection.isClosed());
+        assertFalse(physical.isClosed());
+
+        Connection second = pool.getConnection();
+        assertSame(physical, second.unwrap(Connection.class));
+        assertFalse(second.getAutoCommit());
+        second.close();
+        assertTrue(pool.getMetrics().contains("1 connections created, 2 borrowed"));
+    }
+
+    @Test
+    public void testReleaseClosesStatementsAndRollsBack() throws SQLException {
+        SqlConnectionPool pool = SqlConnectionPool.get(createSettings("release"));
+        Connection connection = pool.getConnection();
+        Statement statement = connection.createStatement();
+        StubConnection physical = driver.connections.get(driver.connections.size() - 1);
+        connection.close();
+        assertTrue(statement.isClosed());
+        assertEquals(1, physical.rollbacks);
+        try {
+            connection.createStatement();
+            fail("a returned connection must not be usable");
+        } catch (SQLException e) {
+            //expected
+        }
+    }
+
+    @Test
+    public void testParallelConnections() throws SQLException {
+        SqlConnectionPool pool = SqlConnectionPool.get(createSettings("parallel"));
+        pool.ensureCapacity(12);
+        List<Connection> connections = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            connections.add(pool.getConnection());
+        }
+        for (Connection connection : connections) {
+            connection.close();
+        }
+        assertTrue(pool.getMetrics().contains("12 used at most in parallel (max size 12), 0 waits"));
+    }
+
+    /**
+     * a jdbc driver for urls starting with jdbc:vctsistub whose connections only count statements and rollbacks
+     */
+    private static class StubDriver implements Driver {
+        private final List<StubConnection> connections = new ArrayList<>();
+
+        @Override
+        public Connection connect(String url, Properties info) throws SQLException {
+            if (!acceptsURL(url)) {
+                return null;
+            }
+            StubConnection connection = new StubConnection();
+            connections.add(connection);
+            return connection.proxy;
+        }
+
+        @Override
+        public boolean acceptsURL(String url) {
+            return url.startsWith("jdbc:vctsistub:");
+        }
+
+        @Override
+        public DriverPropertyInfo[] getPropertyInfo(String url, Properties info) {
+            return new DriverPropertyInfo[0];
+        }
+
+        @Override
+        public int getMajorVersion() {
+            return 1;
+        }
+
+        @Override
+        public int getMinorVersion() {
+            return 0;
+        }
+
+        @Override
+        public boolean jdbcCompliant() {
+            return false;
+        }
+
+        @Override
+        public Logger getParentLogger() throws SQLFeatureNotSupportedException {
+            throw new SQLFeatureNotSupportedException();
+        }
+    }
+
+    /**
+     * the state of a stub connection
+     */
+    private static class StubConnection {
+        private boolean closed = false;
+        private boolean autoCommit = true;
+        private int rollbacks = 0;
+        private final Connection proxy = (Connection) Proxy.newProxyInstance(
+                Connection.class.getClassLoader(), new Class<?>[]{Connection.class}, (proxy, method, args) -> {
+                    switch (method.getName()) {
+                        case "close":
+                            closed = true;
+                            return null;
+                        case "isClosed":
+                            return closed;
+                        case "setAutoCommit":
+                            autoCommit = (Boolean) args[0];
+                            return null;
+                        case "getAutoCommit":
+                            return autoCommit;
+                        case "rollback":
+                            rollbacks++;
+                            return null;
+                        case "isValid":
+                            return !closed;
+                        case "unwrap":
+                            return proxy;
+                        case "createStatement":
+                            return createStatement();
+                        case "hashCode":
+                            return System.identityHashCode(proxy);
+                        case "equals":
+                            return proxy == args[0];
+                        default:
+                            return null;
+                    }
+                });
+
+        private Statement createStatement() {
+            boolean[] statementClosed = {false};
+            return (Statement) Proxy.newProxyInstance(
+                    Statement.class.getClassLoader(), new Class<?>[]{Statement.class}, (proxy, method, args) -> {
+                        switch (method.getName()) {
+                            case "close":
+                                statementClosed[0] = true;
+                                return null;
+                            case "isClosed":
+                                return statementClosed[0];
+                            default:
+                                return null;
+                        }
+                    });
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.vctsi.internal;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class SqlIndexManagerTest {
+
+    @Test
+    public void testFullTextQueryMysql() {
+        SqlIndexManager indexManager = new SqlIndexManager(null, SqlType.MYSQL);
+        assertEquals("+fixed* +crash* +parser*", indexManager.toFullTextQuery("fixed the crash in %parser%"));
+        assertEquals("+ABC* +123*", indexManager.toFullTextQuery("ABC-123"));
+    }
+
+    @Test
+    public void testFullTextQueryMysqlOnlyShortWords() {
+        SqlIndexManager indexManager = new SqlIndexManager(null, SqlType.MYSQL);
+        assertNull(indexManager.toFullTextQuery("a to 12"));
+        assertNull(indexManager.toFullTextQuery("%"));
+    }
+
+    @Test
+    public void testFullTextQueryPostgresql() {
+        SqlIndexManager indexManager = new SqlIndexManager(null, SqlType.POSTGRESQL);
+        assertEquals("fixed:* & the:* & crash:*", indexManager.toFullTextQuery("fixed the crash"));
+        assertEquals("r12:*", indexManager.toFullTextQuery("#r12"));
+        assertNull(indexManager.toFullTextQuery("%"));
+    }
+
+    @Test
+    public void testLikePrefilterQuery() {
+        SqlIndexManager indexManager = new SqlIndexManager(null, SqlType.MYSQL);
+        //the first word could be the end of a longer word
+        assertEquals("+crash* +parser*", indexManager.toLikePrefilterQuery("%fixed crash in parser%"));
+        assertEquals("+fixed* +crash*", indexManager.toLikePrefilterQuery("fixed crash%"));
+        assertEquals("+parser*", indexManager.toLikePrefilterQuery("%crash_in parser%"));
+        assertEquals("crash:*", new SqlIndexManager(null, SqlType.POSTGRESQL).toLikePrefilterQuery("%fixed crash%"));
+    }
+
+    @Test
+    public void testLikePrefilterQueryWithoutIndexedWord() {
+        SqlIndexManager indexManager = new SqlIndexManager(null, SqlType.MYSQL);
+        assertNull(indexManager.toLikePrefilterQuery("%crash%"));
+        assertNull(indexManager.toLikePrefilterQuery("%fix a to%"));
+        //"abo" would not find the stopword "about"
+        assertNull(indexManager.toLikePrefilterQuery("%fix abo%"));
+    }
+
+    @Test
+    public void testFullTextCondition() {
+        assertEquals("MATCH (`message`) AGAINST (? IN BOOLEAN MODE)",
+                new SqlIndexManager(null, SqlType.MYSQL).getFullTextCondition("message"));
+        assertEquals("to_tsvector('simple', coalesce(`message`, '')) @@ to_tsquery('simple', ?)",
+                new SqlIndexManager(null, SqlType.POSTGRESQL).getFullTextCondition("message"));
+    }
+}
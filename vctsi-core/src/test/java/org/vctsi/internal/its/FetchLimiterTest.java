@@ -0,0 +1,108 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+public class FetchLimiterTest {
+
+    @Test
+    public void testForTracker() {
+        FetchLimiter limiter = FetchLimiter.forTracker("github|https://api.github.com", 4);
+        assertSame(limiter, FetchLimiter.forTracker("github|https://api.github.com", 4));
+        assertNotSame(limiter, FetchLimiter.forTracker("gitlab|https://gitlab.com", 4));
+        assertEquals(4, limiter.getMaxInFlight());
+        //the tracker keeps its first limit
+        assertSame(limiter, FetchLimiter.forTracker("github|https://api.github.com", 8));
+        assertEquals(4, limiter.getMaxInFlight());
+        assertNull(FetchLimiter.forTracker("github|https://api.github.com", 0));
+    }
+
+    @Test
+    public void testInFlightBounded() throws Exception {
+        FetchLimiter limiter = new FetchLimiter(3);
+        AtomicInteger running = new AtomicInteger();
+        AtomicInteger maxRunning = new AtomicInteger();
+        CountDownLatch release = new CountDownLatch(1);
+        List<CompletableFuture<Integer>> fetches = new ArrayList<>();
+
+        Thread producer = new Thread(() -> {
+            try {
+                for (int i = 0; i < 20; i++) {
+                    int value = i;
+                    fetches.add(limiter.submit(() -> {
+                        maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+                        try {
+                            release.await();
+                        } catch (InterruptedException e) {
+                            Thread.currentThread().interrupt();
+                        }
+                        running.decrementAndGet();
+                        return value;
+                    }));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        producer.start();
+        //the producer has to wait for permits after the third request
+        while (limiter.getInFlight() < 3) {
+            Thread.sleep(10);
+        }
+        Thread.sleep(100);
+        assertTrue(producer.isAlive());
+        assertEquals(3, limiter.getInFlight());
+
+        release.countDown();
+        producer.join(TimeUnit.SECONDS.toMillis(10));
+        for (int i = 0; i < 20; i++) {
+            assertEquals(i, (int) fetches.get(i).get(10, TimeUnit.SECONDS));
+        }
+        assertEquals(3, maxRunning.get());
+        assertEquals(0, limiter.getInFlight());
+    }
+
+    @Test
+    public void testPermitReleasedOnError() throws Exception {
+        FetchLimiter limiter = new FetchLimiter(1);
+        CompletableFuture<Object> fetch = limiter.submit(() -> {
+            throw new IllegalStateException("request failed");
+        });
+        assertTrue(fetch.handle((result, e) -> e != null).get(10, TimeUnit.SECONDS));
+        assertEquals("ok", limiter.submit(() -> "ok").get(10, TimeUnit.SECONDS));
+    }
+}
@@ -0,0 +1,173 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import com.sun.net.httpserver.HttpServer;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.InetSocketAddress;
+import java.net.URL;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+
+public class HttpResponseCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private final List<String> ifNoneMatch = Collections.synchronizedList(new ArrayList<>());
+    private final AtomicInteger version = new AtomicInteger(1);
+    private HttpServer server;
+
+    @Before
+    public void startServer() throws IOException {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        //answers with the current version of the page and 304 if the client already has it
+        server.createContext("/page", exchange -> {
+            String etag = "\"v" + version.get() + "\"";
+            ifNoneMatch.add(exchange.getRequestHeaders().getFirst("If-None-Match"));
+            exchange.getResponseHeaders().add("X-RateLimit-Remaining", "" + (100 - ifNoneMatch.size()));
+            if (etag.equals(exchange.getRequestHeaders().getFirst("If-None-Match"))) {
+                exchange.sendResponseHeaders(304, -1);
+                exchange.close();
+                return;
+            }
+            byte[] body = ("version " + version.get()).getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().add("ETag", etag);
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.start();
+    }
+
+    @After
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void testNotModifiedIsServedFromCache() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+        assertEquals("version 1", request(cache));
+        assertEquals("version 1", request(cache));
+        assertEquals(null, ifNoneMatch.get(0));
+        assertEquals("\"v1\"", ifNoneMatch.get(1));
+
+        HttpURLConnection connection = new CachingHttpURLConnection(getUrl(), cache);
+        assertEquals(200, connection.getResponseCode());
+        //the headers of the 304 response replace the stored ones
+        assertEquals("97", connection.getHeaderField("X-RateLimit-Remaining"));
+
+        version.set(2);
+        assertEquals("version 2", request(cache));
+        assertEquals("version 2", request(cache));
+    }
+
+    @Test
+    public void testCacheIsPersisted() throws IOException {
+        assertEquals("version 1", request(new HttpResponseCache(folder.getRoot(), 1024 * 1024)));
+        assertEquals("version 1", request(new HttpResponseCache(folder.getRoot(), 1024 * 1024)));
+        assertEquals("\"v1\"", ifNoneMatch.get(1));
+    }
+
+    @Test
+    public void testCredentialsArePartOfTheKey() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+        HttpURLConnection connection = new CachingHttpURLConnection(getUrl(), cache);
+        connection.setRequestProperty("Authorization", "token a");
+        assertEquals(200, connection.getResponseCode());
+        connection = new CachingHttpURLConnection(getUrl(), cache);
+        connection.setRequestProperty("Authorization", "token b");
+        assertEquals(200, connection.getResponseCode());
+        assertNull(ifNoneMatch.get(1));
+    }
+
+    @Test
+    public void testCredentialsAreNotStored() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+        HttpURLConnection connection = new CachingHttpURLConnection(getUrl(), cache);
+        connection.setRequestProperty("PRIVATE-TOKEN", "secret-token");
+        assertEquals(200, connection.getResponseCode());
+        File[] files = folder.getRoot().listFiles();
+        assertNotNull(files);
+        assertEquals(1, files.length);
+        String entry = new String(Files.readAllBytes(files[0].toPath()), StandardCharsets.UTF_8);
+        assertFalse(entry.contains("secret-token"));
+    }
+
+    @Test
+    public void testLeastRecentlyUsedIsEvicted() throws IOException {
+        HttpResponseCache cache = new HttpResponseCache(folder.getRoot(), 1024 * 1024);
+        HttpResponseCache.Response response = new HttpResponseCache.Response(200, "OK", new HashMap<>(), new byte[400]);
+        cache.put("a", response);
+        cache.put("b", response);
+        long entrySize = cache.getSize() / 2;
+
+        cache = new HttpResponseCache(folder.getRoot(), entrySize * 2);
+        assertNotNull(cache.get("a"));
+        cache.put("c", response);
+        assertEquals(entrySize * 2, cache.getSize());
+        assertNull(cache.get("b"));
+        assertNotNull(cache.get("a"));
+        assertNotNull(cache.get("c"));
+    }
+
+    private String request(HttpResponseCache cache) throws IOException {
+        HttpURLConnection connection = new CachingHttpURLConnection(getUrl(), cache);
+        assertEquals(200, connection.getResponseCode());
+        ByteArrayOutputStream body = new ByteArrayOutputStream();
+        try (InputStream in = connection.getInputStream()) {
+            int read;
+            while ((read = in.read()) != -1) {
+                body.write(read);
+            }
+        }
+        return new String(body.toByteArray(), StandardCharsets.UTF_8);
+    }
+
+    private URL getUrl() throws IOException {
+        return new URL("http://localhost:" + server.getAddress().getPort() + "/page");
+    }
+}
@@ -33,6 +33,7 @@ import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.time.ZoneOffset;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
 
 import static org.junit.Assert.assertEquals;
@@ -228,6 +229,28 @@ public class ITSModuleSearchTest {
         assertEquals(result.get(1), issues.get(8));
     }
 
+    @Test
+    public void reimportUpdatesIssueAndKeepsLastUpdate() throws SQLException {
+        Issue changed = issues.get(0);
+        ITSSqlModule sqlModule = new ITSSqlModule(dbSettings);
+        sqlModule.prepareTicketImport(project);
+        sqlModule.importIssue(changed.getId(), changed.getName(), "testtitle0_changed", changed.getDescription(), changed.getAuthor(), changed.getCreationDate(), changed.getState().toString(), changed.getAssignee(), changed.getTargetVersion());
+        sqlModule.finishImport();
+
+        ITSSearchParameters parameters = new ITSSearchParameters();
+        parameters.setTitle("testtitle0_changed");
+        List<Issue> result = executeSearchTest(parameters);
+        assertEquals(1, result.size());
+        assertEquals(changed.getId(), result.get(0).getId());
+
+        Date lastUpdate = new Date(1480000000000L);
+        sqlModule = new ITSSqlModule(dbSettings);
+        sqlModule.saveLastUpdate(project, lastUpdate);
+        sqlModule = new ITSSqlModule(dbSettings);
+        assertEquals(lastUpdate.getTime(), sqlModule.getLastUpdate(project).getTime());
+        sqlModule.close();
+    }
+
     private List<Issue> executeSearchTest(ITSSearchParameters parameters) {
         ITSModule module = new ITSTestModule();
         module.setDBSettings(dbSettings);
@@ -0,0 +1,152 @@
+package org.vctsi.internal.its;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+public class RateLimiterTest {
+
+    @Test
+    public void testForTracker() {
+        RateLimiter limiter = RateLimiter.forTracker("gitlab|https://gitlab.com", 10, 10, 4);
+        assertSame(limiter, RateLimiter.forTracker("gitlab|https://gitlab.com", 10, 10, 4));
+        assertEquals(4, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testTokenBucket() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(20, 5, 100);
+        long start = System.nanoTime();
+        for (int i = 0; i < 15; i++) {
+            limiter.acquire();
+            limiter.release(true);
+        }
+        //the first 5 requests use the burst, the other 10 need 50ms each
+        long duration = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertTrue("took " + duration + " ms", duration >= 450);
+        assertTrue("took " + duration + " ms", duration < 2000);
+    }
+
+    @Test
+    public void testAdaptiveConcurrency() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1000, 1000, 8);
+        limiter.onOverloaded();
+        limiter.onOverloaded();
+        assertEquals(2, limiter.getConcurrencyLimit());
+        limiter.awaitResume();
+        //the limit is increased by one after a limit of successful requests
+        for (int i = 0; i < 2; i++) {
+            limiter.acquire();
+            limiter.release(true);
+        }
+        assertEquals(3, limiter.getConcurrencyLimit());
+        limiter.acquire();
+        limiter.release(false);
+        assertEquals(3, limiter.getConcurrencyLimit());
+    }
+
+    @Test
+    public void testRetryOnThrottling() throws Exception {
+        RateLimiter limiter = new RateLimiter(1000, 1000, 8);
+        AtomicInteger attempts = new AtomicInteger();
+        long start = System.nanoTime();
+        String result = limiter.execute(() -> {
+            if (attempts.incrementAndGet() == 1) {
+                throw new IOException("429");
+            }
+            return "ok";
+        }, e -> "429".equals(e.getMessage()) ? RateLimiter.Throttling.rateLimited(200) : null);
+        assertEquals("ok", result);
+        assertEquals(2, attempts.get());
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 190);
+    }
+
+    @Test
+    public void testNoRetryOnOtherErrors() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1000, 1000, 1);
+        AtomicInteger attempts = new AtomicInteger();
+        try {
+            limiter.execute(() -> {
+                attempts.incrementAndGet();
+                throw new IOException("404");
+            }, e -> "429".equals(e.getMessage()) ? RateLimiter.Throttling.rateLimited(0) : null);
+            fail();
+        } catch (IOException e) {
+            assertEquals("404", e.getMessage());
+        }
+        assertEquals(1, attempts.get());
+        //the slot was returned
+        limiter.acquire();
+        limiter.release(true);
+    }
+
+    @Test
+    public void testRateIsRestoredAfterReset() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(100, 1, 1);
+        limiter.updateRemaining(1, System.currentTimeMillis() + 200);
+        assertTrue(limiter.getRequestsPerSecond() < 10);
+        Thread.sleep(250);
+        assertEquals(100, limiter.getRequestsPerSecond(), 0.001);
+    }
+
+    @Test
+    public void testUpdateFromHeaders() throws InterruptedException {
+        RateLimiter limiter = new RateLimiter(1, 1, 1);
+        Map<String, List<String>> headers = new HashMap<>();
+        long reset = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 100;
+        headers.put("x-ratelimit-remaining", Collections.singletonList("5000"));
+        headers.put("X-RateLimit-Reset", Collections.singletonList("" + reset));
+        limiter.updateFromHeaders(headers);
+        assertTrue(limiter.getRequestsPerSecond() > 45);
+        assertTrue(limiter.getRequestsPerSecond() < 55);
+
+        headers.clear();
+        headers.put("Retry-After", Arrays.asList("1"));
+        long start = System.nanoTime();
+        limiter.updateFromHeaders(headers);
+        limiter.acquire();
+        limiter.release(true);
+        assertTrue(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start) >= 950);
+    }
+
+    @Test
+    public void testParseRetryAfter() {
+        assertEquals(120000, RateLimiter.parseRetryAfter("120", 0));
+        assertEquals(30000, RateLimiter.parseRetryAfter("Wed, 21 Oct 2015 07:28:30 GMT", 1445412480000L));
+        assertEquals(0, RateLimiter.parseRetryAfter("soon", 0));
+    }
+}
@@ -0,0 +1,84 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.Assert.*;
+
+public class VCSCommitGraphTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    /**
+     * a - b - c - f (master)
+     *      \     /
+     *       d - e (feature, created before c)
+     */
+    private VCSCommitGraph createGraph() {
+        Map<String, List<String>> parents = new LinkedHashMap<>();
+        parents.put("f", Arrays.asList("c", "e"));
+        parents.put("e", Collections.singletonList("d"));
+        parents.put("c", Collections.singletonList("b"));
+        parents.put("d", Collections.singletonList("b"));
+        parents.put("b", Collections.singletonList("a"));
+        parents.put("a", Collections.emptyList());
+        return new VCSCommitGraph("key", parents);
+    }
+
+    @Test
+    public void testRange() {
+        VCSCommitGraph graph = createGraph();
+        assertEquals(new HashSet<>(Arrays.asList("c", "d", "e", "f")), new HashSet<>(graph.getRange("b", "f")));
+        //the commits of the feature branch are in the range although they are older than c
+        assertEquals(new HashSet<>(Arrays.asList("d", "e", "f")), new HashSet<>(graph.getRange("c", "f")));
+        assertEquals(new HashSet<>(Arrays.asList("d", "e")), new HashSet<>(graph.getRange("c", "e")));
+        assertTrue(graph.getRange("f", "c").isEmpty());
+        assertNull(graph.getRange("x", "f"));
+    }
+
+    @Test
+    public void testMissingParent() {
+        Map<String, List<String>> parents = new LinkedHashMap<>();
+        parents.put("b", Collections.singletonList("a"));
+        VCSCommitGraph graph = new VCSCommitGraph("key", parents);
+        assertEquals(1, graph.size());
+        assertFalse(graph.contains("a"));
+    }
+
+    @Test
+    public void testWriteAndRead() throws Exception {
+        File file = new File(folder.getRoot(), "vcs_test.graph");
+        createGraph().write(file);
+        VCSCommitGraph graph = VCSCommitGraph.read(file);
+        assertEquals("key", graph.getKey());
+        assertEquals(6, graph.size());
+        assertEquals(new HashSet<>(Arrays.asList("d", "e", "f")), new HashSet<>(graph.getRange("c", "f")));
+    }
+}
@@ -0,0 +1,77 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Test;
+
+import java.sql.Types;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+
+public class VCSCommitIdTypeTest {
+
+    @Test
+    public void sha1RoundTrip() {
+        String id = "7bd86d147c1171fb52a159a4129757389243dc15";
+        byte[] bytes = VCSCommitIdType.toBytes(id);
+        assertEquals(20, bytes.length);
+        assertEquals((byte) 0x7b, bytes[0]);
+        assertEquals((byte) 0x15, bytes[19]);
+        assertEquals(id, VCSCommitIdType.toHex(bytes));
+    }
+
+    @Test
+    public void missingSha1IsStoredAsZeros() {
+        assertArrayEquals(new byte[20], VCSCommitIdType.toBytes(null));
+        assertNull(VCSCommitIdType.toHex(new byte[20]));
+        assertNull(VCSCommitIdType.toHex(null));
+        assertEquals("0000000000000000000000000000000000000000", VCSCommitIdType.SHA1.toBulkValue(null));
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void abbreviatedSha1IsRejected() {
+        VCSCommitIdType.toBytes("7bd86d1");
+    }
+
+    @Test
+    public void typeOfColumn() {
+        assertEquals(VCSCommitIdType.SHA1, VCSCommitIdType.fromSqlType(Types.BINARY));
+        assertEquals(VCSCommitIdType.SHA1, VCSCommitIdType.fromSqlType(Types.VARBINARY));
+        assertEquals(VCSCommitIdType.NUMBER, VCSCommitIdType.fromSqlType(Types.BIGINT));
+        assertEquals(VCSCommitIdType.TEXT, VCSCommitIdType.fromSqlType(Types.VARCHAR));
+    }
+
+    @Test
+    public void dictionaryAssignsEveryNameOnce() {
+        VCSDictionary dictionary = new VCSDictionary();
+        Integer first = dictionary.add("src/Main.java");
+        Integer second = dictionary.add("src/Util.java");
+        assertEquals(Integer.valueOf(1), first);
+        assertEquals(Integer.valueOf(2), second);
+        assertNull(dictionary.add("src/Main.java"));
+        assertEquals(first, dictionary.get("src/Main.java"));
+        assertEquals(2, dictionary.size());
+    }
+}
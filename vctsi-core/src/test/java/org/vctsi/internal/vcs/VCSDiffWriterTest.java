@@ -0,0 +1,90 @@
+package org.vctsi.internal.vcs;
+
+/*-
+ * #%L
+ * vctsi-core
+ * %%
+ * Copyright (C) 2016 - 2017 Michael Pietsch (aka. Skywalker-11)
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ * 
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Public License for more details.
+ * 
+ * You should have received a copy of the GNU General Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/gpl-3.0.html>.
+ * #L%
+ */
+
+import org.junit.Test;
+import org.vctsi.internal.DBSettings;
+import org.vctsi.internal.SqlConnectionPool;
+import org.vctsi.utils.OutputUtil;
+
+import java.sql.Connection;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.vctsi.TestParameters.*;
+
+public class VCSDiffWriterTest {
+    private static DBSettings dbSettings = new DBSettings(DB_SERVER, DB_PORT, DB_DB, DB_USER, DB_PASSWORD);
+    private static String project = "DEBUGWRITER";
+
+    @Test
+    public void partitionKeepsCommitsTogether() {
+        for (int writers = 1; writers <= 5; writers++) {
+            for (int i = 0; i < 100; i++) {
+                String commit = Integer.toHexString(i * 7919);
+                int partition = VCSDiffWriter.getPartition(commit, writers);
+                assertTrue(partition >= 0 && partition < writers);
+                assertEquals(partition, VCSDiffWriter.getPartition(new String(commit), writers));
+            }
+        }
+        assertEquals(0, VCSDiffWriter.getPartition(null, 3));
+    }
+
+    @Test
+    public void writesAllChangesWithSeveralWriters() throws SQLException, InterruptedException {
+        OutputUtil.DEBUG = false;
+        VCSSqlModule setupModule = new VCSSqlModule(dbSettings);
+        setupModule.recreateVcsTables(project);
+        setupModule.close();
+
+        ThreadLocal<VCSSqlModule> sqlModules = ThreadLocal.withInitial(() -> {
+            try {
+                VCSSqlModule module = new VCSSqlModule(dbSettings);
+                module.prepareCommitImport(project);
+                return module;
+            } catch (SQLException e) {
+                return null;
+            }
+        });
+        VCSDiffWriter writer = new VCSDiffWriter(sqlModules::get, 3);
+        //more changes than fit into the queues so the producer has to wait for the writers
+        int changes = VCSDiffWriter.QUEUE_CAPACITY * 4;
+        for (int i = 0; i < changes; i++) {
+            writer.put(new FileChange("commit" + (i / 10), "parent" + (i / 10), "file" + i, "file" + i, i % 10));
+        }
+        List<String> errors = writer.finish();
+        assertTrue(errors.toString(), errors.isEmpty());
+        assertEquals(0, writer.getQueueDepth());
+
+        try (Connection connection = SqlConnectionPool.get(dbSettings).getConnection();
+             Statement stmt = connection.createStatement();
+             ResultSet rs = stmt.executeQuery("SELECT COUNT(*) FROM `vcs_" + project + "_diff`")) {
+            assertTrue(rs.next());
+            assertEquals(changes, rs.getInt(1));
+        }
+    }
+}
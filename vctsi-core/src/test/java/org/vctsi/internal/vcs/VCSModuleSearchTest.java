@@ -29,11 +29,15 @@ import org.vctsi.internal.DBSettings;
 import org.vctsi.internal.tasks.SearchCommitTask;
 import org.vctsi.utils.OutputUtil;
 
+import java.io.IOException;
 import java.sql.SQLException;
 import java.time.LocalDateTime;
 import java.util.AbstractList;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertTrue;
@@ -131,6 +135,8 @@ public class VCSModuleSearchTest {
                 }
             }
         }
+        sqlModule.importCommitParents("c", Collections.singletonList("a"));
+        sqlModule.importCommitParents("d", Arrays.asList("c", "a"));
 
         sqlModule.finishImport();
     }
@@ -202,6 +208,122 @@ public class VCSModuleSearchTest {
         assertEquals(result2.get(1), commits.get(2));
     }
 
+    @Test
+    public void readCommitParents() throws Exception {
+        Map<String, List<String>> parents = new VCSSqlModule(dbSettings).getCommitParents(project);
+        assertEquals(commits.size(), parents.size());
+        assertEquals(Collections.singletonList("a"), parents.get("c"));
+        assertEquals(Arrays.asList("c", "a"), parents.get("d"));
+        assertTrue(parents.get("a").isEmpty());
+    }
+
+    @Test
+    public void searchCommitRange() throws Exception {
+        VCSSearchParameters parameters = new VCSSearchParameters();
+        parameters.setStartCommit("a");
+        parameters.setEndCommit("d");
+        List<Commit> result = executeRangeSearchTest(parameters, 0);
+        assertEquals(2, result.size());
+        assertEquals(commits.get(1), result.get(0));
+        assertEquals(commits.get(2), result.get(1));
+    }
+
+    /**
+     * the range contains more commits than a statement can have placeholders, so the ids have to be passed another way
+     */
+    @Test
+    public void searchLargeCommitRange() throws Exception {
+        VCSSearchParameters parameters = new VCSSearchParameters();
+        parameters.setStartCommit("a");
+        parameters.setEndCommit("x69999");
+        List<Commit> result = executeRangeSearchTest(parameters, 70000);
+        assertEquals(2, result.size());
+        assertEquals(commits.get(1), result.get(0));
+        assertEquals(commits.get(2), result.get(1));
+    }
+
+    /**
+     * measures the latency of a search depending on the number of found commits. Every commit has two branches and
+     * three changed files that have to be loaded for the result.
+     */
+    //@Test
+    public void benchmarkSearchResultSize() throws Exception {
+        String benchmarkProject = "BENCHMARK";
+        String result = "";
+        for (int resultSize : new int[]{100, 1000, 10000, 50000}) {
+            VCSSqlModule sqlModule = new VCSSqlModule(dbSettings);
+            sqlModule.prepareStmts(benchmarkProject);
+            sqlModule.recreateVcsTables(benchmarkProject);
+            for (int i = 0; i < resultSize; i++) {
+                String id = String.format("%040x", i);
+                sqlModule.importCommit(id, "master", "message " + i, "benchmark author", LocalDateTime.of(2016, 1, 1, 0, 0).plusMinutes(i));
+                sqlModule.importCommitBranch(id, "develop");
+                for (int j = 0; j < 3; j++) {
+                    sqlModule.importDiff(id, String.format("%040x", i - 1), j, "file" + j, "file" + j);
+                }
+            }
+            sqlModule.finishImport();
+
+            VCSModule module = new VCSTestModule();
+            module.setDBSettings(dbSettings);
+            VCSSettings settings = new VCSSettings();
+            settings.setProject(benchmarkProject);
+            module.setSettings(settings);
+            VCSSearchParameters parameters = new VCSSearchParameters();
+            parameters.setAuthor("benchmark author");
+            SearchCommitTask task = new SearchCommitTask();
+            task.setSearchParameters(parameters);
+
+            long start = System.currentTimeMillis();
+            List<Commit> found = module.search(task);
+            long duration = System.currentTimeMillis() - start;
+            assertEquals(resultSize, found.size());
+            assertEquals(2, found.get(0).getBranches().size());
+            assertEquals(3, found.get(0).getChangedFiles().size());
+            result += resultSize + " commits: " + duration + " ms" + System.lineSeparator();
+        }
+        System.out.print(result);
+    }
+
+    /**
+     * searches with a module whose commit graph contains the imported parents and a chain of additional commits that
+     * were not imported on top of commit d
+     *
+     * @param parameters        the parameters of the search
+     * @param additionalCommits the number of commits on top of d
+     * @return the found commits
+     */
+    private List<Commit> executeRangeSearchTest(VCSSearchParameters parameters, int additionalCommits) {
+        VCSModule module = new VCSTestModule() {
+            @Override
+            protected String getCommitGraphKey() {
+                return "test" + additionalCommits;
+            }
+
+            @Override
+            protected VCSCommitGraph createCommitGraph(String key) throws IOException {
+                try {
+                    Map<String, List<String>> parents = new VCSSqlModule(dbSettings).getCommitParents(project);
+                    String previous = "d";
+                    for (int i = 0; i < additionalCommits; i++) {
+                        parents.put("x" + i, Collections.singletonList(previous));
+                        previous = "x" + i;
+                    }
+                    return new VCSCommitGraph(key, parents);
+                } catch (SQLException e) {
+                    throw new IOException(e);
+                }
+            }
+        };
+        module.setDBSettings(dbSettings);
+        VCSSettings settings = new VCSSettings();
+        settings.setProject(project);
+        module.setSettings(settings);
+        SearchCommitTask task = new SearchCommitTask();
+        task.setSearchParameters(parameters);
+        return module.search(task);
+    }
+
     private List<Commit> executeSearchTest(VCSSearchParameters parameters) {
         VCSModule module = new VCSTestModule();
         module.setDBSettings(dbSettings);
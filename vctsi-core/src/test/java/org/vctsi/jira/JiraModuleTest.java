@@ -74,6 +74,32 @@ public class JiraModuleTest extends VctsiTest {
         assertTrue(result);
     }
 
+    /**
+     * compares the import time of a project with different numbers of pages that are requested concurrently
+     */
+    //@Test
+    public void benchmarkPagesInFlight() throws JsonProcessingException {
+        String result = "";
+        for (int pagesInFlight : new int[]{1, 4, 8}) {
+            JiraModule module = new JiraModule();
+            ITSSettings settings = new ITSSettings();
+            settings.setProject(JIRA_PROJECT);
+            settings.setUsername(JIRA_USER);
+            settings.setPassword(JIRA_PASS);
+            settings.setPath(JIRA_PATH);
+            settings.setFetchConcurrency(pagesInFlight);
+            module.setDBSettings(new DBSettings(DB_SERVER, DB_PORT, DB_DB, DB_USER, DB_PASSWORD));
+            module.setSettings(settings);
+
+            long start = System.currentTimeMillis();
+            assertTrue(module.importIssues());
+            result += "pages in flight " + pagesInFlight + ": " + (System.currentTimeMillis() - start) + " ms" + System.lineSeparator();
+        }
+        assertEquals("", errContent.toString());
+        printOutput = true;
+        System.out.print(result);
+    }
+
     //@Test
     public void onlineSearchTest() throws JsonProcessingException {
         JiraModule module = new JiraModule();
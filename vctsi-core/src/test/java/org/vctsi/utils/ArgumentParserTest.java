@@ -59,7 +59,9 @@ public class ArgumentParserTest {
     public void cleanUpStreams() {
         System.setOut(out);
         System.setErr(err);
-
+        OutputUtil.PRETTY_PRINT = true;
+        OutputUtil.STREAM = false;
+        OutputUtil.FORMAT = OutputUtil.OutputFormat.JSON;
     }
 
     @Test
@@ -221,6 +223,7 @@ public class ArgumentParserTest {
                 "-searchIssueState=state1",
                 "-searchIssueTargetVersion=version1",
                 "-searchIssueTitle=title1",
+                "-searchIssueSkipComments",
                 "-vcsModule=VCSTestModule"
         }));
         ITSSearchParameters parameters = new ITSSearchParameters();
@@ -235,6 +238,7 @@ public class ArgumentParserTest {
         parameters.setState("state1");
         parameters.setTargetVersion("version1");
         parameters.setTitle("title1");
+        parameters.setSkipComments(true);
         SearchIssueTask task = new SearchIssueTask();
         task.setSearchParameters(parameters);
         assertTrue(errContent.toString().length() == 0);
@@ -369,6 +373,12 @@ public class ArgumentParserTest {
                 "-itsPath=c:\\TEST",
                 "-itsProject=proj1",
                 "-itsOnline=true",
+                "-itsFetchConcurrency=64",
+                "-itsRequestsPerMinute=1200",
+                "-itsOnlyNew",
+                "-itsCachePath=/tmp/vctsi-cache",
+                "-itsCacheSize=20",
+                "-itsCommentBatchSize=50",
                 "-getIssue=123",
                 "-itsModule=ITSTestModule"
         }));
@@ -380,11 +390,28 @@ public class ArgumentParserTest {
         itsSettings.setPassword("pass123");
         itsSettings.setPath("c:\\TEST");
         itsSettings.setOnline(true);
+        itsSettings.setFetchConcurrency(64);
+        itsSettings.setRequestsPerMinute(1200);
+        itsSettings.setOnlyNew(true);
+        itsSettings.setCachePath("/tmp/vctsi-cache");
+        itsSettings.setCacheSize(20);
+        itsSettings.setCommentBatchSize(50);
         assertEquals(ap.getItsSettings(), itsSettings);
         assertTrue(errContent.size() == 0);
         assertTrue(outContent.size() == 0);
     }
 
+    @Test
+    public void testITSFetchConcurrencyNotPositive() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-itsFetchConcurrency=-1",
+                "-importIssues"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_NOT_POSITIVE));
+        assertTrue(outContent.size() == 0);
+    }
+
     @Test
     public void testVCSSettingsValid() {
         ArgumentParser ap = new ArgumentParser();
@@ -395,6 +422,13 @@ public class ArgumentParserTest {
                 "-vcsRemotePath=http://TEST2",
                 "-vcsNoUpdate=true",
                 "-vcsSshKey=sshkey2349v",
+                "-vcsDiffBatchSize=250",
+                "-vcsDetectRenames",
+                "-vcsCompactSchema",
+                "-vcsCommitGraphCachePath=c:\\graphs",
+                "-vcsImportMode=bulk",
+                "-vcsBulkConnections=8",
+                "-vcsDiffWriters=3",
                 "-getCommit=ca123",
                 "-itsModule=ITSTestModule"
         }));
@@ -410,8 +444,110 @@ public class ArgumentParserTest {
         vcsSettings.setRemotePath("http://TEST2");
         vcsSettings.setBranchRootFolder("root/branches");
         vcsSettings.setSshKey("sshkey2349v");
+        vcsSettings.setDiffBatchSize(250);
+        vcsSettings.setDetectRenames(true);
+        vcsSettings.setCompactSchema(true);
+        vcsSettings.setCommitGraphCachePath("c:\\graphs");
+        vcsSettings.setImportMode(VCSSettings.ImportMode.BULK);
+        vcsSettings.setBulkConnections(8);
+        vcsSettings.setDiffWriters(3);
         assertEquals(ap.getVcsSettings(), vcsSettings);
         assertTrue(errContent.size() == 0);
         assertTrue(outContent.size() == 0);
     }
+
+    @Test
+    public void testVCSDiffBatchSizeInvalid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-vcsDiffBatchSize=many",
+                "-importCommits"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_PARSE_INTEGERS));
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testVCSDiffBatchSizeNotPositive() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-vcsDiffBatchSize=0",
+                "-importCommits"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_NOT_POSITIVE));
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testVCSImportModeInvalid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-vcsImportMode=fast",
+                "-importCommits"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_PARSE_IMPORT_MODE));
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testOutputSettingsValid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertTrue(ap.parse(new String[]{
+                "-outputCompact",
+                "-outputStream",
+                "-outputFormat=ndjson",
+                "-importCommits"
+        }));
+        assertFalse(OutputUtil.PRETTY_PRINT);
+        assertTrue(OutputUtil.STREAM);
+        assertEquals(OutputUtil.OutputFormat.NDJSON, OutputUtil.FORMAT);
+        assertTrue(errContent.size() == 0);
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testOutputSettingInvalid() throws JsonProcessingException {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-outputColor",
+                "-importCommits"
+        }));
+        assertEquals(OutputUtil.getErrorMessageAsJsonString(ArgumentParser.ERROR_UNKNOWN_IDENTIFIER + "-outputColor") + System.lineSeparator(), errContent.toString());
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testOutputFormatInvalid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-outputFormat=xml",
+                "-importCommits"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_PARSE_OUTPUT_FORMAT));
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testServerSettingsValid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertTrue(ap.parse(new String[]{
+                "-serverPort=4711",
+                "-vcsModule=VCSTestModule"
+        }));
+        assertTrue(ap.isServer());
+        assertEquals(4711, ap.getServerPort());
+        assertTrue(ap.getTask() == null);
+        assertTrue(errContent.size() == 0);
+        assertTrue(outContent.size() == 0);
+    }
+
+    @Test
+    public void testServerPortInvalid() {
+        ArgumentParser ap = new ArgumentParser();
+        assertFalse(ap.parse(new String[]{
+                "-serverPort=abc"
+        }));
+        assertTrue(errContent.toString().contains(ArgumentParser.ERROR_PARSE_INTEGERS));
+        assertTrue(outContent.size() == 0);
+    }
 }
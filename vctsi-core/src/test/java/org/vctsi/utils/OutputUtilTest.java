@@ -62,7 +62,8 @@ public class OutputUtilTest {
     public void cleanUpStreams() {
         System.setOut(out);
         System.setErr(err);
-
+        OutputUtil.PRETTY_PRINT = true;
+        OutputUtil.FORMAT = OutputUtil.OutputFormat.JSON;
     }
 
     @Test
@@ -85,17 +86,67 @@ public class OutputUtilTest {
         testIssueOutput(issues);
     }
 
+    @Test
+    public void testPrintIssueListCompact() throws IOException {
+        OutputUtil.PRETTY_PRINT = false;
+        List<Issue> issues = createTestIssues();
+        testIssueOutput(issues);
+        assertEquals(1, outContent.toString().split("\\R").length);
+    }
+
+    @Test
+    public void testPrintEmptyList() {
+        OutputUtil.printObjectList(new ArrayList<Issue>());
+        assertEquals("[ ]" + System.lineSeparator(), outContent.toString());
+        outContent.reset();
+        OutputUtil.PRETTY_PRINT = false;
+        OutputUtil.printObjectList(new ArrayList<Issue>());
+        assertEquals("[]" + System.lineSeparator(), outContent.toString());
+    }
+
+    @Test
+    public void testStartObjectList() throws IOException {
+        List<Issue> issues = createTestIssues();
+        try (OutputUtil.ObjectListWriter writer = OutputUtil.startObjectList()) {
+            for (Issue issue : issues) {
+                writer.write(issue);
+            }
+        }
+        String streamed = outContent.toString();
+        outContent.reset();
+        testIssueOutput(issues);
+        assertEquals(outContent.toString(), streamed);
+    }
+
+    @Test
+    public void testPrintIssueListNdjson() throws IOException {
+        OutputUtil.FORMAT = OutputUtil.OutputFormat.NDJSON;
+        List<Issue> issues = createTestIssues();
+        OutputUtil.printObjectList(issues);
+        assertTrue(errContent.size() == 0);
+        String[] lines = outContent.toString().split("\n");
+        assertEquals(issues.size(), lines.length);
+        assertTrue(outContent.toString().endsWith("\n"));
+
+        ObjectMapper mapper = createMapper();
+        for (int i = 0; i < lines.length; i++) {
+            assertEquals(issues.get(i), mapper.readValue(lines[i], Issue.class));
+        }
+    }
+
+    @Test
+    public void testPrintEmptyListNdjson() {
+        OutputUtil.FORMAT = OutputUtil.OutputFormat.NDJSON;
+        OutputUtil.printObjectList(new ArrayList<Issue>());
+        assertEquals("", outContent.toString());
+    }
+
     private void testIssueOutput(List<Issue> issues) throws IOException {
         OutputUtil.printObjectList(issues);
         assertTrue(errContent.size() == 0);
         String output = outContent.toString();
 
-        ObjectMapper mapper = new ObjectMapper();
-        SimpleModule serializerModule = new SimpleModule("MyModule", new Version(2, 7, 0, null, "com.fasterxml.jackson.core", "jackson-databind"));
-        serializerModule.addSerializer(LocalDateTime.class, new LocalDateTimeToJsonSerializer());
-        serializerModule.addDeserializer(LocalDateTime.class, new JsonStringToLocalDateTimeDeserializer());
-        mapper.registerModule(serializerModule);
-
+        ObjectMapper mapper = createMapper();
         List<Issue> parsed = mapper.readValue(output, new TypeReference<List<Issue>>() {
         });
         assertTrue(parsed.size() == issues.size());
@@ -104,6 +155,15 @@ public class OutputUtilTest {
         }
     }
 
+    private ObjectMapper createMapper() {
+        ObjectMapper mapper = new ObjectMapper();
+        SimpleModule serializerModule = new SimpleModule("MyModule", new Version(2, 7, 0, null, "com.fasterxml.jackson.core", "jackson-databind"));
+        serializerModule.addSerializer(LocalDateTime.class, new LocalDateTimeToJsonSerializer());
+        serializerModule.addDeserializer(LocalDateTime.class, new JsonStringToLocalDateTimeDeserializer());
+        mapper.registerModule(serializerModule);
+        return mapper;
+    }
+
     private List<Issue> createTestIssues() {
         List<Issue> issues = new ArrayList<>();
         for (int i = 0; i < 5; i++) {